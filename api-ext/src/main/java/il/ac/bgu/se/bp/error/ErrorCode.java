@@ -10,6 +10,7 @@ public enum ErrorCode {
     NOT_IN_BP_SYNC_STATE(6),
     CANNOT_REPLACE_SNAPSHOT(7),
     CANNOT_ADD_EXTERNAL_EVENT_ON_JS_DEBUG_STATE(8),
+    SYNC_SNAPSHOT_NOT_FOUND(9),
 
 
     WAITING_FOR_EXTERNAL_EVENT(19),
@@ -27,13 +28,17 @@ public enum ErrorCode {
     INVALID_REQUEST(80),
     INVALID_SOURCE_CODE(81),
     UNKNOWN_USER(82),
+    SERVER_BUSY(83),
+    USER_QUOTA_EXCEEDED(84),
+    BUDGET_EXCEEDED(85),
 
 
     GENERAL_ERROR(100),
     NOT_SUPPORTED(101),
 
 
-    IMPORT_SYNC_SNAPSHOT_FAILURE(300)
+    IMPORT_SYNC_SNAPSHOT_FAILURE(300),
+    SYNC_SNAPSHOT_TOO_LARGE(301)
     ;
 
 
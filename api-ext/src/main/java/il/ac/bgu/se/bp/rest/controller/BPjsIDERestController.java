@@ -5,7 +5,11 @@ import il.ac.bgu.se.bp.rest.response.BooleanResponse;
 import il.ac.bgu.se.bp.rest.response.DebugResponse;
 import il.ac.bgu.se.bp.rest.response.EventsHistoryResponse;
 import il.ac.bgu.se.bp.rest.response.SyncSnapshot;
+import il.ac.bgu.se.bp.rest.response.VariableExpansionResponse;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.Principal;
 
 public interface BPjsIDERestController {
@@ -14,6 +18,7 @@ public interface BPjsIDERestController {
 
     BooleanResponse run(String userId, RunRequest code);
     DebugResponse debug(String userId, DebugRequest code);
+    BooleanResponse verify(String userId, VerifyRequest verifyRequest);
 
     BooleanResponse setBreakpoint(String userId, SetBreakpointRequest setBreakpointRequest);
     BooleanResponse toggleMuteBreakpoints(String userId, ToggleBreakpointsRequest toggleBreakpointsRequest);
@@ -30,8 +35,13 @@ public interface BPjsIDERestController {
 
     BooleanResponse externalEvent(String userId, ExternalEventRequest externalEventRequest);
     EventsHistoryResponse getEventsHistory(String userId, int from, int to);
+    VariableExpansionResponse expandVariable(String userId, long handle, int from, int count);
 
     BooleanResponse setSyncSnapshot(String userId, SetSyncSnapshotRequest setSyncSnapshotRequest);
+    BooleanResponse pinSyncSnapshot(String userId, PinSyncSnapshotRequest pinSyncSnapshotRequest);
+    BooleanResponse resyncState(String userId);
     SyncSnapshot exportSyncSnapshot(String userId);
     BooleanResponse importSyncSnapshot(String userId, ImportSyncSnapshotRequest importSyncSnapshotRequest);
+    void exportSyncSnapshotArchive(String userId, boolean isDeflate, HttpServletResponse response) throws IOException;
+    BooleanResponse importSyncSnapshotArchive(String userId, ImportSyncSnapshotRequest importSyncSnapshotRequest, InputStream inputStream);
 }
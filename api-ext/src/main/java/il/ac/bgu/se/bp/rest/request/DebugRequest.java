@@ -10,6 +10,8 @@ public class DebugRequest extends RunRequest {
     private List<Integer> breakpoints = new LinkedList<>();
     private boolean skipBreakpointsToggle;
     private boolean skipSyncStateToggle;
+    private boolean stateDeltas;
+    private List<String> eventTrace = new LinkedList<>();
 
     public DebugRequest() {
     }
@@ -48,18 +50,37 @@ public class DebugRequest extends RunRequest {
         this.skipSyncStateToggle = skipSyncStateToggle;
     }
 
+    public boolean isStateDeltas() {
+        return stateDeltas;
+    }
+
+    public void setStateDeltas(boolean stateDeltas) {
+        this.stateDeltas = stateDeltas;
+    }
+
+    /**
+     * @return names of events to select first, in order, e.g. the violation trace of a verification
+     */
+    public List<String> getEventTrace() {
+        return eventTrace;
+    }
+
+    public void setEventTrace(List<String> eventTrace) {
+        this.eventTrace = eventTrace;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         if (!super.equals(o)) return false;
         DebugRequest that = (DebugRequest) o;
-        return skipBreakpointsToggle == that.skipBreakpointsToggle && skipSyncStateToggle == that.skipSyncStateToggle && Objects.equals(breakpoints, that.breakpoints);
+        return skipBreakpointsToggle == that.skipBreakpointsToggle && skipSyncStateToggle == that.skipSyncStateToggle && stateDeltas == that.stateDeltas && Objects.equals(breakpoints, that.breakpoints) && Objects.equals(eventTrace, that.eventTrace);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), breakpoints, skipBreakpointsToggle, skipSyncStateToggle);
+        return Objects.hash(super.hashCode(), breakpoints, skipBreakpointsToggle, skipSyncStateToggle, stateDeltas, eventTrace);
     }
 
     @Override
@@ -68,6 +89,8 @@ public class DebugRequest extends RunRequest {
                 "breakpoints=" + breakpoints +
                 ", skipBreakpointsToggle=" + skipBreakpointsToggle +
                 ", skipSyncStateToggle=" + skipSyncStateToggle +
+                ", stateDeltas=" + stateDeltas +
+                ", eventTrace=" + eventTrace +
                 ", sourceCode='" + sourceCode + '\'' +
                 '}';
     }
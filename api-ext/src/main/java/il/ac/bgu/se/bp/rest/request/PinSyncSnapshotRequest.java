@@ -0,0 +1,60 @@
+package il.ac.bgu.se.bp.rest.request;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+public class PinSyncSnapshotRequest implements Serializable {
+    private static final long serialVersionUID = 2877146210863495251L;
+
+    private long snapShotTime;
+    private boolean pin;
+
+    public PinSyncSnapshotRequest() {
+    }
+
+    public PinSyncSnapshotRequest(long snapShotTime, boolean pin) {
+        this.snapShotTime = snapShotTime;
+        this.pin = pin;
+    }
+
+    public long getSnapShotTime() {
+        return snapShotTime;
+    }
+
+    public void setSnapShotTime(long snapShotTime) {
+        this.snapShotTime = snapShotTime;
+    }
+
+    public boolean isPin() {
+        return pin;
+    }
+
+    public void setPin(boolean pin) {
+        this.pin = pin;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PinSyncSnapshotRequest that = (PinSyncSnapshotRequest) o;
+        return snapShotTime == that.snapShotTime && pin == that.pin;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(snapShotTime, pin);
+    }
+
+    @Override
+    public String toString() {
+        return "PinSyncSnapshotRequest{" +
+                "snapShotTime=" + snapShotTime +
+                ", pin=" + pin +
+                '}';
+    }
+}
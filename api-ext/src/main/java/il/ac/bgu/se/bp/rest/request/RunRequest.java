@@ -1,5 +1,7 @@
 package il.ac.bgu.se.bp.rest.request;
 
+import il.ac.bgu.se.bp.socket.console.ConsoleVerbosity;
+
 import java.io.Serializable;
 import java.util.Objects;
 
@@ -8,6 +10,13 @@ public class RunRequest implements Serializable {
 
     protected String sourceCode;
     protected boolean waitForExternalEvents;
+    protected boolean headless;
+    protected int historyKeepLast;
+    protected int historyKeepEvery;
+    protected long historyMaxBytes;
+    protected long maxInstructions;
+    protected long maxRunningSeconds;
+    protected ConsoleVerbosity consoleVerbosity;
 
     public RunRequest() {
     }
@@ -24,6 +33,71 @@ public class RunRequest implements Serializable {
         this.waitForExternalEvents = waitForExternalEvents;
     }
 
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    public void setHeadless(boolean headless) {
+        this.headless = headless;
+    }
+
+    public int getHistoryKeepLast() {
+        return historyKeepLast;
+    }
+
+    public void setHistoryKeepLast(int historyKeepLast) {
+        this.historyKeepLast = historyKeepLast;
+    }
+
+    public int getHistoryKeepEvery() {
+        return historyKeepEvery;
+    }
+
+    public void setHistoryKeepEvery(int historyKeepEvery) {
+        this.historyKeepEvery = historyKeepEvery;
+    }
+
+    public long getHistoryMaxBytes() {
+        return historyMaxBytes;
+    }
+
+    public void setHistoryMaxBytes(long historyMaxBytes) {
+        this.historyMaxBytes = historyMaxBytes;
+    }
+
+    /**
+     * @return the JS instructions the program may execute, 0 for the server default. It cannot raise the server limit.
+     */
+    public long getMaxInstructions() {
+        return maxInstructions;
+    }
+
+    public void setMaxInstructions(long maxInstructions) {
+        this.maxInstructions = maxInstructions;
+    }
+
+    /**
+     * @return the seconds the program may spend running JS code, 0 for the server default. It cannot raise the server limit.
+     */
+    public long getMaxRunningSeconds() {
+        return maxRunningSeconds;
+    }
+
+    public void setMaxRunningSeconds(long maxRunningSeconds) {
+        this.maxRunningSeconds = maxRunningSeconds;
+    }
+
+    /**
+     * @return how much runner chatter the console gets, null for the server default
+     */
+    public ConsoleVerbosity getConsoleVerbosity() {
+        return consoleVerbosity;
+    }
+
+    public void setConsoleVerbosity(ConsoleVerbosity consoleVerbosity) {
+        this.consoleVerbosity = consoleVerbosity;
+    }
+
     public String getSourceCode() {
         return sourceCode;
     }
@@ -43,12 +117,19 @@ public class RunRequest implements Serializable {
         }
         RunRequest that = (RunRequest) o;
         return waitForExternalEvents == that.waitForExternalEvents &&
+                headless == that.headless &&
+                historyKeepLast == that.historyKeepLast &&
+                historyKeepEvery == that.historyKeepEvery &&
+                historyMaxBytes == that.historyMaxBytes &&
+                maxInstructions == that.maxInstructions &&
+                maxRunningSeconds == that.maxRunningSeconds &&
+                consoleVerbosity == that.consoleVerbosity &&
                 Objects.equals(sourceCode, that.sourceCode);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(sourceCode, waitForExternalEvents);
+        return Objects.hash(sourceCode, waitForExternalEvents, headless, historyKeepLast, historyKeepEvery, historyMaxBytes, maxInstructions, maxRunningSeconds, consoleVerbosity);
     }
 
     @Override
@@ -56,6 +137,13 @@ public class RunRequest implements Serializable {
         return "RunRequest{" +
                 "sourceCode='" + sourceCode + '\'' +
                 ", waitForExternalEvents=" + waitForExternalEvents +
+                ", headless=" + headless +
+                ", historyKeepLast=" + historyKeepLast +
+                ", historyKeepEvery=" + historyKeepEvery +
+                ", historyMaxBytes=" + historyMaxBytes +
+                ", maxInstructions=" + maxInstructions +
+                ", maxRunningSeconds=" + maxRunningSeconds +
+                ", consoleVerbosity=" + consoleVerbosity +
                 '}';
     }
 }
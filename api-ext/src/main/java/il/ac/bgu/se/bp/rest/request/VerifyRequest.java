@@ -0,0 +1,99 @@
+package il.ac.bgu.se.bp.rest.request;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A request to explore the state space of a program for safety violations.
+ * The limits are capped by the server, 0 stands for the server default.
+ */
+public class VerifyRequest implements Serializable {
+    private static final long serialVersionUID = -3390915781226874512L;
+
+    private String sourceCode;
+    private int workers;
+    private long maxStates;
+    private int maxDepth;
+    private long maxSeconds;
+
+    public VerifyRequest() {
+    }
+
+    public VerifyRequest(String sourceCode) {
+        this.sourceCode = sourceCode;
+    }
+
+    public String getSourceCode() {
+        return sourceCode;
+    }
+
+    public void setSourceCode(String sourceCode) {
+        this.sourceCode = sourceCode;
+    }
+
+    /**
+     * @return the number of threads exploring the state space
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * @return the number of distinct states after which the verification stops
+     */
+    public long getMaxStates() {
+        return maxStates;
+    }
+
+    public void setMaxStates(long maxStates) {
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * @return the longest event trace explored, states deeper than it are not expanded
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    public long getMaxSeconds() {
+        return maxSeconds;
+    }
+
+    public void setMaxSeconds(long maxSeconds) {
+        this.maxSeconds = maxSeconds;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        VerifyRequest that = (VerifyRequest) o;
+        return workers == that.workers && maxStates == that.maxStates && maxDepth == that.maxDepth &&
+                maxSeconds == that.maxSeconds && Objects.equals(sourceCode, that.sourceCode);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sourceCode, workers, maxStates, maxDepth, maxSeconds);
+    }
+
+    @Override
+    public String toString() {
+        return "VerifyRequest{" +
+                "workers=" + workers +
+                ", maxStates=" + maxStates +
+                ", maxDepth=" + maxDepth +
+                ", maxSeconds=" + maxSeconds +
+                ", sourceCode='" + sourceCode + '\'' +
+                '}';
+    }
+}
@@ -8,6 +8,11 @@ import java.util.SortedMap;
 public class GetSyncSnapshotsResponse {
 
     private SortedMap<Long, BPDebuggerState> syncSnapShotsHistory;
+    private long referencedBThreadSnapshots;
+    private long storedBThreadSnapshots;
+    private long serializedSnapshots;
+    private long serializedBytes;
+    private long spilledBytes;
 
     public GetSyncSnapshotsResponse() {
     }
@@ -16,6 +21,12 @@ public class GetSyncSnapshotsResponse {
         this.syncSnapShotsHistory = syncSnapShotsHistory;
     }
 
+    public GetSyncSnapshotsResponse(SortedMap<Long, BPDebuggerState> syncSnapShotsHistory, long referencedBThreadSnapshots, long storedBThreadSnapshots) {
+        this.syncSnapShotsHistory = syncSnapShotsHistory;
+        this.referencedBThreadSnapshots = referencedBThreadSnapshots;
+        this.storedBThreadSnapshots = storedBThreadSnapshots;
+    }
+
     public SortedMap<Long, BPDebuggerState> getSyncSnapShotsHistory() {
         return syncSnapShotsHistory;
     }
@@ -24,23 +35,76 @@ public class GetSyncSnapshotsResponse {
         this.syncSnapShotsHistory = syncSnapShotsHistory;
     }
 
+    public long getReferencedBThreadSnapshots() {
+        return referencedBThreadSnapshots;
+    }
+
+    public void setReferencedBThreadSnapshots(long referencedBThreadSnapshots) {
+        this.referencedBThreadSnapshots = referencedBThreadSnapshots;
+    }
+
+    public long getStoredBThreadSnapshots() {
+        return storedBThreadSnapshots;
+    }
+
+    public void setStoredBThreadSnapshots(long storedBThreadSnapshots) {
+        this.storedBThreadSnapshots = storedBThreadSnapshots;
+    }
+
+    /**
+     * @return the snapshots kept serialized, whose b-thread snapshots are not shared nor counted above
+     */
+    public long getSerializedSnapshots() {
+        return serializedSnapshots;
+    }
+
+    public void setSerializedSnapshots(long serializedSnapshots) {
+        this.serializedSnapshots = serializedSnapshots;
+    }
+
+    public long getSerializedBytes() {
+        return serializedBytes;
+    }
+
+    public void setSerializedBytes(long serializedBytes) {
+        this.serializedBytes = serializedBytes;
+    }
+
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    public void setSpilledBytes(long spilledBytes) {
+        this.spilledBytes = spilledBytes;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         GetSyncSnapshotsResponse that = (GetSyncSnapshotsResponse) o;
-        return Objects.equals(syncSnapShotsHistory, that.syncSnapShotsHistory);
+        return referencedBThreadSnapshots == that.referencedBThreadSnapshots &&
+                storedBThreadSnapshots == that.storedBThreadSnapshots &&
+                serializedSnapshots == that.serializedSnapshots &&
+                serializedBytes == that.serializedBytes &&
+                spilledBytes == that.spilledBytes &&
+                Objects.equals(syncSnapShotsHistory, that.syncSnapShotsHistory);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(syncSnapShotsHistory);
+        return Objects.hash(syncSnapShotsHistory, referencedBThreadSnapshots, storedBThreadSnapshots, serializedSnapshots, serializedBytes, spilledBytes);
     }
 
     @Override
     public String toString() {
         return "GetSyncSnapshotsResponse{" +
                 "syncSnapShotsHistory=" + syncSnapShotsHistory.toString() +
+                ", referencedBThreadSnapshots=" + referencedBThreadSnapshots +
+                ", storedBThreadSnapshots=" + storedBThreadSnapshots +
+                ", serializedSnapshots=" + serializedSnapshots +
+                ", serializedBytes=" + serializedBytes +
+                ", spilledBytes=" + spilledBytes +
                 '}';
     }
 }
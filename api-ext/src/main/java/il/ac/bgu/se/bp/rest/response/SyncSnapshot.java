@@ -49,14 +49,14 @@ public class SyncSnapshot implements Serializable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(sourceCode, syncSnapshot);
+        return 31 * Objects.hash(sourceCode) + Arrays.hashCode(syncSnapshot);
     }
 
     @Override
     public String toString() {
         return "SyncSnapshot{" +
                 "sourceCode='" + sourceCode + '\'' +
-                ", syncSnapshot=" + Arrays.toString(syncSnapshot) +
+                ", syncSnapshotLength=" + (syncSnapshot == null ? 0 : syncSnapshot.length) +
                 '}';
     }
 }
@@ -0,0 +1,103 @@
+package il.ac.bgu.se.bp.rest.response;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * One level of a JS object or array that was cut from a variable preview, starting at entry {@code from}.
+ * Entries that are objects or arrays themselves are previewed as references with their own handle.
+ */
+public class VariableExpansionResponse implements Serializable {
+
+    private static final long serialVersionUID = -2937146802364427710L;
+
+    private long handle;
+    private String type;
+    private int size;
+    private int from;
+    private Map<String, String> entries;
+
+    public VariableExpansionResponse() {
+    }
+
+    public VariableExpansionResponse(long handle, String type, int size, int from, Map<String, String> entries) {
+        this.handle = handle;
+        this.type = type;
+        this.size = size;
+        this.from = from;
+        this.entries = entries;
+    }
+
+    public long getHandle() {
+        return handle;
+    }
+
+    public void setHandle(long handle) {
+        this.handle = handle;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public int getFrom() {
+        return from;
+    }
+
+    public void setFrom(int from) {
+        this.from = from;
+    }
+
+    public Map<String, String> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(Map<String, String> entries) {
+        this.entries = entries;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        VariableExpansionResponse that = (VariableExpansionResponse) o;
+        return handle == that.handle &&
+                size == that.size &&
+                from == that.from &&
+                Objects.equals(type, that.type) &&
+                Objects.equals(entries, that.entries);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(handle, type, size, from, entries);
+    }
+
+    @Override
+    public String toString() {
+        return "VariableExpansionResponse{" +
+                "handle=" + handle +
+                ", type='" + type + '\'' +
+                ", size=" + size +
+                ", from=" + from +
+                ", entries=" + entries +
+                '}';
+    }
+}
@@ -8,6 +8,7 @@ public class ConsoleMessage implements Serializable {
 
     private String message;
     private LogType type;
+    private long droppedLines;
 
     public ConsoleMessage() {}
 
@@ -24,6 +25,17 @@ public class ConsoleMessage implements Serializable {
         this.type = type;
     }
 
+    /**
+     * @return the lines the console rate limit dropped since the previous message
+     */
+    public long getDroppedLines() {
+        return droppedLines;
+    }
+
+    public void setDroppedLines(long droppedLines) {
+        this.droppedLines = droppedLines;
+    }
+
     public String getMessage() {
         return message;
     }
@@ -41,12 +53,12 @@ public class ConsoleMessage implements Serializable {
             return false;
         }
         ConsoleMessage that = (ConsoleMessage) o;
-        return Objects.equals(message, that.message) && Objects.equals(type,that.type);
+        return droppedLines == that.droppedLines && Objects.equals(message, that.message) && Objects.equals(type,that.type);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(message,type);
+        return Objects.hash(message,type,droppedLines);
     }
 
     @Override
@@ -54,6 +66,7 @@ public class ConsoleMessage implements Serializable {
         return "ConsoleMessage{" +
                 "message='" + message + '\'' +
                 "type='" + type + '\'' +
+                ", droppedLines=" + droppedLines +
                 '}';
     }
 }
@@ -0,0 +1,19 @@
+package il.ac.bgu.se.bp.socket.console;
+
+/**
+ * How much of the runner chatter is printed to the console of a program, on top of what the program itself prints.
+ */
+public enum ConsoleVerbosity {
+    /**
+     * Only the program output and errors
+     */
+    QUIET,
+    /**
+     * Also the program start, end and failed assertions
+     */
+    NORMAL,
+    /**
+     * Also every selected event, super-step and b-thread added, removed or done
+     */
+    VERBOSE
+}
@@ -0,0 +1,85 @@
+package il.ac.bgu.se.bp.socket.progress;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+public class ProgramProgress implements Serializable {
+    private static final long serialVersionUID = 3094720815533917706L;
+
+    private long eventsSelected;
+    private double eventsPerSecond;
+    private String currentEvent;
+    private String violation;
+
+    public ProgramProgress() {
+    }
+
+    public ProgramProgress(long eventsSelected, double eventsPerSecond, String currentEvent, String violation) {
+        this.eventsSelected = eventsSelected;
+        this.eventsPerSecond = eventsPerSecond;
+        this.currentEvent = currentEvent;
+        this.violation = violation;
+    }
+
+    public long getEventsSelected() {
+        return eventsSelected;
+    }
+
+    public void setEventsSelected(long eventsSelected) {
+        this.eventsSelected = eventsSelected;
+    }
+
+    public double getEventsPerSecond() {
+        return eventsPerSecond;
+    }
+
+    public void setEventsPerSecond(double eventsPerSecond) {
+        this.eventsPerSecond = eventsPerSecond;
+    }
+
+    public String getCurrentEvent() {
+        return currentEvent;
+    }
+
+    public void setCurrentEvent(String currentEvent) {
+        this.currentEvent = currentEvent;
+    }
+
+    public String getViolation() {
+        return violation;
+    }
+
+    public void setViolation(String violation) {
+        this.violation = violation;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ProgramProgress that = (ProgramProgress) o;
+        return eventsSelected == that.eventsSelected &&
+                Double.compare(that.eventsPerSecond, eventsPerSecond) == 0 &&
+                Objects.equals(currentEvent, that.currentEvent) &&
+                Objects.equals(violation, that.violation);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(eventsSelected, eventsPerSecond, currentEvent, violation);
+    }
+
+    @Override
+    public String toString() {
+        return "ProgramProgress{" +
+                "eventsSelected=" + eventsSelected +
+                ", eventsPerSecond=" + eventsPerSecond +
+                ", currentEvent='" + currentEvent + '\'' +
+                ", violation='" + violation + '\'' +
+                '}';
+    }
+}
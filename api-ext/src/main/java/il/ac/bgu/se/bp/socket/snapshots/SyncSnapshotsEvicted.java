@@ -0,0 +1,51 @@
+package il.ac.bgu.se.bp.socket.snapshots;
+
+import java.io.Serializable;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+
+public class SyncSnapshotsEvicted implements Serializable {
+    private static final long serialVersionUID = -2630147981358514096L;
+
+    private List<Long> snapshotTimes = new LinkedList<>();
+
+    public SyncSnapshotsEvicted() {
+    }
+
+    public SyncSnapshotsEvicted(List<Long> snapshotTimes) {
+        this.snapshotTimes = snapshotTimes;
+    }
+
+    public List<Long> getSnapshotTimes() {
+        return snapshotTimes;
+    }
+
+    public void setSnapshotTimes(List<Long> snapshotTimes) {
+        this.snapshotTimes = snapshotTimes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SyncSnapshotsEvicted that = (SyncSnapshotsEvicted) o;
+        return Objects.equals(snapshotTimes, that.snapshotTimes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(snapshotTimes);
+    }
+
+    @Override
+    public String toString() {
+        return "SyncSnapshotsEvicted{" +
+                "snapshotTimes=" + snapshotTimes +
+                '}';
+    }
+}
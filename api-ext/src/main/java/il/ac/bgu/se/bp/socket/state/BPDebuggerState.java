@@ -14,6 +14,7 @@ public class BPDebuggerState implements Serializable {
     private DebuggerConfigs debuggerConfigs;
     private Boolean[] breakpoints;
     private Map<String, String> globalEnv;
+    private long version;
 
 
     public BPDebuggerState() {
@@ -106,6 +107,14 @@ public class BPDebuggerState implements Serializable {
         this.eventsHistory = eventsHistory;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public DebuggerConfigs getDebuggerConfigs() {
         return debuggerConfigs;
     }
@@ -163,6 +172,7 @@ public class BPDebuggerState implements Serializable {
                 ", eventsHistory=" + eventsHistory +
                 ", currentRunningBT='" + currentRunningBT + '\'' +
                 ", currentLineNumber=" + currentLineNumber +
+                ", version=" + version +
                 '}';
     }
 }
@@ -0,0 +1,188 @@
+package il.ac.bgu.se.bp.socket.state;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * The changes between the debugger state of version {@code baseVersion} and the one of version {@code version}.
+ * {@code eventsStatus} and {@code debuggerConfigs} are null when they did not change, the current b-thread and line are always set.
+ * A client whose version is not {@code baseVersion} should ask for a resync.
+ */
+public class BPDebuggerStateDelta implements Serializable {
+    private static final long serialVersionUID = -7317440527208811564L;
+
+    private long version;
+    private long baseVersion;
+    private List<BThreadInfo> changedBThreads = new LinkedList<>();
+    private List<String> removedBThreads = new LinkedList<>();
+    private EventsStatus eventsStatus;
+    private SortedMap<Long, EventInfo> addedEventsHistory = new TreeMap<>();
+    private List<Long> removedEventsHistory = new LinkedList<>();
+    private Map<Integer, Boolean> changedBreakpoints = new HashMap<>();
+    private Map<String, String> changedGlobalEnv = new LinkedHashMap<>();
+    private List<String> removedGlobalEnv = new LinkedList<>();
+    private String currentRunningBT;
+    private Integer currentLineNumber;
+    private DebuggerConfigs debuggerConfigs;
+
+    public BPDebuggerStateDelta() {
+    }
+
+    public BPDebuggerStateDelta(long version, long baseVersion) {
+        this.version = version;
+        this.baseVersion = baseVersion;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public long getBaseVersion() {
+        return baseVersion;
+    }
+
+    public void setBaseVersion(long baseVersion) {
+        this.baseVersion = baseVersion;
+    }
+
+    public List<BThreadInfo> getChangedBThreads() {
+        return changedBThreads;
+    }
+
+    public void setChangedBThreads(List<BThreadInfo> changedBThreads) {
+        this.changedBThreads = changedBThreads;
+    }
+
+    public List<String> getRemovedBThreads() {
+        return removedBThreads;
+    }
+
+    public void setRemovedBThreads(List<String> removedBThreads) {
+        this.removedBThreads = removedBThreads;
+    }
+
+    public EventsStatus getEventsStatus() {
+        return eventsStatus;
+    }
+
+    public void setEventsStatus(EventsStatus eventsStatus) {
+        this.eventsStatus = eventsStatus;
+    }
+
+    public SortedMap<Long, EventInfo> getAddedEventsHistory() {
+        return addedEventsHistory;
+    }
+
+    public void setAddedEventsHistory(SortedMap<Long, EventInfo> addedEventsHistory) {
+        this.addedEventsHistory = addedEventsHistory;
+    }
+
+    public List<Long> getRemovedEventsHistory() {
+        return removedEventsHistory;
+    }
+
+    public void setRemovedEventsHistory(List<Long> removedEventsHistory) {
+        this.removedEventsHistory = removedEventsHistory;
+    }
+
+    public Map<Integer, Boolean> getChangedBreakpoints() {
+        return changedBreakpoints;
+    }
+
+    public void setChangedBreakpoints(Map<Integer, Boolean> changedBreakpoints) {
+        this.changedBreakpoints = changedBreakpoints;
+    }
+
+    public Map<String, String> getChangedGlobalEnv() {
+        return changedGlobalEnv;
+    }
+
+    public void setChangedGlobalEnv(Map<String, String> changedGlobalEnv) {
+        this.changedGlobalEnv = changedGlobalEnv;
+    }
+
+    public List<String> getRemovedGlobalEnv() {
+        return removedGlobalEnv;
+    }
+
+    public void setRemovedGlobalEnv(List<String> removedGlobalEnv) {
+        this.removedGlobalEnv = removedGlobalEnv;
+    }
+
+    public String getCurrentRunningBT() {
+        return currentRunningBT;
+    }
+
+    public void setCurrentRunningBT(String currentRunningBT) {
+        this.currentRunningBT = currentRunningBT;
+    }
+
+    public Integer getCurrentLineNumber() {
+        return currentLineNumber;
+    }
+
+    public void setCurrentLineNumber(Integer currentLineNumber) {
+        this.currentLineNumber = currentLineNumber;
+    }
+
+    public DebuggerConfigs getDebuggerConfigs() {
+        return debuggerConfigs;
+    }
+
+    public void setDebuggerConfigs(DebuggerConfigs debuggerConfigs) {
+        this.debuggerConfigs = debuggerConfigs;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BPDebuggerStateDelta that = (BPDebuggerStateDelta) o;
+        return version == that.version &&
+                baseVersion == that.baseVersion &&
+                Objects.equals(changedBThreads, that.changedBThreads) &&
+                Objects.equals(removedBThreads, that.removedBThreads) &&
+                Objects.equals(eventsStatus, that.eventsStatus) &&
+                Objects.equals(addedEventsHistory, that.addedEventsHistory) &&
+                Objects.equals(removedEventsHistory, that.removedEventsHistory) &&
+                Objects.equals(changedBreakpoints, that.changedBreakpoints) &&
+                Objects.equals(changedGlobalEnv, that.changedGlobalEnv) &&
+                Objects.equals(removedGlobalEnv, that.removedGlobalEnv) &&
+                Objects.equals(currentRunningBT, that.currentRunningBT) &&
+                Objects.equals(currentLineNumber, that.currentLineNumber) &&
+                Objects.equals(debuggerConfigs, that.debuggerConfigs);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(version, baseVersion, changedBThreads, removedBThreads, eventsStatus, addedEventsHistory, removedEventsHistory,
+                changedBreakpoints, changedGlobalEnv, removedGlobalEnv, currentRunningBT, currentLineNumber, debuggerConfigs);
+    }
+
+    @Override
+    public String toString() {
+        return "BPDebuggerStateDelta{" +
+                "version=" + version +
+                ", baseVersion=" + baseVersion +
+                ", changedBThreads=" + changedBThreads +
+                ", removedBThreads=" + removedBThreads +
+                ", eventsStatus=" + eventsStatus +
+                ", addedEventsHistory=" + addedEventsHistory +
+                ", removedEventsHistory=" + removedEventsHistory +
+                ", changedBreakpoints=" + changedBreakpoints +
+                ", changedGlobalEnv=" + changedGlobalEnv +
+                ", removedGlobalEnv=" + removedGlobalEnv +
+                ", currentRunningBT='" + currentRunningBT + '\'' +
+                ", currentLineNumber=" + currentLineNumber +
+                ", debuggerConfigs=" + debuggerConfigs +
+                '}';
+    }
+}
@@ -7,6 +7,8 @@ public class ProgramStatus implements Serializable {
     private static final long serialVersionUID = -1206523140785645037L;
 
     private Status status;
+    private Integer queuePosition;
+    private VerificationProgress verificationProgress;
 
     public ProgramStatus() {
     }
@@ -15,6 +17,22 @@ public class ProgramStatus implements Serializable {
         this.status = status;
     }
 
+    /**
+     * @param queuePosition the 1 based position of a {@link Status#QUEUED} program in the wait queue
+     */
+    public ProgramStatus(Status status, Integer queuePosition) {
+        this.status = status;
+        this.queuePosition = queuePosition;
+    }
+
+    /**
+     * @param verificationProgress the progress of a {@link Status#VERIFY} or {@link Status#VERIFICATION_DONE} verification
+     */
+    public ProgramStatus(Status status, VerificationProgress verificationProgress) {
+        this.status = status;
+        this.verificationProgress = verificationProgress;
+    }
+
     public Status getStatus() {
         return status;
     }
@@ -23,6 +41,21 @@ public class ProgramStatus implements Serializable {
         this.status = status;
     }
 
+    public Integer getQueuePosition() {
+        return queuePosition;
+    }
+
+    public void setQueuePosition(Integer queuePosition) {
+        this.queuePosition = queuePosition;
+    }
+
+    public VerificationProgress getVerificationProgress() {
+        return verificationProgress;
+    }
+
+    public void setVerificationProgress(VerificationProgress verificationProgress) {
+        this.verificationProgress = verificationProgress;
+    }
 
     @Override
     public boolean equals(Object o) {
@@ -33,18 +66,22 @@ public class ProgramStatus implements Serializable {
             return false;
         }
         ProgramStatus that = (ProgramStatus) o;
-        return status == that.status;
+        return status == that.status &&
+                Objects.equals(queuePosition, that.queuePosition) &&
+                Objects.equals(verificationProgress, that.verificationProgress);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(status);
+        return Objects.hash(status, queuePosition, verificationProgress);
     }
 
     @Override
     public String toString() {
         return "ProgramStatus{" +
                 "status=" + status +
+                ", queuePosition=" + queuePosition +
+                ", verificationProgress=" + verificationProgress +
                 '}';
     }
 }
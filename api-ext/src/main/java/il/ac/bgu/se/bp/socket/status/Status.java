@@ -7,5 +7,9 @@ public enum Status {
     SYNCSTATE,
     WAITING_FOR_EXTERNAL_EVENT,
     SUPERSTEPDONE,
-    STOP
+    STOP,
+    QUEUED,
+    BUDGET_EXCEEDED,
+    VERIFY,
+    VERIFICATION_DONE
 }
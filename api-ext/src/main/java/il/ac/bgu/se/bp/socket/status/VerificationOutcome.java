@@ -0,0 +1,10 @@
+package il.ac.bgu.se.bp.socket.status;
+
+public enum VerificationOutcome {
+    RUNNING,
+    NO_VIOLATION,
+    VIOLATION_FOUND,
+    BUDGET_EXCEEDED,
+    CANCELLED,
+    FAILED
+}
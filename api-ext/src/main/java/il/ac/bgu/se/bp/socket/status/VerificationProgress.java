@@ -0,0 +1,141 @@
+package il.ac.bgu.se.bp.socket.status;
+
+import il.ac.bgu.se.bp.socket.state.EventInfo;
+
+import java.io.Serializable;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The progress of a state space verification, sent with the {@link Status#VERIFY} and {@link Status#VERIFICATION_DONE} statuses.
+ * When a violation is found, {@code violationTrace} holds the events leading to it, which a debug request can replay.
+ */
+public class VerificationProgress implements Serializable {
+    private static final long serialVersionUID = 7164128846503920411L;
+
+    private VerificationOutcome outcome;
+    private long statesVisited;
+    private long transitions;
+    private int maxDepth;
+    private double statesPerSecond;
+    private long elapsedMillis;
+    private String message;
+    private List<EventInfo> violationTrace = new LinkedList<>();
+
+    public VerificationProgress() {
+    }
+
+    public VerificationProgress(VerificationOutcome outcome, long statesVisited, long transitions, int maxDepth,
+                                double statesPerSecond, long elapsedMillis) {
+        this.outcome = outcome;
+        this.statesVisited = statesVisited;
+        this.transitions = transitions;
+        this.maxDepth = maxDepth;
+        this.statesPerSecond = statesPerSecond;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public VerificationOutcome getOutcome() {
+        return outcome;
+    }
+
+    public void setOutcome(VerificationOutcome outcome) {
+        this.outcome = outcome;
+    }
+
+    public long getStatesVisited() {
+        return statesVisited;
+    }
+
+    public void setStatesVisited(long statesVisited) {
+        this.statesVisited = statesVisited;
+    }
+
+    public long getTransitions() {
+        return transitions;
+    }
+
+    public void setTransitions(long transitions) {
+        this.transitions = transitions;
+    }
+
+    /**
+     * @return the length of the longest event trace explored so far
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    public double getStatesPerSecond() {
+        return statesPerSecond;
+    }
+
+    public void setStatesPerSecond(double statesPerSecond) {
+        this.statesPerSecond = statesPerSecond;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return the description of the violation, the exceeded budget or the failure, depending on the outcome
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public List<EventInfo> getViolationTrace() {
+        return violationTrace;
+    }
+
+    public void setViolationTrace(List<EventInfo> violationTrace) {
+        this.violationTrace = violationTrace;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        VerificationProgress that = (VerificationProgress) o;
+        return statesVisited == that.statesVisited && transitions == that.transitions && maxDepth == that.maxDepth &&
+                Double.compare(that.statesPerSecond, statesPerSecond) == 0 && elapsedMillis == that.elapsedMillis &&
+                outcome == that.outcome && Objects.equals(message, that.message) && Objects.equals(violationTrace, that.violationTrace);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(outcome, statesVisited, transitions, maxDepth, statesPerSecond, elapsedMillis, message, violationTrace);
+    }
+
+    @Override
+    public String toString() {
+        return "VerificationProgress{" +
+                "outcome=" + outcome +
+                ", statesVisited=" + statesVisited +
+                ", transitions=" + transitions +
+                ", maxDepth=" + maxDepth +
+                ", statesPerSecond=" + statesPerSecond +
+                ", elapsedMillis=" + elapsedMillis +
+                ", message='" + message + '\'' +
+                ", violationTrace=" + violationTrace +
+                '}';
+    }
+}
@@ -1,14 +1,21 @@
 package il.ac.bgu.se.bp.debugger;
 
+import il.ac.bgu.se.bp.debugger.engine.SnapshotRetentionPolicy;
 import il.ac.bgu.se.bp.rest.response.DebugResponse;
 import il.ac.bgu.se.bp.rest.response.GetSyncSnapshotsResponse;
 import il.ac.bgu.se.bp.rest.response.SyncSnapshot;
+import il.ac.bgu.se.bp.rest.response.VariableExpansionResponse;
 import il.ac.bgu.se.bp.socket.state.EventInfo;
 import il.ac.bgu.se.bp.utils.observer.BPEvent;
 import il.ac.bgu.se.bp.utils.observer.Publisher;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
 
 public interface BPJsDebugger<T> extends Debugger<T>, Publisher<BPEvent> {
 
@@ -20,6 +27,26 @@ public interface BPJsDebugger<T> extends Debugger<T>, Publisher<BPEvent> {
     boolean isWaitForExternalEvents();
     boolean isMuteBreakPoints();
 
+    /**
+     * @return true once {@link #stop()} was called, the debugger may still be tearing down
+     */
+    boolean isStopRequested();
+
+    /**
+     * @return a future completed once the debugger finished tearing down, whether it was stopped or its program ended
+     */
+    CompletableFuture<Void> getTermination();
+
+    /**
+     * @return the CPU time the program used so far
+     */
+    long getCpuTimeNanos();
+
+    /**
+     * @return the sync snapshots currently kept in the history
+     */
+    int getSyncSnapshotsCount();
+
     T addExternalEvent(String externalEvent);
     T removeExternalEvent(String externalEvent);
 
@@ -34,6 +61,16 @@ public interface BPJsDebugger<T> extends Debugger<T>, Publisher<BPEvent> {
     byte[] getSyncSnapshot();
     T setSyncSnapshot(long snapShotTime);
     T setSyncSnapshot(SyncSnapshot newSnapshot);
+    void writeSyncSnapshot(OutputStream outputStream) throws IOException;
+    T setSyncSnapshot(InputStream inputStream);
+    T pinSyncSnapshot(long snapShotTime, boolean pin);
+    void setSyncSnapshotRetentionPolicy(SnapshotRetentionPolicy retentionPolicy);
+    void setConsolePolicy(ConsolePolicy consolePolicy);
+
+    /**
+     * Selects the named events first, in order, for as long as each is selectable when its turn comes.
+     */
+    void replayEventTrace(List<String> eventNames);
 
     RunnerState getDebuggerState();
     String getDebuggerId();
@@ -41,4 +78,5 @@ public interface BPJsDebugger<T> extends Debugger<T>, Publisher<BPEvent> {
 
 
     SortedMap<Long, EventInfo> getEventsHistory(int from, int to);
+    VariableExpansionResponse expandVariable(long handle, int from, int count);
 }
@@ -0,0 +1,82 @@
+package il.ac.bgu.se.bp.debugger;
+
+import il.ac.bgu.se.bp.socket.console.ConsoleVerbosity;
+
+import java.util.Objects;
+
+/**
+ * How the console output of a program is sent. Lines are sent in batches of up to {@code maxBatchLines} lines,
+ * at most {@code flushIntervalMillis} after the first line of the batch was printed; batching is off unless both are positive.
+ * Lines printed beyond {@code maxLinesPerSecond} are dropped and their count is reported, 0 disables the limit.
+ * Errors are never batched or dropped.
+ */
+public class ConsolePolicy {
+    private static final ConsolePolicy UNBATCHED = new ConsolePolicy(1, 0, 0, ConsoleVerbosity.VERBOSE);
+
+    private final int maxBatchLines;
+    private final long flushIntervalMillis;
+    private final int maxLinesPerSecond;
+    private final ConsoleVerbosity verbosity;
+
+    public ConsolePolicy(int maxBatchLines, long flushIntervalMillis, int maxLinesPerSecond, ConsoleVerbosity verbosity) {
+        this.maxBatchLines = Math.max(maxBatchLines, 1);
+        this.flushIntervalMillis = Math.max(flushIntervalMillis, 0);
+        this.maxLinesPerSecond = Math.max(maxLinesPerSecond, 0);
+        this.verbosity = verbosity == null ? ConsoleVerbosity.VERBOSE : verbosity;
+    }
+
+    /**
+     * @return a policy that sends every line on its own, as soon as it is printed
+     */
+    public static ConsolePolicy unbatched() {
+        return UNBATCHED;
+    }
+
+    public int getMaxBatchLines() {
+        return maxBatchLines;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public int getMaxLinesPerSecond() {
+        return maxLinesPerSecond;
+    }
+
+    public ConsoleVerbosity getVerbosity() {
+        return verbosity;
+    }
+
+    public boolean isBatched() {
+        return maxBatchLines > 1 && flushIntervalMillis > 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ConsolePolicy that = (ConsolePolicy) o;
+        return maxBatchLines == that.maxBatchLines && flushIntervalMillis == that.flushIntervalMillis &&
+                maxLinesPerSecond == that.maxLinesPerSecond && verbosity == that.verbosity;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maxBatchLines, flushIntervalMillis, maxLinesPerSecond, verbosity);
+    }
+
+    @Override
+    public String toString() {
+        return "ConsolePolicy{" +
+                "maxBatchLines=" + maxBatchLines +
+                ", flushIntervalMillis=" + flushIntervalMillis +
+                ", maxLinesPerSecond=" + maxLinesPerSecond +
+                ", verbosity=" + verbosity +
+                '}';
+    }
+}
@@ -1,6 +1,7 @@
 package il.ac.bgu.se.bp.debugger;
 
 public enum DebuggerLevel {
+    THROUGHPUT(-1),
     LIGHT(0),
     NORMAL(1);
 
@@ -0,0 +1,54 @@
+package il.ac.bgu.se.bp.debugger;
+
+import il.ac.bgu.se.bp.rest.response.BooleanResponse;
+import il.ac.bgu.se.bp.socket.status.VerificationProgress;
+import il.ac.bgu.se.bp.utils.observer.BPEvent;
+import il.ac.bgu.se.bp.utils.observer.Publisher;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Explores the state space of a b-program for safety violations: deadlocks, failed assertions, hot terminations and JS errors.
+ * The progress is published periodically as a {@code VERIFY} program status, and the result as a {@code VERIFICATION_DONE} one.
+ */
+public interface ProgramVerifier extends Publisher<BPEvent> {
+
+    /**
+     * Starts the verification in the background.
+     */
+    BooleanResponse verify();
+
+    /**
+     * Cancels the verification, its result is sent once the workers finished their current states.
+     */
+    BooleanResponse stop();
+
+    /**
+     * Stops the verification with a {@code BUDGET_EXCEEDED} outcome.
+     */
+    void onBudgetExceeded(String reason);
+
+    /**
+     * @return true once the verification was stopped or cancelled, it may still be finishing
+     */
+    boolean isStopRequested();
+
+    VerificationProgress getProgress();
+
+    /**
+     * @return a future completed with the result once all the workers finished
+     */
+    CompletableFuture<VerificationProgress> getTermination();
+
+    /**
+     * @return the CPU time the workers used so far, 0 where the JVM does not measure it
+     */
+    long getCpuTimeNanos();
+
+    String getVerifierId();
+
+    /**
+     * @return the name prefix of the worker lanes, under which their JS instructions are charged
+     */
+    String getVerifierExecutorId();
+}
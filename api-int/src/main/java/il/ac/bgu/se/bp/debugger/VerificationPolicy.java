@@ -0,0 +1,73 @@
+package il.ac.bgu.se.bp.debugger;
+
+import java.util.Objects;
+
+/**
+ * How a state space verification runs: on {@code workers} threads, until {@code maxStates} distinct states were visited
+ * or {@code maxSeconds} passed, 0 disables either limit. States {@code maxDepth} events deep are inspected but not expanded.
+ * Progress is published every {@code progressIntervalMillis}.
+ */
+public class VerificationPolicy {
+    private final int workers;
+    private final long maxStates;
+    private final int maxDepth;
+    private final long maxSeconds;
+    private final long progressIntervalMillis;
+
+    public VerificationPolicy(int workers, long maxStates, int maxDepth, long maxSeconds, long progressIntervalMillis) {
+        this.workers = Math.max(workers, 1);
+        this.maxStates = Math.max(maxStates, 0);
+        this.maxDepth = maxDepth > 0 ? maxDepth : Integer.MAX_VALUE;
+        this.maxSeconds = Math.max(maxSeconds, 0);
+        this.progressIntervalMillis = Math.max(progressIntervalMillis, 1);
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public long getMaxStates() {
+        return maxStates;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getMaxSeconds() {
+        return maxSeconds;
+    }
+
+    public long getProgressIntervalMillis() {
+        return progressIntervalMillis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        VerificationPolicy that = (VerificationPolicy) o;
+        return workers == that.workers && maxStates == that.maxStates && maxDepth == that.maxDepth &&
+                maxSeconds == that.maxSeconds && progressIntervalMillis == that.progressIntervalMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(workers, maxStates, maxDepth, maxSeconds, progressIntervalMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "VerificationPolicy{" +
+                "workers=" + workers +
+                ", maxStates=" + maxStates +
+                ", maxDepth=" + maxDepth +
+                ", maxSeconds=" + maxSeconds +
+                ", progressIntervalMillis=" + progressIntervalMillis +
+                '}';
+    }
+}
@@ -2,6 +2,7 @@ package il.ac.bgu.se.bp.debugger.engine;
 
 import il.ac.bgu.se.bp.debugger.DebuggerLevel;
 import il.ac.bgu.se.bp.debugger.commands.DebuggerCommand;
+import il.ac.bgu.se.bp.rest.response.VariableExpansionResponse;
 import il.ac.bgu.se.bp.utils.observer.BPEvent;
 import il.ac.bgu.se.bp.utils.observer.Publisher;
 import org.mozilla.javascript.tools.debugger.GuiCallback;
@@ -19,11 +20,21 @@ public interface DebuggerEngine<S> extends GuiCallback, Publisher<BPEvent> {
     void toggleMuteBreakpoints(boolean toggleBreakPointStatus);
     void getState();
 
+    /**
+     * Must be called on the thread the program is paused on.
+     */
+    VariableExpansionResponse expandVariable(long handle, int from, int count);
+
     void setSyncSnapshot(S syncSnapshot);
     void setupBreakpoints(Map<Integer, Boolean> breakpoints);
     void addCommand(DebuggerCommand command) throws Exception;
 
     void onStateChanged();
+
+    /**
+     * Marks that something the debugger state is built from has changed, so the next GUI event sends a new state.
+     */
+    void invalidateState();
     void changeDebuggerLevel(DebuggerLevel debuggerLevel);
 
     boolean[] getBreakpoints();
@@ -0,0 +1,69 @@
+package il.ac.bgu.se.bp.debugger.engine;
+
+import java.util.Objects;
+
+/**
+ * Decides which sync snapshots a {@link SyncSnapshotHolder} keeps.
+ * The last {@code keepLast} snapshots are always kept, older ones are kept only if pinned or if their
+ * index is a multiple of {@code keepEvery}. On top of that, unpinned snapshots are evicted oldest first
+ * while the retained snapshots exceed {@code maxBytes}. A value of 0 disables the matching rule.
+ */
+public class SnapshotRetentionPolicy {
+    private static final SnapshotRetentionPolicy UNBOUNDED = new SnapshotRetentionPolicy(0, 0, 0);
+
+    private final int keepLast;
+    private final int keepEvery;
+    private final long maxBytes;
+
+    public SnapshotRetentionPolicy(int keepLast, int keepEvery, long maxBytes) {
+        this.keepLast = Math.max(keepLast, 0);
+        this.keepEvery = Math.max(keepEvery, 0);
+        this.maxBytes = Math.max(maxBytes, 0);
+    }
+
+    public static SnapshotRetentionPolicy unbounded() {
+        return UNBOUNDED;
+    }
+
+    public int getKeepLast() {
+        return keepLast;
+    }
+
+    public int getKeepEvery() {
+        return keepEvery;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public boolean isUnbounded() {
+        return keepLast == 0 && maxBytes == 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SnapshotRetentionPolicy that = (SnapshotRetentionPolicy) o;
+        return keepLast == that.keepLast && keepEvery == that.keepEvery && maxBytes == that.maxBytes;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(keepLast, keepEvery, maxBytes);
+    }
+
+    @Override
+    public String toString() {
+        return "SnapshotRetentionPolicy{" +
+                "keepLast=" + keepLast +
+                ", keepEvery=" + keepEvery +
+                ", maxBytes=" + maxBytes +
+                '}';
+    }
+}
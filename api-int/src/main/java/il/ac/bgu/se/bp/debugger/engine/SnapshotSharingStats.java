@@ -0,0 +1,98 @@
+package il.ac.bgu.se.bp.debugger.engine;
+
+import java.util.Objects;
+
+/**
+ * How many b-thread snapshots the retained history refers to, against how many it actually stores.
+ * B-thread snapshots are shared only between the snapshots kept as objects. Snapshots kept serialized each store all
+ * their b-threads, so they are counted apart, by their bytes in memory and in the spill file.
+ */
+public class SnapshotSharingStats {
+    private final long referencedBThreads;
+    private final long storedBThreads;
+    private final long serializedSnapshots;
+    private final long serializedBytes;
+    private final long spilledBytes;
+
+    public SnapshotSharingStats(long referencedBThreads, long storedBThreads) {
+        this(referencedBThreads, storedBThreads, 0, 0, 0);
+    }
+
+    public SnapshotSharingStats(long referencedBThreads, long storedBThreads, long serializedSnapshots, long serializedBytes, long spilledBytes) {
+        this.referencedBThreads = referencedBThreads;
+        this.storedBThreads = storedBThreads;
+        this.serializedSnapshots = serializedSnapshots;
+        this.serializedBytes = serializedBytes;
+        this.spilledBytes = spilledBytes;
+    }
+
+    public long getReferencedBThreads() {
+        return referencedBThreads;
+    }
+
+    public long getStoredBThreads() {
+        return storedBThreads;
+    }
+
+    /**
+     * @return the snapshots kept serialized, in memory or spilled, which are not counted in the b-threads
+     */
+    public long getSerializedSnapshots() {
+        return serializedSnapshots;
+    }
+
+    /**
+     * @return the bytes of the serialized snapshots kept in memory
+     */
+    public long getSerializedBytes() {
+        return serializedBytes;
+    }
+
+    /**
+     * @return the bytes of the serialized snapshots spilled to a file
+     */
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    public long getSharedBThreads() {
+        return referencedBThreads - storedBThreads;
+    }
+
+    /**
+     * @return the share of the b-thread snapshots referenced by the snapshots kept as objects that sharing saved
+     */
+    public double getSavedRatio() {
+        return referencedBThreads == 0 ? 0 : (double) getSharedBThreads() / referencedBThreads;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SnapshotSharingStats that = (SnapshotSharingStats) o;
+        return referencedBThreads == that.referencedBThreads && storedBThreads == that.storedBThreads &&
+                serializedSnapshots == that.serializedSnapshots && serializedBytes == that.serializedBytes &&
+                spilledBytes == that.spilledBytes;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(referencedBThreads, storedBThreads, serializedSnapshots, serializedBytes, spilledBytes);
+    }
+
+    @Override
+    public String toString() {
+        return "SnapshotSharingStats{" +
+                "referencedBThreads=" + referencedBThreads +
+                ", storedBThreads=" + storedBThreads +
+                ", serializedSnapshots=" + serializedSnapshots +
+                ", serializedBytes=" + serializedBytes +
+                ", spilledBytes=" + spilledBytes +
+                '}';
+    }
+}
@@ -0,0 +1,27 @@
+package il.ac.bgu.se.bp.debugger.engine;
+
+/**
+ * Storage backend of a {@link SyncSnapshotHolder}. The holder decides which snapshots are retained,
+ * the store decides how and where they are kept until they are asked for.
+ */
+public interface SnapshotStore<T> extends AutoCloseable {
+    /**
+     * @return the bytes the snapshot was charged, 0 if {@code measure} is false
+     */
+    long put(long sequence, T snapshot, boolean measure);
+
+    /**
+     * @return the stored snapshot, or null if it is not stored or could not be loaded
+     */
+    T get(long sequence);
+
+    void remove(long sequence);
+
+    SnapshotSharingStats getSharingStats();
+
+    /**
+     * Releases the resources held outside the heap, snapshots kept there are dropped.
+     */
+    @Override
+    void close();
+}
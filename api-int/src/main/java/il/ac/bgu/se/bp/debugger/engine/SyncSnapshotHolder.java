@@ -1,11 +1,28 @@
 package il.ac.bgu.se.bp.debugger.engine;
 import il.ac.bgu.se.bp.utils.Pair;
+
+import java.util.List;
 import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.function.Consumer;
 
 public interface SyncSnapshotHolder<T, U> {
     void addSyncSnapshot(T snapshot, U event);
-    T popKey(long snapshotTime);
-    U popValue(long snapshotTime);
-    SortedMap<Long, Pair<T, U>> getAllSyncSnapshots();
+    T popKey(long snapshotSequence);
+    U popValue(long snapshotSequence);
+    SortedSet<Long> getSyncSnapshotSequences();
+
+    /**
+     * @return the snapshot and the event selected at it, or null if it is no longer retained
+     */
+    Pair<T, U> getSyncSnapshot(long snapshotSequence);
     SortedMap<Long,U> getEventsHistoryStack(int from, int to);
+
+    SnapshotSharingStats getSharingStats();
+    int getSyncSnapshotsCount();
+    void close();
+
+    void setRetentionPolicy(SnapshotRetentionPolicy retentionPolicy);
+    boolean pin(long snapshotSequence, boolean pin);
+    void setEvictionListener(Consumer<List<Long>> evictionListener);
 }
@@ -5,5 +5,8 @@ import il.ac.bgu.se.bp.debugger.DebuggerLevel;
 
 @FunctionalInterface
 public interface DebuggerFactory<T> {
-    BPJsDebugger<T> getBPJsDebugger(String debuggerId, String filename, DebuggerLevel debuggerLevel);
+    /**
+     * @param sourceCode the code of the b-program, it is run from memory
+     */
+    BPJsDebugger<T> getBPJsDebugger(String debuggerId, String sourceCode, DebuggerLevel debuggerLevel);
 }
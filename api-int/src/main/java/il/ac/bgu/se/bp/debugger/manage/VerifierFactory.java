@@ -0,0 +1,12 @@
+package il.ac.bgu.se.bp.debugger.manage;
+
+import il.ac.bgu.se.bp.debugger.ProgramVerifier;
+import il.ac.bgu.se.bp.debugger.VerificationPolicy;
+
+@FunctionalInterface
+public interface VerifierFactory {
+    /**
+     * @param sourceCode the code of the b-program, it is verified from memory
+     */
+    ProgramVerifier getProgramVerifier(String verifierId, String sourceCode, VerificationPolicy verificationPolicy);
+}
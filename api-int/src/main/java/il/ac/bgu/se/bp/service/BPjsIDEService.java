@@ -5,6 +5,10 @@ import il.ac.bgu.se.bp.rest.response.BooleanResponse;
 import il.ac.bgu.se.bp.rest.response.DebugResponse;
 import il.ac.bgu.se.bp.rest.response.EventsHistoryResponse;
 import il.ac.bgu.se.bp.rest.response.SyncSnapshot;
+import il.ac.bgu.se.bp.rest.response.VariableExpansionResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 public interface BPjsIDEService {
 
@@ -12,6 +16,7 @@ public interface BPjsIDEService {
 
     BooleanResponse run(RunRequest runRequest, String userId);
     DebugResponse debug(DebugRequest debugRequest, String userId);
+    BooleanResponse verify(VerifyRequest verifyRequest, String userId);
 
     BooleanResponse setBreakpoint(String userId, SetBreakpointRequest setBreakpointRequest);
     BooleanResponse toggleMuteBreakpoints(String userId, ToggleBreakpointsRequest toggleBreakPointStatus);
@@ -28,8 +33,22 @@ public interface BPjsIDEService {
 
     BooleanResponse externalEvent(String userId, ExternalEventRequest externalEventRequest);
     EventsHistoryResponse getEventsHistory(String userId, int from, int to);
+    VariableExpansionResponse expandVariable(String userId, long handle, int from, int count);
 
     BooleanResponse setSyncSnapshot(String userId, SetSyncSnapshotRequest setSyncSnapshotRequest);
+    BooleanResponse pinSyncSnapshot(String userId, PinSyncSnapshotRequest pinSyncSnapshotRequest);
+    BooleanResponse resyncState(String userId);
     SyncSnapshot exportSyncSnapshot(String userId);
     BooleanResponse importSyncSnapshot(String userId, ImportSyncSnapshotRequest importSyncSnapshotRequest);
+
+    /**
+     * Streams the current sync snapshot of the user, as a {@code SnapshotArchive}, to {@code outputStream}.
+     * Nothing is written if the response is not successful.
+     */
+    BooleanResponse exportSyncSnapshot(String userId, boolean isDeflate, OutputStream outputStream) throws IOException;
+
+    /**
+     * Imports a sync snapshot streamed as a {@code SnapshotArchive}, the sync snapshot of {@code importSyncSnapshotRequest} is ignored.
+     */
+    BooleanResponse importSyncSnapshot(String userId, ImportSyncSnapshotRequest importSyncSnapshotRequest, InputStream inputStream);
 }
@@ -1,18 +1,27 @@
 package il.ac.bgu.se.bp.service.manage;
 
+import il.ac.bgu.se.bp.debugger.ProgramVerifier;
 import il.ac.bgu.se.bp.utils.observer.BPEvent;
 import il.ac.bgu.se.bp.utils.observer.Subscriber;
 import il.ac.bgu.se.bp.utils.visitor.PublisherVisitor;
 
+import java.util.List;
+
 public interface SessionHandler<T> extends PublisherVisitor, Subscriber<BPEvent> {
     void addUser(String sessionId, String userId);
 
     void addNewRunExecution(String userId, T bProgramRunner, String filename);
     void addNewDebugExecution(String userId, T bpProgramDebugger, String filename);
+    void addNewVerification(String userId, ProgramVerifier programVerifier);
+    void setStateDeltas(String userId, boolean stateDeltas);
+    boolean resyncState(String userId);
 
     T getBPjsRunnerByUser(String userId);
     T getBPjsDebuggerByUser(String userId);
     T getBPjsDebuggerOrRunnerByUser(String userId);
+    ProgramVerifier getVerifierByUser(String userId);
+    List<T> getRunPrograms();
+    List<T> getDebugPrograms();
 
     void updateLastOperationTime(String userId);
     void removeUser(String userId);
@@ -0,0 +1,180 @@
+package il.ac.bgu.se.bp.utils.logger;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes the log lines of all the {@link Logger}s from a single background thread, so logging threads only queue a record.
+ * The queue is a bounded ring buffer: when it is full DEBUG and INFO records are dropped (and counted in the log), while WARN
+ * and ERROR records wait for room.
+ */
+class AsyncLogAppender {
+    static final int CAPACITY = 8192;
+    private static final int MAX_BATCH_SIZE = 512;
+    private static final long SHUTDOWN_FLUSH_MILLIS = 1000;
+    private static final DateTimeFormatter SECOND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss:").withZone(ZoneId.systemDefault());
+
+    private static final AsyncLogAppender instance = new AsyncLogAppender(System.out, CAPACITY);
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> instance.flush(SHUTDOWN_FLUSH_MILLIS), "bpjs-logger-flush"));
+    }
+
+    private final PrintStream out;
+    private final BlockingQueue<LogRecord> records;
+    private final AtomicLong appendedRecords = new AtomicLong(0);
+    private final AtomicLong droppedRecords = new AtomicLong(0);
+    private volatile long handledRecords = 0;
+
+    // used by the writer thread only
+    private final StringBuilder lines = new StringBuilder(4096);
+    private long cachedSecond = -1;
+    private String cachedSecondText = "";
+
+    AsyncLogAppender(PrintStream out, int capacity) {
+        this.out = out;
+        this.records = new ArrayBlockingQueue<>(capacity);
+        Thread writer = new Thread(this::writeRecords, "bpjs-logger");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    static AsyncLogAppender getInstance() {
+        return instance;
+    }
+
+    void append(LogRecord record) {
+        appendedRecords.incrementAndGet();
+        if (record.level.compareTo(LogLevel.WARN) < 0) {
+            if (!records.offer(record)) {
+                droppedRecords.incrementAndGet();
+                onHandled(1);
+            }
+            return;
+        }
+        try {
+            records.put(record);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            droppedRecords.incrementAndGet();
+            onHandled(1);
+        }
+    }
+
+    /**
+     * Waits until every record appended so far was written or dropped.
+     */
+    boolean flush(long timeoutMillis) {
+        long target = appendedRecords.get();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (this) {
+            while (handledRecords < target) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    long getDroppedRecords() {
+        return droppedRecords.get();
+    }
+
+    private void writeRecords() {
+        List<LogRecord> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        long reportedDroppedRecords = 0;
+        while (true) {
+            try {
+                batch.add(records.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            records.drainTo(batch, MAX_BATCH_SIZE - 1);
+            long dropped = droppedRecords.get();
+            if (dropped > reportedDroppedRecords) {
+                lines.append("--- ").append(dropped - reportedDroppedRecords).append(" log lines dropped, the log queue was full")
+                        .append(System.lineSeparator());
+                reportedDroppedRecords = dropped;
+            }
+            for (LogRecord record : batch) {
+                format(record);
+            }
+            out.print(lines);
+            out.flush();
+            lines.setLength(0);
+            onHandled(batch.size());
+            batch.clear();
+        }
+    }
+
+    private synchronized void onHandled(int count) {
+        handledRecords += count;
+        notifyAll();
+    }
+
+    private void format(LogRecord record) {
+        appendTime(record.time);
+        lines.append("  ").append(record.level.name())
+                .append(" Thread").append(record.threadId)
+                .append(" --- ").append(record.name).append(' ')
+                .append(record.message)
+                .append(System.lineSeparator());
+        if (record.throwable != null) {
+            StringWriter stackTrace = new StringWriter();
+            record.throwable.printStackTrace(new PrintWriter(stackTrace));
+            lines.append(stackTrace);
+        }
+    }
+
+    private void appendTime(long time) {
+        long second = time / 1000;
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedSecondText = SECOND_FORMAT.format(Instant.ofEpochSecond(second));
+        }
+        int millis = (int) (time % 1000);
+        lines.append(cachedSecondText);
+        if (millis < 100) {
+            lines.append('0');
+        }
+        if (millis < 10) {
+            lines.append('0');
+        }
+        lines.append(millis);
+    }
+
+    static class LogRecord {
+        private final long time;
+        private final LogLevel level;
+        private final long threadId;
+        private final String name;
+        private final String message;
+        private final Throwable throwable;
+
+        LogRecord(long time, LogLevel level, long threadId, String name, String message, Throwable throwable) {
+            this.time = time;
+            this.level = level;
+            this.threadId = threadId;
+            this.name = name;
+            this.message = message;
+            this.throwable = throwable;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package il.ac.bgu.se.bp.utils.logger;
+
+public enum LogLevel {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF
+}
@@ -0,0 +1,69 @@
+package il.ac.bgu.se.bp.utils.logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The levels {@link Logger}s print at, by the simple name of the class they log for. A class without a level of its own uses the default level.
+ * Both can be changed at runtime, and start from the system properties {@code bpjs.log.level} and {@code bpjs.log.level.<SimpleClassName>}.
+ */
+public class LogLevels {
+    static final String LEVEL_PROPERTY = "bpjs.log.level";
+
+    private static final Map<String, Level> levelsByName = new ConcurrentHashMap<>();
+    private static volatile LogLevel defaultLevel = parse(System.getProperty(LEVEL_PROPERTY), LogLevel.INFO);
+
+    private LogLevels() {
+    }
+
+    public static LogLevel getDefaultLevel() {
+        return defaultLevel;
+    }
+
+    public static void setDefaultLevel(LogLevel level) {
+        defaultLevel = level == null ? LogLevel.INFO : level;
+    }
+
+    /**
+     * @param level the level of {@code name}, or null to use the default level
+     */
+    public static void setLevel(String name, LogLevel level) {
+        get(name).level = level;
+    }
+
+    public static LogLevel getLevel(String name) {
+        return get(name).getEffectiveLevel();
+    }
+
+    static Level get(String name) {
+        return levelsByName.computeIfAbsent(name, n -> new Level(parse(System.getProperty(LEVEL_PROPERTY + "." + n), null)));
+    }
+
+    private static LogLevel parse(String level, LogLevel defaultValue) {
+        if (level == null) {
+            return defaultValue;
+        }
+        try {
+            return LogLevel.valueOf(level.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return defaultValue;
+        }
+    }
+
+    static class Level {
+        private volatile LogLevel level;
+
+        private Level(LogLevel level) {
+            this.level = level;
+        }
+
+        LogLevel getEffectiveLevel() {
+            LogLevel ownLevel = level;
+            return ownLevel == null ? defaultLevel : ownLevel;
+        }
+
+        boolean isEnabled(LogLevel logLevel) {
+            return logLevel.compareTo(getEffectiveLevel()) >= 0;
+        }
+    }
+}
@@ -1,67 +1,111 @@
 package il.ac.bgu.se.bp.utils.logger;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-
+/**
+ * Logs lines with {0}, {1}... placeholders. A line is formatted only if its level is enabled for the class, see {@link LogLevels},
+ * and is written to stdout by the {@link AsyncLogAppender}.
+ */
 public class Logger {
-    private final static String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss:SSS";
-    private enum LOG_LEVELS { DEBUG, INFO, WARN, ERROR }
-
     private final String className;
+    private final LogLevels.Level level;
+    private final AsyncLogAppender appender;
 
     public Logger(Class<?> clazz) {
         this.className = "[" + clazz.getSimpleName() + "]";
+        this.level = LogLevels.get(clazz.getSimpleName());
+        this.appender = AsyncLogAppender.getInstance();
     }
 
     public Logger(Class<?> clazz, String debuggerId) {
         this.className = "[" + clazz.getSimpleName() + "] [" + debuggerId + "]";
+        this.level = LogLevels.get(clazz.getSimpleName());
+        this.appender = AsyncLogAppender.getInstance();
+    }
+
+    public boolean isDebugEnabled() {
+        return level.isEnabled(LogLevel.DEBUG);
+    }
+
+    public boolean isInfoEnabled() {
+        return level.isEnabled(LogLevel.INFO);
     }
 
     public void debug(String msg, Object... args) {
-        loggerPrinter(msg, LOG_LEVELS.DEBUG, args);
+        if (level.isEnabled(LogLevel.DEBUG)) {
+            log(LogLevel.DEBUG, msg, null, args);
+        }
     }
 
     public void info(String msg, Object... args) {
-        loggerPrinter(msg, LOG_LEVELS.INFO, args);
+        if (level.isEnabled(LogLevel.INFO)) {
+            log(LogLevel.INFO, msg, null, args);
+        }
     }
 
     public void warning(String msg, Object... args) {
-        loggerPrinter(msg, LOG_LEVELS.WARN, args);
+        if (level.isEnabled(LogLevel.WARN)) {
+            log(LogLevel.WARN, msg, null, args);
+        }
     }
 
     public void error(String msg, Object... args) {
-        loggerPrinter(msg, LOG_LEVELS.ERROR, args);
+        if (level.isEnabled(LogLevel.ERROR)) {
+            log(LogLevel.ERROR, msg, null, args);
+        }
     }
 
     public void error(String msg, Throwable e, Object... args) {
-        loggerPrinter(msg, LOG_LEVELS.ERROR, args);
-        e.printStackTrace();
-    }
-
-    private void loggerPrinter(String msg, LOG_LEVELS logLevel, Object... args) {
-        String additionalInfo = replacePlaceHolders("{0}  {1} {2} --- {3} ", getDate(), logLevel, "Thread" + Thread.currentThread().getId(), className);
-        String replacedMsg = replacePlaceHolders(msg, args);
-
-        System.out.println(additionalInfo + replacedMsg);
+        if (level.isEnabled(LogLevel.ERROR)) {
+            log(LogLevel.ERROR, msg, e, args);
+        }
     }
 
-    private String getDate() {
-        SimpleDateFormat sdf = new SimpleDateFormat(DATE_FORMAT);
-        return sdf.format(new Date());
+    private void log(LogLevel logLevel, String msg, Throwable e, Object... args) {
+        appender.append(new AsyncLogAppender.LogRecord(System.currentTimeMillis(), logLevel, Thread.currentThread().getId(),
+                className, replacePlaceHolders(msg, args), e));
     }
 
-    private String replacePlaceHolders(String msg, Object... args) {
+    /**
+     * Replaces every {i} in {@code msg} with {@code args[i]} in a single pass; placeholders without a matching argument are kept.
+     * It runs on the logging thread, since the arguments may change once it moves on.
+     */
+    static String replacePlaceHolders(String msg, Object... args) {
         if (msg == null) {
             return "";
         }
-        if (args == null) {
+        if (args == null || args.length == 0 || msg.indexOf('{') < 0) {
             return msg;
         }
-        String newMsg = msg;
-        for (int i = 0; i < args.length; i++) {
-            newMsg = newMsg.replace("{" + i + "}", args[i] == null ? "null" : args[i].toString());
+        StringBuilder replacedMsg = new StringBuilder(msg.length() + 16 * args.length);
+        int length = msg.length();
+        int i = 0;
+        while (i < length) {
+            char c = msg.charAt(i);
+            int end = c == '{' ? msg.indexOf('}', i + 1) : -1;
+            int argIndex = end > i + 1 ? parseIndex(msg, i + 1, end) : -1;
+            if (argIndex >= 0 && argIndex < args.length) {
+                replacedMsg.append(args[argIndex] == null ? "null" : args[argIndex].toString());
+                i = end + 1;
+            }
+            else {
+                replacedMsg.append(c);
+                i++;
+            }
         }
-        return newMsg;
+        return replacedMsg.toString();
     }
 
+    private static int parseIndex(String msg, int from, int to) {
+        if (to - from > 3) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = from; i < to; i++) {
+            char digit = msg.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return -1;
+            }
+            index = index * 10 + (digit - '0');
+        }
+        return index;
+    }
 }
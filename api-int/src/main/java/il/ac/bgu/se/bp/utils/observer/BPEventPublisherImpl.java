@@ -1,11 +1,11 @@
 package il.ac.bgu.se.bp.utils.observer;
 
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class BPEventPublisherImpl implements Publisher<BPEvent> {
 
-    private List<Subscriber<BPEvent>> subscribers = new LinkedList<>();
+    private List<Subscriber<BPEvent>> subscribers = new CopyOnWriteArrayList<>();
 
     @Override
     public void subscribe(Subscriber<BPEvent> subscriber) {
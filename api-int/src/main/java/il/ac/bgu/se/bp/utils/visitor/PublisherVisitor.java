@@ -1,6 +1,8 @@
 package il.ac.bgu.se.bp.utils.visitor;
 
 import il.ac.bgu.se.bp.socket.console.ConsoleMessage;
+import il.ac.bgu.se.bp.socket.progress.ProgramProgress;
+import il.ac.bgu.se.bp.socket.snapshots.SyncSnapshotsEvicted;
 import il.ac.bgu.se.bp.socket.state.BPDebuggerState;
 import il.ac.bgu.se.bp.socket.status.ProgramStatus;
 
@@ -8,4 +10,6 @@ public interface PublisherVisitor {
     void visit(String userId, BPDebuggerState debuggerState);
     void visit(String userId, ConsoleMessage consoleMessage);
     void visit(String userId, ProgramStatus programExit);
+    void visit(String userId, ProgramProgress programProgress);
+    void visit(String userId, SyncSnapshotsEvicted syncSnapshotsEvicted);
 }
@@ -0,0 +1,33 @@
+package il.ac.bgu.se.bp.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.results.format.ResultFormatType;
+
+/**
+ * Runs the benchmarks with the allocation profiler ({@code -prof gc}), so every result comes with its allocation rate
+ * and bytes allocated per operation, and writes the results to {@code benchmarks.json}.
+ * Accepts the JMH command line, e.g. {@code java -jar benchmarks/target/benchmarks.jar SuperstepBenchmark -p debuggerLevel=NORMAL}.
+ */
+public class BenchmarkRunner {
+    private static final String RESULTS_FILE = "benchmarks.json";
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+        boolean isGCProfiled = commandLineOptions.getProfilers().stream()
+                .anyMatch(profiler -> profiler.getKlass().equals("gc") || profiler.getKlass().equals(GCProfiler.class.getName()));
+        if (!isGCProfiled) {
+            options.addProfiler(GCProfiler.class);
+        }
+        if (!commandLineOptions.getResult().hasValue()) {
+            options.result(RESULTS_FILE).resultFormat(ResultFormatType.JSON);
+        }
+        new Runner(options.build()).run();
+    }
+}
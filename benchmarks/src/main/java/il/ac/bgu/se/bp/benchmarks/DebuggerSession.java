@@ -0,0 +1,102 @@
+package il.ac.bgu.se.bp.benchmarks;
+
+import il.ac.bgu.se.bp.debugger.BPJsDebugger;
+import il.ac.bgu.se.bp.debugger.DebuggerLevel;
+import il.ac.bgu.se.bp.debugger.engine.events.BPStateEvent;
+import il.ac.bgu.se.bp.debugger.manage.DebuggerFactory;
+import il.ac.bgu.se.bp.rest.response.BooleanResponse;
+import il.ac.bgu.se.bp.utils.observer.BPEvent;
+import il.ac.bgu.se.bp.utils.observer.Subscriber;
+
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Drives a debugger as the service does, and waits for the debugger state each command ends with.
+ */
+class DebuggerSession implements Subscriber<BPEvent> {
+    private static final long POLL_MILLIS = 10;
+    private static final long TIMEOUT_MILLIS = 30_000;
+
+    private final BPJsDebugger<BooleanResponse> debugger;
+    private final Semaphore states = new Semaphore(0);
+
+    DebuggerSession(DebuggerFactory<BooleanResponse> debuggerFactory, String sourceCode, DebuggerLevel debuggerLevel) {
+        this.debugger = debuggerFactory.getBPJsDebugger(UUID.randomUUID().toString(), sourceCode, debuggerLevel);
+        debugger.subscribe(this);
+    }
+
+    @Override
+    public void update(BPEvent event) {
+        if (event instanceof BPStateEvent) {
+            states.release();
+        }
+    }
+
+    /**
+     * Starts the program and waits for its first sync state.
+     *
+     * @return false if the program ended before reaching it
+     */
+    boolean start() throws InterruptedException, TimeoutException {
+        states.drainPermits();
+        if (!debugger.startSync(new HashMap<>(), false, true, false).isSuccess()) {
+            return false;
+        }
+        return awaitState();
+    }
+
+    /**
+     * Runs one superstep and waits for the next sync state.
+     *
+     * @return false if the program ended
+     */
+    boolean nextSync() throws InterruptedException, TimeoutException {
+        states.drainPermits();
+        if (debugger.getTermination().isDone()) {
+            return false;
+        }
+        try {
+            if (!debugger.nextSync().isSuccess()) {
+                return false;
+            }
+        } catch (RejectedExecutionException e) {
+            return false;   // ended while the command was sent
+        }
+        return awaitState();
+    }
+
+    /**
+     * Runs the program without stopping at sync states, and waits for it to end.
+     */
+    void runToEnd() throws Exception {
+        if (!debugger.startSync(new HashMap<>(), true, true, false).isSuccess()) {
+            throw new IllegalStateException("failed starting " + debugger.getDebuggerId());
+        }
+        debugger.getTermination().get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        if (!debugger.getTermination().isDone()) {
+            debugger.stop();
+        }
+        debugger.getTermination().join();
+    }
+
+    private boolean awaitState() throws InterruptedException, TimeoutException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (states.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            if (debugger.getTermination().isDone()) {
+                return false;
+            }
+        }
+        throw new TimeoutException("no debugger state from " + debugger.getDebuggerId());
+    }
+}
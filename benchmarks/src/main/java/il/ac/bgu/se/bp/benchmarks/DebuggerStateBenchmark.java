@@ -0,0 +1,62 @@
+package il.ac.bgu.se.bp.benchmarks;
+
+import il.ac.bgu.cs.bp.bpjs.model.BProgramSyncSnapshot;
+import il.ac.bgu.se.bp.debugger.DebuggerLevel;
+import il.ac.bgu.se.bp.debugger.RunnerState;
+import il.ac.bgu.se.bp.debugger.engine.SyncSnapshotHolderImpl;
+import il.ac.bgu.se.bp.socket.state.BPDebuggerState;
+import il.ac.bgu.se.bp.utils.DebuggerStateHelper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generating the debugger state of a sync point, at the level of run sessions ({@code LIGHT}) and of debug sessions ({@code NORMAL}).
+ * The state is of the last snapshot of a recorded run, with the run in the events history.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DebuggerStateBenchmark {
+    private static final int SUPERSTEPS = 50;
+
+    @Param({ProgramRecording.PHILOSOPHERS, ProgramRecording.TIC_TAC_TOE, ProgramRecording.WAITING_EVENTS})
+    public String programName;
+
+    @Param({"LIGHT", "NORMAL"})
+    public DebuggerLevel debuggerLevel;
+
+    private ProgramRecording recording;
+    private SyncSnapshotHolderImpl syncSnapshotHolder;
+    private DebuggerStateHelper debuggerStateHelper;
+    private BProgramSyncSnapshot snapshot;
+    private final RunnerState state = new RunnerState();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        recording = ProgramRecording.record(programName, SUPERSTEPS);
+        syncSnapshotHolder = new SyncSnapshotHolderImpl();
+        List<BProgramSyncSnapshot> snapshots = recording.getSnapshots();
+        for (int i = 0; i < recording.getEvents().size(); i++) {
+            syncSnapshotHolder.addSyncSnapshot(snapshots.get(i), recording.getEvents().get(i));
+        }
+        debuggerStateHelper = new DebuggerStateHelper(null, syncSnapshotHolder, debuggerLevel);
+        snapshot = recording.getLastSnapshot();
+        state.setDebuggerState(RunnerState.State.SYNC_STATE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        syncSnapshotHolder.close();
+        recording.close();
+    }
+
+    @Benchmark
+    public BPDebuggerState generateDebuggerState() {
+        return debuggerStateHelper.generateDebuggerState(snapshot, state, null, null);
+    }
+}
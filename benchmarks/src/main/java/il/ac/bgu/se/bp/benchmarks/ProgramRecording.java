@@ -0,0 +1,131 @@
+package il.ac.bgu.se.bp.benchmarks;
+
+import il.ac.bgu.cs.bp.bpjs.model.BEvent;
+import il.ac.bgu.cs.bp.bpjs.model.BProgram;
+import il.ac.bgu.cs.bp.bpjs.model.BProgramSyncSnapshot;
+import il.ac.bgu.cs.bp.bpjs.model.StringBProgram;
+import il.ac.bgu.cs.bp.bpjs.model.eventselection.EventSelectionResult;
+import il.ac.bgu.cs.bp.bpjs.model.eventselection.EventSelectionStrategy;
+import il.ac.bgu.cs.bp.bpjs.model.eventselection.SimpleEventSelectionStrategy;
+import il.ac.bgu.se.bp.utils.DebuggerExecutorServiceMaker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import static il.ac.bgu.cs.bp.bpjs.model.StorageModificationStrategy.PASSTHROUGH;
+
+/**
+ * The sync snapshots a bundled program goes through, recorded once so benchmarks can replay them.
+ * Events are selected with a fixed seed, so every fork records the same run.
+ */
+class ProgramRecording {
+    static final String PHILOSOPHERS = "Philosophers.js";
+    static final String TIC_TAC_TOE = "BPJSTicTacToe.js";
+    static final String WAITING_EVENTS = "BPjsTestWaitingEvents.js";
+    static final long SEED = 42;
+
+    /**
+     * The X player of tic-tac-toe clicks the board itself (the bthread left commented out at the end of the program),
+     * otherwise the game waits for the user at its first sync point.
+     */
+    private static final String TIC_TAC_TOE_PLAYER =
+            "\nbp.registerBThread('Simulate X', function() {\n" +
+            "    var cells = [];\n" +
+            "    for (var i = 0; i < 3; i++) {\n" +
+            "        for (var j = 0; j < 3; j++) {\n" +
+            "            cells.push(Click(i, j));\n" +
+            "        }\n" +
+            "    }\n" +
+            "    for (var i = 0; i < 9; i++) {\n" +
+            "        bp.sync({ request: cells });\n" +
+            "    }\n" +
+            "});\n";
+
+    private final BProgram bprog;
+    private final ExecutorService executorService;
+    private final List<BProgramSyncSnapshot> snapshots = new ArrayList<>();
+    private final List<BEvent> events = new ArrayList<>();
+
+    private ProgramRecording(BProgram bprog, ExecutorService executorService) {
+        this.bprog = bprog;
+        this.executorService = executorService;
+    }
+
+    /**
+     * Runs {@code programName} until it ends or {@code maxSupersteps} events were selected.
+     */
+    static ProgramRecording record(String programName, int maxSupersteps) throws IOException, InterruptedException {
+        BProgram bprog = new StringBProgram(programName, readProgram(programName));
+        bprog.setEventSelectionStrategy(new SimpleEventSelectionStrategy(SEED));
+        ExecutorService executorService = new DebuggerExecutorServiceMaker().makeWithName("benchmark-" + programName);
+        ProgramRecording recording = new ProgramRecording(bprog, executorService);
+
+        EventSelectionStrategy eventSelectionStrategy = bprog.getEventSelectionStrategy();
+        BProgramSyncSnapshot snapshot = bprog.setup().start(executorService, PASSTHROUGH);
+        recording.snapshots.add(snapshot);
+        while (recording.events.size() < maxSupersteps && snapshot.isStateValid()) {
+            Set<BEvent> selectableEvents = eventSelectionStrategy.selectableEvents(snapshot);
+            Optional<EventSelectionResult> selection = selectableEvents.isEmpty() ?
+                    Optional.empty() : eventSelectionStrategy.select(snapshot, selectableEvents);
+            if (!selection.isPresent()) {
+                break;
+            }
+            BEvent event = selection.get().getEvent();
+            snapshot = snapshot.triggerEvent(event, executorService, Collections.emptyList(), PASSTHROUGH);
+            recording.events.add(event);
+            recording.snapshots.add(snapshot);
+        }
+        return recording;
+    }
+
+    /**
+     * @return the source of a bundled program, as the benchmarks run it
+     */
+    static String readProgram(String programName) throws IOException {
+        try (InputStream inputStream = ProgramRecording.class.getClassLoader().getResourceAsStream(programName)) {
+            if (inputStream == null) {
+                throw new IOException("no bundled program " + programName);
+            }
+            String sourceCode = new Scanner(inputStream, StandardCharsets.UTF_8.name()).useDelimiter("\\A").next();
+            return TIC_TAC_TOE.equals(programName) ? sourceCode + TIC_TAC_TOE_PLAYER : sourceCode;
+        }
+    }
+
+    BProgram getBProgram() {
+        return bprog;
+    }
+
+    ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    /**
+     * @return the snapshots of the run, the first is the one after the program started
+     */
+    List<BProgramSyncSnapshot> getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * @return the event selected at each snapshot, one less than the snapshots
+     */
+    List<BEvent> getEvents() {
+        return events;
+    }
+
+    BProgramSyncSnapshot getLastSnapshot() {
+        return snapshots.get(snapshots.size() - 1);
+    }
+
+    void close() {
+        executorService.shutdownNow();
+    }
+}
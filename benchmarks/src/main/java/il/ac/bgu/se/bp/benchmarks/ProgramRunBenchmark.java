@@ -0,0 +1,79 @@
+package il.ac.bgu.se.bp.benchmarks;
+
+import il.ac.bgu.se.bp.config.BPJsDebuggerConfiguration;
+import il.ac.bgu.se.bp.debugger.DebuggerLevel;
+import il.ac.bgu.se.bp.debugger.manage.DebuggerFactory;
+import il.ac.bgu.se.bp.execution.runtime.DebuggerMetrics;
+import il.ac.bgu.se.bp.rest.response.BooleanResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Running a whole program through {@code BPJsDebuggerImpl} without stopping at sync points, as a run session does,
+ * both headless ({@code THROUGHPUT}) and with a console and debugger states ({@code LIGHT}).
+ * The selected events are reported as the {@code supersteps} counter, so the superstep throughput reads next to the runs.
+ * The philosophers are left out, they may never end.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProgramRunBenchmark {
+
+    @Param({ProgramRecording.TIC_TAC_TOE, ProgramRecording.WAITING_EVENTS})
+    public String programName;
+
+    @Param({"THROUGHPUT", "LIGHT"})
+    public DebuggerLevel debuggerLevel;
+
+    private AnnotationConfigApplicationContext applicationContext;
+    private DebuggerFactory<BooleanResponse> debuggerFactory;
+    private String sourceCode;
+    private MeterRegistry meterRegistry;
+    private Counter eventsSelected;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Supersteps {
+        public long supersteps;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            supersteps = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        applicationContext = new AnnotationConfigApplicationContext(BPJsDebuggerConfiguration.class);
+        debuggerFactory = applicationContext.getBean(DebuggerFactory.class);
+        sourceCode = ProgramRecording.readProgram(programName);
+        meterRegistry = new SimpleMeterRegistry();
+        Metrics.addRegistry(meterRegistry);
+        DebuggerMetrics.getInstance();
+        eventsSelected = meterRegistry.get(DebuggerMetrics.EVENTS_SELECTED).counter();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Metrics.removeRegistry(meterRegistry);
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public void runProgram(Supersteps supersteps) throws Exception {
+        double eventsBefore = eventsSelected.count();
+        DebuggerSession session = new DebuggerSession(debuggerFactory, sourceCode, debuggerLevel);
+        session.runToEnd();
+        supersteps.supersteps += (long) (eventsSelected.count() - eventsBefore);
+    }
+}
@@ -0,0 +1,86 @@
+package il.ac.bgu.se.bp.benchmarks;
+
+import il.ac.bgu.cs.bp.bpjs.model.StringBProgram;
+import il.ac.bgu.se.bp.utils.DebuggerExecutorServiceMaker;
+import il.ac.bgu.se.bp.utils.RhinoInternals;
+import org.mozilla.javascript.Scriptable;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static il.ac.bgu.cs.bp.bpjs.model.StorageModificationStrategy.PASSTHROUGH;
+
+/**
+ * Walking the interpreter frames of a b-thread stack, as the debugger state does, through the {@link RhinoInternals}
+ * accessors and through the per-call reflection the debugger state helper used before them.
+ * The b-thread is {@code stackDepth} calls deep at its sync.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RhinoInternalsBenchmark {
+    // using arguments makes Rhino keep an activation (call scope) per frame, as it does when the debugger is attached
+    private static final String DEEP_BTHREAD_PROGRAM = "function down(depth) {" +
+            "  var remaining = arguments[0];" +
+            "  if (depth == 0) { bp.sync({request: bp.Event('e')}); } else { down(depth - 1); }" +
+            "}" +
+            "bp.registerBThread('deep', function deepBody() { var top = arguments.length; down(%d); });";
+
+    @Param({"5", "50"})
+    public int stackDepth;
+
+    private ExecutorService executorService;
+    private Object continuation;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        executorService = new DebuggerExecutorServiceMaker().makeWithName("benchmark-rhino-internals");
+        continuation = new StringBProgram(String.format(DEEP_BTHREAD_PROGRAM, stackDepth))
+                .setup().start(executorService, PASSTHROUGH)
+                .getBThreadSnapshots().iterator().next().getScope();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Benchmark
+    public int accessors() {
+        int checksum = 0;
+        Object frame = RhinoInternals.getContinuationImplementation(continuation);
+        while (frame != null) {
+            Scriptable scope = RhinoInternals.getScope(frame);
+            RhinoInternals.getDebuggerFrame(frame);
+            checksum += RhinoInternals.getFunctionName(scope).length();
+            frame = RhinoInternals.getParentFrame(frame);
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public int reflection() throws ReflectiveOperationException {
+        int checksum = 0;
+        Object frame = getValue(continuation, "implementation");
+        while (frame != null) {
+            Object scope = getValue(frame, "scope");
+            getValue(frame, "debuggerFrame");
+            String name = getValue(getValue(getValue(scope, "function"), "idata"), "itsName");
+            checksum += name.length();
+            frame = getValue(frame, "parentFrame");
+        }
+        return checksum;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T getValue(Object instance, String fieldName) throws ReflectiveOperationException {
+        Field fld = instance.getClass().getDeclaredField(fieldName);
+        fld.setAccessible(true);
+        return (T) fld.get(instance);
+    }
+}
@@ -0,0 +1,72 @@
+package il.ac.bgu.se.bp.benchmarks;
+
+import il.ac.bgu.se.bp.config.BPJsDebuggerConfiguration;
+import il.ac.bgu.se.bp.debugger.DebuggerLevel;
+import il.ac.bgu.se.bp.debugger.manage.DebuggerFactory;
+import il.ac.bgu.se.bp.rest.response.BooleanResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stepping a program through {@code BPJsDebuggerImpl} one superstep at a time: a next sync command, the triggered event
+ * and the debugger state it ends with, at the level of run sessions ({@code LIGHT}) and of debug sessions ({@code NORMAL}).
+ * A program that ended is started again before the next invocation, outside of the measurement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SuperstepBenchmark {
+
+    @Param({ProgramRecording.PHILOSOPHERS, ProgramRecording.TIC_TAC_TOE, ProgramRecording.WAITING_EVENTS})
+    public String programName;
+
+    @Param({"LIGHT", "NORMAL"})
+    public DebuggerLevel debuggerLevel;
+
+    private AnnotationConfigApplicationContext applicationContext;
+    private DebuggerFactory<BooleanResponse> debuggerFactory;
+    private String sourceCode;
+    private DebuggerSession session;
+    private boolean isEnded = true;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        applicationContext = new AnnotationConfigApplicationContext(BPJsDebuggerConfiguration.class);
+        debuggerFactory = applicationContext.getBean(DebuggerFactory.class);
+        sourceCode = ProgramRecording.readProgram(programName);
+    }
+
+    @Setup(Level.Invocation)
+    public void startIfEnded() throws Exception {
+        while (isEnded) {
+            stopSession();
+            session = new DebuggerSession(debuggerFactory, sourceCode, debuggerLevel);
+            isEnded = !session.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stopSession();
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public boolean superstep() throws Exception {
+        isEnded = !session.nextSync();
+        return isEnded;
+    }
+
+    private void stopSession() {
+        if (session != null) {
+            session.stop();
+            session = null;
+        }
+    }
+}
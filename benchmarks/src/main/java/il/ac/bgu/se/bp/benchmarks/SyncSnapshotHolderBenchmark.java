@@ -0,0 +1,76 @@
+package il.ac.bgu.se.bp.benchmarks;
+
+import il.ac.bgu.cs.bp.bpjs.model.BEvent;
+import il.ac.bgu.cs.bp.bpjs.model.BProgramSyncSnapshot;
+import il.ac.bgu.se.bp.debugger.engine.SyncSnapshotHolderImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The snapshot history of a session holding {@code entries} snapshots, replayed from a recorded run of the philosophers.
+ * {@link #addAndPop()} adds a snapshot and goes back to it, as stepping and then jumping back in the history does,
+ * so the history keeps its size across invocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SyncSnapshotHolderBenchmark {
+    private static final int RECORDED_SUPERSTEPS = 64;
+    private static final int HISTORY_PAGE = 10;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int entries;
+
+    private ProgramRecording recording;
+    private SyncSnapshotHolderImpl syncSnapshotHolder;
+    private long nextSequence;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        recording = ProgramRecording.record(ProgramRecording.PHILOSOPHERS, RECORDED_SUPERSTEPS);
+        syncSnapshotHolder = new SyncSnapshotHolderImpl();
+        for (int i = 0; i < entries; i++) {
+            syncSnapshotHolder.addSyncSnapshot(snapshotAt(i), eventAt(i));
+        }
+        nextSequence = entries;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        syncSnapshotHolder.close();
+        recording.close();
+    }
+
+    @Benchmark
+    public BProgramSyncSnapshot addAndPop() {
+        long sequence = nextSequence++;
+        syncSnapshotHolder.addSyncSnapshot(snapshotAt(sequence), eventAt(sequence));
+        return syncSnapshotHolder.popKey(sequence);
+    }
+
+    @Benchmark
+    public SortedMap<Long, BEvent> recentHistory() {
+        return syncSnapshotHolder.getEventsHistoryStack(0, HISTORY_PAGE);
+    }
+
+    @Benchmark
+    public SortedMap<Long, BEvent> middleHistory() {
+        return syncSnapshotHolder.getEventsHistoryStack(entries / 2, entries / 2 + HISTORY_PAGE);
+    }
+
+    private BProgramSyncSnapshot snapshotAt(long index) {
+        List<BProgramSyncSnapshot> snapshots = recording.getSnapshots();
+        return snapshots.get((int) (index % snapshots.size()));
+    }
+
+    private BEvent eventAt(long index) {
+        List<BEvent> events = recording.getEvents();
+        return events.get((int) (index % events.size()));
+    }
+}
@@ -0,0 +1,67 @@
+package il.ac.bgu.se.bp.benchmarks;
+
+import il.ac.bgu.cs.bp.bpjs.bprogramio.BProgramSyncSnapshotIO;
+import il.ac.bgu.cs.bp.bpjs.model.BProgramSyncSnapshot;
+import il.ac.bgu.se.bp.debugger.engine.SyncSnapshotCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing and deserializing a sync snapshot, with BPjs' {@link BProgramSyncSnapshotIO} and with the
+ * {@link SyncSnapshotCodec} the snapshot history and archives use.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SyncSnapshotIOBenchmark {
+    private static final int SUPERSTEPS = 20;
+
+    @Param({ProgramRecording.PHILOSOPHERS, ProgramRecording.TIC_TAC_TOE, ProgramRecording.WAITING_EVENTS})
+    public String programName;
+
+    private ProgramRecording recording;
+    private BProgramSyncSnapshot snapshot;
+    private BProgramSyncSnapshotIO snapshotIO;
+    private SyncSnapshotCodec codec;
+    private byte[] snapshotIOBytes;
+    private byte[] codecBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        recording = ProgramRecording.record(programName, SUPERSTEPS);
+        snapshot = recording.getLastSnapshot();
+        snapshotIO = new BProgramSyncSnapshotIO(recording.getBProgram());
+        codec = new SyncSnapshotCodec(recording.getBProgram());
+        snapshotIOBytes = snapshotIO.serialize(snapshot);
+        codecBytes = codec.serialize(snapshot);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        recording.close();
+    }
+
+    @Benchmark
+    public byte[] snapshotIOSerialize() throws Exception {
+        return snapshotIO.serialize(snapshot);
+    }
+
+    @Benchmark
+    public BProgramSyncSnapshot snapshotIODeserialize() throws Exception {
+        return snapshotIO.deserialize(snapshotIOBytes);
+    }
+
+    @Benchmark
+    public byte[] codecSerialize() throws Exception {
+        return codec.serialize(snapshot);
+    }
+
+    @Benchmark
+    public BProgramSyncSnapshot codecDeserialize() throws Exception {
+        return codec.deserialize(codecBytes);
+    }
+}
@@ -4,16 +4,20 @@ import il.ac.bgu.se.bp.debugger.manage.DebuggerFactory;
 import il.ac.bgu.se.bp.debugger.manage.ProgramValidator;
 import il.ac.bgu.se.bp.execution.manage.DebuggerFactoryImpl;
 import il.ac.bgu.se.bp.execution.manage.ProgramValidatorImpl;
+import il.ac.bgu.se.bp.execution.runtime.DebuggerRuntime;
 import il.ac.bgu.se.bp.mains.BPJsDebuggerCliRunner;
 import il.ac.bgu.se.bp.utils.asyncHelper.AsyncOperationRunner;
 import il.ac.bgu.se.bp.utils.asyncHelper.AsyncOperationRunnerImpl;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
 
+import java.util.concurrent.Executor;
+
 @Configuration
 @EnableAsync
-public class BPJsDebuggerConfiguration {
+public class BPJsDebuggerConfiguration implements AsyncConfigurer {
 
     @Bean
     public BPJsDebuggerCliRunner bpJsDebuggerCliRunner() {
@@ -34,4 +38,9 @@ public class BPJsDebuggerConfiguration {
     public ProgramValidator programValidator() {
         return new ProgramValidatorImpl();
     }
+
+    @Override
+    public Executor getAsyncExecutor() {
+        return DebuggerRuntime.getInstance().getExecutor();
+    }
 }
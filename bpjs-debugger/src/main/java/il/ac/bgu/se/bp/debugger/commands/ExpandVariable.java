@@ -0,0 +1,45 @@
+package il.ac.bgu.se.bp.debugger.commands;
+
+import il.ac.bgu.se.bp.debugger.engine.DebuggerEngine;
+import il.ac.bgu.se.bp.rest.response.BooleanResponse;
+import il.ac.bgu.se.bp.rest.response.VariableExpansionResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+import static il.ac.bgu.se.bp.utils.ResponseHelper.createSuccessResponse;
+
+/**
+ * Expands a variable on the thread the program is paused on, so its JS objects are not read while they run.
+ * The program stays paused.
+ */
+public class ExpandVariable implements DebuggerCommand {
+    private final long handle;
+    private final int from;
+    private final int count;
+    private final CompletableFuture<VariableExpansionResponse> expansion = new CompletableFuture<>();
+
+    public ExpandVariable(long handle, int from, int count) {
+        this.handle = handle;
+        this.from = from;
+        this.count = count;
+    }
+
+    @Override
+    public BooleanResponse applyCommand(DebuggerEngine debugger) {
+        try {
+            expansion.complete(debugger.expandVariable(handle, from, count));
+        } catch (RuntimeException e) {
+            expansion.completeExceptionally(e);
+        }
+        return createSuccessResponse();
+    }
+
+    public CompletableFuture<VariableExpansionResponse> getExpansion() {
+        return expansion;
+    }
+
+    @Override
+    public String toString() {
+        return "ExpandVariable";
+    }
+}
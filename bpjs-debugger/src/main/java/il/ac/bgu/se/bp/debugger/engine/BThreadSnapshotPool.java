@@ -0,0 +1,66 @@
+package il.ac.bgu.se.bp.debugger.engine;
+
+import il.ac.bgu.cs.bp.bpjs.model.BThreadSyncSnapshot;
+
+import java.util.*;
+
+/**
+ * Reference counted pool of b-thread snapshots shared by the stored sync snapshot history.
+ * B-threads that were not resumed between two sync points are the same object, and are shared by identity only.
+ * Resumed b-threads are never matched by content: the BPjs equality ignores their data, sync statement and storage
+ * modifications, and their continuations close over the object graph of the sync point they were taken at.
+ */
+public class BThreadSnapshotPool {
+    private final Map<BThreadSyncSnapshot, PooledBThread> byIdentity = new IdentityHashMap<>();
+    private long references = 0;
+
+    /**
+     * Returns the pooled instances of the given b-threads, adding the ones that are not pooled yet.
+     * B-threads that were added to the pool by this call are collected into {@code added}.
+     */
+    public List<BThreadSyncSnapshot> acquire(Collection<BThreadSyncSnapshot> bThreads, Collection<BThreadSyncSnapshot> added) {
+        List<BThreadSyncSnapshot> pooledBThreads = new ArrayList<>(bThreads.size());
+        for (BThreadSyncSnapshot bThread : bThreads) {
+            PooledBThread pooled = byIdentity.get(bThread);
+            if (pooled == null) {
+                pooled = new PooledBThread(bThread);
+                byIdentity.put(bThread, pooled);
+                added.add(bThread);
+            }
+            pooled.refCount++;
+            references++;
+            pooledBThreads.add(pooled.bThread);
+        }
+        return pooledBThreads;
+    }
+
+    public void release(Collection<BThreadSyncSnapshot> pooledBThreads) {
+        for (BThreadSyncSnapshot bThread : pooledBThreads) {
+            PooledBThread pooled = byIdentity.get(bThread);
+            if (pooled == null) {
+                continue;
+            }
+            references--;
+            if (--pooled.refCount == 0) {
+                byIdentity.remove(bThread);
+            }
+        }
+    }
+
+    public int getStoredBThreads() {
+        return byIdentity.size();
+    }
+
+    public long getReferencedBThreads() {
+        return references;
+    }
+
+    private static class PooledBThread {
+        private final BThreadSyncSnapshot bThread;
+        private int refCount = 0;
+
+        private PooledBThread(BThreadSyncSnapshot bThread) {
+            this.bThread = bThread;
+        }
+    }
+}
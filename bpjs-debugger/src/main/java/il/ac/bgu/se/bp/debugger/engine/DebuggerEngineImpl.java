@@ -1,14 +1,18 @@
 package il.ac.bgu.se.bp.debugger.engine;
 
-import il.ac.bgu.cs.bp.bpjs.BPjs;
 import il.ac.bgu.cs.bp.bpjs.model.BProgramSyncSnapshot;
 import il.ac.bgu.se.bp.debugger.DebuggerLevel;
 import il.ac.bgu.se.bp.debugger.RunnerState;
 import il.ac.bgu.se.bp.debugger.commands.DebuggerCommand;
 import il.ac.bgu.se.bp.debugger.engine.dim.DimHelper;
 import il.ac.bgu.se.bp.debugger.engine.dim.DimHelperImpl;
+import il.ac.bgu.se.bp.debugger.engine.events.BPConsoleEvent;
 import il.ac.bgu.se.bp.debugger.engine.events.BPStateEvent;
 import il.ac.bgu.se.bp.debugger.engine.events.ProgramStatusEvent;
+import il.ac.bgu.se.bp.execution.runtime.DebuggerRuntime;
+import il.ac.bgu.se.bp.rest.response.VariableExpansionResponse;
+import il.ac.bgu.se.bp.socket.console.ConsoleMessage;
+import il.ac.bgu.se.bp.socket.console.LogType;
 import il.ac.bgu.se.bp.socket.state.BPDebuggerState;
 import il.ac.bgu.se.bp.socket.status.Status;
 import il.ac.bgu.se.bp.utils.DebuggerStateHelper;
@@ -24,7 +28,9 @@ import org.mozilla.javascript.tools.debugger.Dim;
 import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static il.ac.bgu.se.bp.utils.ProgramStatusHelper.getRunStatusByDebuggerLevel;
 
@@ -34,7 +40,6 @@ public class DebuggerEngineImpl implements DebuggerEngine<BProgramSyncSnapshot>
     private final DebuggerStateHelper debuggerStateHelper;
     private final String debuggerId;
     private final Logger logger;
-    private final ExecutorService execSvc;
 
     private DimHelper dimHelper;
     private Dim.ContextData lastContextData = null;
@@ -42,27 +47,34 @@ public class DebuggerEngineImpl implements DebuggerEngine<BProgramSyncSnapshot>
     private volatile boolean areBreakpointsMuted = false;
     private BProgramSyncSnapshot syncSnapshot = null;
     private DebuggerLevel debuggerLevel;
+    private final AtomicLong stateVersion = new AtomicLong(1);
+    private volatile long lastStateVersion = 0;
+    private final AtomicBoolean isPaused = new AtomicBoolean(false);
 
     private final BlockingQueue<DebuggerCommand> debuggerCommands = new ArrayBlockingQueue<>(1);
     private Publisher<BPEvent> publisher = new BPEventPublisherImpl();
 
+    /**
+     * @param contextFactory the factory of the program contexts to attach the JS debugger to, null to run the program without one
+     */
     public DebuggerEngineImpl(String debuggerId, String filename, RunnerState state,
-                              DebuggerStateHelper debuggerStateHelper, String debuggerThreadId) {
+                              DebuggerStateHelper debuggerStateHelper, ContextFactory contextFactory) {
         this.filename = filename;
         this.state = state;
         this.debuggerStateHelper = debuggerStateHelper;
         this.debuggerId = debuggerId;
         this.logger = new Logger(DebuggerEngineImpl.class, debuggerId);
-        this.execSvc = BPjs.getExecutorServiceMaker().makeWithName(debuggerThreadId);
 
-        initDim();
+        initDim(contextFactory);
         setIsRunning(true);
     }
 
-    private void initDim() {
+    private void initDim(ContextFactory contextFactory) {
         dimHelper = new DimHelperImpl();
         dimHelper.setGuiCallback(this);
-        dimHelper.attachTo(ContextFactory.getGlobal());
+        if (contextFactory != null) {
+            dimHelper.attachTo(contextFactory);
+        }
     }
 
     public void changeDebuggerLevel(DebuggerLevel debuggerLevel) {
@@ -85,16 +97,43 @@ public class DebuggerEngineImpl implements DebuggerEngine<BProgramSyncSnapshot>
         verifyState();
         state.setDebuggerState(RunnerState.State.JS_DEBUG);
         lastContextData = stackFrame.contextData();
+        invalidateState();
         logger.debug("Get state from enterInterrupt, line number: {0}", stackFrame.getLineNumber());
         if (isMuteBreakpoints()) {
             continueRun();
         }
+        else if (!pause()) {
+            logger.warning("all the breakpoint pause slots of the debugger runtime are taken, not stopping on line {0}", stackFrame.getLineNumber());
+            notifySubscribers(new BPConsoleEvent(debuggerId, new ConsoleMessage("the server has too many programs paused on a breakpoint, " +
+                    "not stopping on line " + stackFrame.getLineNumber(), LogType.warning)));
+            continueRun();
+        }
         else {
             notifySubscribers(new ProgramStatusEvent(debuggerId, Status.BREAKPOINT));
             onStateChanged();
         }
     }
 
+    /**
+     * The JS lane waits for the next command inside Rhino's interrupt, keeping its thread, so the pause takes a slot of the
+     * {@link DebuggerRuntime} until the program resumes.
+     *
+     * @return false if no slot is free
+     */
+    private boolean pause() {
+        if (!DebuggerRuntime.getInstance().tryPauseSession()) {
+            return false;
+        }
+        isPaused.set(true);
+        return true;
+    }
+
+    private void resume() {
+        if (isPaused.compareAndSet(true, false)) {
+            DebuggerRuntime.getInstance().onSessionResumed();
+        }
+    }
+
     @Override
     public boolean isGuiEventThread() {
         return true;
@@ -104,13 +143,13 @@ public class DebuggerEngineImpl implements DebuggerEngine<BProgramSyncSnapshot>
     public void dispatchNextGuiEvent() {
         verifyState();
         try {
-            if (!debuggerStateHelper.getLastState().equals(debuggerStateHelper.peekNextState(syncSnapshot, state, lastContextData,dimHelper.getSourceInfo(filename)))) {
+            if (stateVersion.get() != lastStateVersion) {
                 logger.info("Getting state from dispatchNextGuiEvent");
                 onStateChanged();
             }
             if (isRunning()) {
                 DebuggerCommand debuggerCommand = debuggerCommands.take();
-                logger.info("applying command " + debuggerCommand.toString());
+                logger.info("applying command {0}", debuggerCommand);
                 debuggerCommand.applyCommand(this);
             }
         } catch (Exception e) {
@@ -142,34 +181,39 @@ public class DebuggerEngineImpl implements DebuggerEngine<BProgramSyncSnapshot>
     @Override
     public synchronized void toggleMuteBreakpoints(boolean toggleBreakPointStatus) {
         this.areBreakpointsMuted = toggleBreakPointStatus;
+        invalidateState();
     }
 
     @Override
     public void stop() {
         logger.info("stopping debugger engine");
         dimHelper.stop();
-        execSvc.shutdownNow();
         setIsRunning(false);
+        resume();
     }
 
     @Override
     public void stepOut() {
+        resume();
         dimHelper.setReturnValue(Dim.STEP_OUT);
     }
 
     @Override
     public void stepInto() {
+        resume();
         dimHelper.setReturnValue(Dim.STEP_INTO);
 //        dim.setBreakOnEnter(true); //possible bug because BP
     }
 
     @Override
     public void stepOver() {
+        resume();
         dimHelper.setReturnValue(Dim.STEP_OVER);
     }
 
     @Override
     public void continueRun() {
+        resume();
         notifySubscribers(new ProgramStatusEvent(debuggerId, getRunStatusByDebuggerLevel(debuggerLevel)));
         dimHelper.go();
     }
@@ -181,26 +225,41 @@ public class DebuggerEngineImpl implements DebuggerEngine<BProgramSyncSnapshot>
 
     @Override
     public void setBreakpoint(int lineNumber, boolean stopOnBreakpoint) throws IllegalArgumentException {
-        if(isBreakpointAllowed(lineNumber))
+        if(isBreakpointAllowed(lineNumber)) {
             dimHelper.setBreakpoint(lineNumber, stopOnBreakpoint, filename);
+            invalidateState();
+        }
     }
 
     @Override
     public void setSyncSnapshot(BProgramSyncSnapshot syncSnapshot) {
         this.syncSnapshot = syncSnapshot;
+        invalidateState();
     }
 
     @Override
     public void onStateChanged() {
+        if (DebuggerLevel.THROUGHPUT.equals(debuggerLevel)) {
+            return; // headless runs report progress only
+        }
         try {
+            long version = stateVersion.get();
+            long startTime = System.nanoTime();
             BPDebuggerState newState = debuggerStateHelper.generateDebuggerState(syncSnapshot, state, lastContextData, dimHelper.getSourceInfo(filename));
-            execSvc.submit(() -> notifySubscribers(new BPStateEvent(debuggerId, newState))).get();
+            lastStateVersion = version;
+            logger.debug("generated state version {0} in {1} ms", version, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            notifySubscribers(new BPStateEvent(debuggerId, newState));
         } catch (Exception e) {
             logger.error("onStateChanged: failed e: {0}", e, e.getMessage());
             e.printStackTrace();
         }
     }
 
+    @Override
+    public void invalidateState() {
+        stateVersion.incrementAndGet();
+    }
+
     @Override
     public boolean[] getBreakpoints() {
         return debuggerStateHelper.getBreakpoints(dimHelper.getSourceInfo(filename));
@@ -216,6 +275,11 @@ public class DebuggerEngineImpl implements DebuggerEngine<BProgramSyncSnapshot>
         onStateChanged();
     }
 
+    @Override
+    public VariableExpansionResponse expandVariable(long handle, int from, int count) {
+        return debuggerStateHelper.expandVariable(handle, from, count);
+    }
+
     @Override
     public void subscribe(Subscriber subscriber) {
         publisher.subscribe(subscriber);
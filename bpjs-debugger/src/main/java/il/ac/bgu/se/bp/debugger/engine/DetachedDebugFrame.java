@@ -0,0 +1,47 @@
+package il.ac.bgu.se.bp.debugger.engine;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.debug.DebugFrame;
+
+import java.io.Serializable;
+
+/**
+ * Serializable stand-in for the debugger frame of an interpreter call frame, written by {@link SyncSnapshotCodec} in place
+ * of the debugger's own frame. It keeps the line the frame stopped at, and is replaced by a frame of the session's
+ * debugger in {@link SyncSnapshotCodec#attachDebuggerFrames(BProgramSyncSnapshot)}. Until then it ignores all callbacks.
+ */
+public class DetachedDebugFrame implements DebugFrame, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int lineNumber;
+
+    public DetachedDebugFrame(int lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void onEnter(Context cx, Scriptable activation, Scriptable thisObj, Object[] args) {
+    }
+
+    @Override
+    public void onLineChange(Context cx, int lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+
+    @Override
+    public void onExceptionThrown(Context cx, Throwable ex) {
+    }
+
+    @Override
+    public void onExit(Context cx, boolean byThrow, Object resultOrException) {
+    }
+
+    @Override
+    public void onDebuggerStatement(Context cx) {
+    }
+}
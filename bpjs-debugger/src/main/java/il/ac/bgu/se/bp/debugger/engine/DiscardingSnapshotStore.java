@@ -0,0 +1,32 @@
+package il.ac.bgu.se.bp.debugger.engine;
+
+import il.ac.bgu.cs.bp.bpjs.model.BProgramSyncSnapshot;
+
+/**
+ * Keeps no snapshots, for sessions whose history is only read for its events.
+ */
+public class DiscardingSnapshotStore implements SnapshotStore<BProgramSyncSnapshot> {
+
+    @Override
+    public long put(long sequence, BProgramSyncSnapshot snapshot, boolean measure) {
+        return 0;
+    }
+
+    @Override
+    public BProgramSyncSnapshot get(long sequence) {
+        return null;
+    }
+
+    @Override
+    public void remove(long sequence) {
+    }
+
+    @Override
+    public SnapshotSharingStats getSharingStats() {
+        return new SnapshotSharingStats(0, 0);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,112 @@
+package il.ac.bgu.se.bp.debugger.engine;
+
+import il.ac.bgu.cs.bp.bpjs.model.BEvent;
+
+import java.util.*;
+
+/**
+ * Append-only log of selected events, keyed by strictly increasing sequence numbers.
+ * Events are stored in fixed size chunks so appends are O(1) and reverse page reads are O(page),
+ * no matter how long the log grows.
+ */
+public class EventLog {
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int MAX_INTERNED_EVENTS = 10_000;
+
+    private final List<long[]> sequenceChunks = new ArrayList<>();
+    private final List<BEvent[]> eventChunks = new ArrayList<>();
+    private final Map<String, BEvent> internedEvents = new HashMap<>();
+    private int size = 0;
+
+    public void append(long sequence, BEvent event) {
+        if (size > 0 && sequence <= sequenceAt(size - 1)) {
+            throw new IllegalArgumentException("sequence " + sequence + " is not greater than the last logged sequence");
+        }
+        int chunk = size >>> CHUNK_SHIFT;
+        if (chunk == sequenceChunks.size()) {
+            sequenceChunks.add(new long[CHUNK_SIZE]);
+            eventChunks.add(new BEvent[CHUNK_SIZE]);
+        }
+        sequenceChunks.get(chunk)[size & CHUNK_MASK] = sequence;
+        eventChunks.get(chunk)[size & CHUNK_MASK] = intern(event);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long sequenceAt(int index) {
+        return sequenceChunks.get(index >>> CHUNK_SHIFT)[index & CHUNK_MASK];
+    }
+
+    public BEvent eventAt(int index) {
+        return eventChunks.get(index >>> CHUNK_SHIFT)[index & CHUNK_MASK];
+    }
+
+    public BEvent get(long sequence) {
+        int index = lowerBound(sequence);
+        return index < size && sequenceAt(index) == sequence ? eventAt(index) : null;
+    }
+
+    /**
+     * Removes every event logged at the given sequence or after it.
+     */
+    public void truncateFrom(long sequence) {
+        int newSize = lowerBound(sequence);
+        for (int i = newSize; i < size; i++) {
+            eventChunks.get(i >>> CHUNK_SHIFT)[i & CHUNK_MASK] = null;
+        }
+        size = newSize;
+        int usedChunks = (size + CHUNK_MASK) >>> CHUNK_SHIFT;
+        while (sequenceChunks.size() > usedChunks) {
+            sequenceChunks.remove(sequenceChunks.size() - 1);
+            eventChunks.remove(eventChunks.size() - 1);
+        }
+    }
+
+    /**
+     * Returns the events at positions [from, to) counted from the newest one, newest first.
+     */
+    public SortedMap<Long, BEvent> readReverse(int from, int to) {
+        SortedMap<Long, BEvent> events = new TreeMap<>(Collections.reverseOrder());
+        int startIdx = Math.max(from, 0);
+        int endIdx = Math.min(to, size);
+        for (int i = startIdx; i < endIdx; i++) {
+            int index = size - 1 - i;
+            events.put(sequenceAt(index), eventAt(index));
+        }
+        return events;
+    }
+
+    private int lowerBound(long sequence) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sequenceAt(mid) < sequence) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private BEvent intern(BEvent event) {
+        if (event == null || event.getData() != null) {
+            return event;
+        }
+        BEvent interned = internedEvents.get(event.getName());
+        if (interned != null) {
+            return interned;
+        }
+        if (internedEvents.size() < MAX_INTERNED_EVENTS) {
+            internedEvents.put(event.getName(), event);
+        }
+        return event;
+    }
+}
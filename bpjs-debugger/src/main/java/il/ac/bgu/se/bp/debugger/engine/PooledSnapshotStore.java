@@ -0,0 +1,87 @@
+package il.ac.bgu.se.bp.debugger.engine;
+
+import il.ac.bgu.cs.bp.bpjs.model.*;
+
+import java.util.*;
+import java.util.function.ToLongFunction;
+
+/**
+ * Keeps snapshots as live objects, with their b-thread snapshots shared through a {@link BThreadSnapshotPool}.
+ */
+public class PooledSnapshotStore implements SnapshotStore<BProgramSyncSnapshot> {
+    private final TreeMap<Long, StoredSnapshot> snapshots = new TreeMap<>();
+    private final BThreadSnapshotPool bThreadSnapshotPool = new BThreadSnapshotPool();
+    private final ToLongFunction<BProgramSyncSnapshot> sizeEstimator;
+
+    public PooledSnapshotStore(ToLongFunction<BProgramSyncSnapshot> sizeEstimator) {
+        this.sizeEstimator = sizeEstimator;
+    }
+
+    @Override
+    public long put(long sequence, BProgramSyncSnapshot snapshot, boolean measure) {
+        Set<BThreadSyncSnapshot> addedBThreads = new HashSet<>();
+        List<BThreadSyncSnapshot> bThreads = bThreadSnapshotPool.acquire(snapshot.getBThreadSnapshots(), addedBThreads);
+        StoredSnapshot storedSnapshot = new StoredSnapshot(snapshot, bThreads);
+        snapshots.put(sequence, storedSnapshot);
+        // shared b-threads are charged to the snapshot that stored them first
+        return measure ? sizeEstimator.applyAsLong(storedSnapshot.toSnapshot(addedBThreads)) : 0;
+    }
+
+    @Override
+    public BProgramSyncSnapshot get(long sequence) {
+        StoredSnapshot storedSnapshot = snapshots.get(sequence);
+        return storedSnapshot == null ? null : storedSnapshot.toSnapshot(storedSnapshot.bThreads);
+    }
+
+    @Override
+    public void remove(long sequence) {
+        StoredSnapshot storedSnapshot = snapshots.remove(sequence);
+        if (storedSnapshot != null) {
+            bThreadSnapshotPool.release(storedSnapshot.bThreads);
+        }
+    }
+
+    @Override
+    public SnapshotSharingStats getSharingStats() {
+        return new SnapshotSharingStats(bThreadSnapshotPool.getReferencedBThreads(), bThreadSnapshotPool.getStoredBThreads());
+    }
+
+    @Override
+    public void close() {
+    }
+
+    public int size() {
+        return snapshots.size();
+    }
+
+    public boolean contains(long sequence) {
+        return snapshots.containsKey(sequence);
+    }
+
+    /**
+     * @return the sequences of the snapshots, oldest first
+     */
+    public NavigableSet<Long> getSequences() {
+        return Collections.unmodifiableNavigableSet(snapshots.navigableKeySet());
+    }
+
+    private static class StoredSnapshot {
+        private final BProgram bProgram;
+        private final List<BThreadSyncSnapshot> bThreads;
+        private final Map<String, Object> dataStore;
+        private final List<BEvent> externalEvents;
+        private final SafetyViolationTag violationTag;
+
+        private StoredSnapshot(BProgramSyncSnapshot snapshot, List<BThreadSyncSnapshot> bThreads) {
+            this.bProgram = snapshot.getBProgram();
+            this.bThreads = bThreads;
+            this.dataStore = snapshot.getDataStore();
+            this.externalEvents = snapshot.getExternalEvents();
+            this.violationTag = snapshot.getViolationTag();
+        }
+
+        private BProgramSyncSnapshot toSnapshot(Collection<BThreadSyncSnapshot> bThreadSnapshots) {
+            return new BProgramSyncSnapshot(bProgram, new HashSet<>(bThreadSnapshots), dataStore, externalEvents, violationTag);
+        }
+    }
+}
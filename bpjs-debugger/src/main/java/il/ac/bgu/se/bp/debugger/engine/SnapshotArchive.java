@@ -0,0 +1,154 @@
+package il.ac.bgu.se.bp.debugger.engine;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The binary format of an exported sync snapshot: a short header, then a {@link SnapshotManifest} and the {@link SyncSnapshotCodec}
+ * bytes of the snapshot, optionally deflated. Both sides stream it, so a snapshot is never held in memory as a whole,
+ * and a reader stops as soon as the archive, compressed or inflated, goes over its size limit.
+ */
+public class SnapshotArchive implements Closeable {
+    private static final byte[] MAGIC = {'B', 'P', 'S', 'S'};
+    private static final int VERSION = 1;
+    private static final int FLAG_DEFLATE = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SnapshotManifest manifest;
+    private final DataInputStream payload;
+
+    private SnapshotArchive(SnapshotManifest manifest, DataInputStream payload) {
+        this.manifest = manifest;
+        this.payload = payload;
+    }
+
+    public interface PayloadWriter {
+        void write(OutputStream outputStream) throws IOException;
+    }
+
+    /**
+     * Writes an archive of {@code manifest} and the snapshot written by {@code payloadWriter} to {@code outputStream}, which is flushed, not closed.
+     */
+    public static void write(OutputStream outputStream, SnapshotManifest manifest, boolean isDeflate, PayloadWriter payloadWriter) throws IOException {
+        DataOutputStream header = new DataOutputStream(outputStream);
+        header.write(MAGIC);
+        header.writeByte(VERSION);
+        header.writeByte(isDeflate ? FLAG_DEFLATE : 0);
+        header.flush();
+
+        Deflater deflater = isDeflate ? new Deflater(Deflater.BEST_SPEED) : null;
+        try {
+            DeflaterOutputStream deflaterOutputStream = isDeflate ? new DeflaterOutputStream(outputStream, deflater, BUFFER_SIZE) : null;
+            DataOutputStream body = new DataOutputStream(new BufferedOutputStream(isDeflate ? deflaterOutputStream : outputStream, BUFFER_SIZE));
+            body.writeLong(manifest.getExportTime());
+            byte[] sourceCode = manifest.getSourceCode().getBytes(StandardCharsets.UTF_8);
+            body.writeInt(sourceCode.length);
+            body.write(sourceCode);
+            payloadWriter.write(body);
+            body.flush();
+            if (isDeflate) {
+                deflaterOutputStream.finish();
+            }
+            outputStream.flush();
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Reads the header and the manifest of an archive, the snapshot is left to be read from {@link #getPayload()}.
+     *
+     * @param maxBytes the limit on the archive size, both as read and after inflating it, 0 for no limit
+     * @throws SnapshotSizeExceededException once more than {@code maxBytes} were read
+     */
+    public static SnapshotArchive read(InputStream inputStream, long maxBytes) throws IOException {
+        InputStream limitedInputStream = new LimitedInputStream(inputStream, maxBytes);
+        DataInputStream header = new DataInputStream(limitedInputStream);
+        byte[] magic = new byte[MAGIC.length];
+        header.readFully(magic);
+        if (!Arrays.equals(MAGIC, magic)) {
+            throw new IOException("not a sync snapshot archive");
+        }
+        int version = header.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("unsupported sync snapshot archive version: " + version);
+        }
+        boolean isDeflate = (header.readUnsignedByte() & FLAG_DEFLATE) != 0;
+
+        InputStream bodyInputStream = isDeflate ?
+                new LimitedInputStream(new InflaterInputStream(limitedInputStream), maxBytes) : limitedInputStream;
+        DataInputStream body = new DataInputStream(new BufferedInputStream(bodyInputStream, BUFFER_SIZE));
+        long exportTime = body.readLong();
+        int sourceCodeLength = body.readInt();
+        if (sourceCodeLength < 0 || (maxBytes > 0 && sourceCodeLength > maxBytes)) {
+            throw new SnapshotSizeExceededException(maxBytes);
+        }
+        byte[] sourceCode = new byte[sourceCodeLength];
+        body.readFully(sourceCode);
+        return new SnapshotArchive(new SnapshotManifest(new String(sourceCode, StandardCharsets.UTF_8), exportTime), body);
+    }
+
+    public SnapshotManifest getManifest() {
+        return manifest;
+    }
+
+    /**
+     * @return the {@link SyncSnapshotCodec} bytes of the snapshot
+     */
+    public InputStream getPayload() {
+        return payload;
+    }
+
+    @Override
+    public void close() throws IOException {
+        payload.close();
+    }
+
+    private static class LimitedInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private long readBytes = 0;
+
+        private LimitedInputStream(InputStream inputStream, long maxBytes) {
+            super(inputStream);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        private void count(long bytes) throws SnapshotSizeExceededException {
+            readBytes += bytes;
+            if (maxBytes > 0 && readBytes > maxBytes) {
+                throw new SnapshotSizeExceededException(maxBytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package il.ac.bgu.se.bp.debugger.engine;
+
+import java.util.Objects;
+
+/**
+ * What a {@link SnapshotArchive} holds besides the snapshot itself: the program source the snapshot must be restored into,
+ * and when it was exported.
+ */
+public class SnapshotManifest {
+    private final String sourceCode;
+    private final long exportTime;
+
+    public SnapshotManifest(String sourceCode, long exportTime) {
+        this.sourceCode = sourceCode;
+        this.exportTime = exportTime;
+    }
+
+    public String getSourceCode() {
+        return sourceCode;
+    }
+
+    public long getExportTime() {
+        return exportTime;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SnapshotManifest that = (SnapshotManifest) o;
+        return exportTime == that.exportTime && Objects.equals(sourceCode, that.sourceCode);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sourceCode, exportTime);
+    }
+
+    @Override
+    public String toString() {
+        return "SnapshotManifest{" +
+                "sourceCodeLength=" + (sourceCode == null ? 0 : sourceCode.length()) +
+                ", exportTime=" + exportTime +
+                '}';
+    }
+}
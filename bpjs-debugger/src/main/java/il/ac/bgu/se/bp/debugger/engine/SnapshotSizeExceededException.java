@@ -0,0 +1,14 @@
+package il.ac.bgu.se.bp.debugger.engine;
+
+import java.io.IOException;
+
+/**
+ * Thrown while reading a {@link SnapshotArchive} that is larger than the import limit, before it is read to its end.
+ */
+public class SnapshotSizeExceededException extends IOException {
+    private static final long serialVersionUID = -2217460386522937040L;
+
+    public SnapshotSizeExceededException(long maxBytes) {
+        super("sync snapshot archive exceeds " + maxBytes + " bytes");
+    }
+}
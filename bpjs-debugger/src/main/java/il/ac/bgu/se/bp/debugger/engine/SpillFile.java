@@ -0,0 +1,63 @@
+package il.ac.bgu.se.bp.debugger.engine;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only temporary file, records are read back with positional reads.
+ * The file is deleted when closed.
+ */
+public class SpillFile implements Closeable {
+    private final Path path;
+    private final FileChannel channel;
+    private long size = 0;
+
+    private SpillFile(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    public static SpillFile create(String prefix) throws IOException {
+        Path path = Files.createTempFile(prefix, ".spill");
+        return new SpillFile(path, FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE));
+    }
+
+    public long append(byte[] bytes) throws IOException {
+        long offset = size;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, offset + buffer.position());
+        }
+        size += bytes.length;
+        return offset;
+    }
+
+    public byte[] read(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("spill file ends before offset " + (offset + length));
+            }
+        }
+        return buffer.array();
+    }
+
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
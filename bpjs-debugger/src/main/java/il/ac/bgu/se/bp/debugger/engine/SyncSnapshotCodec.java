@@ -0,0 +1,167 @@
+package il.ac.bgu.se.bp.debugger.engine;
+
+import il.ac.bgu.cs.bp.bpjs.BPjs;
+import il.ac.bgu.cs.bp.bpjs.bprogramio.BPJSStubInputStream;
+import il.ac.bgu.cs.bp.bpjs.bprogramio.BPJSStubOutputStream;
+import il.ac.bgu.cs.bp.bpjs.bprogramio.StreamObjectStub;
+import il.ac.bgu.cs.bp.bpjs.execution.jsproxy.BProgramJsProxy;
+import il.ac.bgu.cs.bp.bpjs.execution.jsproxy.MapProxy;
+import il.ac.bgu.cs.bp.bpjs.model.*;
+import il.ac.bgu.se.bp.utils.RhinoInternals;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.debug.DebugFrame;
+import org.mozilla.javascript.debug.Debugger;
+import org.mozilla.javascript.tools.debugger.Dim;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * Serializes sync snapshots the way {@link il.ac.bgu.cs.bp.bpjs.bprogramio.BProgramSyncSnapshotIO} does,
+ * except that the debugger frames attached to the b-thread continuations, which cannot be serialized,
+ * are written as {@link DetachedDebugFrame}s. A deserialized snapshot is seen by the debugger once
+ * {@link #attachDebuggerFrames(BProgramSyncSnapshot)} replaced them.
+ */
+public class SyncSnapshotCodec {
+    private final BProgram bprogram;
+
+    public SyncSnapshotCodec(BProgram bprogram) {
+        this.bprogram = bprogram;
+    }
+
+    public byte[] serialize(BProgramSyncSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        serialize(snapshot, bytes);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes {@code snapshot} to {@code destination} as it is serialized, without buffering all of it. The stream is flushed, not closed.
+     */
+    public void serialize(BProgramSyncSnapshot snapshot, OutputStream destination) throws IOException {
+        BPjs.enterRhinoContext();
+        try {
+            DebugFrameFreeOutputStream outputStream = new DebugFrameFreeOutputStream(destination, bprogram.getGlobalScope());
+            outputStream.writeInt(snapshot.getBThreadSnapshots().size());
+            outputStream.writeInt(snapshot.getExternalEvents().size());
+            outputStream.writeObject(snapshot.getViolationTag());
+            outputStream.writeObject(snapshot.getDataStore());
+            for (BThreadSyncSnapshot bThread : snapshot.getBThreadSnapshots()) {
+                outputStream.writeObject(bThread.getName());
+                outputStream.writeObject(bThread.getEntryPoint());
+                outputStream.writeObject(bThread.getInterrupt().orElse(null));
+                outputStream.writeObject(bThread.getSyncStatement());
+                outputStream.writeObject(bThread.getData());
+                outputStream.writeObject(bThread.getStorageModifications());
+                outputStream.writeObject(bThread.getContinuation());
+            }
+            for (BEvent externalEvent : snapshot.getExternalEvents()) {
+                outputStream.writeObject(externalEvent);
+            }
+            outputStream.flush();
+        } finally {
+            Context.exit();
+        }
+    }
+
+    public BProgramSyncSnapshot deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        return deserialize(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Reads a snapshot from {@code source} as it arrives. The stream is not closed.
+     */
+    @SuppressWarnings("unchecked")
+    public BProgramSyncSnapshot deserialize(InputStream source) throws IOException, ClassNotFoundException {
+        BPjs.enterRhinoContext();
+        BProgramJsProxy bProgramJsProxy = new BProgramJsProxy(bprogram);
+        try {
+            BPJSStubInputStream inputStream = new BPJSStubInputStream(source, bprogram.getGlobalScope(),
+                    stub -> resolveStub(stub, bProgramJsProxy));
+            int bThreadCount = inputStream.readInt();
+            int externalEventCount = inputStream.readInt();
+            SafetyViolationTag violationTag = (SafetyViolationTag) inputStream.readObject();
+            Map<String, Object> dataStore = (Map<String, Object>) inputStream.readObject();
+
+            Set<BThreadSyncSnapshot> bThreads = new HashSet<>(bThreadCount);
+            for (int i = 0; i < bThreadCount; i++) {
+                String name = (String) inputStream.readObject();
+                Function entryPoint = (Function) inputStream.readObject();
+                Function interruptHandler = (Function) inputStream.readObject();
+                SyncStatement syncStatement = (SyncStatement) inputStream.readObject();
+                Object data = inputStream.readObject();
+                Map<String, MapProxy.Modification<Object>> modifications = (Map<String, MapProxy.Modification<Object>>) inputStream.readObject();
+                Object continuation = inputStream.readObject();
+                bThreads.add(new BThreadSyncSnapshot(name, entryPoint, interruptHandler, continuation, syncStatement, data,
+                        new MapProxy<>(dataStore, modifications)));
+            }
+
+            List<BEvent> externalEvents = new ArrayList<>(externalEventCount);
+            for (int i = 0; i < externalEventCount; i++) {
+                externalEvents.add((BEvent) inputStream.readObject());
+            }
+            return new BProgramSyncSnapshot(bprogram, bThreads, dataStore, externalEvents, violationTag);
+        } finally {
+            Context.exit();
+        }
+    }
+
+    /**
+     * Replaces the {@link DetachedDebugFrame}s of the b-thread continuations by frames of the debugger attached to the current
+     * context, so that breakpoints and steps work in the b-threads resumed from the snapshot. Must be called on the thread that
+     * will resume them, before it does, since the frames belong to the context they were created in.
+     * Does nothing if the current context has no debugger.
+     *
+     * @return the given snapshot
+     */
+    public static BProgramSyncSnapshot attachDebuggerFrames(BProgramSyncSnapshot snapshot) {
+        Context cx = Context.getCurrentContext();
+        Debugger debugger = cx == null ? null : cx.getDebugger();
+        if (debugger == null) {
+            return snapshot;
+        }
+        for (BThreadSyncSnapshot bThread : snapshot.getBThreadSnapshots()) {
+            Object continuation = bThread.getContinuation();
+            Object frame = continuation == null ? null : RhinoInternals.getContinuationImplementation(continuation);
+            for (; frame != null; frame = RhinoInternals.getParentFrame(frame)) {
+                DebugFrame debuggerFrame = RhinoInternals.getDebuggerFrame(frame);
+                if (!(debuggerFrame instanceof DetachedDebugFrame)) {
+                    continue;
+                }
+                DebugFrame attachedFrame = debugger.getFrame(cx, RhinoInternals.getFrameData(frame));
+                if (attachedFrame instanceof Dim.StackFrame) {
+                    RhinoInternals.setLineNumber((Dim.StackFrame) attachedFrame, ((DetachedDebugFrame) debuggerFrame).getLineNumber());
+                    RhinoInternals.setDebuggerFrame(frame, attachedFrame);
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    private static Object resolveStub(StreamObjectStub stub, BProgramJsProxy bProgramJsProxy) {
+        if (StreamObjectStub.BP_PROXY.equals(stub)) {
+            return bProgramJsProxy;
+        }
+        throw new IllegalArgumentException("unknown stream object stub: " + stub);
+    }
+
+    private static class DebugFrameFreeOutputStream extends BPJSStubOutputStream {
+        private DebugFrameFreeOutputStream(OutputStream outputStream, Scriptable scope) throws IOException {
+            super(outputStream, scope);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) throws IOException {
+            if (obj instanceof Dim.StackFrame) {
+                return new DetachedDebugFrame(((Dim.StackFrame) obj).getLineNumber());
+            }
+            return obj instanceof DebugFrame && !(obj instanceof DetachedDebugFrame) ? null : super.replaceObject(obj);
+        }
+    }
+}
@@ -1,78 +1,247 @@
 package il.ac.bgu.se.bp.debugger.engine;
 
 import il.ac.bgu.cs.bp.bpjs.model.*;
+import il.ac.bgu.se.bp.debugger.DebuggerLevel;
 import il.ac.bgu.se.bp.utils.Pair;
+import il.ac.bgu.se.bp.utils.logger.Logger;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 
 public class SyncSnapshotHolderImpl implements SyncSnapshotHolder<BProgramSyncSnapshot, BEvent> {
+    private static final Logger logger = new Logger(SyncSnapshotHolderImpl.class);
 
-    private SortedMap<Long, Pair<BProgramSyncSnapshot, BEvent>> snapshotsByTimeChosen = new TreeMap<>();
+    private final TreeMap<Long, HistoryEntry> snapshotsBySequence = new TreeMap<>();
+    private final EventLog eventLog = new EventLog();
+    private final SnapshotStore<BProgramSyncSnapshot> snapshotStore;
+    private final Set<Long> pinnedSnapshots = new HashSet<>();
+    private final Deque<Long> recentSnapshots = new ArrayDeque<>();
+
+    private SnapshotRetentionPolicy retentionPolicy = SnapshotRetentionPolicy.unbounded();
+    private Consumer<List<Long>> evictionListener = evicted -> {};
+    private long nextSequence = 0;
+    private long nextIndex = 0;
+    private long retainedBytes = 0;
+
+    public SyncSnapshotHolderImpl() {
+        this(DebuggerLevel.NORMAL);
+    }
+
+    /**
+     * Debug sessions keep their snapshots in a {@link TieredSnapshotStore}. Run sessions cannot travel back to a snapshot,
+     * so they keep only the events of their history.
+     */
+    public SyncSnapshotHolderImpl(DebuggerLevel debuggerLevel) {
+        this(DebuggerLevel.NORMAL.equals(debuggerLevel) ?
+                new TieredSnapshotStore(SyncSnapshotHolderImpl::serializedSize) :
+                new DiscardingSnapshotStore());
+    }
+
+    public SyncSnapshotHolderImpl(ToLongFunction<BProgramSyncSnapshot> sizeEstimator) {
+        this(new PooledSnapshotStore(sizeEstimator));
+    }
+
+    public SyncSnapshotHolderImpl(SnapshotStore<BProgramSyncSnapshot> snapshotStore) {
+        this.snapshotStore = snapshotStore;
+    }
 
     @Override
-    public synchronized void addSyncSnapshot(BProgramSyncSnapshot snapshot, BEvent event) {
+    public void addSyncSnapshot(BProgramSyncSnapshot snapshot, BEvent event) {
         if (snapshot == null) {
             return;
         }
 
-        long currentTime = System.currentTimeMillis();
-        snapshotsByTimeChosen.put(currentTime, Pair.of(snapshot, event));
+        List<Long> evicted;
+        synchronized (this) {
+            long sequence = nextSequence++;
+            long size = snapshotStore.put(sequence, snapshot, retentionPolicy.getMaxBytes() > 0);
+            HistoryEntry entry = new HistoryEntry(nextIndex++, size);
+            snapshotsBySequence.put(sequence, entry);
+            if (event != null) {
+                eventLog.append(sequence, event);
+            }
+            recentSnapshots.addLast(sequence);
+            retainedBytes += entry.size;
+            evicted = applyRetentionPolicy();
+        }
+        notifyEvicted(evicted);
     }
 
     @Override
-    public synchronized BProgramSyncSnapshot popKey(long snapshotTime) {
-        if (!snapshotsByTimeChosen.containsKey(snapshotTime)) {
+    public synchronized BProgramSyncSnapshot popKey(long snapshotSequence) {
+        HistoryEntry entry = snapshotsBySequence.get(snapshotSequence);
+        if (entry == null) {
             return null;
         }
 
-        BProgramSyncSnapshot oldBProgramSyncSnapshot = snapshotsByTimeChosen.get(snapshotTime).getLeft();
-        snapshotsByTimeChosen = cloneTreeMap(snapshotsByTimeChosen.headMap(snapshotTime));
+        BProgramSyncSnapshot snapshot = snapshotStore.get(snapshotSequence);
+        if (snapshot != null) {
+            truncate(snapshotSequence, entry.index);
+        }
+        return snapshot;
+    }
 
-        return cloneBProgramSyncSnapshot(oldBProgramSyncSnapshot);
+    @Override
+    public synchronized BEvent popValue(long snapshotSequence) {
+        return eventLog.get(snapshotSequence);
     }
+
     @Override
-    public synchronized BEvent popValue(long snapshotTime) {
-        if (!snapshotsByTimeChosen.containsKey(snapshotTime)) {
+    public synchronized SortedSet<Long> getSyncSnapshotSequences() {
+        return new TreeSet<>(snapshotsBySequence.keySet());
+    }
+
+    @Override
+    public synchronized Pair<BProgramSyncSnapshot, BEvent> getSyncSnapshot(long snapshotSequence) {
+        if (!snapshotsBySequence.containsKey(snapshotSequence)) {
             return null;
         }
+        BProgramSyncSnapshot snapshot = snapshotStore.get(snapshotSequence);
+        return snapshot == null ? null : Pair.of(snapshot, eventLog.get(snapshotSequence));
+    }
 
-        return snapshotsByTimeChosen.get(snapshotTime).getRight();
+    @Override
+    public synchronized SortedMap<Long, BEvent> getEventsHistoryStack(int from, int to) {
+        if (from > to) {
+            return new TreeMap<>(Collections.reverseOrder());
+        }
+        return eventLog.readReverse(from, to);
     }
-    private BProgramSyncSnapshot cloneBProgramSyncSnapshot(BProgramSyncSnapshot oldBProgramSyncSnapshot) {
-        BProgram aBProgram = oldBProgramSyncSnapshot.getBProgram();
-        Set<BThreadSyncSnapshot> someThreadSnapshots = oldBProgramSyncSnapshot.getBThreadSnapshots();
-        List<BEvent> someExternalEvents = oldBProgramSyncSnapshot.getExternalEvents();
-        SafetyViolationTag violationTag = oldBProgramSyncSnapshot.getViolationTag();
-        Map<String, Object> dataStore = oldBProgramSyncSnapshot.getDataStore();
-        return new BProgramSyncSnapshot(aBProgram, someThreadSnapshots, dataStore, someExternalEvents, violationTag);
+
+    @Override
+    public synchronized SnapshotSharingStats getSharingStats() {
+        return snapshotStore.getSharingStats();
+    }
+
+    @Override
+    public synchronized int getSyncSnapshotsCount() {
+        return snapshotsBySequence.size();
     }
 
     @Override
-    public SortedMap<Long, Pair<BProgramSyncSnapshot, BEvent>> getAllSyncSnapshots() {
-        return cloneTreeMap(snapshotsByTimeChosen);
+    public synchronized void close() {
+        snapshotStore.close();
     }
 
     @Override
-    public SortedMap<Long, BEvent> getEventsHistoryStack(int from, int to) {
-        SortedMap<Long, BEvent> events = new TreeMap<>(Collections.reverseOrder());
-        if (snapshotsByTimeChosen.isEmpty() || from > snapshotsByTimeChosen.size() || from > to) {
-            return events;
+    public void setRetentionPolicy(SnapshotRetentionPolicy retentionPolicy) {
+        List<Long> evicted;
+        synchronized (this) {
+            this.retentionPolicy = retentionPolicy == null ? SnapshotRetentionPolicy.unbounded() : retentionPolicy;
+            evicted = applyRetentionPolicy();
         }
-        List<BEvent> eventsHistory = snapshotsByTimeChosen.values().stream().map(Pair::getRight).filter(Objects::nonNull).collect(Collectors.toList());
-        List<Long> eventsTime = snapshotsByTimeChosen.keySet().stream().skip(1).collect(Collectors.toList());
-
-        Collections.reverse(eventsHistory);
-        Collections.reverse(eventsTime);
-        int startIdx = Math.max(from, 0);
-        int endIdx = to > eventsHistory.size() ? eventsHistory.size() : Math.max(to, 0);
-        for (int i = startIdx; i < endIdx; i++) {
-            events.put(eventsTime.get(i), eventsHistory.get(i));
+        notifyEvicted(evicted);
+    }
+
+    @Override
+    public boolean pin(long snapshotSequence, boolean pin) {
+        List<Long> evicted;
+        synchronized (this) {
+            if (!snapshotsBySequence.containsKey(snapshotSequence)) {
+                return false;
+            }
+            if (pin) {
+                pinnedSnapshots.add(snapshotSequence);
+                return true;
+            }
+            pinnedSnapshots.remove(snapshotSequence);
+            evicted = applyRetentionPolicy();
+            boolean isOutsideRecentWindow = retentionPolicy.getKeepLast() > 0 &&
+                    (recentSnapshots.isEmpty() || snapshotSequence < recentSnapshots.peekFirst());
+            if (isOutsideRecentWindow && !isKeptOutsideRecentWindow(snapshotSequence)) {
+                evict(snapshotSequence, evicted);
+            }
+        }
+        notifyEvicted(evicted);
+        return true;
+    }
+
+    @Override
+    public void setEvictionListener(Consumer<List<Long>> evictionListener) {
+        this.evictionListener = evictionListener == null ? evicted -> {} : evictionListener;
+    }
+
+    private List<Long> applyRetentionPolicy() {
+        List<Long> evicted = new LinkedList<>();
+        int keepLast = retentionPolicy.getKeepLast();
+        if (keepLast > 0) {
+            while (recentSnapshots.size() > keepLast) {
+                Long sequence = recentSnapshots.pollFirst();
+                if (!isKeptOutsideRecentWindow(sequence)) {
+                    evict(sequence, evicted);
+                }
+            }
+        }
+
+        long maxBytes = retentionPolicy.getMaxBytes();
+        if (maxBytes > 0 && retainedBytes > maxBytes) {
+            Long newest = snapshotsBySequence.lastKey();
+            Long sequence = snapshotsBySequence.firstKey();
+            while (retainedBytes > maxBytes && sequence != null && !sequence.equals(newest)) {
+                Long next = snapshotsBySequence.higherKey(sequence);
+                if (!pinnedSnapshots.contains(sequence)) {
+                    evict(sequence, evicted);
+                }
+                sequence = next;
+            }
+        }
+        return evicted;
+    }
+
+    private boolean isKeptOutsideRecentWindow(Long sequence) {
+        if (pinnedSnapshots.contains(sequence)) {
+            return true;
+        }
+        HistoryEntry entry = snapshotsBySequence.get(sequence);
+        int keepEvery = retentionPolicy.getKeepEvery();
+        return entry != null && keepEvery > 0 && entry.index % keepEvery == 0;
+    }
+
+    private void evict(Long sequence, List<Long> evicted) {
+        HistoryEntry entry = snapshotsBySequence.remove(sequence);
+        if (entry == null) {
+            return;
         }
-        return events;
+        retainedBytes -= entry.size;
+        snapshotStore.remove(sequence);
+        evicted.add(sequence);
     }
 
-    private TreeMap<Long, Pair<BProgramSyncSnapshot, BEvent>> cloneTreeMap(SortedMap<Long, Pair<BProgramSyncSnapshot, BEvent>> treeMap) {
-        return new TreeMap<>(treeMap);
+    private void truncate(long snapshotSequence, long index) {
+        nextIndex = index;
+        NavigableMap<Long, HistoryEntry> truncated = snapshotsBySequence.tailMap(snapshotSequence, true);
+        truncated.keySet().forEach(snapshotStore::remove);
+        truncated.clear();
+        eventLog.truncateFrom(snapshotSequence);
+        pinnedSnapshots.removeIf(sequence -> sequence >= snapshotSequence);
+        recentSnapshots.removeIf(sequence -> sequence >= snapshotSequence);
+        retainedBytes = snapshotsBySequence.values().stream().mapToLong(entry -> entry.size).sum();
+    }
+
+    private void notifyEvicted(List<Long> evicted) {
+        if (evicted != null && !evicted.isEmpty()) {
+            logger.debug("evicted {0} sync snapshots", evicted.size());
+            evictionListener.accept(evicted);
+        }
+    }
+
+    private static long serializedSize(BProgramSyncSnapshot snapshot) {
+        try {
+            return new SyncSnapshotCodec(snapshot.getBProgram()).serialize(snapshot).length;
+        } catch (Exception e) {
+            logger.error("failed estimating sync snapshot size, error: {0}", e.getMessage());
+            return 0;
+        }
+    }
+
+    private static class HistoryEntry {
+        private final long index;
+        private final long size;
+
+        private HistoryEntry(long index, long size) {
+            this.index = index;
+            this.size = size;
+        }
     }
 }
@@ -0,0 +1,353 @@
+package il.ac.bgu.se.bp.debugger.engine;
+
+import il.ac.bgu.cs.bp.bpjs.model.BProgram;
+import il.ac.bgu.cs.bp.bpjs.model.BProgramSyncSnapshot;
+import il.ac.bgu.se.bp.execution.runtime.DebuggerRuntime;
+import il.ac.bgu.se.bp.utils.logger.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.function.ToLongFunction;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Keeps the newest snapshots as live objects, and older ones as {@link SyncSnapshotCodec} bytes, each written as one stream
+ * so that objects shared by its b-threads and its data store are read back shared.
+ * Snapshots are serialized by the thread that stores them, while no b-thread runs, as the program shares its JS objects
+ * with them. They are serialized without holding the store, then compressed and spilled to a file on {@code executor},
+ * oldest first. The spill file is compacted into a new one once most of it was removed.
+ * Cold snapshots are deserialized only when asked for, without their debugger frames
+ * (see {@link SyncSnapshotCodec#attachDebuggerFrames(BProgramSyncSnapshot)}).
+ */
+public class TieredSnapshotStore implements SnapshotStore<BProgramSyncSnapshot> {
+    private static final Logger logger = new Logger(TieredSnapshotStore.class);
+    private static final String SPILL_FILE_PREFIX = "bpjs-sync-snapshots-";
+    private static final long MIN_COMPACTED_BYTES = 1024 * 1024;
+    public static final int DEFAULT_HOT_SNAPSHOTS = 64;
+    public static final long DEFAULT_MAX_COMPRESSED_BYTES = 32L * 1024 * 1024;
+
+    private final PooledSnapshotStore hotSnapshots;
+    private final TreeMap<Long, ColdSnapshot> coldSnapshots = new TreeMap<>();
+    private final Set<ColdSnapshot> snapshotsInMemory = new LinkedHashSet<>();
+    private final Set<ColdSnapshot> spilledSnapshots = new HashSet<>();
+    private final Set<Long> demotedSequences = new HashSet<>();
+    private final int maxHotSnapshots;
+    private final long maxCompressedBytes;
+    private final Executor executor;
+
+    private SpillFile spillFile;
+    private long compressedBytes = 0;
+    private long spilledBytes = 0;
+    private boolean isSerializationEnabled = true;
+    private boolean isCompactionScheduled = false;
+    private boolean isClosed = false;
+
+    public TieredSnapshotStore(ToLongFunction<BProgramSyncSnapshot> sizeEstimator) {
+        this(DEFAULT_HOT_SNAPSHOTS, DEFAULT_MAX_COMPRESSED_BYTES, sizeEstimator);
+    }
+
+    public TieredSnapshotStore(int maxHotSnapshots, long maxCompressedBytes, ToLongFunction<BProgramSyncSnapshot> sizeEstimator) {
+        this(maxHotSnapshots, maxCompressedBytes, sizeEstimator, DebuggerRuntime.getInstance().getExecutor());
+    }
+
+    public TieredSnapshotStore(int maxHotSnapshots, long maxCompressedBytes, ToLongFunction<BProgramSyncSnapshot> sizeEstimator, Executor executor) {
+        this.hotSnapshots = new PooledSnapshotStore(sizeEstimator);
+        this.maxHotSnapshots = Math.max(maxHotSnapshots, 1);
+        this.maxCompressedBytes = Math.max(maxCompressedBytes, 0);
+        this.executor = executor;
+    }
+
+    @Override
+    public long put(long sequence, BProgramSyncSnapshot snapshot, boolean measure) {
+        long size;
+        Map<Long, BProgramSyncSnapshot> demoted = new LinkedHashMap<>();
+        synchronized (this) {
+            size = hotSnapshots.put(sequence, snapshot, measure);
+            Iterator<Long> hotSequences = hotSnapshots.getSequences().iterator();
+            while (isSerializationEnabled && hotSnapshots.size() - demotedSequences.size() > maxHotSnapshots) {
+                Long hotSequence = hotSequences.next();
+                if (demotedSequences.add(hotSequence)) {
+                    demoted.put(hotSequence, hotSnapshots.get(hotSequence));
+                }
+            }
+        }
+        demoted.forEach(this::demote);
+        return size;
+    }
+
+    @Override
+    public BProgramSyncSnapshot get(long sequence) {
+        ColdSnapshot coldSnapshot;
+        byte[] bytes;
+        boolean isCompressed;
+        synchronized (this) {
+            BProgramSyncSnapshot snapshot = hotSnapshots.get(sequence);
+            if (snapshot != null) {
+                return snapshot;
+            }
+            coldSnapshot = coldSnapshots.get(sequence);
+            if (coldSnapshot == null) {
+                return null;
+            }
+            try {
+                bytes = read(coldSnapshot);
+                isCompressed = coldSnapshot.isCompressed;
+            } catch (IOException e) {
+                logger.error("failed reading sync snapshot {0}, error: {1}", sequence, e.getMessage());
+                return null;
+            }
+        }
+
+        try {
+            return new SyncSnapshotCodec(coldSnapshot.bProgram).deserialize(isCompressed ? decompress(bytes) : bytes);
+        } catch (Exception e) {
+            logger.error("failed deserializing sync snapshot {0}, error: {1}", sequence, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized void remove(long sequence) {
+        hotSnapshots.remove(sequence);
+
+        ColdSnapshot coldSnapshot = coldSnapshots.remove(sequence);
+        if (coldSnapshot == null) {
+            return;
+        }
+        if (snapshotsInMemory.remove(coldSnapshot)) {
+            compressedBytes -= coldSnapshot.bytes.length;
+            coldSnapshot.bytes = null;
+        }
+        else if (spilledSnapshots.remove(coldSnapshot)) {
+            spilledBytes -= coldSnapshot.length;
+            scheduleCompaction();
+        }
+    }
+
+    /**
+     * B-thread snapshots are shared only by the hot snapshots, the cold ones are reported by their bytes.
+     */
+    @Override
+    public synchronized SnapshotSharingStats getSharingStats() {
+        SnapshotSharingStats hotStats = hotSnapshots.getSharingStats();
+        return new SnapshotSharingStats(hotStats.getReferencedBThreads(), hotStats.getStoredBThreads(),
+                coldSnapshots.size(), compressedBytes, spilledBytes);
+    }
+
+    @Override
+    public synchronized void close() {
+        isClosed = true;
+        spilledSnapshots.clear();
+        spilledBytes = 0;
+        if (spillFile == null) {
+            return;
+        }
+        closeQuietly(spillFile);
+        spillFile = null;
+    }
+
+    public synchronized int getHotSnapshots() {
+        return hotSnapshots.size();
+    }
+
+    public synchronized int getCompressedSnapshots() {
+        return snapshotsInMemory.size();
+    }
+
+    public synchronized int getSpilledSnapshots() {
+        return coldSnapshots.size() - snapshotsInMemory.size();
+    }
+
+    private void demote(long sequence, BProgramSyncSnapshot snapshot) {
+        byte[] bytes = null;
+        try {
+            bytes = new SyncSnapshotCodec(snapshot.getBProgram()).serialize(snapshot);
+        } catch (Exception e) {
+            logger.warning("keeping all sync snapshots on heap, failed serializing sync snapshot {0}, error: {1}", sequence, e.getMessage());
+        }
+
+        synchronized (this) {
+            demotedSequences.remove(sequence);
+            if (bytes == null) {
+                isSerializationEnabled = false;
+                return;
+            }
+            if (!hotSnapshots.contains(sequence)) {
+                return;
+            }
+            ColdSnapshot coldSnapshot = new ColdSnapshot(snapshot.getBProgram(), bytes);
+            hotSnapshots.remove(sequence);
+            coldSnapshots.put(sequence, coldSnapshot);
+            snapshotsInMemory.add(coldSnapshot);
+            compressedBytes += bytes.length;
+            executor.execute(() -> compress(coldSnapshot));
+        }
+    }
+
+    private byte[] read(ColdSnapshot coldSnapshot) throws IOException {
+        if (coldSnapshot.bytes != null) {
+            return coldSnapshot.bytes;
+        }
+        if (spillFile == null || !spilledSnapshots.contains(coldSnapshot)) {
+            throw new IOException("sync snapshot was dropped");
+        }
+        return spillFile.read(coldSnapshot.offset, coldSnapshot.length);
+    }
+
+    private void compress(ColdSnapshot coldSnapshot) {
+        byte[] serialized;
+        synchronized (this) {
+            if (!snapshotsInMemory.contains(coldSnapshot) || coldSnapshot.isCompressed) {
+                return;
+            }
+            serialized = coldSnapshot.bytes;
+        }
+
+        byte[] compressed;
+        try {
+            compressed = compress(serialized);
+        } catch (IOException e) {
+            logger.warning("keeping a sync snapshot uncompressed, error: {0}", e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            if (coldSnapshot.bytes == serialized) {
+                coldSnapshot.bytes = compressed;
+                coldSnapshot.isCompressed = true;
+                compressedBytes += compressed.length - serialized.length;
+            }
+            spill();
+        }
+    }
+
+    private void spill() {
+        Iterator<ColdSnapshot> snapshots = snapshotsInMemory.iterator();
+        while (!isClosed && compressedBytes > maxCompressedBytes && snapshots.hasNext()) {
+            ColdSnapshot coldSnapshot = snapshots.next();
+            if (!coldSnapshot.isCompressed) {
+                continue;
+            }
+            try {
+                if (spillFile == null) {
+                    spillFile = SpillFile.create(SPILL_FILE_PREFIX);
+                }
+                coldSnapshot.offset = spillFile.append(coldSnapshot.bytes);
+            } catch (IOException e) {
+                logger.warning("failed spilling sync snapshots, error: {0}", e.getMessage());
+                return;
+            }
+            snapshots.remove();
+            coldSnapshot.length = coldSnapshot.bytes.length;
+            coldSnapshot.bytes = null;
+            compressedBytes -= coldSnapshot.length;
+            spilledBytes += coldSnapshot.length;
+            spilledSnapshots.add(coldSnapshot);
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (spillFile == null || isCompactionScheduled) {
+            return;
+        }
+        long removedBytes = spillFile.size() - spilledBytes;
+        if (removedBytes > Math.max(spilledBytes, MIN_COMPACTED_BYTES)) {
+            isCompactionScheduled = true;
+            executor.execute(this::compact);
+        }
+    }
+
+    /**
+     * Copies the spilled snapshots to a new spill file and deletes the old one. Snapshots are copied without holding the store,
+     * only the ones spilled meanwhile are copied while holding it, when the new file replaces the old one.
+     */
+    private void compact() {
+        SpillFile source;
+        Map<ColdSnapshot, Long> sourceOffsets = new IdentityHashMap<>();
+        synchronized (this) {
+            isCompactionScheduled = false;
+            source = spillFile;
+            if (source == null) {
+                return;
+            }
+            spilledSnapshots.forEach(coldSnapshot -> sourceOffsets.put(coldSnapshot, coldSnapshot.offset));
+        }
+
+        SpillFile target = null;
+        try {
+            target = SpillFile.create(SPILL_FILE_PREFIX);
+            Map<ColdSnapshot, Long> targetOffsets = new IdentityHashMap<>();
+            for (Map.Entry<ColdSnapshot, Long> coldSnapshot : sourceOffsets.entrySet()) {
+                targetOffsets.put(coldSnapshot.getKey(), target.append(source.read(coldSnapshot.getValue(), coldSnapshot.getKey().length)));
+            }
+            synchronized (this) {
+                if (spillFile != source) {
+                    target.close();
+                    return;
+                }
+                for (ColdSnapshot coldSnapshot : spilledSnapshots) {
+                    Long offset = targetOffsets.get(coldSnapshot);
+                    coldSnapshot.offset = offset != null ? offset : target.append(source.read(coldSnapshot.offset, coldSnapshot.length));
+                }
+                spillFile = target;
+            }
+            source.close();
+        } catch (IOException e) {
+            logger.warning("failed compacting sync snapshots spill file, error: {0}", e.getMessage());
+            closeQuietly(target);
+        }
+    }
+
+    private static void closeQuietly(SpillFile spillFile) {
+        if (spillFile == null) {
+            return;
+        }
+        try {
+            spillFile.close();
+        } catch (IOException e) {
+            logger.warning("failed deleting sync snapshots spill file, error: {0}", e.getMessage());
+        }
+    }
+
+    private static byte[] compress(byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 2);
+        try (OutputStream outputStream = new DeflaterOutputStream(compressed)) {
+            outputStream.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] bytes) throws IOException {
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream(bytes.length * 4);
+        try (InputStream inputStream = new InflaterInputStream(new ByteArrayInputStream(bytes))) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                decompressed.write(buffer, 0, read);
+            }
+        }
+        return decompressed.toByteArray();
+    }
+
+    /**
+     * Serialized bytes kept in memory, compressed once {@link #isCompressed}, or spilled to {@link #offset} of the spill file.
+     */
+    private static class ColdSnapshot {
+        private final BProgram bProgram;
+        private byte[] bytes;
+        private boolean isCompressed = false;
+        private long offset;
+        private int length;
+
+        private ColdSnapshot(BProgram bProgram, byte[] bytes) {
+            this.bProgram = bProgram;
+            this.bytes = bytes;
+        }
+    }
+}
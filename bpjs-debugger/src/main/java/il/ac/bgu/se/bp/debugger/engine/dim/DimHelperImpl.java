@@ -47,7 +47,7 @@ public class DimHelperImpl implements DimHelper {
         if (lineNumber < 0)
             return false;
         Dim.SourceInfo sourceInfo = dim.sourceInfo(filename);
-        return sourceInfo.breakableLine(lineNumber);
+        return sourceInfo != null && sourceInfo.breakableLine(lineNumber);
     }
 
     @Override
@@ -11,6 +11,10 @@ public class ProgramStatusEvent extends BPEvent<ProgramStatus> {
         super(debuggerId, new ProgramStatus(status));
     }
 
+    public ProgramStatusEvent(String debuggerId, ProgramStatus programStatus) {
+        super(debuggerId, programStatus);
+    }
+
     @Override
     public void accept(PublisherVisitor visitor) {
         visitor.visit(debuggerId, event);
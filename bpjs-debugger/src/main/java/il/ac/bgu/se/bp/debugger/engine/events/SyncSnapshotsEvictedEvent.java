@@ -0,0 +1,22 @@
+package il.ac.bgu.se.bp.debugger.engine.events;
+
+import il.ac.bgu.se.bp.socket.snapshots.SyncSnapshotsEvicted;
+import il.ac.bgu.se.bp.utils.observer.BPEvent;
+import il.ac.bgu.se.bp.utils.visitor.PublisherVisitor;
+
+public class SyncSnapshotsEvictedEvent extends BPEvent<SyncSnapshotsEvicted> {
+
+    public SyncSnapshotsEvictedEvent(String debuggerId, SyncSnapshotsEvicted event) {
+        super(debuggerId, event);
+    }
+
+    @Override
+    public void accept(PublisherVisitor visitor) {
+        visitor.visit(debuggerId, event);
+    }
+
+    @Override
+    public String getEventType() {
+        return "SyncSnapshotsEvictedEvent";
+    }
+}
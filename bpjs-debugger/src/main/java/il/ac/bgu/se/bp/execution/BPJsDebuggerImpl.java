@@ -3,46 +3,69 @@ package il.ac.bgu.se.bp.execution;
 import il.ac.bgu.cs.bp.bpjs.BPjs;
 import il.ac.bgu.cs.bp.bpjs.bprogramio.BProgramSyncSnapshotIO;
 import il.ac.bgu.cs.bp.bpjs.execution.listeners.BProgramRunnerListener;
-import il.ac.bgu.cs.bp.bpjs.execution.listeners.PrintBProgramRunnerListener;
 import il.ac.bgu.cs.bp.bpjs.model.*;
 import il.ac.bgu.cs.bp.bpjs.model.eventselection.EventSelectionResult;
 import il.ac.bgu.cs.bp.bpjs.model.eventselection.EventSelectionStrategy;
 import il.ac.bgu.se.bp.debugger.BPJsDebugger;
+import il.ac.bgu.se.bp.debugger.ConsolePolicy;
 import il.ac.bgu.se.bp.debugger.DebuggerLevel;
 import il.ac.bgu.se.bp.debugger.RunnerState;
 import il.ac.bgu.se.bp.debugger.commands.*;
 import il.ac.bgu.se.bp.debugger.engine.DebuggerEngine;
 import il.ac.bgu.se.bp.debugger.engine.DebuggerEngineImpl;
+import il.ac.bgu.se.bp.debugger.engine.SnapshotRetentionPolicy;
+import il.ac.bgu.se.bp.debugger.engine.SnapshotSharingStats;
+import il.ac.bgu.se.bp.debugger.engine.SnapshotSizeExceededException;
 import il.ac.bgu.se.bp.debugger.engine.SyncSnapshotHolder;
+import il.ac.bgu.se.bp.debugger.engine.SyncSnapshotCodec;
 import il.ac.bgu.se.bp.debugger.engine.SyncSnapshotHolderImpl;
-import il.ac.bgu.se.bp.debugger.engine.events.BPConsoleEvent;
+import il.ac.bgu.se.bp.debugger.engine.events.ProgramProgressEvent;
 import il.ac.bgu.se.bp.debugger.engine.events.ProgramStatusEvent;
+import il.ac.bgu.se.bp.debugger.engine.events.SyncSnapshotsEvictedEvent;
 import il.ac.bgu.se.bp.debugger.manage.ProgramValidator;
 import il.ac.bgu.se.bp.error.ErrorCode;
+import il.ac.bgu.se.bp.execution.program.CachedBProgram;
+import il.ac.bgu.se.bp.execution.program.ProgramSource;
+import il.ac.bgu.se.bp.execution.runtime.DebuggerMetrics;
+import il.ac.bgu.se.bp.execution.runtime.DebuggerRuntime;
+import il.ac.bgu.se.bp.execution.runtime.EventPipeline;
+import il.ac.bgu.se.bp.execution.runtime.SessionContextFactory;
+import il.ac.bgu.se.bp.execution.runtime.SessionLane;
+import il.ac.bgu.se.bp.execution.verification.TraceReplayEventSelectionStrategy;
 import il.ac.bgu.se.bp.rest.response.BooleanResponse;
 import il.ac.bgu.se.bp.rest.response.DebugResponse;
 import il.ac.bgu.se.bp.rest.response.GetSyncSnapshotsResponse;
 import il.ac.bgu.se.bp.rest.response.SyncSnapshot;
-import il.ac.bgu.se.bp.socket.console.ConsoleMessage;
-import il.ac.bgu.se.bp.socket.console.LogType;
+import il.ac.bgu.se.bp.rest.response.VariableExpansionResponse;
+import il.ac.bgu.se.bp.socket.snapshots.SyncSnapshotsEvicted;
 import il.ac.bgu.se.bp.socket.state.BPDebuggerState;
 import il.ac.bgu.se.bp.socket.state.EventInfo;
 import il.ac.bgu.se.bp.socket.status.Status;
+import il.ac.bgu.se.bp.utils.ConsoleRunnerListener;
 import il.ac.bgu.se.bp.utils.DebuggerBProgramRunnerListener;
 import il.ac.bgu.se.bp.utils.DebuggerExecutorServiceMaker;
 import il.ac.bgu.se.bp.utils.DebuggerPrintStream;
 import il.ac.bgu.se.bp.utils.DebuggerStateHelper;
+import il.ac.bgu.se.bp.utils.Pair;
+import il.ac.bgu.se.bp.utils.ProgramProgressTracker;
 import il.ac.bgu.se.bp.utils.logger.Logger;
 import il.ac.bgu.se.bp.utils.observer.BPEvent;
 import il.ac.bgu.se.bp.utils.observer.Subscriber;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import static il.ac.bgu.cs.bp.bpjs.model.StorageModificationStrategy.PASSTHROUGH;
 import static il.ac.bgu.se.bp.utils.Common.NO_MORE_WAIT_EXTERNAL;
@@ -53,16 +76,21 @@ import static java.util.Collections.reverseOrder;
 
 public class BPJsDebuggerImpl implements BPJsDebugger<BooleanResponse> {
     private final static AtomicInteger debuggerThreadIdGenerator = new AtomicInteger(0);
+    private final static long PROGRESS_REPORT_INTERVAL_MILLIS = 1000;
+    private final static long STOP_GRACE_MILLIS = 1000;
+    private final static long STOP_DEADLINE_MILLIS = 5000;
+    private final static long EXPANSION_TIMEOUT_MILLIS = 5000;
     private Logger logger;
 
     private String debuggerId;
-    private String filename;
+    private final ProgramSource programSource;
     private String debuggerExecutorId;
 
     private volatile boolean isBProgSetup = false; //indicates if bprog after setup
     private volatile boolean isSetup = false;
     private volatile boolean isStarted = false;
     private volatile boolean isSkipSyncPoints = false;
+    private volatile boolean isStopRequested = false;
 
     private ExecutorService jsExecutorService;
     private ExecutorService bpExecutorService;
@@ -70,46 +98,69 @@ public class BPJsDebuggerImpl implements BPJsDebugger<BooleanResponse> {
     private DebuggerEngine<BProgramSyncSnapshot> debuggerEngine;
     private BProgramSyncSnapshot syncSnapshot;
     private int numOfLines;
+    private ProgramProgressTracker progressTracker;
+    private EventPipeline eventPipeline;
 
     private final RunnerState state = new RunnerState();
     private final DebuggerLevel debuggerLevel;
-    private final SyncSnapshotHolder<BProgramSyncSnapshot, BEvent> syncSnapshotHolder = new SyncSnapshotHolderImpl();
+    private final SyncSnapshotHolder<BProgramSyncSnapshot, BEvent> syncSnapshotHolder;
     private final DebuggerStateHelper debuggerStateHelper;
     private final DebuggerPrintStream debuggerPrintStream = new DebuggerPrintStream();
     private final List<BProgramRunnerListener> listeners = new ArrayList<>();
-    private final List<Subscriber<BPEvent>> subscribers = new ArrayList<>();
+    private final AtomicBoolean isExiting = new AtomicBoolean(false);
+    private final DebuggerExecutorServiceMaker executorServiceMaker = new DebuggerExecutorServiceMaker();
+    private final SessionContextFactory contextFactory = new SessionContextFactory();
+    private final CompletableFuture<Void> termination = new CompletableFuture<>();
 
     @Autowired
     private ProgramValidator<BPJsDebugger> bPjsProgramValidator;
 
-    public BPJsDebuggerImpl(String debuggerId, String filename, DebuggerLevel debuggerLevel) {
+    public BPJsDebuggerImpl(String debuggerId, ProgramSource programSource, DebuggerLevel debuggerLevel) {
         this.debuggerId = debuggerId;
-        this.filename = filename;
+        this.programSource = programSource;
         this.debuggerLevel = debuggerLevel;
+        syncSnapshotHolder = new SyncSnapshotHolderImpl(debuggerLevel);
         debuggerStateHelper = new DebuggerStateHelper(this, syncSnapshotHolder, debuggerLevel);
-        BPjs.setExecutorServiceMaker(new DebuggerExecutorServiceMaker());
+        BPjs.setExecutorServiceMaker(executorServiceMaker);
         initDebugger();
     }
 
+    /**
+     * Debugs a program from the classpath
+     */
+    public BPJsDebuggerImpl(String debuggerId, String filename, DebuggerLevel debuggerLevel) {
+        this(debuggerId, ProgramSource.fromResource(filename), debuggerLevel);
+    }
+
     public BPJsDebuggerImpl(String debuggerId, String filename) {
         this(debuggerId, filename, DebuggerLevel.NORMAL);
     }
 
     private void initDebugger() {
         debuggerExecutorId = "BPJsDebuggerRunner-" + debuggerThreadIdGenerator.incrementAndGet();
-        jsExecutorService = BPjs.getExecutorServiceMaker().makeWithName(debuggerExecutorId);
-        bpExecutorService = BPjs.getExecutorServiceMaker().makeWithName(debuggerExecutorId);
+        jsExecutorService = executorServiceMaker.makeWithName(debuggerExecutorId, contextFactory);
+        bpExecutorService = executorServiceMaker.makeWithName(debuggerExecutorId, contextFactory);
         logger = new Logger(BPJsDebuggerImpl.class, debuggerId);
-        debuggerEngine = new DebuggerEngineImpl(debuggerId, filename, state, debuggerStateHelper, debuggerExecutorId);
+        eventPipeline = new EventPipeline(debuggerExecutorId);
+        debuggerEngine = new DebuggerEngineImpl(debuggerId, programSource.getSourceName(), state, debuggerStateHelper,
+                isDebuggable() ? contextFactory : null);
         debuggerEngine.changeDebuggerLevel(debuggerLevel);
         debuggerPrintStream.setDebuggerId(debuggerId);
-        bprog = new ResourceBProgram(filename);
+        debuggerEngine.subscribe(eventPipeline);
+        debuggerPrintStream.subscribe(eventPipeline);
+        syncSnapshotHolder.setEvictionListener(evicted -> notifySubscribers(new SyncSnapshotsEvictedEvent(debuggerId, new SyncSnapshotsEvicted(evicted))));
+        bprog = new CachedBProgram(programSource);
         initListeners(bprog);
     }
 
+    /**
+     * A headless run has no debugger state to build, so it only gets the listeners of the console output.
+     */
     private void initListeners(BProgram bProgram) {
-        listeners.add(new PrintBProgramRunnerListener(debuggerPrintStream));
-        listeners.add(new DebuggerBProgramRunnerListener(debuggerStateHelper));
+        listeners.add(new ConsoleRunnerListener(debuggerPrintStream));
+        if (!isHeadless()) {
+            listeners.add(new DebuggerBProgramRunnerListener(debuggerStateHelper));
+        }
         bProgram.setAddBThreadCallback((bp, bt) -> listeners.forEach(l -> l.bthreadAdded(bp, bt)));
     }
 
@@ -150,6 +201,7 @@ public class BPJsDebuggerImpl implements BPJsDebugger<BooleanResponse> {
     public synchronized BooleanResponse toggleMuteSyncPoints(boolean toggleMuteSyncPoints) {
         logger.info("toggleMuteSyncPoints to: {0}", toggleMuteSyncPoints);
         this.isSkipSyncPoints = toggleMuteSyncPoints;
+        debuggerEngine.invalidateState();
         return createSuccessResponse();
     }
 
@@ -157,11 +209,21 @@ public class BPJsDebuggerImpl implements BPJsDebugger<BooleanResponse> {
     public GetSyncSnapshotsResponse getSyncSnapshotsHistory() {
         SortedMap<Long, BPDebuggerState> syncSnapshotsHistory = new TreeMap<>();
 
-        syncSnapshotHolder.getAllSyncSnapshots().forEach((time, bProgramSyncSnapshotBEventPair) ->
+        // loaded one at a time, so that the snapshots kept serialized are not all deserialized at once
+        for (Long time : syncSnapshotHolder.getSyncSnapshotSequences()) {
+            Pair<BProgramSyncSnapshot, BEvent> bProgramSyncSnapshotBEventPair = syncSnapshotHolder.getSyncSnapshot(time);
+            if (bProgramSyncSnapshotBEventPair != null) {
                 syncSnapshotsHistory.put(time, debuggerStateHelper
-                        .generateDebuggerState(bProgramSyncSnapshotBEventPair.getLeft(), state, null, null)));
+                        .generateDebuggerState(bProgramSyncSnapshotBEventPair.getLeft(), state, null, null));
+            }
+        }
 
-        return new GetSyncSnapshotsResponse(syncSnapshotsHistory);
+        SnapshotSharingStats sharingStats = syncSnapshotHolder.getSharingStats();
+        GetSyncSnapshotsResponse response = new GetSyncSnapshotsResponse(syncSnapshotsHistory, sharingStats.getReferencedBThreads(), sharingStats.getStoredBThreads());
+        response.setSerializedSnapshots(sharingStats.getSerializedSnapshots());
+        response.setSerializedBytes(sharingStats.getSerializedBytes());
+        response.setSpilledBytes(sharingStats.getSpilledBytes());
+        return response;
     }
 
     @Override
@@ -198,8 +260,57 @@ public class BPJsDebuggerImpl implements BPJsDebugger<BooleanResponse> {
         }
     }
 
+    @Override
+    public void writeSyncSnapshot(OutputStream outputStream) throws IOException {
+        new SyncSnapshotCodec(bprog).serialize(syncSnapshot, outputStream);
+    }
+
+    @Override
+    public BooleanResponse setSyncSnapshot(InputStream inputStream) {
+        try {
+            return setSyncSnapshot(new SyncSnapshotCodec(bprog).deserialize(inputStream));
+        } catch (SnapshotSizeExceededException e) {
+            logger.error("sync snapshot import stopped: {0}", e.getMessage());
+            return createErrorResponse(ErrorCode.SYNC_SNAPSHOT_TOO_LARGE);
+        } catch (Exception e) {
+            logger.error("deserialization from sync snapshot stream to object failed", e);
+            return createErrorResponse(ErrorCode.IMPORT_SYNC_SNAPSHOT_FAILURE);
+        }
+    }
+
+    @Override
+    public BooleanResponse pinSyncSnapshot(long snapShotTime, boolean pin) {
+        logger.info("pinSyncSnapshot() snapShotTime: {0}, pin: {1}", snapShotTime, pin);
+        return syncSnapshotHolder.pin(snapShotTime, pin) ? createSuccessResponse() :
+                createErrorResponse(ErrorCode.SYNC_SNAPSHOT_NOT_FOUND);
+    }
+
+    @Override
+    public void setSyncSnapshotRetentionPolicy(SnapshotRetentionPolicy retentionPolicy) {
+        logger.info("setSyncSnapshotRetentionPolicy: {0}", retentionPolicy);
+        syncSnapshotHolder.setRetentionPolicy(retentionPolicy);
+    }
+
+    @Override
+    public void setConsolePolicy(ConsolePolicy consolePolicy) {
+        logger.info("setConsolePolicy: {0}", consolePolicy);
+        debuggerPrintStream.setConsolePolicy(consolePolicy);
+    }
+
+    @Override
+    public void replayEventTrace(List<String> eventNames) {
+        logger.info("replaying event trace of {0} events", eventNames.size());
+        bprog.setEventSelectionStrategy(new TraceReplayEventSelectionStrategy(bprog.getEventSelectionStrategy(), eventNames));
+    }
+
+    /**
+     * Snapshots read back from bytes (cold history entries and imports) come without debugger frames. In a debug session
+     * they are attached on the js lane, whose context has the session's debugger and resumes the b-threads.
+     */
     private BooleanResponse setSyncSnapshot(BProgramSyncSnapshot newSnapshot) {
-        syncSnapshot = newSnapshot;
+        BProgramSyncSnapshot attachedSnapshot = isDebuggable() ?
+                awaitForExecutorServiceToFinishTask(() -> SyncSnapshotCodec.attachDebuggerFrames(newSnapshot)) : null;
+        syncSnapshot = attachedSnapshot != null ? attachedSnapshot : newSnapshot;
         debuggerStateHelper.cleanFields();
         debuggerEngine.setSyncSnapshot(syncSnapshot);
         debuggerEngine.onStateChanged();
@@ -224,6 +335,40 @@ public class BPJsDebuggerImpl implements BPJsDebugger<BooleanResponse> {
         return debuggerStateHelper.generateEventsHistory(from, to);
     }
 
+    /**
+     * Expands a variable only while the program is paused, as it reads live JS objects: on a breakpoint it is done by the thread
+     * the program is paused on, at a sync point or while waiting for an external event by the bp lane, between supersteps.
+     *
+     * @return the expansion, or null if the program is not paused or the handle is unknown
+     */
+    @Override
+    public VariableExpansionResponse expandVariable(long handle, int from, int count) {
+        if (from < 0 || count < 0) {
+            return null;
+        }
+        try {
+            if (checkStateEquals(RunnerState.State.JS_DEBUG)) {
+                ExpandVariable expandVariable = new ExpandVariable(handle, from, count);
+                debuggerEngine.addCommand(expandVariable);
+                return expandVariable.getExpansion().get(EXPANSION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            if (isPausedBetweenSupersteps()) {
+                return bpExecutorService.submit(() -> isPausedBetweenSupersteps() ? debuggerStateHelper.expandVariable(handle, from, count) : null)
+                        .get(EXPANSION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            logger.warning("not expanding handle {0} while the program runs, state: {1}", handle, state.getDebuggerState());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warning("failed to expand handle {0}, error: {1}", handle, e.getMessage());
+        }
+        return null;
+    }
+
+    private boolean isPausedBetweenSupersteps() {
+        return checkStateEquals(RunnerState.State.SYNC_STATE) || checkStateEquals(RunnerState.State.WAITING_FOR_EXTERNAL_EVENT);
+    }
+
     private synchronized void setIsStarted(boolean isStarted) {
         this.isStarted = isStarted;
     }
@@ -264,7 +409,12 @@ public class BPJsDebuggerImpl implements BPJsDebugger<BooleanResponse> {
             }
             state.setDebuggerState(RunnerState.State.SYNC_STATE);
             debuggerEngine.setSyncSnapshot(syncSnapshot);
-            syncSnapshotHolder.addSyncSnapshot(syncSnapshot, null);
+            if (isHeadless()) {
+                progressTracker = new ProgramProgressTracker(PROGRESS_REPORT_INTERVAL_MILLIS);
+            }
+            else {
+                syncSnapshotHolder.addSyncSnapshot(syncSnapshot, null);
+            }
             logger.info("~FIRST SYNC STATE~");
             if (isSkipSyncPoints) {
                 nextSync();
@@ -284,7 +434,7 @@ public class BPJsDebuggerImpl implements BPJsDebugger<BooleanResponse> {
             onExit();
         } catch (Exception e) {
             logger.error("runStartSync failed, error: {0}", e.getMessage());
-            notifySubscribers(new BPConsoleEvent(debuggerId, new ConsoleMessage(e.getMessage(), LogType.error)));
+            debuggerPrintStream.printError(e.getMessage());
         }
     }
 
@@ -293,6 +443,24 @@ public class BPJsDebuggerImpl implements BPJsDebugger<BooleanResponse> {
         listeners.forEach(l -> l.assertionFailed(bprog, violationTag));
         state.setDebuggerState(RunnerState.State.STOPPED);
         logger.error(error);
+        reportProgress(violationTag == null ? error : violationTag.getMessage());
+    }
+
+    private boolean isHeadless() {
+        return DebuggerLevel.THROUGHPUT.equals(debuggerLevel);
+    }
+
+    /**
+     * Only debug sessions get a JS debugger, run sessions execute their contexts without debug hooks.
+     */
+    private boolean isDebuggable() {
+        return DebuggerLevel.NORMAL.equals(debuggerLevel);
+    }
+
+    private void reportProgress(String violation) {
+        if (isHeadless() && progressTracker != null) {
+            notifySubscribers(new ProgramProgressEvent(debuggerId, progressTracker.createProgress(violation)));
+        }
     }
 
     @Override
@@ -312,116 +480,192 @@ public class BPJsDebuggerImpl implements BPJsDebugger<BooleanResponse> {
         return createSuccessResponse();
     }
 
+    /**
+     * Runs supersteps on the bp executor thread until a sync point should be reported, the program ends or waits
+     * for an external event, or a stop is requested. While sync points are muted (e.g. run mode) events are selected and triggered
+     * in a loop, without re-validation or executor hops between them.
+     */
     private void runNextSync() {
         logger.info("runNextSync state: {0}", state.getDebuggerState());
-        if (!isThereAnyPossibleEvents()) {
-            if (!bprog.isWaitForExternalEvents()) {
-                debuggerEngine.onStateChanged();
-                logger.info("Event queue empty, not need to wait to external event. terminating....");
-                listeners.forEach(l -> l.ended(bprog));
-                onExit();
-                listeners.forEach(l -> l.superstepDone(bprog));
-                return;
-            }
-            nextSyncOnNoPossibleEvents();
-        }
-        EventSelectionStrategy eventSelectionStrategy = bprog.getEventSelectionStrategy();
-        Set<BEvent> possibleEvents = eventSelectionStrategy.selectableEvents(syncSnapshot);
-        if (possibleEvents.isEmpty()) {
-            runNextSync();
-            return;
-        }
-
-        state.setDebuggerState(RunnerState.State.RUNNING);
-        notifySubscribers(new ProgramStatusEvent(debuggerId, getRunStatusByDebuggerLevel(debuggerLevel)));
-
-        logger.info("External events: {0}, possibleEvents: {1}", syncSnapshot.getExternalEvents(), possibleEvents);
-
+        boolean isRunStatusSent = false;
         try {
-            Optional<EventSelectionResult> eventOptional = eventSelectionStrategy.select(syncSnapshot, possibleEvents);
-            if (eventOptional.isPresent()) {
-                nextSyncOnChosenEvent(eventOptional.get());
-            }
-            else {
-                logger.info("Events queue is empty");
+            while (isStarted()) {
+                EventSelectionStrategy eventSelectionStrategy = bprog.getEventSelectionStrategy();
+                Set<BEvent> possibleEvents = eventSelectionStrategy.selectableEvents(syncSnapshot);
+                if (possibleEvents.isEmpty()) {
+                    if (bprog.isWaitForExternalEvents()) {
+                        waitForExternalEvent();
+                    }
+                    else {
+                        onNoMoreEvents();
+                    }
+                    return;
+                }
+
+                state.setDebuggerState(RunnerState.State.RUNNING);
+                if (!isRunStatusSent) {
+                    notifySubscribers(new ProgramStatusEvent(debuggerId, getRunStatusByDebuggerLevel(debuggerLevel)));
+                    isRunStatusSent = true;
+                }
+
+                logger.debug("External events: {0}, possibleEvents: {1}", syncSnapshot.getExternalEvents(), possibleEvents);
+                Optional<EventSelectionResult> eventOptional = eventSelectionStrategy.select(syncSnapshot, possibleEvents);
+                if (!eventOptional.isPresent()) {
+                    logger.info("Events queue is empty");
+                    return;
+                }
+
+                BEvent event = nextSyncOnChosenEvent(eventOptional.get());
+                if (event == null) {
+                    return;
+                }
+                if (!isSkipSyncPoints && !event.equals(NO_MORE_WAIT_EXTERNAL)) {
+                    state.setDebuggerState(RunnerState.State.SYNC_STATE);
+                    logger.debug("Generate state from nextSync");
+                    notifySubscribers(new ProgramStatusEvent(debuggerId, Status.SYNCSTATE));
+                    debuggerEngine.onStateChanged();
+                    return;
+                }
             }
         } catch (InterruptedException e) {
             if (debuggerEngine.isRunning()) {
                 logger.error("runNextSync: got InterruptedException in nextSync");
             }
+        } catch (RejectedExecutionException e) {
+            logger.error("Forced to stop");
         } catch (Exception e) {
             logger.error("runNextSync failed, error: {0}", e.getMessage());
-            notifySubscribers(new BPConsoleEvent(debuggerId, new ConsoleMessage(e.getMessage(), LogType.error)));
+            debuggerPrintStream.printError(e.getMessage());
         }
     }
 
-    private boolean isThereAnyPossibleEvents() {
-        EventSelectionStrategy eventSelectionStrategy = bprog.getEventSelectionStrategy();
-        Set<BEvent> possibleEvents = eventSelectionStrategy.selectableEvents(syncSnapshot);
-        return !possibleEvents.isEmpty();
-    }
-
-    private void nextSyncOnChosenEvent(EventSelectionResult eventSelectionResult) throws Exception {
+    /**
+     * Triggers the selected event and records the previous snapshot in the history.
+     *
+     * @return the triggered event, or null if the new sync snapshot is invalid
+     */
+    private BEvent nextSyncOnChosenEvent(EventSelectionResult eventSelectionResult) throws InterruptedException {
         BEvent event = eventSelectionResult.getEvent();
         if (!eventSelectionResult.getIndicesToRemove().isEmpty()) {
             removeExternalEvents(eventSelectionResult);
         }
-        logger.info("Triggering event " + event);
-        debuggerStateHelper.updateCurrentEvent(event.getName());
+        logger.debug("Triggering event {0}", event);
+        if (!isHeadless()) {
+            debuggerStateHelper.updateCurrentEvent(event.getName());
+        }
         BProgramSyncSnapshot lastSnapshot = syncSnapshot;
         debuggerEngine.setSyncSnapshot(syncSnapshot);
+        long superstepStart = System.nanoTime();
         syncSnapshot = syncSnapshot.triggerEvent(event, jsExecutorService, listeners, PASSTHROUGH);
+        DebuggerMetrics.getInstance().onSuperstep(System.nanoTime() - superstepStart);
         if (!syncSnapshot.isStateValid()) {
             onInvalidStateError("Next Sync fatal error");
-            return;
+            return null;
         }
-        state.setDebuggerState(RunnerState.State.SYNC_STATE);
-        if (!event.equals(NO_MORE_WAIT_EXTERNAL)) {
+        if (isHeadless()) {
+            if (!event.equals(NO_MORE_WAIT_EXTERNAL) && progressTracker.onEventSelected(event.getName())) {
+                reportProgress(null);
+            }
+        }
+        else if (!event.equals(NO_MORE_WAIT_EXTERNAL)) {
             syncSnapshotHolder.addSyncSnapshot(lastSnapshot, event);
         }
         debuggerEngine.setSyncSnapshot(syncSnapshot);
-        logger.info("~NEW SYNC STATE~");
-        if (isSkipSyncPoints || event.equals(NO_MORE_WAIT_EXTERNAL)) {
-            nextSync();
-        }
-        else {
-            logger.debug("Generate state from nextSync");
-            notifySubscribers(new ProgramStatusEvent(debuggerId, Status.SYNCSTATE));
-            debuggerEngine.onStateChanged();
+        return event;
+    }
+
+    private void onNoMoreEvents() {
+        debuggerEngine.onStateChanged();
+        logger.info("Event queue empty, not need to wait to external event. terminating....");
+        listeners.forEach(l -> l.ended(bprog));
+        reportProgress(null);
+        onExit().thenRun(this::onSuperstepDone);
+    }
+
+    private void onSuperstepDone() {
+        if (isHeadless()) {
+            notifySubscribers(new ProgramStatusEvent(debuggerId, Status.SUPERSTEPDONE));
         }
+        listeners.forEach(l -> l.superstepDone(bprog));
     }
 
-    private void nextSyncOnNoPossibleEvents() {
+    /**
+     * Leaves the program waiting for an external event. Nothing waits on the bp lane: {@link #addExternalEvent(String)} and
+     * {@link #toggleWaitForExternalEvents(boolean)} resume the program with a new task, so a waiting session holds no thread.
+     */
+    private void waitForExternalEvent() {
         debuggerEngine.onStateChanged();
         logger.info("waiting for external event");
         state.setDebuggerState(RunnerState.State.WAITING_FOR_EXTERNAL_EVENT);
-        try {
-            notifySubscribers(new ProgramStatusEvent(debuggerId, Status.WAITING_FOR_EXTERNAL_EVENT));
-            BEvent next = bprog.takeExternalEvent(); // and now we wait for external event
-            if (next == null) {
-                logger.info("Event queue empty, not need to wait to external event. terminating....");
-                listeners.forEach(l -> l.ended(bprog));
-                onExit();
-            }
-            else {
-                syncSnapshot.getExternalEvents().add(next);
-            }
-        } catch (Exception e) {
-            logger.error("nextSyncOnNoPossibleEvents error: {0}", e.getMessage());
-        }
+        notifySubscribers(new ProgramStatusEvent(debuggerId, Status.WAITING_FOR_EXTERNAL_EVENT));
     }
 
-    private void onExit() {
+    /**
+     * Runs on the bp lane, after the task that left the program waiting for an external event.
+     *
+     * @return true if the program was waiting and ran on
+     */
+    private boolean resumeIfWaitingForExternalEvent() {
+        if (!isStarted() || !checkStateEquals(RunnerState.State.WAITING_FOR_EXTERNAL_EVENT)) {
+            return false;
+        }
+        runNextSync();
+        return true;
+    }
+
+    /**
+     * Starts tearing the debugger down and returns without waiting for it.
+     * The executors are asked to finish their current task first. If they did not within {@link #STOP_GRACE_MILLIS}
+     * they are interrupted, and if they still run at {@link #STOP_DEADLINE_MILLIS} the JS code is forced to stop on its next line.
+     *
+     * @return the termination of the debugger
+     */
+    private CompletableFuture<Void> onExit() {
+        if (!isExiting.compareAndSet(false, true)) {
+            return termination;
+        }
         logger.info("started onExit process");
+        long exitStartTime = System.nanoTime();
+        logger.info("sync snapshot history sharing: {0}", syncSnapshotHolder.getSharingStats());
+        syncSnapshotHolder.close();
         debuggerEngine.stop();
-        jsExecutorService.shutdownNow();
-        bpExecutorService.shutdownNow();
-        sleep();
-        if (!jsExecutorService.isTerminated()) {
-            forceStopDebugger();
+        if (bprog.isWaitForExternalEvents()) {
+            bprog.setWaitForExternalEvents(false);
+        }
+        jsExecutorService.shutdown();
+        bpExecutorService.shutdown();
+        DebuggerRuntime.getInstance().getExecutor().execute(() -> awaitTermination(exitStartTime));
+        return termination;
+    }
+
+    private void awaitTermination(long exitStartTime) {
+        boolean isSlow = false;
+        try {
+            if (!awaitExecutorServicesTermination(STOP_GRACE_MILLIS)) {
+                isSlow = true;
+                logger.warning("debugger did not stop within {0} ms, interrupting it", STOP_GRACE_MILLIS);
+                jsExecutorService.shutdownNow();
+                bpExecutorService.shutdownNow();
+                if (!awaitExecutorServicesTermination(STOP_DEADLINE_MILLIS - STOP_GRACE_MILLIS)) {
+                    forceStopDebugger();
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.warning("interrupted while waiting for the debugger to stop");
+        } finally {
+            long stopLatencyNanos = System.nanoTime() - exitStartTime;
+            DebuggerMetrics.getInstance().onStopFinished(stopLatencyNanos, isSlow);
+            logger.info("debugger stopped in {0} ms, debugger runtime: {1}", TimeUnit.NANOSECONDS.toMillis(stopLatencyNanos), DebuggerRuntime.getInstance());
+            termination.complete(null);
         }
     }
 
+    private boolean awaitExecutorServicesTermination(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        return jsExecutorService.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS) &&
+                bpExecutorService.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
     private void forceStopDebugger() {
         logger.info("debugger is still running, trying to force stop");
         isSkipSyncPoints = false;
@@ -434,14 +678,6 @@ public class BPJsDebuggerImpl implements BPJsDebugger<BooleanResponse> {
         }
     }
 
-    private void sleep() {
-        try {
-            logger.info("sleeping " + 1 + " sec");
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-        }
-    }
-
     private void removeExternalEvents(EventSelectionResult esr) {
         // the event selection affected the external event queue.
         List<BEvent> updatedExternals = new ArrayList<>(syncSnapshot.getExternalEvents());
@@ -456,7 +692,7 @@ public class BPJsDebuggerImpl implements BPJsDebugger<BooleanResponse> {
             return jsExecutorService.submit(callable).get();
         } catch (Exception e) {
             logger.error("failed running callable task via executor service, error: {0}", e, e.getMessage());
-            notifySubscribers(new BPConsoleEvent(debuggerId, new ConsoleMessage(e.getMessage(), LogType.error)));
+            debuggerPrintStream.printError(e.getMessage());
         }
         return null;
     }
@@ -496,9 +732,12 @@ public class BPJsDebuggerImpl implements BPJsDebugger<BooleanResponse> {
         if (!isSetup()) {
             return createErrorResponse(ErrorCode.SETUP_REQUIRED);
         }
+        isStopRequested = true;
         setIsStarted(false);
-        onExit();
-        notifySubscribers(new ProgramStatusEvent(debuggerId, Status.STOP));
+        onExit().thenRun(() -> {
+            reportProgress(null);
+            notifySubscribers(new ProgramStatusEvent(debuggerId, Status.STOP));
+        });
         return createSuccessResponse();
     }
 
@@ -527,19 +766,7 @@ public class BPJsDebuggerImpl implements BPJsDebugger<BooleanResponse> {
 
         logger.info("Adding external event: {0}, debugger state: {1}", externalEvent, state.getDebuggerState());
         BEvent bEvent = new BEvent(externalEvent);
-
-        if (checkStateEquals(RunnerState.State.WAITING_FOR_EXTERNAL_EVENT)) {
-            bprog.enqueueExternalEvent(bEvent);
-        }
-        else {
-            List<BEvent> updatedExternals = new ArrayList<>(syncSnapshot.getExternalEvents());
-            updatedExternals.add(bEvent);
-            syncSnapshot = syncSnapshot.copyWith(updatedExternals);
-            debuggerEngine.setSyncSnapshot(syncSnapshot);
-            debuggerEngine.onStateChanged();
-        }
-
-        return createSuccessResponse();
+        return executeOnBpLane(() -> updateExternalEvents(externalEvents -> externalEvents.add(bEvent)));
     }
 
     @Override
@@ -547,18 +774,38 @@ public class BPJsDebuggerImpl implements BPJsDebugger<BooleanResponse> {
         if (StringUtils.isEmpty(externalEvent)) {
             return createErrorResponse(ErrorCode.INVALID_EVENT);
         }
-        List<BEvent> updatedExternals = new ArrayList<>(syncSnapshot.getExternalEvents());
-        updatedExternals.removeIf(bEvent -> bEvent.getName().equals(externalEvent));
-        syncSnapshot = syncSnapshot.copyWith(updatedExternals);
-        debuggerEngine.setSyncSnapshot(syncSnapshot);
-        debuggerEngine.onStateChanged();
-        return createSuccessResponse();
+        return executeOnBpLane(() -> updateExternalEvents(externalEvents -> externalEvents.removeIf(bEvent -> bEvent.getName().equals(externalEvent))));
     }
 
     @Override
     public BooleanResponse toggleWaitForExternalEvents(boolean shouldWait) {
         bprog.setWaitForExternalEvents(shouldWait);
-        return createSuccessResponse();
+        debuggerEngine.invalidateState();
+        return shouldWait ? createSuccessResponse() : executeOnBpLane(this::resumeIfWaitingForExternalEvent);
+    }
+
+    /**
+     * Changes the external events of the current sync snapshot on the bp lane, after the superstep it may be running,
+     * and resumes the program if it waits for an external event.
+     */
+    private void updateExternalEvents(Consumer<List<BEvent>> update) {
+        List<BEvent> updatedExternals = new ArrayList<>(syncSnapshot.getExternalEvents());
+        update.accept(updatedExternals);
+        syncSnapshot = syncSnapshot.copyWith(updatedExternals);
+        debuggerEngine.setSyncSnapshot(syncSnapshot);
+        if (!resumeIfWaitingForExternalEvent()) {
+            debuggerEngine.onStateChanged();
+        }
+    }
+
+    private BooleanResponse executeOnBpLane(Runnable task) {
+        try {
+            bpExecutorService.execute(task);
+            return createSuccessResponse();
+        } catch (RejectedExecutionException e) {
+            logger.warning("debugger is stopping, not running the task");
+            return createErrorResponse(ErrorCode.NOT_RUNNING);
+        }
     }
 
     private Callable<BooleanResponse> createAddCommandCallback(DebuggerCommand debuggerCommand) {
@@ -581,23 +828,18 @@ public class BPJsDebuggerImpl implements BPJsDebugger<BooleanResponse> {
 
     @Override
     public void subscribe(Subscriber<BPEvent> subscriber) {
-        subscribers.add(subscriber);
-        debuggerEngine.subscribe(subscriber);
-        debuggerPrintStream.subscribe(subscriber);
+        eventPipeline.subscribe(subscriber);
     }
 
     @Override
     public void unsubscribe(Subscriber<BPEvent> subscriber) {
-        subscribers.remove(subscriber);
-        debuggerEngine.unsubscribe(subscriber);
-        debuggerPrintStream.unsubscribe(subscriber);
+        eventPipeline.unsubscribe(subscriber);
     }
 
     @Override
     public void notifySubscribers(BPEvent event) {
-        for (Subscriber<BPEvent> subscriber : subscribers) {
-            subscriber.update(event);
-        }
+        debuggerPrintStream.flushConsole();
+        eventPipeline.notifySubscribers(event);
     }
 
     @Override
@@ -615,6 +857,30 @@ public class BPJsDebuggerImpl implements BPJsDebugger<BooleanResponse> {
         return debuggerEngine.isMuteBreakpoints();
     }
 
+    @Override
+    public boolean isStopRequested() {
+        return isStopRequested;
+    }
+
+    @Override
+    public CompletableFuture<Void> getTermination() {
+        return termination;
+    }
+
+    @Override
+    public long getCpuTimeNanos() {
+        return getCpuTimeNanos(jsExecutorService) + getCpuTimeNanos(bpExecutorService);
+    }
+
+    @Override
+    public int getSyncSnapshotsCount() {
+        return syncSnapshotHolder.getSyncSnapshotsCount();
+    }
+
+    private static long getCpuTimeNanos(ExecutorService executorService) {
+        return executorService instanceof SessionLane ? ((SessionLane) executorService).getCpuTimeNanos() : 0;
+    }
+
     private boolean checkStateEquals(RunnerState.State expectedState) {
         return expectedState.equals(state.getDebuggerState());
     }
@@ -4,6 +4,7 @@ import il.ac.bgu.se.bp.debugger.BPJsDebugger;
 import il.ac.bgu.se.bp.debugger.DebuggerLevel;
 import il.ac.bgu.se.bp.debugger.manage.DebuggerFactory;
 import il.ac.bgu.se.bp.execution.BPJsDebuggerImpl;
+import il.ac.bgu.se.bp.execution.program.ProgramSource;
 import il.ac.bgu.se.bp.rest.response.BooleanResponse;
 import il.ac.bgu.se.bp.utils.logger.Logger;
 import org.springframework.beans.BeansException;
@@ -19,9 +20,10 @@ public class DebuggerFactoryImpl implements DebuggerFactory<BooleanResponse>, Ap
     private static final Logger logger = new Logger(DebuggerFactoryImpl.class);
 
     @Override
-    public BPJsDebugger<BooleanResponse> getBPJsDebugger(String debuggerId, String filename, DebuggerLevel debuggerLevel) {
-        logger.info("generating new debugger for debuggerId: {0}, with filename: {1}", debuggerId, filename);
-        BPJsDebugger<BooleanResponse> bpJsDebugger = new BPJsDebuggerImpl(debuggerId, filename, debuggerLevel);
+    public BPJsDebugger<BooleanResponse> getBPJsDebugger(String debuggerId, String sourceCode, DebuggerLevel debuggerLevel) {
+        ProgramSource programSource = ProgramSource.of(sourceCode);
+        logger.info("generating new debugger for debuggerId: {0}, with source: {1}", debuggerId, programSource.getSourceName());
+        BPJsDebugger<BooleanResponse> bpJsDebugger = new BPJsDebuggerImpl(debuggerId, programSource, debuggerLevel);
 
         AutowireCapableBeanFactory factory = applicationContext.getAutowireCapableBeanFactory();
         factory.autowireBean(bpJsDebugger);
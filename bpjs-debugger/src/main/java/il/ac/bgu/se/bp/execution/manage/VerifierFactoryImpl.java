@@ -0,0 +1,22 @@
+package il.ac.bgu.se.bp.execution.manage;
+
+import il.ac.bgu.se.bp.debugger.ProgramVerifier;
+import il.ac.bgu.se.bp.debugger.VerificationPolicy;
+import il.ac.bgu.se.bp.debugger.manage.VerifierFactory;
+import il.ac.bgu.se.bp.execution.program.ProgramSource;
+import il.ac.bgu.se.bp.execution.verification.StateSpaceVerifier;
+import il.ac.bgu.se.bp.utils.logger.Logger;
+import org.springframework.stereotype.Component;
+
+@Component
+public class VerifierFactoryImpl implements VerifierFactory {
+
+    private static final Logger logger = new Logger(VerifierFactoryImpl.class);
+
+    @Override
+    public ProgramVerifier getProgramVerifier(String verifierId, String sourceCode, VerificationPolicy verificationPolicy) {
+        ProgramSource programSource = ProgramSource.of(sourceCode);
+        logger.info("generating new verifier for verifierId: {0}, with source: {1}", verifierId, programSource.getSourceName());
+        return new StateSpaceVerifier(verifierId, programSource, verificationPolicy);
+    }
+}
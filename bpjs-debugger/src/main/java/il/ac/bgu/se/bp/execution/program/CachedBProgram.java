@@ -0,0 +1,62 @@
+package il.ac.bgu.se.bp.execution.program;
+
+import il.ac.bgu.cs.bp.bpjs.exceptions.BPjsCodeEvaluationException;
+import il.ac.bgu.cs.bp.bpjs.exceptions.BPjsException;
+import il.ac.bgu.cs.bp.bpjs.exceptions.BPjsRuntimeException;
+import il.ac.bgu.cs.bp.bpjs.model.BProgram;
+import org.mozilla.javascript.*;
+
+/**
+ * A b-program whose code is taken from the {@link CompiledProgramCache} instead of being parsed on every setup.
+ * Errors are reported the same way {@link BProgram#evaluate(String, String, Context)} reports them.
+ */
+public class CachedBProgram extends BProgram {
+    private final ProgramSource programSource;
+    private final CompiledProgramCache compiledProgramCache;
+
+    public CachedBProgram(ProgramSource programSource, CompiledProgramCache compiledProgramCache) {
+        super(programSource.getSourceName());
+        this.programSource = programSource;
+        this.compiledProgramCache = compiledProgramCache;
+    }
+
+    public CachedBProgram(ProgramSource programSource) {
+        this(programSource, CompiledProgramCache.getInstance());
+    }
+
+    @Override
+    protected void setupProgramScope(Scriptable scope) {
+        Context cx = Context.getCurrentContext();
+        try {
+            compiledProgramCache.getScript(cx, programSource).exec(cx, scope);
+        } catch (EcmaError e) {
+            throw new BPjsCodeEvaluationException(e);
+        } catch (WrappedException e) {
+            throw unwrap(e);
+        } catch (EvaluatorException e) {
+            throw new BPjsCodeEvaluationException(e);
+        } catch (Exception e) {
+            throw new BPjsRuntimeException("Error evaluating BProgram code: " + e.getMessage(), e);
+        }
+    }
+
+    private static RuntimeException unwrap(WrappedException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof BPjsException) {
+            return (BPjsException) cause;
+        }
+        if (cause instanceof IllegalStateException) {
+            String message = cause.getMessage();
+            if (message != null && message.contains("Cannot capture continuation")
+                    && message.contains("executeScriptWithContinuations or callFunctionWithContinuations")) {
+                return new BPjsCodeEvaluationException("bp.sync called outside of a b-thread");
+            }
+            return (IllegalStateException) cause;
+        }
+        return new BPjsRuntimeException("(Wrapped) Exception evaluating BProgram code: " + cause.getMessage(), cause);
+    }
+
+    public ProgramSource getProgramSource() {
+        return programSource;
+    }
+}
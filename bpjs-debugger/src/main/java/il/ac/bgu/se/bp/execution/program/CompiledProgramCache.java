@@ -0,0 +1,111 @@
+package il.ac.bgu.se.bp.execution.program;
+
+import il.ac.bgu.se.bp.utils.logger.Logger;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.debug.DebuggableScript;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded LRU cache of compiled b-program scripts, keyed by the content hash of their source.
+ * Compiled scripts hold no program state, so one script is executed in the scopes of every program that has its source.
+ * Scripts compiled with and without debug information are kept apart, since only the former can stop on breakpoints.
+ */
+public class CompiledProgramCache {
+    private static final Logger logger = new Logger(CompiledProgramCache.class);
+    private static final CompiledProgramCache instance = new CompiledProgramCache(CompiledProgramCache.MAX_ENTRIES);
+
+    public static final int MAX_ENTRIES = 128;
+
+    private final int maxEntries;
+    private final Map<String, Script> scriptsByKey;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    CompiledProgramCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.scriptsByKey = new LinkedHashMap<String, Script>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Script> eldest) {
+                if (size() <= CompiledProgramCache.this.maxEntries) {
+                    return false;
+                }
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    public static CompiledProgramCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the compiled script of {@code programSource}, compiling it in {@code cx} on a miss.
+     * On a hit the debugger of {@code cx}, if any, is told about the script as if it was just compiled,
+     * so it can map its lines and breakpoints without parsing the source again.
+     */
+    public Script getScript(Context cx, ProgramSource programSource) {
+        String key = programSource.getHash() + (cx.isGeneratingDebug() ? ":debug:" : ":") + cx.getOptimizationLevel();
+        Script script;
+        synchronized (this) {
+            script = scriptsByKey.get(key);
+            if (script != null) {
+                hits++;
+            }
+            else {
+                misses++;
+            }
+        }
+
+        if (script != null) {
+            if (cx.getDebugger() != null) {
+                notifyDebugger(cx, Context.getDebuggableView(script), programSource.getSource());
+            }
+            return script;
+        }
+
+        long startTime = System.currentTimeMillis();
+        script = cx.compileString(programSource.getSource(), programSource.getSourceName(), 1, null);
+        logger.info("compiled {0} in {1} ms", programSource.getSourceName(), System.currentTimeMillis() - startTime);
+        synchronized (this) {
+            scriptsByKey.put(key, script);
+        }
+        return script;
+    }
+
+    private static void notifyDebugger(Context cx, DebuggableScript debuggableScript, String source) {
+        cx.getDebugger().handleCompilationDone(cx, debuggableScript, source);
+        for (int i = 0; i < debuggableScript.getFunctionCount(); i++) {
+            notifyDebugger(cx, debuggableScript.getFunction(i), source);
+        }
+    }
+
+    public synchronized void clear() {
+        scriptsByKey.clear();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized int getSize() {
+        return scriptsByKey.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+}
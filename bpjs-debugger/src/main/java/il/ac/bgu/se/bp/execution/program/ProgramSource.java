@@ -0,0 +1,90 @@
+package il.ac.bgu.se.bp.execution.program;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The source code of a b-program together with its content hash.
+ * The source name the program is compiled under is derived from the hash, so identical sources share one compiled script
+ * in the {@link CompiledProgramCache} no matter which file they were submitted in.
+ */
+public class ProgramSource {
+    private static final int SOURCE_NAME_HASH_LENGTH = 16;
+
+    private final String source;
+    private final String hash;
+    private final String sourceName;
+
+    private ProgramSource(String source) {
+        this.source = source;
+        this.hash = sha256(source);
+        this.sourceName = "program_" + hash.substring(0, SOURCE_NAME_HASH_LENGTH) + ".js";
+    }
+
+    public static ProgramSource of(String source) {
+        return new ProgramSource(source);
+    }
+
+    /**
+     * Reads a program from the classpath, the same way {@link il.ac.bgu.cs.bp.bpjs.model.ResourceBProgram} does.
+     */
+    public static ProgramSource fromResource(String resourceName) {
+        try (InputStream inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream(resourceName)) {
+            if (inputStream == null) {
+                throw new IllegalArgumentException("Cannot find resource '" + resourceName + "'");
+            }
+            return of(read(inputStream));
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading resource: '" + resourceName + "': " + e.getMessage(), e);
+        }
+    }
+
+    private static String read(InputStream inputStream) throws IOException {
+        StringBuilder source = new StringBuilder();
+        Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+        char[] buffer = new char[8192];
+        int length;
+        while ((length = reader.read(buffer)) != -1) {
+            source.append(buffer, 0, length);
+        }
+        return source.toString();
+    }
+
+    private static String sha256(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    @Override
+    public String toString() {
+        return "ProgramSource{" +
+                "sourceName='" + sourceName + '\'' +
+                ", length=" + source.length() +
+                '}';
+    }
+}
@@ -0,0 +1,115 @@
+package il.ac.bgu.se.bp.execution.runtime;
+
+import il.ac.bgu.se.bp.socket.state.BPDebuggerState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The meters the debuggers record to. They are registered on the global Micrometer registry, which Spring Boot binds
+ * to its own registry, so they show up in the actuator metrics endpoint of the controller; outside Spring they are no-ops
+ * until a registry is added to the global one.
+ */
+public class DebuggerMetrics {
+    public static final String EVENTS_SELECTED = "bpjs.events.selected";
+    public static final String SUPERSTEP_LATENCY = "bpjs.superstep.latency";
+    public static final String STATE_GENERATION_LATENCY = "bpjs.state.generation.latency";
+    public static final String STATE_SIZE = "bpjs.state.size";
+    public static final String NOTIFICATION_SEND_LATENCY = "bpjs.notification.send.latency";
+    public static final String STOP_LATENCY = "bpjs.stop.latency";
+    public static final String SLOW_STOPS = "bpjs.stops.slow";
+
+    private static final DebuggerMetrics instance = new DebuggerMetrics(Metrics.globalRegistry);
+
+    private final MeterRegistry registry;
+    private final Counter eventsSelected;
+    private final Timer superstepLatency;
+    private final Timer stateGenerationLatency;
+    private final DistributionSummary stateSize;
+    private final Timer stopLatency;
+    private final Counter slowStops;
+    private final Map<String, Timer> notificationSendLatencies = new ConcurrentHashMap<>();
+
+    DebuggerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.eventsSelected = Counter.builder(EVENTS_SELECTED)
+                .description("events selected by all the programs")
+                .register(registry);
+        this.superstepLatency = Timer.builder(SUPERSTEP_LATENCY)
+                .description("time to trigger a selected event, up to the next sync point")
+                .register(registry);
+        this.stateGenerationLatency = Timer.builder(STATE_GENERATION_LATENCY)
+                .description("time to generate a debugger state")
+                .register(registry);
+        this.stateSize = DistributionSummary.builder(STATE_SIZE)
+                .description("b-threads, global variables and history events in a generated debugger state")
+                .register(registry);
+        this.stopLatency = Timer.builder(STOP_LATENCY)
+                .description("time for a debugger to finish tearing down")
+                .register(registry);
+        this.slowStops = Counter.builder(SLOW_STOPS)
+                .description("debuggers interrupted because they did not finish their current task in time to stop")
+                .register(registry);
+    }
+
+    public static DebuggerMetrics getInstance() {
+        return instance;
+    }
+
+    public void onSuperstep(long durationNanos) {
+        eventsSelected.increment();
+        superstepLatency.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void onStateGenerated(BPDebuggerState debuggerState, long durationNanos) {
+        stateGenerationLatency.record(durationNanos, TimeUnit.NANOSECONDS);
+        stateSize.record(sizeOf(debuggerState));
+    }
+
+    /**
+     * Records the time it took to deliver an event of type {@code eventType} to all the subscribers of a session.
+     */
+    public void onNotificationSent(String eventType, long durationNanos) {
+        notificationSendLatencies.computeIfAbsent(eventType, this::newNotificationSendLatency)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer newNotificationSendLatency(String eventType) {
+        return Timer.builder(NOTIFICATION_SEND_LATENCY)
+                .description("time to deliver an event to the subscribers of a session")
+                .tag("event", eventType)
+                .register(registry);
+    }
+
+    /**
+     * Records a debugger that finished tearing down, {@code isSlow} if it had to be interrupted.
+     */
+    public void onStopFinished(long durationNanos, boolean isSlow) {
+        stopLatency.record(durationNanos, TimeUnit.NANOSECONDS);
+        if (isSlow) {
+            slowStops.increment();
+        }
+    }
+
+    static int sizeOf(BPDebuggerState debuggerState) {
+        if (debuggerState == null) {
+            return 0;
+        }
+        return sizeOf(debuggerState.getbThreadInfoList()) + sizeOf(debuggerState.getGlobalEnv()) + sizeOf(debuggerState.getEventsHistory());
+    }
+
+    private static int sizeOf(Collection<?> collection) {
+        return collection == null ? 0 : collection.size();
+    }
+
+    private static int sizeOf(Map<?, ?> map) {
+        return map == null ? 0 : map.size();
+    }
+}
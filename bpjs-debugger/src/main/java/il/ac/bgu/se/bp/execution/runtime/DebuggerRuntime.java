@@ -0,0 +1,286 @@
+package il.ac.bgu.se.bp.execution.runtime;
+
+import il.ac.bgu.se.bp.utils.logger.Logger;
+import org.mozilla.javascript.ContextFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The threads all debugger sessions run on.
+ * Each session executor is a {@link SessionLane}: an ordered queue of tasks that borrows a thread of the runtime only while
+ * it has tasks to run, so idle sessions hold no thread at all. Sessions waiting at a sync point or for an external event
+ * have no task running either: the next command or event submits a new one.
+ * On a JVM with virtual threads every lane runs on a virtual thread, so no session holds a platform thread.
+ * <p>
+ * Otherwise lanes run on a pool of at most {@code bpjs.runtime.maxThreads} platform threads (a system property, default
+ * {@value #DEFAULT_MAX_THREADS}), which retire after {@link #IDLE_THREAD_SECONDS}. The one wait that keeps its threads is a
+ * pause on a breakpoint: Rhino's debugger pauses inside the interpreter, so the JS lane waits for the next command in its
+ * running task, and the b-program lane waits for the JS lane. Such pauses take a slot of {@link #tryPauseSession()}, and
+ * the slots cover at most half of the threads, so the running sessions always have the other half. A lane scheduled while
+ * all threads are taken waits for one.
+ * Tasks that need no ordering run on a separate small pool, so they never wait behind paused sessions.
+ */
+public class DebuggerRuntime {
+    private static final Logger logger = new Logger(DebuggerRuntime.class);
+
+    public static final int IDLE_THREAD_SECONDS = 60;
+    public static final String MAX_THREADS_PROPERTY = "bpjs.runtime.maxThreads";
+    public static final int DEFAULT_MAX_THREADS = 256;
+    /**
+     * The lanes of a session a pause on a breakpoint blocks: the b-program lane waits for the JS lane paused on the breakpoint.
+     */
+    public static final int LANES_PER_SESSION = 2;
+    private static final int TASK_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private static final DebuggerRuntime instance = new DebuggerRuntime();
+
+    private final ExecutorService carrier;
+    private final ExecutorService taskExecutor;
+    private final ScheduledThreadPoolExecutor timer;
+    private final boolean isVirtual;
+    private final int maxThreads;
+    private final int maxPausedSessions;
+
+    private final AtomicInteger openLanes = new AtomicInteger(0);
+    private final AtomicInteger busyLanes = new AtomicInteger(0);
+    private final AtomicInteger pausedSessions = new AtomicInteger(0);
+    private final AtomicLong queuedTasks = new AtomicLong(0);
+    private final AtomicLong completedTasks = new AtomicLong(0);
+    private final AtomicLong droppedStates = new AtomicLong(0);
+    private final AtomicLong queuedEvents = new AtomicLong(0);
+
+    private DebuggerRuntime() {
+        ExecutorService virtualThreadExecutor = createVirtualThreadExecutor();
+        this.isVirtual = virtualThreadExecutor != null;
+        this.maxThreads = Math.max(LANES_PER_SESSION, Integer.getInteger(MAX_THREADS_PROPERTY, DEFAULT_MAX_THREADS));
+        this.maxPausedSessions = isVirtual ? Integer.MAX_VALUE : Math.max(1, maxThreads / (2 * LANES_PER_SESSION));
+        this.carrier = isVirtual ? virtualThreadExecutor : createPlatformThreadExecutor("DebuggerRuntime", maxThreads);
+        this.taskExecutor = isVirtual ? virtualThreadExecutor : createPlatformThreadExecutor("DebuggerRuntime-task", TASK_THREADS);
+        this.timer = createTimer();
+        if (isVirtual) {
+            logger.info("debugger runtime started on virtual threads");
+        }
+        else {
+            logger.info("debugger runtime started on up to {0} platform threads, {1} sessions paused on a breakpoint at most", maxThreads, maxPausedSessions);
+        }
+    }
+
+    public static DebuggerRuntime getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return a new lane whose tasks run one at a time, in submission order, on a thread named {@code name}
+     */
+    public SessionLane newLane(String name) {
+        return newLane(name, null);
+    }
+
+    /**
+     * @return a new lane whose tasks run in a context of {@code contextFactory}, or of the global factory if it is null
+     */
+    public SessionLane newLane(String name, ContextFactory contextFactory) {
+        openLanes.incrementAndGet();
+        return new SessionLane(name, this, contextFactory);
+    }
+
+    /**
+     * @return the executor for tasks that need no ordering, which must not block for long
+     */
+    public Executor getExecutor() {
+        return taskExecutor;
+    }
+
+    /**
+     * Takes a slot for a session about to pause on a breakpoint, which keeps {@link #LANES_PER_SESSION} threads until
+     * {@link #onSessionResumed()}.
+     *
+     * @return false if all the slots are taken, and the session should not pause
+     */
+    public boolean tryPauseSession() {
+        int paused;
+        do {
+            paused = pausedSessions.get();
+            if (paused >= maxPausedSessions) {
+                return false;
+            }
+        } while (!pausedSessions.compareAndSet(paused, paused + 1));
+        return true;
+    }
+
+    public void onSessionResumed() {
+        pausedSessions.decrementAndGet();
+    }
+
+    /**
+     * @return the sessions paused on a breakpoint, each keeping its threads
+     */
+    public int getPausedSessions() {
+        return pausedSessions.get();
+    }
+
+    /**
+     * @return the sessions that can pause on a breakpoint at once without starving the others, unbounded on virtual threads
+     */
+    public int getMaxPausedSessions() {
+        return maxPausedSessions;
+    }
+
+    /**
+     * Runs {@code task} once on the timer thread of the runtime, which is shared by all sessions, so the task must be short.
+     */
+    public ScheduledFuture<?> scheduleOnce(Runnable task, long delayMillis) {
+        return timer.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isVirtual() {
+        return isVirtual;
+    }
+
+    /**
+     * @return whether {@link SessionLane#getCpuTimeNanos()} measures anything: the JVM reports no CPU time for virtual threads
+     */
+    public boolean isCpuTimeMeasured() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        return !isVirtual && threadMXBean.isThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+    }
+
+    public int getOpenLanes() {
+        return openLanes.get();
+    }
+
+    public int getBusyLanes() {
+        return busyLanes.get();
+    }
+
+    public long getQueuedTasks() {
+        return queuedTasks.get();
+    }
+
+    public long getCompletedTasks() {
+        return completedTasks.get();
+    }
+
+    /**
+     * @return the debugger states an {@link EventPipeline} dropped because a newer state was published before they were sent
+     */
+    public long getDroppedStates() {
+        return droppedStates.get();
+    }
+
+    void onStateDropped() {
+        droppedStates.incrementAndGet();
+        queuedEvents.decrementAndGet();
+    }
+
+    /**
+     * @return the events all the {@link EventPipeline}s have queued and not yet sent
+     */
+    public long getQueuedEvents() {
+        return queuedEvents.get();
+    }
+
+    void onEventQueued() {
+        queuedEvents.incrementAndGet();
+    }
+
+    void onEventSent() {
+        queuedEvents.decrementAndGet();
+    }
+
+    /**
+     * @return the live platform threads of the runtime, 0 on virtual threads
+     */
+    public int getCarrierThreads() {
+        return isVirtual ? 0 : ((ThreadPoolExecutor) carrier).getPoolSize() + ((ThreadPoolExecutor) taskExecutor).getPoolSize();
+    }
+
+    /**
+     * @return the lanes that have tasks to run but wait for a thread, as all the platform threads are taken
+     */
+    public int getWaitingLanes() {
+        return isVirtual ? 0 : ((ThreadPoolExecutor) carrier).getQueue().size();
+    }
+
+    void schedule(Runnable drain) {
+        busyLanes.incrementAndGet();
+        carrier.execute(drain);
+    }
+
+    void onLaneIdle() {
+        busyLanes.decrementAndGet();
+    }
+
+    void onTaskQueued() {
+        queuedTasks.incrementAndGet();
+    }
+
+    void onTaskStarted() {
+        queuedTasks.decrementAndGet();
+    }
+
+    void onTaskCompleted() {
+        completedTasks.incrementAndGet();
+    }
+
+    void onTasksDropped(int count) {
+        queuedTasks.addAndGet(-count);
+    }
+
+    void onLaneClosed() {
+        openLanes.decrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return "DebuggerRuntime{" +
+                "isVirtual=" + isVirtual +
+                ", openLanes=" + openLanes +
+                ", busyLanes=" + busyLanes +
+                ", pausedSessions=" + pausedSessions +
+                ", queuedTasks=" + queuedTasks +
+                ", completedTasks=" + completedTasks +
+                ", carrierThreads=" + getCarrierThreads() +
+                ", waitingLanes=" + getWaitingLanes() +
+                ", droppedStates=" + droppedStates +
+                ", queuedEvents=" + queuedEvents +
+                '}';
+    }
+
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, (Runnable r) -> {
+            Thread thread = new Thread(r, "DebuggerRuntime-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    private static ExecutorService createPlatformThreadExecutor(String name, int threads) {
+        ThreadFactory defaultThreadFactory = Executors.defaultThreadFactory();
+        AtomicInteger threadCounter = new AtomicInteger(0);
+        ThreadFactory threadFactory = (Runnable r) -> {
+            Thread thread = defaultThreadFactory.newThread(r);
+            thread.setName(name + "#" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, IDLE_THREAD_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
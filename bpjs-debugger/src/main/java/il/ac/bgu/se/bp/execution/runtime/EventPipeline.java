@@ -0,0 +1,132 @@
+package il.ac.bgu.se.bp.execution.runtime;
+
+import il.ac.bgu.se.bp.debugger.engine.events.BPStateEvent;
+import il.ac.bgu.se.bp.utils.logger.Logger;
+import il.ac.bgu.se.bp.utils.observer.BPEvent;
+import il.ac.bgu.se.bp.utils.observer.Publisher;
+import il.ac.bgu.se.bp.utils.observer.Subscriber;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * The outbound events of one debugger session. Publishing only queues the event, and the events are delivered to the
+ * subscribers in order on a thread of the {@link DebuggerRuntime}, so the program never waits for its subscribers.
+ * Debugger states are coalesced: a state that is still queued when a newer one is published is dropped,
+ * and the newer state is queued after the events that were published in between.
+ */
+public class EventPipeline implements Publisher<BPEvent>, Subscriber<BPEvent> {
+    private static final Logger logger = new Logger(EventPipeline.class);
+
+    private final String name;
+    private final Executor executor;
+    private final DebuggerRuntime runtime;
+    private final DebuggerMetrics metrics = DebuggerMetrics.getInstance();
+    private final List<Subscriber<BPEvent>> subscribers = new CopyOnWriteArrayList<>();
+
+    private final Deque<BPEvent> events = new ArrayDeque<>();
+    private BPEvent queuedState = null;
+    private boolean isScheduled = false;
+    private long droppedStates = 0;
+
+    public EventPipeline(String name) {
+        this(name, DebuggerRuntime.getInstance());
+    }
+
+    EventPipeline(String name, DebuggerRuntime runtime) {
+        this.name = name;
+        this.runtime = runtime;
+        this.executor = runtime.getExecutor();
+    }
+
+    @Override
+    public void subscribe(Subscriber<BPEvent> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @Override
+    public void unsubscribe(Subscriber<BPEvent> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    @Override
+    public void update(BPEvent event) {
+        notifySubscribers(event);
+    }
+
+    @Override
+    public synchronized void notifySubscribers(BPEvent event) {
+        if (event instanceof BPStateEvent) {
+            if (queuedState != null && events.removeFirstOccurrence(queuedState)) {
+                droppedStates++;
+                runtime.onStateDropped();
+            }
+            queuedState = event;
+        }
+        events.add(event);
+        runtime.onEventQueued();
+        if (!isScheduled) {
+            isScheduled = true;
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        BPEvent event;
+        while ((event = nextEvent()) != null) {
+            runtime.onEventSent();
+            long start = System.nanoTime();
+            for (Subscriber<BPEvent> subscriber : subscribers) {
+                try {
+                    subscriber.update(event);
+                } catch (RuntimeException e) {
+                    logger.error("pipeline {0}: subscriber failed on {1}, e: {2}", e, name, event.getClass().getSimpleName(), e.getMessage());
+                }
+            }
+            metrics.onNotificationSent(event.getClass().getSimpleName(), System.nanoTime() - start);
+        }
+    }
+
+    private synchronized BPEvent nextEvent() {
+        BPEvent event = events.poll();
+        if (event == null) {
+            isScheduled = false;
+            notifyAll();
+        }
+        else if (event == queuedState) {
+            queuedState = null;
+        }
+        return event;
+    }
+
+    /**
+     * Waits until every event published so far was delivered.
+     */
+    public synchronized boolean awaitDelivery(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (isScheduled) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    public synchronized long getDroppedStates() {
+        return droppedStates;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "EventPipeline{" +
+                "name='" + name + '\'' +
+                ", queuedEvents=" + events.size() +
+                ", droppedStates=" + droppedStates +
+                '}';
+    }
+}
@@ -0,0 +1,18 @@
+package il.ac.bgu.se.bp.execution.runtime;
+
+/**
+ * Implemented by a global context factory that charges the JS instructions programs execute.
+ * {@link SessionContextFactory} forwards the instruction counts of its contexts to it.
+ */
+public interface InstructionObserver {
+
+    /**
+     * @return the number of instructions between two observations, 0 to disable them
+     */
+    int getInstructionObserverThreshold();
+
+    /**
+     * Called on the thread that executed the instructions.
+     */
+    void onInstructionsExecuted(int instructionCount);
+}
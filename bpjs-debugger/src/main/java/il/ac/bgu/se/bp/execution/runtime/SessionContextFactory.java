@@ -0,0 +1,36 @@
+package il.ac.bgu.se.bp.execution.runtime;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+
+/**
+ * The Rhino context factory of a single debugger session.
+ * The {@link SessionLane}s of the session enter a context of this factory before running tasks, so the BPjs code they run
+ * (which enters the global factory) reuses it, and is instrumented only by the debugger attached to this factory, if any.
+ * Instruction counts are forwarded to the global factory when it is an {@link InstructionObserver}.
+ */
+public class SessionContextFactory extends ContextFactory {
+
+    @Override
+    protected Context makeContext() {
+        Context cx = super.makeContext();
+        InstructionObserver instructionObserver = getInstructionObserver();
+        if (instructionObserver != null) {
+            cx.setInstructionObserverThreshold(instructionObserver.getInstructionObserverThreshold());
+        }
+        return cx;
+    }
+
+    @Override
+    protected void observeInstructionCount(Context cx, int instructionCount) {
+        InstructionObserver instructionObserver = getInstructionObserver();
+        if (instructionObserver != null) {
+            instructionObserver.onInstructionsExecuted(instructionCount);
+        }
+    }
+
+    private static InstructionObserver getInstructionObserver() {
+        ContextFactory globalFactory = ContextFactory.getGlobal();
+        return globalFactory instanceof InstructionObserver ? (InstructionObserver) globalFactory : null;
+    }
+}
@@ -0,0 +1,197 @@
+package il.ac.bgu.se.bp.execution.runtime;
+
+import il.ac.bgu.se.bp.utils.logger.Logger;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single threaded executor of one debugger session, on top of the shared {@link DebuggerRuntime}.
+ * Tasks run one at a time and in submission order, on a thread that is named after the lane while the task runs.
+ * {@link #shutdownNow()} interrupts the running task, as it would on a dedicated thread.
+ * The Rhino context the tasks leave entered is parked with the lane between runs, so each lane keeps its own context
+ * (and the debugger attached to it) whatever thread it runs on. A lane with a context factory enters a context of that
+ * factory before its first task, so its tasks never run in a context of the global factory.
+ */
+public class SessionLane extends AbstractExecutorService {
+    private static final Logger logger = new Logger(SessionLane.class);
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    private final String name;
+    private final DebuggerRuntime runtime;
+    private final ContextFactory contextFactory;
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private boolean isScheduled = false;
+    private boolean isShutdown = false;
+    private boolean isClosed = false;
+    private Thread runningThread = null;
+    private Context parkedContext = null;
+    private int parkedEnterCount = 0;
+    private volatile long cpuTimeNanos = 0;
+
+    SessionLane(String name, DebuggerRuntime runtime, ContextFactory contextFactory) {
+        this.name = name;
+        this.runtime = runtime;
+        this.contextFactory = contextFactory;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the CPU time the tasks of the lane used so far, 0 if the JVM does not measure thread CPU time,
+     * as on virtual threads, see {@link DebuggerRuntime#isCpuTimeMeasured()}
+     */
+    public long getCpuTimeNanos() {
+        return cpuTimeNanos;
+    }
+
+    @Override
+    public synchronized void execute(Runnable task) {
+        if (isShutdown) {
+            throw new RejectedExecutionException("lane " + name + " is shut down");
+        }
+        tasks.add(task);
+        runtime.onTaskQueued();
+        if (!isScheduled) {
+            isScheduled = true;
+            runtime.schedule(this::drain);
+        }
+    }
+
+    private void drain() {
+        Thread thread = Thread.currentThread();
+        String carrierName = thread.getName();
+        thread.setName(name);
+        restoreContext();
+        try {
+            Runnable task;
+            while ((task = nextTask(thread)) != null) {
+                long taskStartCpuTime = getCurrentThreadCpuTime();
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    logger.error("lane {0}: task failed, e: {1}", e, name, e.getMessage());
+                } finally {
+                    cpuTimeNanos += Math.max(0, getCurrentThreadCpuTime() - taskStartCpuTime);
+                    runtime.onTaskCompleted();
+                    Thread.interrupted();
+                }
+            }
+        } finally {
+            Thread.interrupted();
+            parkContext();
+            thread.setName(carrierName);
+        }
+    }
+
+    private static long getCurrentThreadCpuTime() {
+        return threadMXBean.isCurrentThreadCpuTimeSupported() ? threadMXBean.getCurrentThreadCpuTime() : 0;
+    }
+
+    private void restoreContext() {
+        ContextFactory factory = contextFactory != null ? contextFactory : ContextFactory.getGlobal();
+        if (parkedContext == null && contextFactory != null) {
+            contextFactory.enterContext();
+        }
+        for (int i = 0; i < parkedEnterCount; i++) {
+            factory.enterContext(parkedContext);
+        }
+        parkedContext = null;
+        parkedEnterCount = 0;
+    }
+
+    private void parkContext() {
+        Context context = Context.getCurrentContext();
+        while (Context.getCurrentContext() != null) {
+            Context.exit();
+            parkedEnterCount++;
+        }
+        parkedContext = context;
+    }
+
+    private synchronized Runnable nextTask(Thread thread) {
+        Runnable task = tasks.poll();
+        if (task == null) {
+            isScheduled = false;
+            runningThread = null;
+            runtime.onLaneIdle();
+            closeIfTerminated();
+            notifyAll();
+            return null;
+        }
+        runtime.onTaskStarted();
+        runningThread = thread;
+        return task;
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        isShutdown = true;
+        closeIfTerminated();
+    }
+
+    @Override
+    public synchronized List<Runnable> shutdownNow() {
+        isShutdown = true;
+        List<Runnable> pendingTasks = new ArrayList<>(tasks);
+        tasks.clear();
+        runtime.onTasksDropped(pendingTasks.size());
+        if (runningThread != null) {
+            runningThread.interrupt();
+        }
+        closeIfTerminated();
+        return pendingTasks;
+    }
+
+    @Override
+    public synchronized boolean isShutdown() {
+        return isShutdown;
+    }
+
+    @Override
+    public synchronized boolean isTerminated() {
+        return isShutdown && !isScheduled;
+    }
+
+    @Override
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!isTerminated()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    private void closeIfTerminated() {
+        if (!isClosed && isTerminated()) {
+            isClosed = true;
+            runtime.onLaneClosed();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SessionLane{" +
+                "name='" + name + '\'' +
+                ", queuedTasks=" + tasks.size() +
+                ", isScheduled=" + isScheduled +
+                ", isShutdown=" + isShutdown +
+                '}';
+    }
+}
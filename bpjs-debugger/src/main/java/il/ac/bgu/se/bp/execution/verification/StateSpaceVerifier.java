@@ -0,0 +1,386 @@
+package il.ac.bgu.se.bp.execution.verification;
+
+import il.ac.bgu.cs.bp.bpjs.analysis.ExecutionTraceInspection;
+import il.ac.bgu.cs.bp.bpjs.analysis.ExecutionTraceInspections;
+import il.ac.bgu.cs.bp.bpjs.analysis.HashVisitedStateStore;
+import il.ac.bgu.cs.bp.bpjs.analysis.VisitedStateStore;
+import il.ac.bgu.cs.bp.bpjs.analysis.violations.JsErrorViolation;
+import il.ac.bgu.cs.bp.bpjs.analysis.violations.Violation;
+import il.ac.bgu.cs.bp.bpjs.bprogramio.BProgramSyncSnapshotCloner;
+import il.ac.bgu.cs.bp.bpjs.exceptions.BPjsRuntimeException;
+import il.ac.bgu.cs.bp.bpjs.execution.jsproxy.BpLog;
+import il.ac.bgu.cs.bp.bpjs.model.BEvent;
+import il.ac.bgu.cs.bp.bpjs.model.BProgram;
+import il.ac.bgu.cs.bp.bpjs.model.BProgramSyncSnapshot;
+import il.ac.bgu.cs.bp.bpjs.model.eventselection.EventSelectionStrategy;
+import il.ac.bgu.se.bp.debugger.ProgramVerifier;
+import il.ac.bgu.se.bp.debugger.VerificationPolicy;
+import il.ac.bgu.se.bp.debugger.engine.events.ProgramStatusEvent;
+import il.ac.bgu.se.bp.error.ErrorCode;
+import il.ac.bgu.se.bp.execution.program.CachedBProgram;
+import il.ac.bgu.se.bp.execution.program.ProgramSource;
+import il.ac.bgu.se.bp.execution.runtime.DebuggerRuntime;
+import il.ac.bgu.se.bp.execution.runtime.EventPipeline;
+import il.ac.bgu.se.bp.execution.runtime.SessionContextFactory;
+import il.ac.bgu.se.bp.execution.runtime.SessionLane;
+import il.ac.bgu.se.bp.rest.response.BooleanResponse;
+import il.ac.bgu.se.bp.socket.state.EventInfo;
+import il.ac.bgu.se.bp.socket.status.ProgramStatus;
+import il.ac.bgu.se.bp.socket.status.Status;
+import il.ac.bgu.se.bp.socket.status.VerificationOutcome;
+import il.ac.bgu.se.bp.socket.status.VerificationProgress;
+import il.ac.bgu.se.bp.utils.logger.Logger;
+import il.ac.bgu.se.bp.utils.observer.BPEvent;
+import il.ac.bgu.se.bp.utils.observer.Subscriber;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static il.ac.bgu.se.bp.utils.ResponseHelper.createErrorResponse;
+import static il.ac.bgu.se.bp.utils.ResponseHelper.createSuccessResponse;
+
+/**
+ * Explores the state space of a b-program on several worker threads, looking for safety violations.
+ * <p>
+ * The workers share a {@link HashVisitedStateStore} and a frontier of states to expand, taken last in first, so the
+ * exploration stays close to a depth first search and the frontier stays small. The store keeps only the hashes of the
+ * visited states, so a state whose hash collides with a visited one is not expanded. A worker inspects the state it takes
+ * with the BPjs inspections, then selects every selectable event of it on a clone of the state (a sync snapshot can be
+ * triggered once), running the b-threads on its own thread.
+ * The first violation found stops the workers, and its event trace is reported. Liveness (cycle) inspections are not done,
+ * as the traces of different workers are not kept on a single stack.
+ * <p>
+ * The workers run on lanes of the {@link DebuggerRuntime} named {@code <executorId>#<n>}, so they show in the runtime
+ * gauges, their CPU time is counted, and the JS instructions they run are charged to a single budget.
+ * The lanes enter contexts of a {@link SessionContextFactory} of the verification, so no Rhino debugger is attached to
+ * them, and the continuations of the b-threads hold no debugger frames and can be cloned.
+ * <p>
+ * All the states share the global scope of the one {@link BProgram}: cloning a state copies the b-threads, but writes the
+ * global scope as a reference to the program's. A program verified here must not mutate its global scope after setup,
+ * as the workers clone and trigger states against it concurrently, and a change made on one path would show on the others.
+ * The same holds for the single threaded BPjs verifier, which also clones against the program's global scope.
+ */
+public class StateSpaceVerifier implements ProgramVerifier {
+    private static final AtomicInteger verifierIdGenerator = new AtomicInteger(0);
+    private static final List<ExecutionTraceInspection> INSPECTIONS = Arrays.asList(
+            ExecutionTraceInspections.DEADLOCKS, ExecutionTraceInspections.FAILED_ASSERTIONS, ExecutionTraceInspections.HOT_TERMINATIONS);
+    private static final long POLL_MILLIS = 50;
+
+    private final Logger logger;
+    private final String verifierId;
+    private final String verifierExecutorId;
+    private final VerificationPolicy verificationPolicy;
+    private final BProgram bprog;
+    private final EventPipeline eventPipeline;
+    private final SessionContextFactory contextFactory = new SessionContextFactory();
+    private final List<SessionLane> workerLanes = new ArrayList<>();
+    private final InlineExecutorService bThreadsExecutorService = new InlineExecutorService();
+
+    private final VisitedStateStore visitedStates = new HashVisitedStateStore();
+    private final BlockingDeque<VerificationNode> frontier = new LinkedBlockingDeque<>();
+    private final AtomicLong pendingNodes = new AtomicLong(0);
+    private final AtomicLong statesVisited = new AtomicLong(0);
+    private final AtomicLong transitions = new AtomicLong(0);
+    private final AtomicInteger maxDepth = new AtomicInteger(0);
+    private final AtomicLong depthLimitedStates = new AtomicLong(0);
+    private final AtomicBoolean isStarted = new AtomicBoolean(false);
+    private final CompletableFuture<VerificationProgress> termination = new CompletableFuture<>();
+
+    private volatile boolean isDone = false;
+    private volatile long startTime;
+    private VerificationOutcome outcome = VerificationOutcome.RUNNING;
+    private String message;
+    private List<String> violationTrace = Collections.emptyList();
+
+    public StateSpaceVerifier(String verifierId, ProgramSource programSource, VerificationPolicy verificationPolicy) {
+        this.verifierId = verifierId;
+        this.verifierExecutorId = "BPjsVerifier-" + verifierIdGenerator.incrementAndGet();
+        this.verificationPolicy = verificationPolicy;
+        this.logger = new Logger(StateSpaceVerifier.class, verifierId);
+        this.bprog = new CachedBProgram(programSource);
+        this.eventPipeline = new EventPipeline(verifierExecutorId);
+        for (int i = 1; i <= verificationPolicy.getWorkers(); i++) {
+            workerLanes.add(DebuggerRuntime.getInstance().newLane(verifierExecutorId + "#" + i, contextFactory));
+        }
+    }
+
+    @Override
+    public BooleanResponse verify() {
+        if (!isStarted.compareAndSet(false, true)) {
+            return createErrorResponse(ErrorCode.ALREADY_RUNNING);
+        }
+        logger.info("verifying {0} with {1}", bprog.getName(), verificationPolicy);
+        startTime = System.nanoTime();
+        bprog.setLogLevel(BpLog.LogLevel.Off);
+        pendingNodes.incrementAndGet();
+        workerLanes.get(0).execute(() -> {
+            setUpInitialState();
+            work();
+        });
+        workerLanes.stream().skip(1).forEach(workerLane -> workerLane.execute(this::work));
+        notifySubscribers(new ProgramStatusEvent(verifierId, new ProgramStatus(Status.VERIFY, getProgress())));
+        DebuggerRuntime.getInstance().scheduleOnce(this::reportProgress, verificationPolicy.getProgressIntervalMillis());
+        return createSuccessResponse();
+    }
+
+    private void setUpInitialState() {
+        try {
+            BProgramSyncSnapshot initialState = bprog.setup().start(bThreadsExecutorService, bprog.getStorageModificationStrategy());
+            markVisited(initialState);
+            statesVisited.incrementAndGet();
+            push(VerificationNode.root(initialState));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error e) {
+            logger.error("failed setting up the program, error: {0}", e.getMessage());
+            stopWith(VerificationOutcome.FAILED, "program setup failed: " + e.getMessage(), Collections.emptyList());
+        } finally {
+            onNodeDone();
+        }
+    }
+
+    private void work() {
+        try {
+            while (!isDone) {
+                VerificationNode node = frontier.pollFirst(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (node == null) {
+                    continue;
+                }
+                try {
+                    if (!isStopRequested() && !isTimeBudgetExceeded()) {
+                        expand(node);
+                    }
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception | Error e) {
+                    if (!isStopRequested()) {
+                        logger.error("failed expanding a state at depth {0}, error: {1}", node.getDepth(), e.getMessage());
+                        stopWith(VerificationOutcome.FAILED, e.getMessage(), node.getEventNames());
+                    }
+                } finally {
+                    node.releaseState();
+                    onNodeDone();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void expand(VerificationNode node) throws InterruptedException {
+        for (ExecutionTraceInspection inspection : INSPECTIONS) {
+            Optional<Violation> violation = inspection.inspectTrace(node);
+            if (violation.isPresent()) {
+                onViolation(violation.get(), node.getEventNames());
+                return;
+            }
+        }
+        if (node.getDepth() >= verificationPolicy.getMaxDepth()) {
+            depthLimitedStates.incrementAndGet();
+            return;
+        }
+
+        BProgramSyncSnapshot state = node.getState();
+        EventSelectionStrategy eventSelectionStrategy = bprog.getEventSelectionStrategy();
+        for (BEvent event : eventSelectionStrategy.selectableEvents(state)) {
+            if (isStopRequested()) {
+                return;
+            }
+            BProgramSyncSnapshot nextState;
+            try {
+                nextState = BProgramSyncSnapshotCloner.clone(state).triggerEvent(event, bThreadsExecutorService, Collections.emptySet(), bprog.getStorageModificationStrategy());
+            } catch (BPjsRuntimeException e) {
+                List<String> eventNames = node.getEventNames();
+                eventNames.add(event.getName());
+                onViolation(new JsErrorViolation(node, e), eventNames);
+                return;
+            }
+            transitions.incrementAndGet();
+            if (markVisited(nextState)) {
+                VerificationNode nextNode = new VerificationNode(nextState, event, node);
+                maxDepth.accumulateAndGet(nextNode.getDepth(), Math::max);
+                push(nextNode);
+                long states = statesVisited.incrementAndGet();
+                if (verificationPolicy.getMaxStates() > 0 && states >= verificationPolicy.getMaxStates()) {
+                    onBudgetExceeded("visited " + states + " states");
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores the state in the visited states, which are not thread safe.
+     *
+     * @return true if the state was not visited before
+     */
+    private boolean markVisited(BProgramSyncSnapshot state) {
+        synchronized (visitedStates) {
+            if (visitedStates.isVisited(state)) {
+                return false;
+            }
+            visitedStates.store(state);
+            return true;
+        }
+    }
+
+    private void push(VerificationNode node) {
+        pendingNodes.incrementAndGet();
+        frontier.offerFirst(node);
+    }
+
+    private void onNodeDone() {
+        if (pendingNodes.decrementAndGet() == 0) {
+            finish();
+        }
+    }
+
+    private void onViolation(Violation violation, List<String> eventNames) {
+        String description = violation.decsribe();
+        if (stopWith(VerificationOutcome.VIOLATION_FOUND, description, eventNames)) {
+            logger.info("found violation after {0} events: {1}", eventNames.size(), description);
+        }
+    }
+
+    private boolean isTimeBudgetExceeded() {
+        long maxSeconds = verificationPolicy.getMaxSeconds();
+        if (maxSeconds <= 0 || System.nanoTime() - startTime < TimeUnit.SECONDS.toNanos(maxSeconds)) {
+            return false;
+        }
+        onBudgetExceeded("ran for over " + maxSeconds + " seconds");
+        return true;
+    }
+
+    /**
+     * Ends the verification with the outcome, unless it already ended with another.
+     *
+     * @return true if the outcome was set
+     */
+    private synchronized boolean stopWith(VerificationOutcome outcome, String message, List<String> violationTrace) {
+        if (this.outcome != VerificationOutcome.RUNNING) {
+            return false;
+        }
+        this.outcome = outcome;
+        this.message = message;
+        this.violationTrace = violationTrace;
+        return true;
+    }
+
+    private void finish() {
+        long depthLimited = depthLimitedStates.get();
+        stopWith(VerificationOutcome.NO_VIOLATION,
+                depthLimited == 0 ? null : depthLimited + " states at depth " + verificationPolicy.getMaxDepth() + " were not expanded",
+                Collections.emptyList());
+        isDone = true;
+        workerLanes.forEach(SessionLane::shutdown);
+        bThreadsExecutorService.shutdown();
+        synchronized (visitedStates) {
+            visitedStates.clear();
+        }
+        frontier.clear();
+
+        VerificationProgress result = getProgress();
+        logger.info("verification done: {0}", result);
+        notifySubscribers(new ProgramStatusEvent(verifierId, new ProgramStatus(Status.VERIFICATION_DONE, result)));
+        termination.complete(result);
+    }
+
+    private void reportProgress() {
+        if (isDone) {
+            return;
+        }
+        isTimeBudgetExceeded();
+        notifySubscribers(new ProgramStatusEvent(verifierId, new ProgramStatus(Status.VERIFY, getProgress())));
+        DebuggerRuntime.getInstance().scheduleOnce(this::reportProgress, verificationPolicy.getProgressIntervalMillis());
+    }
+
+    @Override
+    public BooleanResponse stop() {
+        if (!stopWith(VerificationOutcome.CANCELLED, null, Collections.emptyList())) {
+            return createErrorResponse(ErrorCode.NOT_RUNNING);
+        }
+        logger.info("verification cancelled");
+        return createSuccessResponse();
+    }
+
+    @Override
+    public void onBudgetExceeded(String reason) {
+        if (stopWith(VerificationOutcome.BUDGET_EXCEEDED, reason, Collections.emptyList())) {
+            logger.warning("verification stopped: {0}", reason);
+        }
+    }
+
+    @Override
+    public synchronized boolean isStopRequested() {
+        return outcome != VerificationOutcome.RUNNING;
+    }
+
+    @Override
+    public synchronized VerificationProgress getProgress() {
+        long elapsedMillis = startTime == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        long states = statesVisited.get();
+        double statesPerSecond = elapsedMillis == 0 ? 0 : states * 1000.0 / elapsedMillis;
+        VerificationOutcome currentOutcome = isDone ? outcome : VerificationOutcome.RUNNING;
+        VerificationProgress progress = new VerificationProgress(currentOutcome, states, transitions.get(), maxDepth.get(),
+                statesPerSecond, elapsedMillis);
+        if (isDone) {
+            progress.setMessage(message);
+            progress.setViolationTrace(violationTrace.stream().map(EventInfo::new).collect(Collectors.toList()));
+        }
+        return progress;
+    }
+
+    @Override
+    public CompletableFuture<VerificationProgress> getTermination() {
+        return termination;
+    }
+
+    @Override
+    public long getCpuTimeNanos() {
+        return workerLanes.stream().mapToLong(SessionLane::getCpuTimeNanos).sum();
+    }
+
+    @Override
+    public String getVerifierId() {
+        return verifierId;
+    }
+
+    @Override
+    public String getVerifierExecutorId() {
+        return verifierExecutorId;
+    }
+
+    @Override
+    public void subscribe(Subscriber<BPEvent> subscriber) {
+        eventPipeline.subscribe(subscriber);
+    }
+
+    @Override
+    public void unsubscribe(Subscriber<BPEvent> subscriber) {
+        eventPipeline.unsubscribe(subscriber);
+    }
+
+    @Override
+    public void notifySubscribers(BPEvent event) {
+        eventPipeline.notifySubscribers(event);
+    }
+
+    @Override
+    public String toString() {
+        return "StateSpaceVerifier{" +
+                "verifierId='" + verifierId + '\'' +
+                ", verifierExecutorId='" + verifierExecutorId + '\'' +
+                ", verificationPolicy=" + verificationPolicy +
+                ", statesVisited=" + statesVisited +
+                ", isDone=" + isDone +
+                '}';
+    }
+}
@@ -0,0 +1,58 @@
+package il.ac.bgu.se.bp.execution.verification;
+
+import il.ac.bgu.cs.bp.bpjs.model.BEvent;
+import il.ac.bgu.cs.bp.bpjs.model.BProgramSyncSnapshot;
+import il.ac.bgu.cs.bp.bpjs.model.eventselection.EventSelectionResult;
+import il.ac.bgu.cs.bp.bpjs.model.eventselection.EventSelectionStrategy;
+import il.ac.bgu.se.bp.utils.logger.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Selects the events of a trace, e.g. the violation trace of a verification, by their names and in order,
+ * and leaves the selection to the program's strategy once the trace is done.
+ * If the next event of the trace is not selectable the rest of the trace is dropped, as the program went another way.
+ */
+public class TraceReplayEventSelectionStrategy implements EventSelectionStrategy {
+    private static final Logger logger = new Logger(TraceReplayEventSelectionStrategy.class);
+
+    private final EventSelectionStrategy eventSelectionStrategy;
+    private final List<String> eventNames;
+    private int nextEventIndex = 0;
+
+    public TraceReplayEventSelectionStrategy(EventSelectionStrategy eventSelectionStrategy, List<String> eventNames) {
+        this.eventSelectionStrategy = eventSelectionStrategy;
+        this.eventNames = new ArrayList<>(eventNames);
+    }
+
+    @Override
+    public Set<BEvent> selectableEvents(BProgramSyncSnapshot syncSnapshot) {
+        return eventSelectionStrategy.selectableEvents(syncSnapshot);
+    }
+
+    @Override
+    public synchronized Optional<EventSelectionResult> select(BProgramSyncSnapshot syncSnapshot, Set<BEvent> selectableEvents) {
+        if (nextEventIndex < eventNames.size()) {
+            String eventName = eventNames.get(nextEventIndex);
+            Optional<BEvent> traceEvent = selectableEvents.stream().filter(event -> eventName.equals(event.getName())).findFirst();
+            if (traceEvent.isPresent()) {
+                nextEventIndex++;
+                return eventSelectionStrategy.select(syncSnapshot, Collections.singleton(traceEvent.get()));
+            }
+            logger.warning("event {0} of the replayed trace is not selectable, dropping the remaining {1} events", eventName, eventNames.size() - nextEventIndex);
+            nextEventIndex = eventNames.size();
+        }
+        return eventSelectionStrategy.select(syncSnapshot, selectableEvents);
+    }
+
+    /**
+     * @return the events of the trace that were not selected yet
+     */
+    public synchronized int getRemainingEvents() {
+        return eventNames.size() - nextEventIndex;
+    }
+}
@@ -0,0 +1,121 @@
+package il.ac.bgu.se.bp.execution.verification;
+
+import il.ac.bgu.cs.bp.bpjs.analysis.ExecutionTrace;
+import il.ac.bgu.cs.bp.bpjs.model.BEvent;
+import il.ac.bgu.cs.bp.bpjs.model.BProgram;
+import il.ac.bgu.cs.bp.bpjs.model.BProgramSyncSnapshot;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A state reached by the verification, and the event trace that reached it, kept as a link to the previous state.
+ * The node is the trace for the BPjs inspections, which only look at the last state of acyclic traces.
+ * The state is released once the node was expanded, so a node pending in the frontier keeps only its own state, and the
+ * events and links of its trace.
+ */
+class VerificationNode implements ExecutionTrace {
+    private final BProgram bProgram;
+    private volatile BProgramSyncSnapshot state;
+    private final BEvent event;
+    private final VerificationNode parent;
+    private final int depth;
+
+    /**
+     * @param event the event selected at the parent state to reach this one
+     */
+    VerificationNode(BProgramSyncSnapshot state, BEvent event, VerificationNode parent) {
+        this.bProgram = state.getBProgram();
+        this.state = state;
+        this.event = event;
+        this.parent = parent;
+        this.depth = parent == null ? 0 : parent.depth + 1;
+    }
+
+    static VerificationNode root(BProgramSyncSnapshot state) {
+        return new VerificationNode(state, null, null);
+    }
+
+    /**
+     * @return the state, or null once it was released
+     */
+    BProgramSyncSnapshot getState() {
+        return state;
+    }
+
+    /**
+     * Drops the state, after the node was inspected and expanded.
+     */
+    void releaseState() {
+        state = null;
+    }
+
+    /**
+     * @return the number of events selected from the initial state
+     */
+    int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the names of the events from the initial state to this one
+     */
+    List<String> getEventNames() {
+        LinkedList<String> eventNames = new LinkedList<>();
+        for (VerificationNode node = this; node.parent != null; node = node.parent) {
+            eventNames.addFirst(node.event.getName());
+        }
+        return eventNames;
+    }
+
+    @Override
+    public BProgram getBProgram() {
+        return bProgram;
+    }
+
+    @Override
+    public int getStateCount() {
+        return depth + 1;
+    }
+
+    @Override
+    public BProgramSyncSnapshot getLastState() {
+        return state;
+    }
+
+    @Override
+    public Optional<BEvent> getLastEvent() {
+        return Optional.ofNullable(event);
+    }
+
+    /**
+     * @return the entries of the trace, whose states are null except for the last one, as expanded nodes release theirs
+     */
+    @Override
+    public List<Entry> getNodes() {
+        LinkedList<Entry> entries = new LinkedList<>();
+        BEvent nextEvent = null;
+        for (VerificationNode node = this; node != null; node = node.parent) {
+            entries.addFirst(nextEvent == null ? new Entry(node.state) : new Entry(node.state, nextEvent));
+            nextEvent = node.event;
+        }
+        return entries;
+    }
+
+    @Override
+    public boolean isCyclic() {
+        return false;
+    }
+
+    @Override
+    public int getCycleToIndex() {
+        return -1;
+    }
+
+    @Override
+    public List<Entry> getFinalCycle() {
+        return Collections.emptyList();
+    }
+}
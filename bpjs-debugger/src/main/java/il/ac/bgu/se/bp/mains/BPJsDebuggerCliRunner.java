@@ -5,9 +5,12 @@ import il.ac.bgu.se.bp.config.BPJsDebuggerConfiguration;
 import il.ac.bgu.se.bp.debugger.BPJsDebugger;
 import il.ac.bgu.se.bp.debugger.DebuggerLevel;
 import il.ac.bgu.se.bp.debugger.manage.DebuggerFactory;
+import il.ac.bgu.se.bp.execution.program.ProgramSource;
 import il.ac.bgu.se.bp.rest.response.BooleanResponse;
 import il.ac.bgu.se.bp.rest.response.GetSyncSnapshotsResponse;
 import il.ac.bgu.se.bp.socket.console.ConsoleMessage;
+import il.ac.bgu.se.bp.socket.progress.ProgramProgress;
+import il.ac.bgu.se.bp.socket.snapshots.SyncSnapshotsEvicted;
 import il.ac.bgu.se.bp.socket.state.BPDebuggerState;
 import il.ac.bgu.se.bp.socket.status.ProgramStatus;
 import il.ac.bgu.se.bp.socket.status.Status;
@@ -81,7 +84,7 @@ public class BPJsDebuggerCliRunner implements Subscriber<BPEvent>, PublisherVisi
     private void init() {
         System.out.println("Debugger id: " + debuggerId);
         bufferedReader = new BufferedReader(new InputStreamReader(System.in));
-        bpJsDebugger = debuggerFactory.getBPJsDebugger(debuggerId, filename, DebuggerLevel.NORMAL);
+        bpJsDebugger = debuggerFactory.getBPJsDebugger(debuggerId, ProgramSource.fromResource(filename).getSource(), DebuggerLevel.NORMAL);
         bpJsDebugger.subscribe(this);
     }
 
@@ -300,4 +303,14 @@ public class BPJsDebuggerCliRunner implements Subscriber<BPEvent>, PublisherVisi
         isTerminated = Status.STOP.equals(status);
         printMenu();
     }
+
+    @Override
+    public void visit(String userId, ProgramProgress programProgress) {
+        System.out.println("programProgress event received, content: " + programProgress.toString());
+    }
+
+    @Override
+    public void visit(String userId, SyncSnapshotsEvicted syncSnapshotsEvicted) {
+        System.out.println("syncSnapshotsEvicted event received, content: " + syncSnapshotsEvicted.toString());
+    }
 }
@@ -0,0 +1,94 @@
+package il.ac.bgu.se.bp.utils;
+
+import il.ac.bgu.cs.bp.bpjs.execution.listeners.PrintBProgramRunnerListener;
+import il.ac.bgu.cs.bp.bpjs.model.BEvent;
+import il.ac.bgu.cs.bp.bpjs.model.BProgram;
+import il.ac.bgu.cs.bp.bpjs.model.BThreadSyncSnapshot;
+import il.ac.bgu.cs.bp.bpjs.model.SafetyViolationTag;
+import il.ac.bgu.se.bp.socket.console.ConsoleVerbosity;
+
+/**
+ * Prints the runner events to the console of a program, as far as the {@link ConsoleVerbosity} of its console policy allows.
+ */
+public class ConsoleRunnerListener extends PrintBProgramRunnerListener {
+    private final DebuggerPrintStream debuggerPrintStream;
+
+    public ConsoleRunnerListener(DebuggerPrintStream debuggerPrintStream) {
+        super(debuggerPrintStream);
+        this.debuggerPrintStream = debuggerPrintStream;
+    }
+
+    @Override
+    public void starting(BProgram bp) {
+        if (isAtLeast(ConsoleVerbosity.NORMAL)) {
+            super.starting(bp);
+        }
+    }
+
+    @Override
+    public void started(BProgram bp) {
+        if (isAtLeast(ConsoleVerbosity.NORMAL)) {
+            super.started(bp);
+        }
+    }
+
+    @Override
+    public void ended(BProgram bp) {
+        if (isAtLeast(ConsoleVerbosity.NORMAL)) {
+            super.ended(bp);
+        }
+    }
+
+    @Override
+    public void halted(BProgram bp) {
+        if (isAtLeast(ConsoleVerbosity.NORMAL)) {
+            super.halted(bp);
+        }
+    }
+
+    @Override
+    public void assertionFailed(BProgram bp, SafetyViolationTag theFailedAssert) {
+        if (isAtLeast(ConsoleVerbosity.NORMAL)) {
+            super.assertionFailed(bp, theFailedAssert);
+        }
+    }
+
+    @Override
+    public void eventSelected(BProgram bp, BEvent theEvent) {
+        if (isAtLeast(ConsoleVerbosity.VERBOSE)) {
+            super.eventSelected(bp, theEvent);
+        }
+    }
+
+    @Override
+    public void superstepDone(BProgram bp) {
+        if (isAtLeast(ConsoleVerbosity.VERBOSE)) {
+            super.superstepDone(bp);
+        }
+    }
+
+    @Override
+    public void bthreadAdded(BProgram bp, BThreadSyncSnapshot theBThread) {
+        if (isAtLeast(ConsoleVerbosity.VERBOSE)) {
+            super.bthreadAdded(bp, theBThread);
+        }
+    }
+
+    @Override
+    public void bthreadRemoved(BProgram bp, BThreadSyncSnapshot theBThread) {
+        if (isAtLeast(ConsoleVerbosity.VERBOSE)) {
+            super.bthreadRemoved(bp, theBThread);
+        }
+    }
+
+    @Override
+    public void bthreadDone(BProgram bp, BThreadSyncSnapshot theBThread) {
+        if (isAtLeast(ConsoleVerbosity.VERBOSE)) {
+            super.bthreadDone(bp, theBThread);
+        }
+    }
+
+    private boolean isAtLeast(ConsoleVerbosity verbosity) {
+        return debuggerPrintStream.getConsolePolicy().getVerbosity().compareTo(verbosity) >= 0;
+    }
+}
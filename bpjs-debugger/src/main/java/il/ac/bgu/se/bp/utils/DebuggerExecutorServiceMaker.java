@@ -1,24 +1,25 @@
 package il.ac.bgu.se.bp.utils;
 
 import il.ac.bgu.cs.bp.bpjs.internal.ExecutorServiceMaker;
+import il.ac.bgu.se.bp.execution.runtime.DebuggerRuntime;
+import org.mozilla.javascript.ContextFactory;
 
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class DebuggerExecutorServiceMaker extends ExecutorServiceMaker {
 
-    public ExecutorService makeWithName(String threadNameTemplate ) {
-        final ThreadFactory dtf = Executors.defaultThreadFactory();
-        final AtomicInteger threadCoutner = new AtomicInteger(0);
-        ThreadFactory tf = (Runnable r) -> {
-            Thread retVal = dtf.newThread(r);
-            retVal.setName(threadNameTemplate + "#" + threadCoutner.incrementAndGet() );
-            return retVal;
-        };
+    /**
+     * @return a single threaded lane of the shared {@link DebuggerRuntime}, its thread named as the dedicated thread it replaces
+     */
+    public ExecutorService makeWithName(String threadNameTemplate) {
+        return makeWithName(threadNameTemplate, null);
+    }
 
-        return Executors.newFixedThreadPool(1, tf);
+    /**
+     * @return a lane as {@link #makeWithName(String)}, whose tasks run in contexts of {@code contextFactory}
+     */
+    public ExecutorService makeWithName(String threadNameTemplate, ContextFactory contextFactory) {
+        return DebuggerRuntime.getInstance().newLane(threadNameTemplate + "#1", contextFactory);
     }
 
 }
@@ -1,6 +1,8 @@
 package il.ac.bgu.se.bp.utils;
 
+import il.ac.bgu.se.bp.debugger.ConsolePolicy;
 import il.ac.bgu.se.bp.debugger.engine.events.BPConsoleEvent;
+import il.ac.bgu.se.bp.execution.runtime.DebuggerRuntime;
 import il.ac.bgu.se.bp.socket.console.ConsoleMessage;
 import il.ac.bgu.se.bp.socket.console.LogType;
 import il.ac.bgu.se.bp.utils.observer.BPEvent;
@@ -11,14 +13,30 @@ import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
 
+/**
+ * The console of a program. Printed lines are published as {@link BPConsoleEvent}s according to the {@link ConsolePolicy}:
+ * batched into one message per flush, and dropped beyond the line rate limit.
+ */
 public class DebuggerPrintStream extends PrintStream implements Publisher<BPEvent> {
+    private static final long RATE_WINDOW_MILLIS = 1000;
+
     private List<Subscriber<BPEvent>> subscribers;
     private String debuggerId;
 
+    private volatile ConsolePolicy consolePolicy = ConsolePolicy.unbatched();
+    private final List<String> pendingLines = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush = null;
+    private long rateWindowStart = 0;
+    private int rateWindowLines = 0;
+    private long droppedLines = 0;
+    private long totalDroppedLines = 0;
+
     public DebuggerPrintStream(OutputStream outputStream) {
         super(outputStream);
-        subscribers = new ArrayList<>();
+        subscribers = new CopyOnWriteArrayList<>();
     }
 
     public DebuggerPrintStream() {
@@ -29,6 +47,15 @@ public class DebuggerPrintStream extends PrintStream implements Publisher<BPEven
         this.debuggerId = debuggerId;
     }
 
+    public void setConsolePolicy(ConsolePolicy consolePolicy) {
+        flushConsole();
+        this.consolePolicy = consolePolicy == null ? ConsolePolicy.unbatched() : consolePolicy;
+    }
+
+    public ConsolePolicy getConsolePolicy() {
+        return consolePolicy;
+    }
+
     @Override
     public void subscribe(Subscriber<BPEvent> subscriber) {
         subscribers.add(subscriber);
@@ -45,8 +72,74 @@ public class DebuggerPrintStream extends PrintStream implements Publisher<BPEven
             subscriber.update(event);
         }
     }
+
     @Override
-    public void println(String s) {
-        notifySubscribers(new BPConsoleEvent(debuggerId, new ConsoleMessage(s, LogType.log)));
+    public synchronized void println(String s) {
+        ConsolePolicy policy = consolePolicy;
+        if (!isWithinRate(policy)) {
+            droppedLines++;
+            totalDroppedLines++;
+            scheduleFlush(rateWindowStart + RATE_WINDOW_MILLIS - System.currentTimeMillis());
+            return;
+        }
+        pendingLines.add(s);
+        if (!policy.isBatched() || pendingLines.size() >= policy.getMaxBatchLines()) {
+            flushConsole();
+        }
+        else {
+            scheduleFlush(policy.getFlushIntervalMillis());
+        }
+    }
+
+    /**
+     * Sends the pending lines and then {@code message}, which is never batched or dropped.
+     */
+    public synchronized void printError(String message) {
+        flushConsole();
+        notifySubscribers(new BPConsoleEvent(debuggerId, new ConsoleMessage(message, LogType.error)));
+    }
+
+    /**
+     * Sends the pending lines, and the count of the lines dropped since the previous flush.
+     */
+    public synchronized void flushConsole() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (pendingLines.isEmpty() && droppedLines == 0) {
+            return;
+        }
+        List<String> lines = new ArrayList<>(pendingLines);
+        if (droppedLines > 0) {
+            lines.add("... " + droppedLines + " lines dropped, the console is limited to " + consolePolicy.getMaxLinesPerSecond() + " lines per second");
+        }
+        ConsoleMessage consoleMessage = new ConsoleMessage(String.join("\n", lines), pendingLines.isEmpty() ? LogType.warning : LogType.log);
+        consoleMessage.setDroppedLines(droppedLines);
+        pendingLines.clear();
+        droppedLines = 0;
+        notifySubscribers(new BPConsoleEvent(debuggerId, consoleMessage));
+    }
+
+    public synchronized long getTotalDroppedLines() {
+        return totalDroppedLines;
+    }
+
+    private boolean isWithinRate(ConsolePolicy policy) {
+        if (policy.getMaxLinesPerSecond() == 0) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now - rateWindowStart >= RATE_WINDOW_MILLIS) {
+            rateWindowStart = now;
+            rateWindowLines = 0;
+        }
+        return ++rateWindowLines <= policy.getMaxLinesPerSecond();
+    }
+
+    private void scheduleFlush(long delayMillis) {
+        if (scheduledFlush == null) {
+            scheduledFlush = DebuggerRuntime.getInstance().scheduleOnce(this::flushConsole, Math.max(delayMillis, 0));
+        }
     }
 }
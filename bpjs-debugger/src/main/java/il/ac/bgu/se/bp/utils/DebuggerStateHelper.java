@@ -1,25 +1,25 @@
 package il.ac.bgu.se.bp.utils;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import il.ac.bgu.cs.bp.bpjs.model.BEvent;
 import il.ac.bgu.cs.bp.bpjs.model.BProgramSyncSnapshot;
 import il.ac.bgu.cs.bp.bpjs.model.BThreadSyncSnapshot;
 import il.ac.bgu.cs.bp.bpjs.model.SyncStatement;
 import il.ac.bgu.cs.bp.bpjs.model.eventsets.EventSet;
-import il.ac.bgu.cs.bp.bpjs.model.eventsets.JsEventSet;
 import il.ac.bgu.se.bp.debugger.BPJsDebugger;
 import il.ac.bgu.se.bp.debugger.DebuggerLevel;
 import il.ac.bgu.se.bp.debugger.RunnerState;
+import il.ac.bgu.se.bp.debugger.engine.DetachedDebugFrame;
 import il.ac.bgu.se.bp.debugger.engine.SyncSnapshotHolder;
+import il.ac.bgu.se.bp.execution.runtime.DebuggerMetrics;
+import il.ac.bgu.se.bp.rest.response.VariableExpansionResponse;
 import il.ac.bgu.se.bp.socket.state.*;
 import il.ac.bgu.se.bp.utils.logger.Logger;
 import il.ac.bgu.se.bp.utils.observer.BPEvent;
 import org.apache.commons.lang3.ArrayUtils;
 import org.mozilla.javascript.*;
+import org.mozilla.javascript.debug.DebugFrame;
 import org.mozilla.javascript.tools.debugger.Dim;
 
-import java.lang.reflect.Field;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -40,6 +40,7 @@ public class DebuggerStateHelper {
     private static final int FINAL_INDEX_FOR_EVENTS_HISTORY_ON_SYNC_STATE = 10;
     private BPJsDebugger bpJsDebugger;
     private DebuggerLevel debuggerLevel;
+    private final VariablePreviewer variablePreviewer = new VariablePreviewer();
 
     public DebuggerStateHelper(BPJsDebugger bpJsDebugger, SyncSnapshotHolder<BProgramSyncSnapshot, BEvent> syncSnapshotHolder, DebuggerLevel debuggerLevel) {
         this.bpJsDebugger = bpJsDebugger;
@@ -48,7 +49,9 @@ public class DebuggerStateHelper {
     }
 
     public BPDebuggerState generateDebuggerState(BProgramSyncSnapshot syncSnapshot, RunnerState state, Dim.ContextData lastContextData, Dim.SourceInfo sourceInfo) {
+        long start = System.nanoTime();
         lastState = generateDebuggerStateInner(syncSnapshot, state, lastContextData, sourceInfo);
+        DebuggerMetrics.getInstance().onStateGenerated(lastState, System.nanoTime() - start);
         return lastState;
     }
 
@@ -64,8 +67,7 @@ public class DebuggerStateHelper {
             return new boolean[0];
         }
         try {
-            boolean[] breakpoints = getValue(sourceInfo, "breakpoints");
-            return breakpoints;
+            return RhinoInternals.getBreakpoints(sourceInfo);
         } catch (Exception e) {
             logger.error("failed to get breakpoints, e: {0}", e, e.getMessage());
         }
@@ -92,8 +94,7 @@ public class DebuggerStateHelper {
 
         Object[] ids = Arrays.stream(syncSnapshot.getBProgram().getGlobalScope().getIds()).filter((p) -> !p.toString().equals("bp")).toArray();
         for (Object id : ids) {
-            Object jsValue = collectJsValue(syncSnapshot.getBProgram().getFromGlobalScope(id.toString(), Object.class).get());
-            String var_value = getVarGsonValue(jsValue);
+            String var_value = variablePreviewer.preview(syncSnapshot.getBProgram().getFromGlobalScope(id.toString(), Object.class).get());
             globalEnv.put(id.toString(), var_value);
         }
         return globalEnv;
@@ -168,7 +169,7 @@ public class DebuggerStateHelper {
         List<BThreadInfo> bThreadInfoList = new ArrayList<>();
         Context cx = Context.getCurrentContext();
         try {
-            Object lastInterpreterFrame = getValue(cx, "lastInterpreterFrame");
+            Object lastInterpreterFrame = RhinoInternals.getLastInterpreterFrame(cx);
             Object fnOrScript = lastInterpreterFrame == null ? null : getBaseFnOrScript(lastInterpreterFrame);
 
             for (Pair<String, Object> recentlyRegisteredPair : recentlyRegisteredBT) {
@@ -198,9 +199,9 @@ public class DebuggerStateHelper {
         try {
             while (parentFrame != null) {
                 frame = parentFrame;
-                parentFrame = getValue(frame, "parentFrame");
+                parentFrame = RhinoInternals.getParentFrame(frame);
             }
-            return getValue(frame, "fnOrScript");
+            return RhinoInternals.getFnOrScript(frame);
         } catch (Exception e) {
             logger.error("getBaseFnOrScript: failed e: {0}", e, e.getMessage());
             return null;
@@ -215,7 +216,7 @@ public class DebuggerStateHelper {
 
     private BThreadInfo createBThreadInfo(BThreadSyncSnapshot bThreadSS, RunnerState state, Dim.ContextData lastContextData, BProgramSyncSnapshot syncSnapshot) {
         try {
-            Object implementation = getValue(bThreadSS.getScope(), "implementation");
+            Object implementation = RhinoInternals.getContinuationImplementation(bThreadSS.getScope());
             Map<Integer, BThreadScope> env = state == null ? null :
                     (state.getDebuggerState() == RunnerState.State.JS_DEBUG && Context.getCurrentContext() != null) ? getEnvDebug(implementation, lastContextData, bThreadSS.getName()) :
                             getEnv(implementation);
@@ -244,12 +245,6 @@ public class DebuggerStateHelper {
         return null;
     }
 
-    private <T> T getValue(Object instance, String fieldName) throws NoSuchFieldException, IllegalAccessException {
-        Field fld = instance.getClass().getDeclaredField(fieldName);
-        fld.setAccessible(true);
-        return (T) fld.get(instance);
-    }
-
     /**
      * This function generating bthread env in JS debug state
      *
@@ -264,15 +259,15 @@ public class DebuggerStateHelper {
         Context cx = Context.getCurrentContext();
         boolean currentRunningBT;
         try {
-            Object cxInterpreterFrame = getValue(cx, "lastInterpreterFrame");
+            Object cxInterpreterFrame = RhinoInternals.getLastInterpreterFrame(cx);
             if (cxInterpreterFrame == null) {
                 return getEnv(interpreterCallFrame);
             }
-            Object myScope = getValue(interpreterCallFrame, "scope");
+            Object myScope = RhinoInternals.getScope(interpreterCallFrame);
             currentRunningBT = isScopesRelated(cxInterpreterFrame, myScope);
             Object parentFrame = interpreterCallFrame;
             if (currentRunningBT) { //current running BT
-                logger.info("currentRunningBT + " + btName);
+                logger.info("currentRunningBT: {0}", btName);
                 for (int i = 0; i < lastContextData.frameCount(); i++) {
                     ScriptableObject scope = (ScriptableObject) lastContextData.getFrame(i).scope();
                     env.put(i, getScope(scope, lastContextData.getFrame(i).getLineNumber()));
@@ -280,12 +275,12 @@ public class DebuggerStateHelper {
                 }
                 key = lastContextData.frameCount();
                 this.currentRunningBT = btName;
-                parentFrame = getValue(cxInterpreterFrame, "parentFrame");
+                parentFrame = RhinoInternals.getParentFrame(cxInterpreterFrame);
             }
 
             while (parentFrame != null) {
                 if (currentRunningBT) {
-                    Dim.StackFrame stackFrame = getValue(parentFrame, "debuggerFrame");
+                    Dim.StackFrame stackFrame = (Dim.StackFrame) RhinoInternals.getDebuggerFrame(parentFrame);
                     Dim.ContextData debuggerFrame = stackFrame.contextData();
                     if (debuggerFrame != lastContextData) {
                         for (int i = 0; i < debuggerFrame.frameCount(); i++) {
@@ -295,14 +290,13 @@ public class DebuggerStateHelper {
                         }
                     }
                 } else {
-                    ScriptableObject scope = getValue(parentFrame, "scope");
-                    Dim.StackFrame stackFrame = getValue(parentFrame, "debuggerFrame");
-                    env.put(key, getScope(scope, stackFrame.getLineNumber()));
+                    ScriptableObject scope = (ScriptableObject) RhinoInternals.getScope(parentFrame);
+                    env.put(key, getScope(scope, getLineNumber(parentFrame)));
                     key++;
                 }
-                parentFrame = getValue(parentFrame, "parentFrame");
+                parentFrame = RhinoInternals.getParentFrame(parentFrame);
             }
-        } catch (NoSuchFieldException | IllegalAccessException e) {
+        } catch (ClassCastException e) {
             logger.error("getEnvDebug: failed to get env, e: {0}", e, e.getMessage());
         }
         return env;
@@ -313,10 +307,10 @@ public class DebuggerStateHelper {
         Object parentFrame = cxInterpreterFrame;
         try {
             while (parentFrame != null) {
-                scope = getValue(parentFrame, "scope");
+                scope = RhinoInternals.getScope(parentFrame);
                 if (scope == myScope)
                     return true;
-                parentFrame = getValue(parentFrame, "parentFrame");
+                parentFrame = RhinoInternals.getParentFrame(parentFrame);
             }
             return false;
         } catch (Exception e) {
@@ -329,16 +323,14 @@ public class DebuggerStateHelper {
         Map<Integer, BThreadScope> env = new HashMap<>();
         int key = 0;
         try {
-            ScriptableObject scope = getValue(interpreterCallFrame, "scope");
-            Dim.StackFrame stackFrame = getValue(interpreterCallFrame, "debuggerFrame");
-            env.put(key++, getScope(scope, stackFrame.getLineNumber()));
-            Object parentFrame = getValue(interpreterCallFrame, "parentFrame");
+            ScriptableObject scope = (ScriptableObject) RhinoInternals.getScope(interpreterCallFrame);
+            env.put(key++, getScope(scope, getLineNumber(interpreterCallFrame)));
+            Object parentFrame = RhinoInternals.getParentFrame(interpreterCallFrame);
             while (parentFrame != null) {
-                scope = getValue(parentFrame, "scope");
-                stackFrame = getValue(parentFrame, "debuggerFrame");
-                env.put(key, getScope(scope, stackFrame.getLineNumber()));
+                scope = (ScriptableObject) RhinoInternals.getScope(parentFrame);
+                env.put(key, getScope(scope, getLineNumber(parentFrame)));
                 key++;
-                parentFrame = getValue(parentFrame, "parentFrame");
+                parentFrame = RhinoInternals.getParentFrame(parentFrame);
             }
         } catch (Exception e) {
             logger.error("getEnv: failed to get env, e: {0}", e, e.getMessage());
@@ -346,86 +338,41 @@ public class DebuggerStateHelper {
         return env;
     }
 
+    /**
+     * Frames of snapshots read back from bytes keep their line in a {@link DetachedDebugFrame} until the debugger is attached to them.
+     */
+    private int getLineNumber(Object interpreterFrame) {
+        DebugFrame debuggerFrame = RhinoInternals.getDebuggerFrame(interpreterFrame);
+        return debuggerFrame instanceof DetachedDebugFrame ? ((DetachedDebugFrame) debuggerFrame).getLineNumber() :
+                ((Dim.StackFrame) debuggerFrame).getLineNumber();
+    }
+
     private BThreadScope getScope(ScriptableObject scope, int lineNumber) {
         Map<String, String> variables = new LinkedHashMap<>();
         try {
-            Object function = getValue(scope, "function");
-            Object interpretedData = getValue(function, "idata");
-            String itsName = getValue(interpretedData, "itsName");
+            String itsName = RhinoInternals.getFunctionName(scope);
             Object[] ids = Arrays.stream(scope.getIds()).filter((p) -> !p.toString().equals("arguments") && !p.toString().equals(itsName + "param")).toArray();
             for (Object id : ids) {
-                Object jsValue = collectJsValue(scope.get(id));
-                String var_value = getVarGsonValue(jsValue);
+                String var_value = variablePreviewer.preview(scope.get(id));
                 variables.put(id.toString(), var_value);
             }
             return new BThreadScope(itsName != null ? itsName : "BTMain", String.valueOf(lineNumber), variables);
-        } catch (NoSuchFieldException | IllegalAccessException e) {
+        } catch (ClassCastException e) {
             logger.error("failed to get scope, e: {0}", e, e.getMessage());
         }
         return null;
     }
 
-    private String getVarGsonValue(Object jsValue) {
-        if (jsValue instanceof JsEventSet)
-            return Objects.toString(jsValue);
-        GsonBuilder gsonBuilder = new GsonBuilder();
-        gsonBuilder.serializeSpecialFloatingPointValues();
-        Gson gson = gsonBuilder.create();
-        try {
-            return gson.toJson(jsValue);
-        } catch (Exception e) {
-            logger.error("getVarGsonValue Error: jsValue: {0}, error: {1} ", e, jsValue, e.getMessage());
-            return null;
-        }
-    }
-
     public BPDebuggerState getLastState() {
         return lastState;
     }
 
-    /**
-     * Take a Javascript value from Rhino, build a Java value for it.
-     *
-     * @param jsValue
-     * @return
-     */
-    private Object collectJsValue(Object jsValue) {
-        if (jsValue == null) {
-            return null;
-        } else if (jsValue instanceof NativeFunction) {
-            return ((NativeFunction) jsValue).getTypeOf();
-        } else if (jsValue instanceof ArrowFunction) {
-            return ((ArrowFunction) jsValue).getTypeOf();
-        } else if (jsValue instanceof NativeArray) {
-            NativeArray jsArr = (NativeArray) jsValue;
-            List<Object> retVal = new ArrayList<>((int) jsArr.getLength());
-            for (int idx = 0; idx < jsArr.getLength(); idx++) {
-                retVal.add(collectJsValue(jsArr.get(idx)));
-            }
-            return retVal;
-        } else if (jsValue instanceof ScriptableObject) {
-            ScriptableObject jsObj = (ScriptableObject) jsValue;
-            Map<Object, Object> retVal = new HashMap<>();
-            for (Object key : jsObj.getIds()) {
-                retVal.put(key, collectJsValue(jsObj.get(key)));
-            }
-            return retVal;
-        } else if (jsValue instanceof ConsString) {
-            return ((ConsString) jsValue).toString();
-        } else if (jsValue instanceof NativeJavaObject) {
-            NativeJavaObject jsJavaObj = (NativeJavaObject) jsValue;
-            return jsJavaObj.unwrap();
-        } else {
-            return jsValue;
-        }
-    }
-
     public void setRecentlyRegisteredBThreads(Set<Pair<String, Object>> recentlyRegistered) {
         this.recentlyRegisteredBT = recentlyRegistered;
     }
 
-    public BPDebuggerState peekNextState(BProgramSyncSnapshot syncSnapshot, RunnerState state, Dim.ContextData lastContextData, Dim.SourceInfo sourceInfo) {
-        return generateDebuggerStateInner(syncSnapshot, state, lastContextData, sourceInfo);
+    public VariableExpansionResponse expandVariable(long handle, int from, int count) {
+        return variablePreviewer.expand(handle, from, count);
     }
 
     public void updateCurrentEvent(String name) {
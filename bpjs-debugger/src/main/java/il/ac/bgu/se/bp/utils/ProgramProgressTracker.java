@@ -0,0 +1,38 @@
+package il.ac.bgu.se.bp.utils;
+
+import il.ac.bgu.se.bp.socket.progress.ProgramProgress;
+
+/**
+ * Counts selected events of a headless run and decides when a progress record is due.
+ */
+public class ProgramProgressTracker {
+    private final long reportIntervalMillis;
+
+    private long eventsSelected = 0;
+    private long eventsSelectedOnLastReport = 0;
+    private long lastReportTime;
+    private String currentEvent = null;
+
+    public ProgramProgressTracker(long reportIntervalMillis) {
+        this.reportIntervalMillis = reportIntervalMillis;
+        this.lastReportTime = System.currentTimeMillis();
+    }
+
+    /**
+     * @return true if a progress record should be sent
+     */
+    public boolean onEventSelected(String eventName) {
+        eventsSelected++;
+        currentEvent = eventName;
+        return System.currentTimeMillis() - lastReportTime >= reportIntervalMillis;
+    }
+
+    public ProgramProgress createProgress(String violation) {
+        long now = System.currentTimeMillis();
+        long elapsed = Math.max(1, now - lastReportTime);
+        double eventsPerSecond = (eventsSelected - eventsSelectedOnLastReport) * 1000.0 / elapsed;
+        lastReportTime = now;
+        eventsSelectedOnLastReport = eventsSelected;
+        return new ProgramProgress(eventsSelected, eventsPerSecond, currentEvent, violation);
+    }
+}
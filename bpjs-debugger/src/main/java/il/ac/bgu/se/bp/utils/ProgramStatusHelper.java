@@ -9,7 +9,7 @@ public class ProgramStatusHelper {
         if (DebuggerLevel.NORMAL.equals(debuggerLevel)) {
             return Status.DEBUG;
         }
-        else if (DebuggerLevel.LIGHT.equals(debuggerLevel)) {
+        else if (DebuggerLevel.LIGHT.equals(debuggerLevel) || DebuggerLevel.THROUGHPUT.equals(debuggerLevel)) {
             return Status.RUN;
         }
         return null;
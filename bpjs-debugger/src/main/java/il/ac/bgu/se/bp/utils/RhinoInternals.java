@@ -0,0 +1,174 @@
+package il.ac.bgu.se.bp.utils;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ImplementationVersion;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.debug.DebugFrame;
+import org.mozilla.javascript.debug.DebuggableScript;
+import org.mozilla.javascript.tools.debugger.Dim;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * Reads the Rhino interpreter internals the debugger state is built from (interpreter call frames, call scopes,
+ * continuations and debugger source infos), and writes the debugger frames of call frames restored from serialized snapshots.
+ * The fields are resolved and type checked once, when the class is loaded, and accessed through method handles afterwards.
+ * Loading fails with an {@link IllegalStateException} if the Rhino on the classpath does not have them.
+ */
+public class RhinoInternals {
+    private static final String SUPPORTED_RHINO_VERSION = "1.7.13";
+
+    private static final String CALL_FRAME = "org.mozilla.javascript.Interpreter$CallFrame";
+    private static final String NATIVE_CALL = "org.mozilla.javascript.NativeCall";
+    private static final String NATIVE_CONTINUATION = "org.mozilla.javascript.NativeContinuation";
+    private static final String NATIVE_FUNCTION = "org.mozilla.javascript.NativeFunction";
+    private static final String INTERPRETED_FUNCTION = "org.mozilla.javascript.InterpretedFunction";
+    private static final String INTERPRETER_DATA = "org.mozilla.javascript.InterpreterData";
+
+    private static final MethodHandle CONTINUATION_IMPLEMENTATION;
+    private static final MethodHandle LAST_INTERPRETER_FRAME;
+    private static final MethodHandle PARENT_FRAME;
+    private static final MethodHandle SCOPE;
+    private static final MethodHandle DEBUGGER_FRAME;
+    private static final MethodHandle SET_DEBUGGER_FRAME;
+    private static final MethodHandle FRAME_DATA;
+    private static final MethodHandle FN_OR_SCRIPT;
+    private static final MethodHandle CALL_FUNCTION;
+    private static final MethodHandle FUNCTION_DATA;
+    private static final MethodHandle FUNCTION_NAME;
+    private static final MethodHandle BREAKPOINTS;
+    private static final MethodHandle SET_LINE_NUMBER;
+
+    static {
+        try {
+            CONTINUATION_IMPLEMENTATION = getter(NATIVE_CONTINUATION, "implementation", Object.class.getName());
+            LAST_INTERPRETER_FRAME = getter(Context.class.getName(), "lastInterpreterFrame", Object.class.getName());
+            PARENT_FRAME = getter(CALL_FRAME, "parentFrame", CALL_FRAME);
+            SCOPE = getter(CALL_FRAME, "scope", Scriptable.class.getName());
+            DEBUGGER_FRAME = getter(CALL_FRAME, "debuggerFrame", DebugFrame.class.getName());
+            SET_DEBUGGER_FRAME = setter(CALL_FRAME, "debuggerFrame", DebugFrame.class.getName());
+            FRAME_DATA = getter(CALL_FRAME, "idata", INTERPRETER_DATA);
+            FN_OR_SCRIPT = getter(CALL_FRAME, "fnOrScript", INTERPRETED_FUNCTION);
+            CALL_FUNCTION = getter(NATIVE_CALL, "function", NATIVE_FUNCTION);
+            FUNCTION_DATA = getter(INTERPRETED_FUNCTION, "idata", INTERPRETER_DATA);
+            FUNCTION_NAME = getter(INTERPRETER_DATA, "itsName", String.class.getName());
+            BREAKPOINTS = getter(Dim.SourceInfo.class.getName(), "breakpoints", boolean[].class.getName());
+            SET_LINE_NUMBER = setter(Dim.StackFrame.class.getName(), "lineNumber", int.class.getName());
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException("unsupported Rhino version " + ImplementationVersion.get() +
+                    ", the debugger requires Rhino " + SUPPORTED_RHINO_VERSION + ": " + e.getMessage(), e);
+        }
+    }
+
+    private RhinoInternals() {
+    }
+
+    /**
+     * Makes sure the Rhino internals could be resolved, so that a mismatching Rhino version fails on startup
+     * rather than on the first debugger state.
+     */
+    public static void verify() {
+    }
+
+    /**
+     * @return the interpreter call frame a b-thread continuation resumes from
+     */
+    public static Object getContinuationImplementation(Object continuation) {
+        return get(CONTINUATION_IMPLEMENTATION, continuation);
+    }
+
+    public static Object getLastInterpreterFrame(Context cx) {
+        return get(LAST_INTERPRETER_FRAME, cx);
+    }
+
+    public static Object getParentFrame(Object interpreterFrame) {
+        return get(PARENT_FRAME, interpreterFrame);
+    }
+
+    public static Scriptable getScope(Object interpreterFrame) {
+        return (Scriptable) get(SCOPE, interpreterFrame);
+    }
+
+    public static DebugFrame getDebuggerFrame(Object interpreterFrame) {
+        return (DebugFrame) get(DEBUGGER_FRAME, interpreterFrame);
+    }
+
+    /**
+     * The field is final in Rhino, it is written only to call frames that were just deserialized and not resumed yet.
+     */
+    public static void setDebuggerFrame(Object interpreterFrame, DebugFrame debuggerFrame) {
+        set(SET_DEBUGGER_FRAME, interpreterFrame, debuggerFrame);
+    }
+
+    /**
+     * @return the compiled script or function the interpreter call frame runs
+     */
+    public static DebuggableScript getFrameData(Object interpreterFrame) {
+        return (DebuggableScript) get(FRAME_DATA, interpreterFrame);
+    }
+
+    public static Object getFnOrScript(Object interpreterFrame) {
+        return get(FN_OR_SCRIPT, interpreterFrame);
+    }
+
+    /**
+     * @return the name of the interpreted function that created the call scope, null for anonymous functions
+     */
+    public static String getFunctionName(Scriptable callScope) {
+        Object function = get(CALL_FUNCTION, callScope);
+        return (String) get(FUNCTION_NAME, get(FUNCTION_DATA, function));
+    }
+
+    public static boolean[] getBreakpoints(Dim.SourceInfo sourceInfo) {
+        return (boolean[]) get(BREAKPOINTS, sourceInfo);
+    }
+
+    public static void setLineNumber(Dim.StackFrame stackFrame, int lineNumber) {
+        set(SET_LINE_NUMBER, stackFrame, lineNumber);
+    }
+
+    /**
+     * @throws ClassCastException if the instance is not of the class declaring the field
+     */
+    private static Object get(MethodHandle getter, Object instance) {
+        try {
+            return (Object) getter.invokeExact(instance);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private static void set(MethodHandle setter, Object instance, Object value) {
+        try {
+            setter.invokeExact(instance, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private static MethodHandle getter(String className, String fieldName, String fieldTypeName) throws ReflectiveOperationException {
+        return MethodHandles.lookup().unreflectGetter(field(className, fieldName, fieldTypeName))
+                .asType(MethodType.methodType(Object.class, Object.class));
+    }
+
+    private static MethodHandle setter(String className, String fieldName, String fieldTypeName) throws ReflectiveOperationException {
+        return MethodHandles.lookup().unreflectSetter(field(className, fieldName, fieldTypeName))
+                .asType(MethodType.methodType(void.class, Object.class, Object.class));
+    }
+
+    private static Field field(String className, String fieldName, String fieldTypeName) throws ReflectiveOperationException {
+        Field field = Class.forName(className, false, Context.class.getClassLoader()).getDeclaredField(fieldName);
+        if (!field.getType().getName().equals(fieldTypeName)) {
+            throw new NoSuchFieldException(className + "." + fieldName + " is of type " + field.getType().getName() + " instead of " + fieldTypeName);
+        }
+        field.setAccessible(true);
+        return field;
+    }
+}
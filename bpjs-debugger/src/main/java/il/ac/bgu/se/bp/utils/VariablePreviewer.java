@@ -0,0 +1,388 @@
+package il.ac.bgu.se.bp.utils;
+
+import com.google.gson.stream.JsonWriter;
+import il.ac.bgu.cs.bp.bpjs.model.eventsets.JsEventSet;
+import il.ac.bgu.se.bp.rest.response.VariableExpansionResponse;
+import il.ac.bgu.se.bp.utils.logger.Logger;
+import org.mozilla.javascript.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns JS values into the JSON previews shown in the debugger state.
+ * Objects and arrays are written up to {@code previewDepth} levels and {@code previewEntries} entries each. An object or array that
+ * is cut, or that refers back to one being written, is written as a reference: {"$handle": h, "$type": "array", "$size": n},
+ * with its first entries under "$entries" when only its size was cut.
+ * The handle of a JS object stays the same while it is remembered, so it can be expanded later, one level at a time.
+ * Java values are written the same way, from their collection entries, map entries or fields, but their references have no
+ * handle, they cannot be expanded.
+ * Properties with a getter or setter are written as "(accessor)", their getters are not called.
+ */
+public class VariablePreviewer {
+    private static final Logger logger = new Logger(VariablePreviewer.class);
+
+    public static final int DEFAULT_PREVIEW_DEPTH = 2;
+    public static final int DEFAULT_PREVIEW_ENTRIES = 20;
+    public static final int MAX_EXPANSION_ENTRIES = 500;
+    private static final int MAX_HANDLES = 10_000;
+
+    private static final String ARRAY_TYPE = "array";
+    private static final String OBJECT_TYPE = "object";
+    private static final String ACCESSOR_VALUE = "(accessor)";
+
+    private static final Map<Class<?>, Optional<List<Field>>> fieldsByClass = new ConcurrentHashMap<>();
+
+    private final int previewDepth;
+    private final int previewEntries;
+
+    private final Map<ScriptableObject, Long> handlesByValue = new IdentityHashMap<>();
+    private final LinkedHashMap<Long, ScriptableObject> valuesByHandle = new LinkedHashMap<Long, ScriptableObject>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, ScriptableObject> eldest) {
+            if (size() <= MAX_HANDLES) {
+                return false;
+            }
+            handlesByValue.remove(eldest.getValue());
+            return true;
+        }
+    };
+    private final Set<Object> valuesBeingWritten = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long nextHandle = 1;
+
+    private final StringWriter buffer = new StringWriter();
+    private JsonWriter jsonWriter;
+
+    public VariablePreviewer() {
+        this(DEFAULT_PREVIEW_DEPTH, DEFAULT_PREVIEW_ENTRIES);
+    }
+
+    public VariablePreviewer(int previewDepth, int previewEntries) {
+        this.previewDepth = previewDepth;
+        this.previewEntries = previewEntries;
+        resetWriter();
+    }
+
+    /**
+     * @return the JSON preview of the value, or null if it could not be written
+     */
+    public synchronized String preview(Object jsValue) {
+        if (jsValue instanceof NativeJavaObject && ((NativeJavaObject) jsValue).unwrap() instanceof JsEventSet) {
+            return Objects.toString(((NativeJavaObject) jsValue).unwrap());
+        }
+        try {
+            writeValue(jsValue, previewDepth);
+            return flush();
+        } catch (IOException | RuntimeException e) {
+            logger.error("failed to preview jsValue: {0}, error: {1}", e, jsValue, e.getMessage());
+            resetWriter();
+            return null;
+        }
+    }
+
+    /**
+     * Must be called while the program is paused, on the thread it is paused on or its bp lane, as it reads live JS objects.
+     *
+     * @return up to {@code count} entries of the object or array with the given handle, starting at entry {@code from},
+     * or null if the handle is unknown
+     */
+    public synchronized VariableExpansionResponse expand(long handle, int from, int count) {
+        ScriptableObject jsValue = valuesByHandle.get(handle);
+        if (jsValue == null) {
+            return null;
+        }
+        Object[] ids = getIds(jsValue);
+        int size = getSize(jsValue, ids);
+        int start = Math.max(0, Math.min(from, size));
+        int end = start + Math.max(0, Math.min(count, Math.min(MAX_EXPANSION_ENTRIES, size - start)));
+
+        Map<String, String> entries = new LinkedHashMap<>();
+        Context.enter();
+        try {
+            for (int i = start; i < end; i++) {
+                writeValue(getEntry(jsValue, ids, i), 0);
+                entries.put(getKey(ids, i), flush());
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("failed to expand handle: {0}, error: {1}", e, handle, e.getMessage());
+            resetWriter();
+        } finally {
+            Context.exit();
+        }
+        return new VariableExpansionResponse(handle, getType(jsValue), size, start, entries);
+    }
+
+    private void writeValue(Object jsValue, int depth) throws IOException {
+        if (jsValue == null) {
+            jsonWriter.nullValue();
+        } else if (jsValue instanceof NativeFunction) {
+            jsonWriter.value(((NativeFunction) jsValue).getTypeOf());
+        } else if (jsValue instanceof ArrowFunction) {
+            jsonWriter.value(((ArrowFunction) jsValue).getTypeOf());
+        } else if (jsValue instanceof ScriptableObject) {
+            writeScriptable((ScriptableObject) jsValue, depth);
+        } else if (jsValue instanceof ConsString) {
+            jsonWriter.value(jsValue.toString());
+        } else if (jsValue instanceof NativeJavaObject) {
+            writeJavaValue(((NativeJavaObject) jsValue).unwrap(), depth);
+        } else {
+            writeJavaValue(jsValue, depth);
+        }
+    }
+
+    private void writeScriptable(ScriptableObject jsValue, int depth) throws IOException {
+        Object[] ids = getIds(jsValue);
+        int size = getSize(jsValue, ids);
+        if (depth == 0 || valuesBeingWritten.contains(jsValue)) {
+            writeReference(jsValue, size);
+            jsonWriter.endObject();
+            return;
+        }
+
+        boolean isArray = ids == null;
+        boolean isCut = size > previewEntries;
+        if (isCut) {
+            writeReference(jsValue, size);
+            jsonWriter.name("$entries");
+        }
+        valuesBeingWritten.add(jsValue);
+        try {
+            if (isArray) {
+                jsonWriter.beginArray();
+            } else {
+                jsonWriter.beginObject();
+            }
+            for (int i = 0; i < size && i < previewEntries; i++) {
+                if (!isArray) {
+                    jsonWriter.name(getKey(ids, i));
+                }
+                writeValue(getEntry(jsValue, ids, i), depth - 1);
+            }
+            if (isArray) {
+                jsonWriter.endArray();
+            } else {
+                jsonWriter.endObject();
+            }
+        } finally {
+            valuesBeingWritten.remove(jsValue);
+        }
+        if (isCut) {
+            jsonWriter.endObject();
+        }
+    }
+
+    private void writeJavaValue(Object javaValue, int depth) throws IOException {
+        if (javaValue == null) {
+            jsonWriter.nullValue();
+        } else if (javaValue instanceof ScriptableObject || javaValue instanceof NativeJavaObject) {
+            writeValue(javaValue, depth);
+        } else if (javaValue instanceof CharSequence || javaValue instanceof Character) {
+            jsonWriter.value(javaValue.toString());
+        } else if (javaValue instanceof Number) {
+            jsonWriter.value((Number) javaValue);
+        } else if (javaValue instanceof Boolean) {
+            jsonWriter.value((Boolean) javaValue);
+        } else if (javaValue instanceof Enum) {
+            jsonWriter.value(((Enum<?>) javaValue).name());
+        } else if (javaValue instanceof JsEventSet) { // its predicate is a JS function that refers back to its scope
+            jsonWriter.value(javaValue.toString());
+        } else if (javaValue instanceof Map) {
+            writeJavaEntries(javaValue, ((Map<?, ?>) javaValue).entrySet().iterator(), ((Map<?, ?>) javaValue).size(), false, depth);
+        } else if (javaValue instanceof Collection) {
+            writeJavaEntries(javaValue, ((Collection<?>) javaValue).iterator(), ((Collection<?>) javaValue).size(), true, depth);
+        } else if (javaValue.getClass().isArray()) {
+            writeJavaEntries(javaValue, new ArrayIterator(javaValue), Array.getLength(javaValue), true, depth);
+        } else {
+            Optional<List<Field>> fields = getFields(javaValue.getClass());
+            if (fields.isPresent()) {
+                writeJavaEntries(javaValue, fields.get().iterator(), fields.get().size(), false, depth);
+            } else {
+                jsonWriter.value(javaValue.toString());
+            }
+        }
+    }
+
+    /**
+     * @param entries the items of an array, or the map entries or fields of an object
+     */
+    private void writeJavaEntries(Object javaValue, Iterator<?> entries, int size, boolean isArray, int depth) throws IOException {
+        if (depth == 0 || valuesBeingWritten.contains(javaValue)) {
+            writeJavaReference(isArray, size);
+            jsonWriter.endObject();
+            return;
+        }
+
+        boolean isCut = size > previewEntries;
+        if (isCut) {
+            writeJavaReference(isArray, size);
+            jsonWriter.name("$entries");
+        }
+        valuesBeingWritten.add(javaValue);
+        try {
+            if (isArray) {
+                jsonWriter.beginArray();
+            } else {
+                jsonWriter.beginObject();
+            }
+            for (int i = 0; i < previewEntries && entries.hasNext(); i++) {
+                Object entry = entries.next();
+                if (isArray) {
+                    writeJavaValue(entry, depth - 1);
+                } else if (entry instanceof Map.Entry) {
+                    jsonWriter.name(String.valueOf(((Map.Entry<?, ?>) entry).getKey()));
+                    writeJavaValue(((Map.Entry<?, ?>) entry).getValue(), depth - 1);
+                } else {
+                    jsonWriter.name(((Field) entry).getName());
+                    writeJavaValue(getFieldValue((Field) entry, javaValue), depth - 1);
+                }
+            }
+            if (isArray) {
+                jsonWriter.endArray();
+            } else {
+                jsonWriter.endObject();
+            }
+        } finally {
+            valuesBeingWritten.remove(javaValue);
+        }
+        if (isCut) {
+            jsonWriter.endObject();
+        }
+    }
+
+    private void writeJavaReference(boolean isArray, int size) throws IOException {
+        jsonWriter.beginObject();
+        jsonWriter.name("$type").value(isArray ? ARRAY_TYPE : OBJECT_TYPE);
+        jsonWriter.name("$size").value(size);
+    }
+
+    /**
+     * @return the instance fields of the class and its superclasses, or empty if they cannot be read, as for JDK classes
+     */
+    private static Optional<List<Field>> getFields(Class<?> javaClass) {
+        return fieldsByClass.computeIfAbsent(javaClass, c -> {
+            List<Field> fields = new ArrayList<>();
+            try {
+                for (Class<?> current = c; current != null && current != Object.class; current = current.getSuperclass()) {
+                    for (Field field : current.getDeclaredFields()) {
+                        if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers()) && !field.isSynthetic()) {
+                            field.setAccessible(true);
+                            fields.add(field);
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                return Optional.empty();
+            }
+            return Optional.of(fields);
+        });
+    }
+
+    private static Object getFieldValue(Field field, Object javaValue) {
+        try {
+            return field.get(javaValue);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private void writeReference(ScriptableObject jsValue, int size) throws IOException {
+        jsonWriter.beginObject();
+        jsonWriter.name("$handle").value(getHandle(jsValue));
+        jsonWriter.name("$type").value(getType(jsValue));
+        jsonWriter.name("$size").value(size);
+    }
+
+    private long getHandle(ScriptableObject jsValue) {
+        Long handle = handlesByValue.get(jsValue);
+        if (handle == null) {
+            handle = nextHandle++;
+            handlesByValue.put(jsValue, handle);
+        }
+        valuesByHandle.put(handle, jsValue);
+        return handle;
+    }
+
+    private static String getType(Object jsValue) {
+        return jsValue instanceof NativeArray ? ARRAY_TYPE : OBJECT_TYPE;
+    }
+
+    /**
+     * @return the ids of the object, or null for arrays, whose entries are read by index
+     */
+    private static Object[] getIds(ScriptableObject jsValue) {
+        return jsValue instanceof NativeArray ? null : jsValue.getIds();
+    }
+
+    private static int getSize(ScriptableObject jsValue, Object[] ids) {
+        return ids == null ? (int) Math.min(((NativeArray) jsValue).getLength(), Integer.MAX_VALUE) : ids.length;
+    }
+
+    private static String getKey(Object[] ids, int index) {
+        return ids == null ? String.valueOf(index) : String.valueOf(ids[index]);
+    }
+
+    /**
+     * @return the value of the entry, or {@link #ACCESSOR_VALUE} for a property with a getter or setter, which is not called
+     */
+    private static Object getEntry(ScriptableObject jsValue, Object[] ids, int index) {
+        Object id = ids == null ? index : ids[index];
+        String name = id instanceof String ? (String) id : null;
+        int slotIndex = id instanceof Integer ? (Integer) id : 0;
+        if (name == null && !(id instanceof Integer)) {
+            return null;
+        }
+        if (isAccessor(jsValue.getGetterOrSetter(name, slotIndex, false)) || isAccessor(jsValue.getGetterOrSetter(name, slotIndex, true))) {
+            return ACCESSOR_VALUE;
+        }
+        Object value = name != null ? jsValue.get(name, jsValue) : jsValue.get(slotIndex, jsValue);
+        if (value == Scriptable.NOT_FOUND || value == Undefined.instance) {
+            return null;
+        }
+        return value instanceof Wrapper ? ((Wrapper) value).unwrap() : value;
+    }
+
+    private static boolean isAccessor(Object getterOrSetter) {
+        return getterOrSetter != null && getterOrSetter != Undefined.instance;
+    }
+
+    private String flush() throws IOException {
+        jsonWriter.flush();
+        String json = buffer.toString();
+        buffer.getBuffer().setLength(0);
+        return json;
+    }
+
+    private void resetWriter() {
+        buffer.getBuffer().setLength(0);
+        jsonWriter = new JsonWriter(buffer);
+        jsonWriter.setLenient(true);
+        jsonWriter.setHtmlSafe(true);
+    }
+
+    private static class ArrayIterator implements Iterator<Object> {
+        private final Object array;
+        private int index;
+
+        private ArrayIterator(Object array) {
+            this.array = array;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < Array.getLength(array);
+        }
+
+        @Override
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return Array.get(array, index++);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import il.ac.bgu.cs.bp.bpjs.model.ResourceBProgram;
 import il.ac.bgu.se.bp.debugger.BPJsDebugger;
 import il.ac.bgu.se.bp.debugger.DebuggerLevel;
 import il.ac.bgu.se.bp.debugger.RunnerState;
+import il.ac.bgu.se.bp.debugger.commands.StepOver;
 import il.ac.bgu.se.bp.debugger.engine.events.BPStateEvent;
 import il.ac.bgu.se.bp.debugger.engine.events.ProgramStatusEvent;
 import il.ac.bgu.se.bp.execution.manage.ProgramValidatorImpl;
@@ -22,6 +23,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.Spy;
 import org.mockito.internal.util.reflection.FieldSetter;
+import org.mozilla.javascript.ContextFactory;
 
 import java.util.*;
 import java.util.concurrent.ArrayBlockingQueue;
@@ -32,6 +34,8 @@ import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 public class DebuggerEngineImplTest {
 
@@ -68,7 +72,7 @@ public class DebuggerEngineImplTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
-        debuggerEngine = new DebuggerEngineImpl(debuggerId, TEST_FILENAME, state, debuggerStateHelper, "debuggerTestId");
+        debuggerEngine = new DebuggerEngineImpl(debuggerId, TEST_FILENAME, state, debuggerStateHelper, ContextFactory.getGlobal());
         debuggerEngine.changeDebuggerLevel(DebuggerLevel.NORMAL);
         setMockPublisher();
         onStateChangedQueue.clear();
@@ -107,7 +111,6 @@ public class DebuggerEngineImplTest {
 
         doCallRealMethod().when(debuggerStateHelper).setRecentlyRegisteredBThreads(any());
         doCallRealMethod().when(debuggerStateHelper).getLastState();
-        doCallRealMethod().when(debuggerStateHelper).peekNextState(any(), any(), any(), any());
         doCallRealMethod().when(debuggerStateHelper).cleanFields();
 
 //TODO: fix
@@ -152,6 +155,19 @@ public class DebuggerEngineImplTest {
 //        assertEquals(expectedState, state);
     }
 
+    @Test
+    public void testStateIsGeneratedOnlyAfterChange() throws Exception {
+        debuggerEngine.onStateChanged();
+        debuggerEngine.addCommand(new StepOver());
+        debuggerEngine.dispatchNextGuiEvent();
+        verify(debuggerStateHelper, times(1)).generateDebuggerState(any(), any(), any(), any());
+
+        debuggerEngine.toggleMuteBreakpoints(true);
+        debuggerEngine.addCommand(new StepOver());
+        debuggerEngine.dispatchNextGuiEvent();
+        verify(debuggerStateHelper, times(2)).generateDebuggerState(any(), any(), any(), any());
+    }
+
     private <T> Void onStateChangedTester(T event) {
         if (event instanceof BPStateEvent) {
             BPStateEvent bpStateEvent = castToMyType(event);
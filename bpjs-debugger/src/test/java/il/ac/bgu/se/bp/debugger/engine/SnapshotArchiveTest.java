@@ -0,0 +1,71 @@
+package il.ac.bgu.se.bp.debugger.engine;
+
+import il.ac.bgu.cs.bp.bpjs.BPjs;
+import il.ac.bgu.cs.bp.bpjs.model.BEvent;
+import il.ac.bgu.cs.bp.bpjs.model.BProgram;
+import il.ac.bgu.cs.bp.bpjs.model.BProgramSyncSnapshot;
+import il.ac.bgu.cs.bp.bpjs.model.StringBProgram;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+
+import static il.ac.bgu.cs.bp.bpjs.model.StorageModificationStrategy.PASSTHROUGH;
+import static org.junit.Assert.*;
+
+public class SnapshotArchiveTest {
+
+    private static final String COUNTER_PROGRAM = "bp.registerBThread('counter', function() {" +
+            "  for (var i = 0; i < 5; i++) { bp.sync({request: bp.Event('e' + i)}); }" +
+            "});";
+
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        executorService = BPjs.getExecutorServiceMaker().makeWithName("SnapshotArchiveTest");
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void deflatedArchiveRoundTripTest() throws Exception {
+        BProgram bprog = new StringBProgram(COUNTER_PROGRAM);
+        BProgramSyncSnapshot snapshot = bprog.setup().start(executorService, PASSTHROUGH);
+        snapshot = snapshot.triggerEvent(new BEvent("e0"), executorService, Collections.emptyList(), PASSTHROUGH);
+        byte[] archiveBytes = writeArchive(bprog, snapshot, true);
+
+        BProgram importedBProg = new StringBProgram(COUNTER_PROGRAM);
+        importedBProg.setup();
+        try (SnapshotArchive snapshotArchive = SnapshotArchive.read(new ByteArrayInputStream(archiveBytes), archiveBytes.length * 100L)) {
+            assertEquals(new SnapshotManifest(COUNTER_PROGRAM, 42), snapshotArchive.getManifest());
+            BProgramSyncSnapshot imported = new SyncSnapshotCodec(importedBProg).deserialize(snapshotArchive.getPayload());
+            assertEquals("e1", imported.getStatements().iterator().next().getRequest().iterator().next().getName());
+        }
+    }
+
+    @Test(expected = SnapshotSizeExceededException.class)
+    public void oversizedArchiveIsRejectedTest() throws Exception {
+        BProgram bprog = new StringBProgram(COUNTER_PROGRAM);
+        BProgramSyncSnapshot snapshot = bprog.setup().start(executorService, PASSTHROUGH);
+        byte[] archiveBytes = writeArchive(bprog, snapshot, false);
+
+        try (SnapshotArchive snapshotArchive = SnapshotArchive.read(new ByteArrayInputStream(archiveBytes), archiveBytes.length / 2)) {
+            new SyncSnapshotCodec(bprog).deserialize(snapshotArchive.getPayload());
+        }
+    }
+
+    private static byte[] writeArchive(BProgram bprog, BProgramSyncSnapshot snapshot, boolean isDeflate) throws Exception {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        SnapshotArchive.write(archive, new SnapshotManifest(COUNTER_PROGRAM, 42), isDeflate,
+                outputStream -> new SyncSnapshotCodec(bprog).serialize(snapshot, outputStream));
+        return archive.toByteArray();
+    }
+}
@@ -0,0 +1,176 @@
+package il.ac.bgu.se.bp.debugger.engine;
+
+import il.ac.bgu.cs.bp.bpjs.model.BEvent;
+import il.ac.bgu.cs.bp.bpjs.model.BProgramSyncSnapshot;
+import il.ac.bgu.cs.bp.bpjs.model.BThreadSyncSnapshot;
+import il.ac.bgu.se.bp.debugger.DebuggerLevel;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SyncSnapshotHolderImplTest {
+
+    private static final long SNAPSHOT_SIZE = 100;
+
+    private SyncSnapshotHolderImpl syncSnapshotHolder;
+    private List<Long> evictedSnapshots;
+    private int addedSnapshots;
+
+    @Before
+    public void setUp() {
+        syncSnapshotHolder = new SyncSnapshotHolderImpl(snapshot -> SNAPSHOT_SIZE);
+        evictedSnapshots = new LinkedList<>();
+        addedSnapshots = 0;
+        syncSnapshotHolder.setEvictionListener(evictedSnapshots::addAll);
+    }
+
+    @Test
+    public void unboundedPolicyKeepsAllSnapshotsTest() {
+        addSnapshots(20);
+        assertEquals(20, syncSnapshotHolder.getSyncSnapshotSequences().size());
+        assertTrue(evictedSnapshots.isEmpty());
+    }
+
+    @Test
+    public void keepLastEvictsOldSnapshotsTest() {
+        syncSnapshotHolder.setRetentionPolicy(new SnapshotRetentionPolicy(5, 0, 0));
+        addSnapshots(20);
+
+        SortedSet<Long> retained = syncSnapshotHolder.getSyncSnapshotSequences();
+        assertEquals(5, retained.size());
+        assertEquals(15, evictedSnapshots.size());
+        evictedSnapshots.forEach(time -> assertFalse(retained.contains(time)));
+        assertNull(syncSnapshotHolder.popKey(evictedSnapshots.get(0)));
+    }
+
+    @Test
+    public void keepEveryKeepsSparseSnapshotsTest() {
+        syncSnapshotHolder.setRetentionPolicy(new SnapshotRetentionPolicy(5, 4, 0));
+        addSnapshots(20);
+
+        // indices 15-19 are recent, 0, 4, 8 and 12 are kept by keepEvery
+        assertEquals(9, syncSnapshotHolder.getSyncSnapshotSequences().size());
+        assertEquals(11, evictedSnapshots.size());
+    }
+
+    @Test
+    public void pinnedSnapshotIsNotEvictedTest() {
+        syncSnapshotHolder.setRetentionPolicy(new SnapshotRetentionPolicy(2, 0, 0));
+        addSnapshots(2);
+        long firstSnapshot = syncSnapshotHolder.getSyncSnapshotSequences().first();
+        assertTrue(syncSnapshotHolder.pin(firstSnapshot, true));
+
+        addSnapshots(5);
+        assertTrue(syncSnapshotHolder.getSyncSnapshotSequences().contains(firstSnapshot));
+        assertFalse(evictedSnapshots.contains(firstSnapshot));
+
+        assertTrue(syncSnapshotHolder.pin(firstSnapshot, false));
+        assertFalse(syncSnapshotHolder.getSyncSnapshotSequences().contains(firstSnapshot));
+        assertTrue(evictedSnapshots.contains(firstSnapshot));
+        assertFalse(syncSnapshotHolder.pin(firstSnapshot, true));
+    }
+
+    @Test
+    public void memoryCapEvictsOldestSnapshotsTest() {
+        syncSnapshotHolder.setRetentionPolicy(new SnapshotRetentionPolicy(0, 0, 3 * SNAPSHOT_SIZE));
+        addSnapshots(10);
+
+        assertEquals(3, syncSnapshotHolder.getSyncSnapshotSequences().size());
+        assertEquals(7, evictedSnapshots.size());
+    }
+
+    @Test
+    public void eventsHistoryKeepsEvictedEventsTest() {
+        syncSnapshotHolder.setRetentionPolicy(new SnapshotRetentionPolicy(2, 0, 0));
+        addSnapshots(10);
+
+        SortedMap<Long, BEvent> eventsHistory = syncSnapshotHolder.getEventsHistoryStack(0, 20);
+        assertEquals(9, eventsHistory.size());
+        assertEquals("event-9", eventsHistory.get(eventsHistory.firstKey()).getName());
+    }
+
+    @Test
+    public void runSessionKeepsOnlyEventsTest() {
+        syncSnapshotHolder = new SyncSnapshotHolderImpl(DebuggerLevel.LIGHT);
+        addSnapshots(10);
+
+        assertEquals(9, syncSnapshotHolder.getEventsHistoryStack(0, 20).size());
+        long newest = syncSnapshotHolder.getSyncSnapshotSequences().last();
+        assertNull(syncSnapshotHolder.getSyncSnapshot(newest));
+        assertNull(syncSnapshotHolder.popKey(newest));
+        assertEquals(9, syncSnapshotHolder.getEventsHistoryStack(0, 20).size());
+        assertEquals(0, syncSnapshotHolder.getSharingStats().getStoredBThreads());
+    }
+
+    @Test
+    public void eventsHistoryPageIsReadFromNewestTest() {
+        addSnapshots(3000);
+
+        SortedMap<Long, BEvent> firstPage = syncSnapshotHolder.getEventsHistoryStack(0, 10);
+        assertEquals(10, firstPage.size());
+        assertEquals("event-2999", firstPage.get(firstPage.firstKey()).getName());
+        assertEquals("event-2990", firstPage.get(firstPage.lastKey()).getName());
+
+        SortedMap<Long, BEvent> lastPage = syncSnapshotHolder.getEventsHistoryStack(2990, 3010);
+        assertEquals(9, lastPage.size());
+        assertEquals("event-1", lastPage.get(lastPage.lastKey()).getName());
+        assertTrue(syncSnapshotHolder.getEventsHistoryStack(3000, 3010).isEmpty());
+    }
+
+    @Test
+    public void popKeyTruncatesHistoryWithoutReusingSequencesTest() {
+        addSnapshots(2500);
+        SortedMap<Long, BEvent> eventsHistory = syncSnapshotHolder.getEventsHistoryStack(0, 3000);
+        assertEquals(2499, eventsHistory.size());
+
+        long popped = eventsHistory.lastKey() + 1000;
+        assertEquals("event-1001", syncSnapshotHolder.popValue(popped).getName());
+        assertNotNull(syncSnapshotHolder.popKey(popped));
+        assertNull(syncSnapshotHolder.popValue(popped));
+        assertEquals(popped, syncSnapshotHolder.getSyncSnapshotSequences().last() + 1);
+
+        SortedMap<Long, BEvent> truncatedHistory = syncSnapshotHolder.getEventsHistoryStack(0, 3000);
+        assertEquals(1000, truncatedHistory.size());
+        assertEquals("event-1000", truncatedHistory.get(truncatedHistory.firstKey()).getName());
+
+        addSnapshots(1);
+        assertTrue(syncSnapshotHolder.getEventsHistoryStack(0, 1).firstKey() > popped);
+    }
+
+    @Test
+    public void unchangedBThreadsAreStoredOnceTest() {
+        syncSnapshotHolder.setRetentionPolicy(new SnapshotRetentionPolicy(5, 0, 0));
+        Set<BThreadSyncSnapshot> bThreads = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            bThreads.add(mock(BThreadSyncSnapshot.class));
+        }
+        for (int i = 0; i < 10; i++) {
+            Set<BThreadSyncSnapshot> nextBThreads = new HashSet<>(bThreads);
+            nextBThreads.add(mock(BThreadSyncSnapshot.class)); // the resumed b-thread
+            BProgramSyncSnapshot snapshot = mock(BProgramSyncSnapshot.class);
+            when(snapshot.getBThreadSnapshots()).thenReturn(nextBThreads);
+            syncSnapshotHolder.addSyncSnapshot(snapshot, i == 0 ? null : new BEvent("event-" + i));
+        }
+
+        SnapshotSharingStats sharingStats = syncSnapshotHolder.getSharingStats();
+        assertEquals(5 * 101, sharingStats.getReferencedBThreads());
+        assertEquals(100 + 5, sharingStats.getStoredBThreads());
+        assertEquals(101, syncSnapshotHolder.getSyncSnapshot(syncSnapshotHolder.getSyncSnapshotSequences().first()).getLeft().getBThreadSnapshots().size());
+
+        syncSnapshotHolder.popKey(syncSnapshotHolder.getSyncSnapshotSequences().first());
+        assertEquals(0, syncSnapshotHolder.getSharingStats().getReferencedBThreads());
+        assertEquals(0, syncSnapshotHolder.getSharingStats().getStoredBThreads());
+    }
+
+    private void addSnapshots(int count) {
+        for (int i = 0; i < count; i++, addedSnapshots++) {
+            BEvent event = addedSnapshots == 0 ? null : new BEvent("event-" + addedSnapshots);
+            syncSnapshotHolder.addSyncSnapshot(mock(BProgramSyncSnapshot.class), event);
+        }
+    }
+}
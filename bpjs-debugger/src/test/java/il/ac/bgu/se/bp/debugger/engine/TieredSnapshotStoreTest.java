@@ -0,0 +1,94 @@
+package il.ac.bgu.se.bp.debugger.engine;
+
+import il.ac.bgu.cs.bp.bpjs.BPjs;
+import il.ac.bgu.cs.bp.bpjs.model.BEvent;
+import il.ac.bgu.cs.bp.bpjs.model.BProgram;
+import il.ac.bgu.cs.bp.bpjs.model.BProgramSyncSnapshot;
+import il.ac.bgu.cs.bp.bpjs.model.StringBProgram;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+
+import static il.ac.bgu.cs.bp.bpjs.model.StorageModificationStrategy.PASSTHROUGH;
+import static org.junit.Assert.*;
+
+public class TieredSnapshotStoreTest {
+
+    private static final String COUNTER_PROGRAM = "bp.registerBThread('counter', function() {" +
+            "  for (var i = 0; i < 5; i++) { bp.sync({request: bp.Event('e' + i)}); }" +
+            "});";
+
+    private ExecutorService executorService;
+    private TieredSnapshotStore snapshotStore;
+
+    @Before
+    public void setUp() {
+        executorService = BPjs.getExecutorServiceMaker().makeWithName("TieredSnapshotStoreTest");
+    }
+
+    @After
+    public void tearDown() {
+        if (snapshotStore != null) {
+            snapshotStore.close();
+        }
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void olderSnapshotsAreCompressedTest() throws Exception {
+        snapshotStore = new TieredSnapshotStore(2, Long.MAX_VALUE, snapshot -> 0, Runnable::run);
+        putCounterSnapshots();
+
+        assertEquals(2, snapshotStore.getHotSnapshots());
+        assertEquals(3, snapshotStore.getCompressedSnapshots());
+        assertEquals(0, snapshotStore.getSpilledSnapshots());
+        SnapshotSharingStats sharingStats = snapshotStore.getSharingStats();
+        assertEquals(2, sharingStats.getReferencedBThreads());
+        assertEquals(3, sharingStats.getSerializedSnapshots());
+        assertTrue(sharingStats.getSerializedBytes() > 0);
+        assertEquals(0, sharingStats.getSpilledBytes());
+        assertEquals("e1", getRequestedEventName(snapshotStore.get(1)));
+    }
+
+    @Test
+    public void oldestSnapshotsAreSpilledAndLoadedLazilyTest() throws Exception {
+        snapshotStore = new TieredSnapshotStore(2, 0, snapshot -> 0, Runnable::run);
+        putCounterSnapshots();
+
+        assertEquals(2, snapshotStore.getHotSnapshots());
+        assertEquals(0, snapshotStore.getCompressedSnapshots());
+        assertEquals(3, snapshotStore.getSpilledSnapshots());
+        SnapshotSharingStats sharingStats = snapshotStore.getSharingStats();
+        assertEquals(3, sharingStats.getSerializedSnapshots());
+        assertEquals(0, sharingStats.getSerializedBytes());
+        assertTrue(sharingStats.getSpilledBytes() > 0);
+        assertEquals("e0", getRequestedEventName(snapshotStore.get(0)));
+        assertEquals("e2", getRequestedEventName(snapshotStore.get(2)));
+        assertEquals("e4", getRequestedEventName(snapshotStore.get(4)));
+
+        snapshotStore.remove(2);
+        assertNull(snapshotStore.get(2));
+        assertEquals("e1", getRequestedEventName(snapshotStore.get(1)));
+
+        snapshotStore.close();
+        assertNull(snapshotStore.get(0));
+    }
+
+    private void putCounterSnapshots() throws InterruptedException {
+        BProgram bprog = new StringBProgram(COUNTER_PROGRAM);
+        BProgramSyncSnapshot snapshot = bprog.setup().start(executorService, PASSTHROUGH);
+        for (long sequence = 0; sequence < 5; sequence++) {
+            snapshotStore.put(sequence, snapshot, false);
+            BEvent event = new BEvent(getRequestedEventName(snapshot));
+            snapshot = snapshot.triggerEvent(event, executorService, Collections.emptyList(), PASSTHROUGH);
+        }
+    }
+
+    private String getRequestedEventName(BProgramSyncSnapshot snapshot) {
+        assertNotNull(snapshot);
+        return snapshot.getStatements().iterator().next().getRequest().iterator().next().getName();
+    }
+}
@@ -1,20 +1,26 @@
 package il.ac.bgu.se.bp.execution;
 
 import il.ac.bgu.cs.bp.bpjs.model.BProgram;
+import il.ac.bgu.se.bp.debugger.DebuggerLevel;
 import il.ac.bgu.se.bp.debugger.RunnerState;
 import il.ac.bgu.se.bp.debugger.commands.Continue;
 import il.ac.bgu.se.bp.debugger.commands.StepInto;
 import il.ac.bgu.se.bp.debugger.commands.StepOut;
 import il.ac.bgu.se.bp.debugger.commands.StepOver;
 import il.ac.bgu.se.bp.debugger.engine.DebuggerEngine;
+import il.ac.bgu.se.bp.debugger.engine.events.ProgramProgressEvent;
+import il.ac.bgu.se.bp.debugger.engine.events.ProgramStatusEvent;
 import il.ac.bgu.se.bp.debugger.manage.ProgramValidator;
 import il.ac.bgu.se.bp.error.ErrorCode;
 import il.ac.bgu.se.bp.execution.manage.ProgramValidatorImpl;
 import il.ac.bgu.se.bp.rest.response.BooleanResponse;
 import il.ac.bgu.se.bp.rest.response.GetSyncSnapshotsResponse;
 import il.ac.bgu.se.bp.socket.state.BPDebuggerState;
+import il.ac.bgu.se.bp.socket.state.EventInfo;
+import il.ac.bgu.se.bp.socket.status.Status;
 import il.ac.bgu.se.bp.utils.asyncHelper.AsyncOperationRunner;
 import il.ac.bgu.se.bp.utils.asyncHelper.AsyncOperationRunnerImpl;
+import il.ac.bgu.se.bp.utils.observer.BPEvent;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -24,10 +30,14 @@ import org.mockito.junit.MockitoJUnitRunner;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 
 import static org.junit.Assert.*;
@@ -40,6 +50,8 @@ public class BPJsDebuggerImplTest {
 
     private final static String VALID_TEST_FILE = "TestCodeFile.js";
     private final static String INVALID_TEST_FILE = "InvalidCode.js";
+    private final static String MANY_SYNC_POINTS_TEST_FILE = "ManySyncPoints.js";
+    private final static String EXTERNAL_EVENTS_TEST_FILE = "ExternalEvents.js";
     private static final String debuggerId = "6981cb0a-f871-474b-98e9-faf7c02e18a4";
 
     private final static int[] BREAKPOINTS_LINES = new int[]{2, 4};
@@ -162,6 +174,22 @@ public class BPJsDebuggerImplTest {
         assertFalse(bpJsDebugger.isStarted());
     }
 
+    @Test
+    public void stopTest_returnsBeforeTermination() throws Exception {
+        setupDebugger();
+        assertSuccessResponse(bpJsDebugger.startSync(new HashMap<>(), false, false, true));
+        sleepUntil(e -> bpJsDebugger.isStarted(), 3);
+
+        long stopStartTime = System.nanoTime();
+        assertSuccessResponse(bpJsDebugger.stop());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - stopStartTime) < 500);
+        assertTrue(bpJsDebugger.isStopRequested());
+
+        bpJsDebugger.getTermination().get(10, TimeUnit.SECONDS);
+        assertTrue(bpJsDebugger.getTermination().isDone());
+        verify(debuggerEngine, times(1)).stop();
+    }
+
     @Test
     public void nextSyncTest() throws InterruptedException {
         setupDebugger();
@@ -187,6 +215,80 @@ public class BPJsDebuggerImplTest {
         assertFalse(bpJsDebugger.isStarted());
     }
 
+    @Test
+    public void mutedRunThroughManySyncPointsTest() throws Exception {
+        BPJsDebuggerImpl debugger = new BPJsDebuggerImpl(debuggerId, MANY_SYNC_POINTS_TEST_FILE, DebuggerLevel.LIGHT);
+        FieldSetter.setField(debugger, BPJsDebuggerImpl.class.getDeclaredField("bPjsProgramValidator"), programValidator);
+        BlockingQueue<BPEvent> events = new LinkedBlockingQueue<>();
+        debugger.subscribe(events::add);
+
+        assertSuccessResponse(debugger.startSync(new HashMap<>(), true, true, false));
+        debugger.getTermination().get(30, TimeUnit.SECONDS);
+        awaitStatus(events, Status.SUPERSTEPDONE);
+
+        SortedMap<Long, EventInfo> eventsHistory = debugger.getEventsHistory(0, 10000);
+        assertEquals(5001, eventsHistory.size());
+        assertEquals("ticks-5000", eventsHistory.get(eventsHistory.firstKey()).getName());
+    }
+
+    @Test
+    public void externalEventResumesWaitingRunTest() throws Exception {
+        BPJsDebuggerImpl debugger = new BPJsDebuggerImpl(debuggerId, EXTERNAL_EVENTS_TEST_FILE, DebuggerLevel.LIGHT);
+        FieldSetter.setField(debugger, BPJsDebuggerImpl.class.getDeclaredField("bPjsProgramValidator"), programValidator);
+        BlockingQueue<BPEvent> events = new LinkedBlockingQueue<>();
+        debugger.subscribe(events::add);
+
+        assertSuccessResponse(debugger.startSync(new HashMap<>(), true, true, true));
+        awaitStatus(events, Status.WAITING_FOR_EXTERNAL_EVENT);
+        assertEquals(RunnerState.State.WAITING_FOR_EXTERNAL_EVENT, debugger.getDebuggerState().getDebuggerState());
+
+        assertSuccessResponse(debugger.addExternalEvent("go"));
+        awaitStatus(events, Status.WAITING_FOR_EXTERNAL_EVENT);
+        SortedMap<Long, EventInfo> eventsHistory = debugger.getEventsHistory(0, 10);
+        assertEquals(2, eventsHistory.size());
+        assertEquals("done", eventsHistory.get(eventsHistory.firstKey()).getName());
+
+        assertSuccessResponse(debugger.toggleWaitForExternalEvents(false));
+        debugger.getTermination().get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void throughputRunTest() throws Exception {
+        BPJsDebuggerImpl debugger = new BPJsDebuggerImpl(debuggerId, VALID_TEST_FILE, DebuggerLevel.THROUGHPUT);
+        FieldSetter.setField(debugger, BPJsDebuggerImpl.class.getDeclaredField("bPjsProgramValidator"), programValidator);
+        BlockingQueue<BPEvent> events = new LinkedBlockingQueue<>();
+        debugger.subscribe(events::add);
+
+        assertSuccessResponse(debugger.startSync(new HashMap<>(), true, true, false));
+        debugger.getTermination().get(10, TimeUnit.SECONDS);
+
+        List<BPEvent> receivedEvents = awaitStatus(events, Status.SUPERSTEPDONE);
+        assertTrue(receivedEvents.stream().anyMatch(event -> event instanceof ProgramProgressEvent &&
+                ((ProgramProgressEvent) event).getEvent().getEventsSelected() > 0));
+        assertTrue(debugger.getSyncSnapshotsHistory().getSyncSnapShotsHistory().isEmpty());
+        assertTrue(debugger.getEventsHistory(0, 100).isEmpty());
+    }
+
+    /**
+     * @return the events received until a program status event of {@code status}, that one included
+     */
+    private List<BPEvent> awaitStatus(BlockingQueue<BPEvent> events, Status status) throws InterruptedException {
+        List<BPEvent> receivedEvents = new LinkedList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            BPEvent event = events.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (event == null) {
+                break;
+            }
+            receivedEvents.add(event);
+            if (event instanceof ProgramStatusEvent && status.equals(((ProgramStatusEvent) event).getEvent().getStatus())) {
+                return receivedEvents;
+            }
+        }
+        fail("no " + status + " status received, got: " + receivedEvents);
+        return receivedEvents;
+    }
+
     private void sleepUntil(Predicate sleepUntil, int maxToTest) throws InterruptedException {
         int counter = 0;
         while (!sleepUntil.test(null) && counter < maxToTest) {
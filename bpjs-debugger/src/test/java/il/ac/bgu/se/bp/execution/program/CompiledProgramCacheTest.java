@@ -0,0 +1,47 @@
+package il.ac.bgu.se.bp.execution.program;
+
+import il.ac.bgu.cs.bp.bpjs.exceptions.BPjsCodeEvaluationException;
+import il.ac.bgu.cs.bp.bpjs.model.BProgram;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CompiledProgramCacheTest {
+
+    private static final String COUNTER_PROGRAM = "var counter = 0;" +
+            "bp.registerBThread('counter', function() { counter++; bp.sync({request: bp.Event('e')}); });";
+
+    @Test
+    public void testCompiledProgramCache_sameSourceIsCompiledOnce() {
+        CompiledProgramCache compiledProgramCache = new CompiledProgramCache(2);
+        BProgram first = new CachedBProgram(ProgramSource.of(COUNTER_PROGRAM), compiledProgramCache);
+        BProgram second = new CachedBProgram(ProgramSource.of(COUNTER_PROGRAM), compiledProgramCache);
+
+        first.setup();
+        first.putInGlobalScope("counter", 7);
+        second.setup();
+
+        assertEquals(1, compiledProgramCache.getMisses());
+        assertEquals(1, compiledProgramCache.getHits());
+        assertEquals(first.getName(), second.getName());
+        assertEquals(0, second.getFromGlobalScope("counter", Number.class).get().intValue());
+    }
+
+    @Test
+    public void testCompiledProgramCache_leastRecentlyUsedIsEvicted() {
+        CompiledProgramCache compiledProgramCache = new CompiledProgramCache(1);
+        new CachedBProgram(ProgramSource.of("var a = 1;"), compiledProgramCache).setup();
+        new CachedBProgram(ProgramSource.of("var b = 1;"), compiledProgramCache).setup();
+        new CachedBProgram(ProgramSource.of("var a = 1;"), compiledProgramCache).setup();
+
+        assertEquals(3, compiledProgramCache.getMisses());
+        assertEquals(0, compiledProgramCache.getHits());
+        assertEquals(2, compiledProgramCache.getEvictions());
+        assertEquals(1, compiledProgramCache.getSize());
+    }
+
+    @Test(expected = BPjsCodeEvaluationException.class)
+    public void testCompiledProgramCache_syntaxErrorIsReported() {
+        new CachedBProgram(ProgramSource.of("var a = ;"), new CompiledProgramCache(1)).setup();
+    }
+}
@@ -0,0 +1,75 @@
+package il.ac.bgu.se.bp.execution.runtime;
+
+import il.ac.bgu.se.bp.socket.state.BPDebuggerState;
+import il.ac.bgu.se.bp.socket.state.BThreadInfo;
+import il.ac.bgu.se.bp.socket.state.EventInfo;
+import il.ac.bgu.se.bp.socket.state.EventsStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class DebuggerMetricsTest {
+
+    @Test
+    public void superstepsAreCountedAndTimedTest() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        DebuggerMetrics debuggerMetrics = new DebuggerMetrics(registry);
+
+        debuggerMetrics.onSuperstep(TimeUnit.MILLISECONDS.toNanos(2));
+        debuggerMetrics.onSuperstep(TimeUnit.MILLISECONDS.toNanos(4));
+
+        assertEquals(2, registry.get(DebuggerMetrics.EVENTS_SELECTED).counter().count(), 0);
+        assertEquals(2, registry.get(DebuggerMetrics.SUPERSTEP_LATENCY).timer().count());
+        assertEquals(6, registry.get(DebuggerMetrics.SUPERSTEP_LATENCY).timer().totalTime(TimeUnit.MILLISECONDS), 0.001);
+    }
+
+    @Test
+    public void stateSizeTest() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        DebuggerMetrics debuggerMetrics = new DebuggerMetrics(registry);
+        TreeMap<Long, EventInfo> eventsHistory = new TreeMap<>();
+        eventsHistory.put(0L, new EventInfo("e"));
+        BPDebuggerState debuggerState = new BPDebuggerState(Arrays.asList(new BThreadInfo(), new BThreadInfo()), new EventsStatus(),
+                eventsHistory, null, null, null, new Boolean[0], Collections.singletonMap("x", "1"));
+
+        debuggerMetrics.onStateGenerated(debuggerState, 1000);
+        debuggerMetrics.onStateGenerated(null, 1000);
+
+        assertEquals(2, registry.get(DebuggerMetrics.STATE_GENERATION_LATENCY).timer().count());
+        assertEquals(4, registry.get(DebuggerMetrics.STATE_SIZE).summary().max(), 0);
+        assertEquals(4, registry.get(DebuggerMetrics.STATE_SIZE).summary().totalAmount(), 0);
+    }
+
+    @Test
+    public void notificationsAreTimedByEventTypeTest() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        DebuggerMetrics debuggerMetrics = new DebuggerMetrics(registry);
+
+        debuggerMetrics.onNotificationSent("BPStateEvent", 1000);
+        debuggerMetrics.onNotificationSent("BPStateEvent", 1000);
+        debuggerMetrics.onNotificationSent("BPConsoleEvent", 1000);
+
+        assertEquals(2, registry.get(DebuggerMetrics.NOTIFICATION_SEND_LATENCY).tag("event", "BPStateEvent").timer().count());
+        assertEquals(1, registry.get(DebuggerMetrics.NOTIFICATION_SEND_LATENCY).tag("event", "BPConsoleEvent").timer().count());
+    }
+
+    @Test
+    public void stopsAreTimedAndSlowStopsCountedTest() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        DebuggerMetrics debuggerMetrics = new DebuggerMetrics(registry);
+
+        debuggerMetrics.onStopFinished(TimeUnit.MILLISECONDS.toNanos(10), false);
+        debuggerMetrics.onStopFinished(TimeUnit.MILLISECONDS.toNanos(1500), true);
+
+        assertEquals(2, registry.get(DebuggerMetrics.STOP_LATENCY).timer().count());
+        assertEquals(1500, registry.get(DebuggerMetrics.STOP_LATENCY).timer().max(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(1, registry.get(DebuggerMetrics.SLOW_STOPS).counter().count(), 0);
+    }
+}
@@ -0,0 +1,66 @@
+package il.ac.bgu.se.bp.execution.runtime;
+
+import il.ac.bgu.se.bp.debugger.engine.events.BPConsoleEvent;
+import il.ac.bgu.se.bp.debugger.engine.events.BPStateEvent;
+import il.ac.bgu.se.bp.debugger.engine.events.ProgramStatusEvent;
+import il.ac.bgu.se.bp.socket.console.ConsoleMessage;
+import il.ac.bgu.se.bp.socket.console.LogType;
+import il.ac.bgu.se.bp.socket.state.BPDebuggerState;
+import il.ac.bgu.se.bp.socket.status.Status;
+import il.ac.bgu.se.bp.utils.observer.BPEvent;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class EventPipelineTest {
+
+    @Test
+    public void queuedStatesAreCoalescedTest() throws Exception {
+        EventPipeline eventPipeline = new EventPipeline("EventPipelineTest");
+        List<BPEvent> delivered = new CopyOnWriteArrayList<>();
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        eventPipeline.subscribe(event -> {
+            if (delivered.isEmpty()) {
+                blocked.countDown();
+                awaitQuietly(release);
+            }
+            delivered.add(event);
+        });
+
+        BPEvent first = new ProgramStatusEvent("debugger", Status.DEBUG);
+        eventPipeline.notifySubscribers(first);
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        BPEvent oldState = new BPStateEvent("debugger", new BPDebuggerState());
+        BPEvent console = new BPConsoleEvent("debugger", new ConsoleMessage("hello", LogType.log));
+        BPEvent newState = new BPStateEvent("debugger", new BPDebuggerState());
+        BPEvent status = new ProgramStatusEvent("debugger", Status.BREAKPOINT);
+        eventPipeline.notifySubscribers(oldState);
+        eventPipeline.notifySubscribers(console);
+        eventPipeline.notifySubscribers(newState);
+        eventPipeline.notifySubscribers(status);
+        release.countDown();
+
+        assertTrue(eventPipeline.awaitDelivery(5000));
+        assertEquals(4, delivered.size());
+        assertSame(first, delivered.get(0));
+        assertSame(console, delivered.get(1));
+        assertSame(newState, delivered.get(2));
+        assertSame(status, delivered.get(3));
+        assertEquals(1, eventPipeline.getDroppedStates());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
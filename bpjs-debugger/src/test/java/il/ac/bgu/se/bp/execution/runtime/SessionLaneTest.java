@@ -0,0 +1,77 @@
+package il.ac.bgu.se.bp.execution.runtime;
+
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SessionLaneTest {
+
+    private final DebuggerRuntime debuggerRuntime = DebuggerRuntime.getInstance();
+
+    @Test
+    public void tasksRunInOrderOnANamedThreadTest() throws Exception {
+        SessionLane lane = debuggerRuntime.newLane("SessionLaneTest#1");
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 100; i++) {
+            int index = i;
+            lane.execute(() -> order.add(index));
+        }
+        Future<String> threadName = lane.submit(() -> Thread.currentThread().getName());
+
+        assertEquals("SessionLaneTest#1", threadName.get(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, order.get(i).intValue());
+        }
+
+        lane.shutdown();
+        assertTrue(lane.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shutdownNowInterruptsBlockedTaskTest() throws Exception {
+        SessionLane lane = debuggerRuntime.newLane("SessionLaneTest#2");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        lane.execute(() -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        lane.execute(() -> fail("queued task should be dropped"));
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(1, lane.shutdownNow().size());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(lane.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void tasksRunInAContextOfTheLaneFactoryTest() throws Exception {
+        ContextFactory contextFactory = new SessionContextFactory();
+        SessionLane lane = debuggerRuntime.newLane("SessionLaneTest#3", contextFactory);
+        Future<Context> first = lane.submit(() -> {
+            Context cx = Context.enter();
+            Context.exit();
+            return cx;
+        });
+        Future<Context> second = lane.submit(Context::getCurrentContext);
+
+        assertSame(contextFactory, first.get(5, TimeUnit.SECONDS).getFactory());
+        assertSame(first.get(), second.get(5, TimeUnit.SECONDS));
+
+        lane.shutdown();
+        assertTrue(lane.awaitTermination(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,107 @@
+package il.ac.bgu.se.bp.execution.verification;
+
+import il.ac.bgu.se.bp.debugger.VerificationPolicy;
+import il.ac.bgu.se.bp.execution.program.ProgramSource;
+import il.ac.bgu.se.bp.socket.state.EventInfo;
+import il.ac.bgu.se.bp.socket.status.VerificationOutcome;
+import il.ac.bgu.se.bp.socket.status.VerificationProgress;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class StateSpaceVerifierTest {
+
+    private static final int WORKERS = 4;
+
+    private static final String DEADLOCK_PROGRAM =
+            "bp.registerBThread('requester', function() { bp.sync({request: bp.Event('A')}); bp.sync({request: bp.Event('B')}); });" +
+            "bp.registerBThread('blocker', function() { bp.sync({waitFor: bp.Event('A')}); bp.sync({block: bp.Event('B')}); });";
+
+    private static final String CHOICES_PROGRAM =
+            "bp.registerBThread('chooser', function() {" +
+            "  for (var i = 0; i < 3; i++) { bp.sync({request: [bp.Event('L'), bp.Event('R')]}); }" +
+            "});";
+
+    private static final String ASSERTION_PROGRAM = CHOICES_PROGRAM +
+            "bp.registerBThread('checker', function() {" +
+            "  bp.sync({waitFor: bp.Event('R')}); bp.sync({waitFor: bp.Event('R')}); bp.ASSERT(false, 'two rights');" +
+            "});";
+
+    private static final String ENDLESS_PROGRAM =
+            "bp.registerBThread('counter', function() { for (var i = 0; ; i++) { bp.sync({request: bp.Event('e' + i)}); } });";
+
+    @Test
+    public void testVerify_deadlockIsFoundWithItsTrace() throws Exception {
+        VerificationProgress result = verify(DEADLOCK_PROGRAM, new VerificationPolicy(WORKERS, 0, 0, 0, 1000));
+
+        assertEquals(VerificationOutcome.VIOLATION_FOUND, result.getOutcome());
+        assertEquals(Arrays.asList("A"), getEventNames(result.getViolationTrace()));
+        assertNotNull(result.getMessage());
+    }
+
+    @Test
+    public void testVerify_failedAssertionIsFoundWithItsTrace() throws Exception {
+        VerificationProgress result = verify(ASSERTION_PROGRAM, new VerificationPolicy(WORKERS, 0, 0, 0, 1000));
+
+        assertEquals(VerificationOutcome.VIOLATION_FOUND, result.getOutcome());
+        List<String> trace = getEventNames(result.getViolationTrace());
+        assertEquals(2, trace.stream().filter("R"::equals).count());
+        assertEquals("R", trace.get(trace.size() - 1));
+    }
+
+    @Test
+    public void testVerify_programWithoutViolationsIsFullyExplored() throws Exception {
+        VerificationProgress result = verify(CHOICES_PROGRAM, new VerificationPolicy(WORKERS, 0, 0, 0, 1000));
+
+        assertEquals(VerificationOutcome.NO_VIOLATION, result.getOutcome());
+        assertEquals(4, result.getStatesVisited());
+        assertEquals(6, result.getTransitions());
+        assertEquals(3, result.getMaxDepth());
+        assertTrue(result.getViolationTrace().isEmpty());
+    }
+
+    @Test
+    public void testVerify_stopsAtStatesBudget() throws Exception {
+        VerificationProgress result = verify(ENDLESS_PROGRAM, new VerificationPolicy(WORKERS, 100, 0, 0, 1000));
+
+        assertEquals(VerificationOutcome.BUDGET_EXCEEDED, result.getOutcome());
+        assertTrue(result.getStatesVisited() >= 100);
+    }
+
+    @Test
+    public void testVerify_statesBeyondMaxDepthAreNotExpanded() throws Exception {
+        VerificationProgress result = verify(ENDLESS_PROGRAM, new VerificationPolicy(WORKERS, 0, 10, 0, 1000));
+
+        assertEquals(VerificationOutcome.NO_VIOLATION, result.getOutcome());
+        assertEquals(11, result.getStatesVisited());
+        assertNotNull(result.getMessage());
+    }
+
+    @Test
+    public void testStop_cancelsTheVerification() throws Exception {
+        StateSpaceVerifier verifier = new StateSpaceVerifier("test", ProgramSource.of(ENDLESS_PROGRAM), new VerificationPolicy(WORKERS, 0, 0, 0, 1000));
+        assertTrue(verifier.verify().isSuccess());
+        assertFalse(verifier.verify().isSuccess());
+
+        assertTrue(verifier.stop().isSuccess());
+        VerificationProgress result = verifier.getTermination().get(10, TimeUnit.SECONDS);
+
+        assertEquals(VerificationOutcome.CANCELLED, result.getOutcome());
+        assertFalse(verifier.stop().isSuccess());
+    }
+
+    private static VerificationProgress verify(String program, VerificationPolicy verificationPolicy) throws Exception {
+        StateSpaceVerifier verifier = new StateSpaceVerifier("test", ProgramSource.of(program), verificationPolicy);
+        assertTrue(verifier.verify().isSuccess());
+        return verifier.getTermination().get(10, TimeUnit.SECONDS);
+    }
+
+    private static List<String> getEventNames(List<EventInfo> trace) {
+        return trace.stream().map(EventInfo::getName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,55 @@
+package il.ac.bgu.se.bp.utils;
+
+import il.ac.bgu.se.bp.debugger.ConsolePolicy;
+import il.ac.bgu.se.bp.socket.console.ConsoleMessage;
+import il.ac.bgu.se.bp.socket.console.ConsoleVerbosity;
+import il.ac.bgu.se.bp.socket.console.LogType;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+public class DebuggerPrintStreamTest {
+
+    @Test
+    public void linesAreBatchedTest() {
+        DebuggerPrintStream debuggerPrintStream = new DebuggerPrintStream();
+        List<ConsoleMessage> messages = subscribe(debuggerPrintStream);
+        debuggerPrintStream.setConsolePolicy(new ConsolePolicy(3, 60_000, 0, ConsoleVerbosity.VERBOSE));
+
+        for (int i = 1; i <= 4; i++) {
+            debuggerPrintStream.println("line " + i);
+        }
+        assertEquals(1, messages.size());
+        assertEquals("line 1\nline 2\nline 3", messages.get(0).getMessage());
+
+        debuggerPrintStream.printError("failed");
+        assertEquals(3, messages.size());
+        assertEquals("line 4", messages.get(1).getMessage());
+        assertEquals(LogType.error, messages.get(2).getType());
+    }
+
+    @Test
+    public void linesBeyondRateAreDroppedTest() {
+        DebuggerPrintStream debuggerPrintStream = new DebuggerPrintStream();
+        List<ConsoleMessage> messages = subscribe(debuggerPrintStream);
+        debuggerPrintStream.setConsolePolicy(new ConsolePolicy(100, 60_000, 5, ConsoleVerbosity.VERBOSE));
+
+        for (int i = 1; i <= 20; i++) {
+            debuggerPrintStream.println("line " + i);
+        }
+        debuggerPrintStream.flushConsole();
+        assertEquals(1, messages.size());
+        assertEquals(15, messages.get(0).getDroppedLines());
+        assertTrue(messages.get(0).getMessage().startsWith("line 1\nline 2\nline 3\nline 4\nline 5\n..."));
+        assertEquals(15, debuggerPrintStream.getTotalDroppedLines());
+    }
+
+    private static List<ConsoleMessage> subscribe(DebuggerPrintStream debuggerPrintStream) {
+        List<ConsoleMessage> messages = new CopyOnWriteArrayList<>();
+        debuggerPrintStream.subscribe(event -> messages.add((ConsoleMessage) event.getEvent()));
+        return messages;
+    }
+}
@@ -0,0 +1,55 @@
+package il.ac.bgu.se.bp.utils;
+
+import il.ac.bgu.cs.bp.bpjs.BPjs;
+import il.ac.bgu.cs.bp.bpjs.model.BProgramSyncSnapshot;
+import il.ac.bgu.cs.bp.bpjs.model.BThreadSyncSnapshot;
+import il.ac.bgu.cs.bp.bpjs.model.StringBProgram;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mozilla.javascript.Scriptable;
+
+import java.util.concurrent.ExecutorService;
+
+import static il.ac.bgu.cs.bp.bpjs.model.StorageModificationStrategy.PASSTHROUGH;
+import static org.junit.Assert.*;
+
+public class RhinoInternalsTest {
+
+    private static final String NAMED_BTHREAD_PROGRAM = "bp.registerBThread('counter', function counterBody() {" +
+            "  var i = arguments.length + 7;" +
+            "  bp.sync({request: bp.Event('e')});" +
+            "});";
+
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        executorService = BPjs.getExecutorServiceMaker().makeWithName("RhinoInternalsTest");
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void interpreterFrameOfSyncedBThreadTest() throws Exception {
+        BProgramSyncSnapshot snapshot = new StringBProgram(NAMED_BTHREAD_PROGRAM).setup().start(executorService, PASSTHROUGH);
+        BThreadSyncSnapshot bThread = snapshot.getBThreadSnapshots().iterator().next();
+
+        Object interpreterFrame = RhinoInternals.getContinuationImplementation(bThread.getScope());
+        Scriptable scope = RhinoInternals.getScope(interpreterFrame);
+
+        assertNotNull(interpreterFrame);
+        assertNull(RhinoInternals.getParentFrame(interpreterFrame));
+        assertNotNull(RhinoInternals.getFnOrScript(interpreterFrame));
+        assertEquals(7, ((Number) scope.get("i", scope)).intValue());
+        assertEquals("counterBody", RhinoInternals.getFunctionName(scope));
+    }
+
+    @Test(expected = ClassCastException.class)
+    public void readingFromWrongInstanceFailsTest() {
+        RhinoInternals.getParentFrame("not an interpreter frame");
+    }
+}
@@ -0,0 +1,96 @@
+package il.ac.bgu.se.bp.utils;
+
+import il.ac.bgu.se.bp.rest.response.VariableExpansionResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ScriptableObject;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class VariablePreviewerTest {
+
+    private Context cx;
+    private ScriptableObject scope;
+    private VariablePreviewer variablePreviewer;
+
+    @Before
+    public void setUp() {
+        cx = Context.enter();
+        scope = cx.initStandardObjects();
+        variablePreviewer = new VariablePreviewer(2, 3);
+    }
+
+    @After
+    public void tearDown() {
+        Context.exit();
+    }
+
+    @Test
+    public void smallValuesArePreviewedWholeTest() {
+        assertEquals("1.0", variablePreviewer.preview(eval("1")));
+        assertEquals("\"bp\"", variablePreviewer.preview(eval("'b' + 'p'")));
+        assertEquals("null", variablePreviewer.preview(null));
+        assertEquals("{\"a\":1.0,\"b\":[true,\"x\"]}", variablePreviewer.preview(eval("({a: 1, b: [true, 'x']})")));
+    }
+
+    @Test
+    public void largeAndDeepValuesAreCutTest() {
+        assertEquals("{\"$handle\":1,\"$type\":\"array\",\"$size\":100000,\"$entries\":[0.0,1.0,2.0]}",
+                variablePreviewer.preview(eval("var big = []; for (var i = 0; i < 100000; i++) { big.push(i); } big")));
+        assertEquals("{\"a\":{\"b\":{\"$handle\":2,\"$type\":\"object\",\"$size\":1}}}",
+                variablePreviewer.preview(eval("({a: {b: {c: 1}}})")));
+    }
+
+    @Test
+    public void cyclicValuesAreWrittenAsReferencesTest() {
+        Object cyclic = eval("var o = {name: 'o'}; o.self = o; o");
+        String preview = variablePreviewer.preview(cyclic);
+
+        assertEquals("{\"name\":\"o\",\"self\":{\"$handle\":1,\"$type\":\"object\",\"$size\":2}}", preview);
+        assertEquals(preview, variablePreviewer.preview(cyclic));
+    }
+
+    @Test
+    public void expandReturnsOneLevelOfEntriesTest() {
+        variablePreviewer.preview(eval("var nested = []; for (var i = 0; i < 10; i++) { nested.push({index: i}); } nested"));
+
+        VariableExpansionResponse expansion = variablePreviewer.expand(1, 8, 5);
+
+        assertEquals("array", expansion.getType());
+        assertEquals(10, expansion.getSize());
+        assertEquals(8, expansion.getFrom());
+        assertEquals(2, expansion.getEntries().size());
+        assertTrue(expansion.getEntries().get("9").startsWith("{\"$handle\":"));
+        assertNull(variablePreviewer.expand(100, 0, 5));
+    }
+
+    @Test
+    public void accessorsAreNotCalledTest() {
+        Object withAccessor = eval("var calls = 0; ({a: 1, get b() { calls++; return 2; }})");
+
+        assertEquals("{\"a\":1.0,\"b\":\"(accessor)\"}", variablePreviewer.preview(withAccessor));
+        assertEquals(0, ((Number) eval("calls")).intValue());
+    }
+
+    @Test
+    public void javaValuesAreBoundedLikeJsValuesTest() {
+        scope.put("numbers", scope, Context.javaToJS(Arrays.asList(1, 2, 3, 4), scope));
+        assertEquals("{\"$type\":\"array\",\"$size\":4,\"$entries\":[1,2,3]}", variablePreviewer.preview(eval("numbers")));
+
+        Map<String, Object> cyclic = new LinkedHashMap<>();
+        cyclic.put("name", "cyclic");
+        cyclic.put("self", cyclic);
+        scope.put("cyclic", scope, Context.javaToJS(cyclic, scope));
+        assertEquals("{\"name\":\"cyclic\",\"self\":{\"$type\":\"object\",\"$size\":2}}", variablePreviewer.preview(eval("cyclic")));
+    }
+
+    private Object eval(String source) {
+        return cx.evaluateString(scope, source, "VariablePreviewerTest", 1, null);
+    }
+}
@@ -0,0 +1,46 @@
+package il.ac.bgu.se.bp.utils.logger;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.Assert.*;
+
+public class LoggerTest {
+
+    @Test
+    public void replacePlaceHoldersTest() {
+        assertEquals("a 1 b null {2} {x} {}", Logger.replacePlaceHolders("a {0} b {1} {2} {x} {}", 1, null));
+        assertEquals("{0}", Logger.replacePlaceHolders("{0}"));
+        assertEquals("", Logger.replacePlaceHolders(null, 1));
+    }
+
+    @Test
+    public void levelsAreConfigurablePerClassTest() {
+        LogLevels.setLevel("LoggerTestSubject", LogLevel.WARN);
+        try {
+            assertEquals(LogLevel.WARN, LogLevels.getLevel("LoggerTestSubject"));
+            assertFalse(LogLevels.get("LoggerTestSubject").isEnabled(LogLevel.INFO));
+            assertTrue(LogLevels.get("LoggerTestSubject").isEnabled(LogLevel.ERROR));
+        } finally {
+            LogLevels.setLevel("LoggerTestSubject", null);
+        }
+        assertEquals(LogLevels.getDefaultLevel(), LogLevels.getLevel("LoggerTestSubject"));
+    }
+
+    @Test
+    public void recordsAreWrittenInOrderTest() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        AsyncLogAppender appender = new AsyncLogAppender(new PrintStream(output), 16);
+        for (int i = 0; i < 10; i++) {
+            appender.append(new AsyncLogAppender.LogRecord(1_600_000_000_005L, LogLevel.WARN, 1, "[LoggerTest]", "line " + i, null));
+        }
+        assertTrue(appender.flush(5000));
+
+        String[] lines = output.toString().trim().split(System.lineSeparator());
+        assertEquals(10, lines.length);
+        assertTrue(lines[0].matches("\\d{4}-\\d\\d-\\d\\d \\d\\d:\\d\\d:\\d\\d:005  WARN Thread1 --- \\[LoggerTest\\] line 0"));
+        assertTrue(lines[9].endsWith("line 9"));
+    }
+}
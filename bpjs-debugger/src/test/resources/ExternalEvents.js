@@ -0,0 +1,4 @@
+bp.registerBThread('waiter', function () {
+    bp.sync({ waitFor: bp.Event('go') });
+    bp.sync({ request: bp.Event('done') });
+})
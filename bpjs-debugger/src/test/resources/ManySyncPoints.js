@@ -0,0 +1,8 @@
+bp.registerBThread('ticker', function () {
+    var ticks = 0;
+    while (ticks < 5000) {
+        bp.sync({ request: bp.Event('tick') });
+        ticks++;
+    }
+    bp.sync({ request: bp.Event('ticks-' + ticks) });
+})
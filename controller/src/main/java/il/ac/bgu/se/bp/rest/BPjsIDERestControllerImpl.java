@@ -6,13 +6,19 @@ import il.ac.bgu.se.bp.rest.response.BooleanResponse;
 import il.ac.bgu.se.bp.rest.response.DebugResponse;
 import il.ac.bgu.se.bp.rest.response.EventsHistoryResponse;
 import il.ac.bgu.se.bp.rest.response.SyncSnapshot;
+import il.ac.bgu.se.bp.rest.response.VariableExpansionResponse;
 import il.ac.bgu.se.bp.service.BPjsIDEService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.Principal;
 
 import static il.ac.bgu.se.bp.rest.utils.Constants.SIMP_SESSION_ID;
@@ -47,6 +53,13 @@ public class BPjsIDERestControllerImpl implements BPjsIDERestController {
         return bPjsIDEService.debug(code, userId);
     }
 
+    @Override
+    @RequestMapping(value = VERIFY, method = RequestMethod.POST)
+    public @ResponseBody
+    BooleanResponse verify(@RequestHeader("userId") String userId, @RequestBody VerifyRequest verifyRequest) {
+        return bPjsIDEService.verify(verifyRequest, userId);
+    }
+
     @Override
     @RequestMapping(value = BREAKPOINT, method = RequestMethod.POST)
     public @ResponseBody
@@ -138,6 +151,16 @@ public class BPjsIDERestControllerImpl implements BPjsIDERestController {
         return bPjsIDEService.getEventsHistory(userId, from, to);
     }
 
+    @Override
+    @RequestMapping(value = VARIABLES, method = RequestMethod.GET)
+    public @ResponseBody
+    VariableExpansionResponse expandVariable(@RequestHeader("userId") String userId,
+                                             @RequestParam(name = "handle") long handle,
+                                             @RequestParam(name = "from", defaultValue = "0") int from,
+                                             @RequestParam(name = "count", defaultValue = "100") int count) {
+        return bPjsIDEService.expandVariable(userId, handle, from, count);
+    }
+
     @Override
     @RequestMapping(value = SYNC_SNAPSHOT, method = RequestMethod.PUT)
     public @ResponseBody
@@ -146,6 +169,21 @@ public class BPjsIDERestControllerImpl implements BPjsIDERestController {
         return bPjsIDEService.setSyncSnapshot(userId, setSyncSnapshotRequest);
     }
 
+    @Override
+    @RequestMapping(value = PIN_SYNC_SNAPSHOT, method = RequestMethod.PUT)
+    public @ResponseBody
+    BooleanResponse pinSyncSnapshot(@RequestHeader("userId") String userId,
+                                    @RequestBody PinSyncSnapshotRequest pinSyncSnapshotRequest) {
+        return bPjsIDEService.pinSyncSnapshot(userId, pinSyncSnapshotRequest);
+    }
+
+    @Override
+    @RequestMapping(value = STATE_RESYNC, method = RequestMethod.POST)
+    public @ResponseBody
+    BooleanResponse resyncState(@RequestHeader("userId") String userId) {
+        return bPjsIDEService.resyncState(userId);
+    }
+
     @Override
     @RequestMapping(value = SYNC_SNAPSHOT, method = RequestMethod.GET)
     public @ResponseBody
@@ -161,4 +199,27 @@ public class BPjsIDERestControllerImpl implements BPjsIDERestController {
         return bPjsIDEService.importSyncSnapshot(userId, importSyncSnapshotRequest);
     }
 
+    @Override
+    @RequestMapping(value = SYNC_SNAPSHOT_ARCHIVE, method = RequestMethod.GET, produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void exportSyncSnapshotArchive(@RequestHeader("userId") String userId,
+                                          @RequestParam(value = "deflate", defaultValue = "true") boolean isDeflate,
+                                          HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"syncSnapshot.bpss\"");
+        BooleanResponse exportResponse = bPjsIDEService.exportSyncSnapshot(userId, isDeflate, response.getOutputStream());
+        if (!exportResponse.isSuccess()) {
+            response.reset();
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, String.valueOf(exportResponse.getErrorCode()));
+        }
+    }
+
+    @Override
+    @RequestMapping(value = SYNC_SNAPSHOT_ARCHIVE, method = RequestMethod.POST, consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public @ResponseBody
+    BooleanResponse importSyncSnapshotArchive(@RequestHeader("userId") String userId,
+                                              ImportSyncSnapshotRequest importSyncSnapshotRequest,
+                                              InputStream inputStream) {
+        return bPjsIDEService.importSyncSnapshot(userId, importSyncSnapshotRequest, inputStream);
+    }
+
 }
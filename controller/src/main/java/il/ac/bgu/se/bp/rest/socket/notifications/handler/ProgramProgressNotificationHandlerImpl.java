@@ -0,0 +1,17 @@
+package il.ac.bgu.se.bp.rest.socket.notifications.handler;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import static il.ac.bgu.se.bp.rest.utils.Endpoints.PROGRESS_UPDATE;
+
+
+@Service
+@Qualifier("programProgressNotificationHandlerImpl")
+public class ProgramProgressNotificationHandlerImpl extends AbstractNotificationHandler {
+
+    @Override
+    protected String getUpdateURI() {
+        return PROGRESS_UPDATE;
+    }
+}
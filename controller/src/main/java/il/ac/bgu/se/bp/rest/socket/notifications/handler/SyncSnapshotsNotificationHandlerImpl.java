@@ -0,0 +1,17 @@
+package il.ac.bgu.se.bp.rest.socket.notifications.handler;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import static il.ac.bgu.se.bp.rest.utils.Endpoints.SNAPSHOTS_UPDATE;
+
+
+@Service
+@Qualifier("syncSnapshotsNotificationHandlerImpl")
+public class SyncSnapshotsNotificationHandlerImpl extends AbstractNotificationHandler {
+
+    @Override
+    protected String getUpdateURI() {
+        return SNAPSHOTS_UPDATE;
+    }
+}
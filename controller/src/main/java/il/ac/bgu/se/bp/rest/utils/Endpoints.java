@@ -9,15 +9,21 @@ public class Endpoints {
     public static final String STATE = "/state";
     public static final String CONSOLE = "/console";
     public static final String PROGRAM = "/program";
+    public static final String PROGRESS = "/progress";
+    public static final String SNAPSHOTS = "/snapshots";
     public static final String UPDATE = "/update";
 
     public static final String CONSOLE_UPDATE = CONSOLE + UPDATE;
     public static final String STATE_UPDATE = STATE + UPDATE;
+    public static final String STATE_DELTA = STATE + "/delta";
     public static final String PROGRAM_UPDATE = PROGRAM + UPDATE;
+    public static final String PROGRESS_UPDATE = PROGRESS + UPDATE;
+    public static final String SNAPSHOTS_UPDATE = SNAPSHOTS + UPDATE;
 
 
     public static final String RUN = "/run";
     public static final String DEBUG = "/debug";
+    public static final String VERIFY = "/verify";
 
 
     public static final String BREAKPOINT = "/breakpoint";
@@ -31,9 +37,13 @@ public class Endpoints {
     public static final String SYNC_STATES = "/syncStates";
 
     public static final String EVENTS = "/events";
+    public static final String VARIABLES = "/variables";
     public static final String WAIT_EXTERNAL= "/waitExternal";
 
     public static final String EXTERNAL_EVENT = "/externalEvent";
     public static final String SYNC_SNAPSHOT = "/syncSnapshot";
+    public static final String PIN_SYNC_SNAPSHOT = SYNC_SNAPSHOT + "/pin";
+    public static final String SYNC_SNAPSHOT_ARCHIVE = SYNC_SNAPSHOT + "/archive";
+    public static final String STATE_RESYNC = STATE + "/resync";
 
 }
@@ -0,0 +1,54 @@
+package il.ac.bgu.se.bp.load;
+
+import il.ac.bgu.se.bp.socket.console.ConsoleMessage;
+import il.ac.bgu.se.bp.socket.progress.ProgramProgress;
+import il.ac.bgu.se.bp.socket.snapshots.SyncSnapshotsEvicted;
+import il.ac.bgu.se.bp.socket.state.BPDebuggerState;
+import il.ac.bgu.se.bp.socket.status.ProgramStatus;
+import il.ac.bgu.se.bp.utils.visitor.PublisherVisitor;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Hands the notifications the users' sockets receive to the simulated users, by their test user ids.
+ */
+public class LoadNotifications implements PublisherVisitor {
+    private final ConcurrentMap<String, LoadUser> usersByIds = new ConcurrentHashMap<>();
+
+    public void addUser(LoadUser loadUser) {
+        usersByIds.put(loadUser.getUserId(), loadUser);
+    }
+
+    private void notifyUser(String userId, Object notification) {
+        LoadUser loadUser = usersByIds.get(userId);
+        if (loadUser != null) {
+            loadUser.onNotification(notification);
+        }
+    }
+
+    @Override
+    public void visit(String userId, BPDebuggerState debuggerState) {
+        notifyUser(userId, debuggerState);
+    }
+
+    @Override
+    public void visit(String userId, ConsoleMessage consoleMessage) {
+        notifyUser(userId, consoleMessage);
+    }
+
+    @Override
+    public void visit(String userId, ProgramStatus programStatus) {
+        notifyUser(userId, programStatus);
+    }
+
+    @Override
+    public void visit(String userId, ProgramProgress programProgress) {
+        notifyUser(userId, programProgress);
+    }
+
+    @Override
+    public void visit(String userId, SyncSnapshotsEvicted syncSnapshotsEvicted) {
+        notifyUser(userId, syncSnapshotsEvicted);
+    }
+}
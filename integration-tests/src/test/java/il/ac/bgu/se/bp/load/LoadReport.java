@@ -0,0 +1,117 @@
+package il.ac.bgu.se.bp.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencies, errors and timeouts of the commands sent during a load scenario, per command.
+ * A latency is from sending the REST command until its matching {@code /state/update} or {@code /program/update} arrived.
+ */
+public class LoadReport {
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private final LoadScenario scenario;
+    private final Map<String, CommandStats> statsByCommand = new TreeMap<>();
+    private long startTime;
+    private long endTime;
+
+    private static class CommandStats {
+        private final List<Long> latencies = new ArrayList<>();
+        private final Map<String, Integer> errors = new TreeMap<>();
+        private int timeouts;
+        private int skipped;
+
+        private int getErrors() {
+            return errors.values().stream().mapToInt(Integer::intValue).sum();
+        }
+    }
+
+    public LoadReport(LoadScenario scenario) {
+        this.scenario = scenario;
+    }
+
+    public void start() {
+        startTime = System.nanoTime();
+    }
+
+    public void finish() {
+        endTime = System.nanoTime();
+    }
+
+    public synchronized void recordLatency(String command, long latencyNanos) {
+        getStats(command).latencies.add(latencyNanos);
+    }
+
+    public synchronized void recordError(String command, String error) {
+        getStats(command).errors.merge(error, 1, Integer::sum);
+    }
+
+    public synchronized void recordTimeout(String command) {
+        getStats(command).timeouts++;
+    }
+
+    /**
+     * Records a command that was not sent, as the program had ended before it.
+     */
+    public synchronized void recordSkipped(String command) {
+        getStats(command).skipped++;
+    }
+
+    private CommandStats getStats(String command) {
+        return statsByCommand.computeIfAbsent(command, c -> new CommandStats());
+    }
+
+    /**
+     * @return the share of the sent commands that failed or timed out
+     */
+    public synchronized double getErrorRate() {
+        long failed = statsByCommand.values().stream().mapToLong(stats -> stats.getErrors() + stats.timeouts).sum();
+        long sent = failed + statsByCommand.values().stream().mapToLong(stats -> stats.latencies.size()).sum();
+        return sent == 0 ? 0 : (double) failed / sent;
+    }
+
+    public synchronized String format() {
+        double seconds = (endTime - startTime) / 1e9;
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Load scenario %s: %d users, %s %s, %.1f seconds%n",
+                scenario.getName(), scenario.getUsers(), scenario.getMode(), scenario.getProgram(), seconds));
+        report.append(String.format("%-16s %8s %8s %8s %8s %10s %10s %10s %10s %10s%n",
+                "command", "ok", "errors", "timeouts", "skipped", "p50 ms", "p90 ms", "p99 ms", "max ms", "ok/s"));
+
+        long completed = 0;
+        Map<String, Integer> errors = new TreeMap<>();
+        for (Map.Entry<String, CommandStats> entry : statsByCommand.entrySet()) {
+            CommandStats stats = entry.getValue();
+            List<Long> latencies = new ArrayList<>(stats.latencies);
+            Collections.sort(latencies);
+            completed += latencies.size();
+            stats.errors.forEach((error, count) -> errors.merge(entry.getKey() + " " + error, count, Integer::sum));
+
+            report.append(String.format("%-16s %8d %8d %8d %8d", entry.getKey(), latencies.size(), stats.getErrors(), stats.timeouts, stats.skipped));
+            for (double percentile : PERCENTILES) {
+                report.append(String.format(" %10.1f", toMillis(percentile(latencies, percentile))));
+            }
+            report.append(String.format(" %10.1f %10.1f%n", toMillis(percentile(latencies, 100)), latencies.size() / seconds));
+        }
+
+        report.append(String.format("throughput: %.1f commands/s, error rate: %.2f%%%n", completed / seconds, getErrorRate() * 100));
+        errors.forEach((error, count) -> report.append(String.format("  %s: %d%n", error, count)));
+        return report.toString();
+    }
+
+    private static long percentile(List<Long> sortedLatencies, double percentile) {
+        if (sortedLatencies.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sortedLatencies.size()) - 1;
+        return sortedLatencies.get(Math.max(index, 0));
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
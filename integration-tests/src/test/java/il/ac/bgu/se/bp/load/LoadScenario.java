@@ -0,0 +1,209 @@
+package il.ac.bgu.se.bp.load;
+
+import il.ac.bgu.se.bp.code.CodeFilesHelper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Scanner;
+
+/**
+ * A load scenario, read from {@code load/<name>.properties} on the test classpath.
+ * Every key can be overridden with a {@code load.<key>} system property, e.g. {@code -Dload.users=500}.
+ * <p>
+ * The {@code script} is what each user does after starting the program, commands separated by {@code ;}:
+ * {@code nextSync}, {@code continue}, {@code externalEvent <name>}, {@code stop} and {@code wait <millis>},
+ * with an optional {@code *<times>} suffix, e.g. {@code nextSync*5; externalEvent Click(1,1); stop}.
+ */
+public class LoadScenario {
+    public static final String SCENARIO_PROPERTY = "load.scenario";
+    public static final String DEFAULT_SCENARIO = "tictactoe-run";
+    private static final String PROPERTY_PREFIX = "load.";
+
+    public enum Mode {
+        RUN,
+        DEBUG
+    }
+
+    public enum CommandType {
+        NEXT_SYNC("nextSync"),
+        CONTINUE("continue"),
+        EXTERNAL_EVENT("externalEvent"),
+        STOP("stop"),
+        WAIT("wait");
+
+        private final String scriptName;
+
+        CommandType(String scriptName) {
+            this.scriptName = scriptName;
+        }
+
+        public String getScriptName() {
+            return scriptName;
+        }
+
+        private static CommandType fromScriptName(String scriptName) {
+            for (CommandType commandType : values()) {
+                if (commandType.scriptName.equals(scriptName)) {
+                    return commandType;
+                }
+            }
+            throw new IllegalArgumentException("unknown load script command: " + scriptName);
+        }
+    }
+
+    public static class Command {
+        private final CommandType type;
+        private final String argument;
+
+        Command(CommandType type, String argument) {
+            this.type = type;
+            this.argument = argument;
+        }
+
+        public CommandType getType() {
+            return type;
+        }
+
+        public String getArgument() {
+            return argument;
+        }
+    }
+
+    private final String name;
+    private final Properties properties;
+
+    private LoadScenario(String name, Properties properties) {
+        this.name = name;
+        this.properties = properties;
+    }
+
+    /**
+     * @return the scenario named by the {@value #SCENARIO_PROPERTY} system property, {@value #DEFAULT_SCENARIO} by default
+     */
+    public static LoadScenario load() throws IOException {
+        return load(System.getProperty(SCENARIO_PROPERTY, DEFAULT_SCENARIO));
+    }
+
+    public static LoadScenario load(String name) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream inputStream = getResource("load/" + name + ".properties")) {
+            properties.load(inputStream);
+        }
+        System.getProperties().stringPropertyNames().stream()
+                .filter(key -> key.startsWith(PROPERTY_PREFIX) && !key.equals(SCENARIO_PROPERTY))
+                .forEach(key -> properties.setProperty(key.substring(PROPERTY_PREFIX.length()), System.getProperty(key)));
+        return new LoadScenario(name, properties);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getUsers() {
+        return Integer.parseInt(properties.getProperty("users", "10"));
+    }
+
+    /**
+     * @return a program bundled with the debugger (e.g. {@code BPJSTicTacToe.js}) or one of the {@link CodeFilesHelper} files
+     */
+    public String getProgram() {
+        return properties.getProperty("program", "BPJSTicTacToe.js");
+    }
+
+    public Mode getMode() {
+        return Mode.valueOf(properties.getProperty("mode", Mode.RUN.name()).toUpperCase(Locale.ROOT));
+    }
+
+    public boolean isWaitForExternalEvents() {
+        return Boolean.parseBoolean(properties.getProperty("waitForExternalEvents", "false"));
+    }
+
+    public boolean isHeadless() {
+        return Boolean.parseBoolean(properties.getProperty("headless", "false"));
+    }
+
+    /**
+     * @return the time over which the users start, evenly spread
+     */
+    public long getRampUpMillis() {
+        return Long.parseLong(properties.getProperty("rampUpMillis", "0"));
+    }
+
+    /**
+     * @return the pause of a user between getting a response and sending its next command
+     */
+    public long getThinkTimeMillis() {
+        return Long.parseLong(properties.getProperty("thinkTimeMillis", "0"));
+    }
+
+    public long getResponseTimeoutMillis() {
+        return Long.parseLong(properties.getProperty("responseTimeoutMillis", "30000"));
+    }
+
+    /**
+     * @return the largest notification a user can receive, debug states of big programs are larger than the client defaults
+     */
+    public int getMaxMessageBytes() {
+        return Integer.parseInt(properties.getProperty("maxMessageBytes", "262144"));
+    }
+
+    /**
+     * @return the share of failed commands (errors and timeouts) above which the scenario fails
+     */
+    public double getMaxErrorRate() {
+        return Double.parseDouble(properties.getProperty("maxErrorRate", "0.01"));
+    }
+
+    public List<Command> getScript() {
+        List<Command> script = new ArrayList<>();
+        for (String scriptCommand : properties.getProperty("script", "").split(";")) {
+            scriptCommand = scriptCommand.trim();
+            if (scriptCommand.isEmpty()) {
+                continue;
+            }
+            int times = 1;
+            int timesIndex = scriptCommand.lastIndexOf('*');
+            if (timesIndex > 0) {
+                times = Integer.parseInt(scriptCommand.substring(timesIndex + 1).trim());
+                scriptCommand = scriptCommand.substring(0, timesIndex).trim();
+            }
+            String[] nameAndArgument = scriptCommand.split("\\s+", 2);
+            Command command = new Command(CommandType.fromScriptName(nameAndArgument[0]),
+                    nameAndArgument.length > 1 ? nameAndArgument[1] : null);
+            script.addAll(Collections.nCopies(times, command));
+        }
+        return script;
+    }
+
+    public String getSourceCode() throws IOException {
+        String sourceCode = CodeFilesHelper.getCodeByFileName(getProgram());
+        if (sourceCode != null) {
+            return sourceCode;
+        }
+        try (InputStream inputStream = getResource(getProgram())) {
+            return new Scanner(inputStream, StandardCharsets.UTF_8.name()).useDelimiter("\\A").next();
+        }
+    }
+
+    private static InputStream getResource(String resourceName) throws IOException {
+        InputStream inputStream = LoadScenario.class.getClassLoader().getResourceAsStream(resourceName);
+        if (inputStream == null) {
+            throw new IOException("resource not found: " + resourceName);
+        }
+        return inputStream;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadScenario{" +
+                "name='" + name + '\'' +
+                ", properties=" + properties +
+                '}';
+    }
+}
@@ -0,0 +1,58 @@
+package il.ac.bgu.se.bp.load;
+
+import il.ac.bgu.se.bp.app.Application;
+import il.ac.bgu.se.bp.testService.RestServiceTestHelper;
+import il.ac.bgu.se.bp.testService.TestService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs a load scenario against an in-process server, and prints the latencies, throughput and errors of its commands.
+ * Not part of the default build: {@code mvn test -P load-test -Dload.scenario=tictactoe-run -Dload.users=500}.
+ * Server properties are passed the same way, e.g. {@code -Dbpjs.admission.maxSessions=256 -Dbpjs.runtime.maxThreads=512}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("load")
+public class LoadScenarioRunner {
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    public void runScenario() throws Exception {
+        LoadScenario scenario = LoadScenario.load();
+        String sourceCode = scenario.getSourceCode();
+        LoadNotifications notifications = new LoadNotifications();
+        TestService testService = new RestServiceTestHelper(notifications, "localhost:" + port, scenario.getMaxMessageBytes());
+        LoadReport report = new LoadReport(scenario);
+
+        int users = scenario.getUsers();
+        List<Thread> userThreads = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            long startDelayMillis = scenario.getRampUpMillis() * i / users;
+            LoadUser loadUser = new LoadUser("load-user-" + i, scenario, sourceCode, testService, report, startDelayMillis);
+            notifications.addUser(loadUser);
+            userThreads.add(new Thread(loadUser, loadUser.getUserId()));
+        }
+
+        report.start();
+        userThreads.forEach(Thread::start);
+        for (Thread userThread : userThreads) {
+            userThread.join();
+        }
+        report.finish();
+
+        System.out.println(report.format());
+        assertTrue("error rate above " + scenario.getMaxErrorRate(), report.getErrorRate() <= scenario.getMaxErrorRate());
+    }
+}
@@ -0,0 +1,254 @@
+package il.ac.bgu.se.bp.load;
+
+import il.ac.bgu.se.bp.error.ErrorCode;
+import il.ac.bgu.se.bp.rest.request.DebugRequest;
+import il.ac.bgu.se.bp.rest.request.ExternalEventRequest;
+import il.ac.bgu.se.bp.rest.request.RunRequest;
+import il.ac.bgu.se.bp.rest.response.BooleanResponse;
+import il.ac.bgu.se.bp.rest.socket.StompPrincipal;
+import il.ac.bgu.se.bp.socket.state.BPDebuggerState;
+import il.ac.bgu.se.bp.socket.status.ProgramStatus;
+import il.ac.bgu.se.bp.socket.status.Status;
+import il.ac.bgu.se.bp.testService.TestService;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A simulated user: connects over the web socket, starts the scenario program and goes through the scenario script,
+ * waiting for each command's notification before sending the next one.
+ */
+public class LoadUser implements Runnable {
+    private static final Set<Status> END_STATUSES = EnumSet.of(Status.SUPERSTEPDONE, Status.STOP, Status.BUDGET_EXCEEDED);
+    private static final int SUBSCRIBE_RETRIES = 20;
+    private static final int SUBSCRIBE_RETRY_MILLIS = 100;
+
+    private final String userId;
+    private final LoadScenario scenario;
+    private final String sourceCode;
+    private final TestService testService;
+    private final LoadReport report;
+    private final long startDelayMillis;
+
+    private volatile Expectation expectation;
+    private volatile boolean isEnded;
+    private volatile long lastStateVersion = 0;
+    private volatile long sentStateVersion = 0;
+
+    /**
+     * A notification a command waits for, and when it arrived.
+     */
+    private static class Expectation {
+        private final Predicate<Object> isMatching;
+        private final CountDownLatch arrived = new CountDownLatch(1);
+        private volatile long arrivalTime;
+
+        private Expectation(Predicate<Object> isMatching) {
+            this.isMatching = isMatching;
+        }
+
+        private void offer(Object notification, long time) {
+            if (arrived.getCount() > 0 && isMatching.test(notification)) {
+                arrivalTime = time;
+                arrived.countDown();
+            }
+        }
+    }
+
+    public LoadUser(String userId, LoadScenario scenario, String sourceCode, TestService testService, LoadReport report, long startDelayMillis) {
+        this.userId = userId;
+        this.scenario = scenario;
+        this.sourceCode = sourceCode;
+        this.testService = testService;
+        this.report = report;
+        this.startDelayMillis = startDelayMillis;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * Called on the socket thread for every {@code /state/update}, {@code /program/update} and {@code /console/update}.
+     */
+    public void onNotification(Object notification) {
+        long time = System.nanoTime();
+        if (isEnd(notification)) {
+            isEnded = true;
+        }
+        if (notification instanceof BPDebuggerState) {
+            lastStateVersion = Math.max(lastStateVersion, ((BPDebuggerState) notification).getVersion());
+        }
+        Expectation currentExpectation = expectation;
+        if (currentExpectation != null) {
+            currentExpectation.offer(notification, time);
+        }
+    }
+
+    @Override
+    public void run() {
+        if (startDelayMillis > 0) {
+            pause(startDelayMillis);
+        }
+        try {
+            testService.subscribeUser(null, new StompPrincipal(userId));
+        } catch (AssertionError | Exception e) {
+            report.recordError("connect", e.getClass().getSimpleName());
+            return;
+        }
+        if (!start()) {
+            return;
+        }
+        for (LoadScenario.Command command : scenario.getScript()) {
+            String commandName = command.getType().getScriptName();
+            if (command.getType() == LoadScenario.CommandType.WAIT) {
+                pause(Long.parseLong(command.getArgument()));
+                continue;
+            }
+            if (isEnded) {
+                report.recordSkipped(commandName);
+                continue;
+            }
+            if (scenario.getThinkTimeMillis() > 0) {
+                pause(scenario.getThinkTimeMillis());
+            }
+            perform(command);
+        }
+    }
+
+    private boolean start() {
+        boolean isDebug = scenario.getMode() == LoadScenario.Mode.DEBUG;
+        String commandName = isDebug ? "debug" : "run";
+        Supplier<BooleanResponse> request = isDebug ? () -> testService.debug(userId, createDebugRequest()) :
+                () -> testService.run(userId, createRunRequest());
+        Predicate<Object> isStarted = isDebug ? this::isNewStateOrEnd : getRunResponse();
+
+        // the subscription is a socket message, so the server may not know the user right after connecting
+        for (int i = 0; i < SUBSCRIBE_RETRIES; i++) {
+            ErrorCode errorCode = send(commandName, request, isStarted);
+            if (errorCode != ErrorCode.UNKNOWN_USER) {
+                return errorCode == null;
+            }
+            pause(SUBSCRIBE_RETRY_MILLIS);
+        }
+        report.recordError(commandName, ErrorCode.UNKNOWN_USER.name());
+        return false;
+    }
+
+    private void perform(LoadScenario.Command command) {
+        String commandName = command.getType().getScriptName();
+        ErrorCode errorCode = null;
+        switch (command.getType()) {
+            case NEXT_SYNC:
+                errorCode = send(commandName, () -> testService.nextSync(userId), this::isNewStateOrEnd);
+                break;
+            case CONTINUE:
+                errorCode = send(commandName, () -> testService.continueRun(userId), this::isNewStateOrEnd);
+                break;
+            case EXTERNAL_EVENT:
+                ExternalEventRequest externalEventRequest = new ExternalEventRequest();
+                externalEventRequest.setExternalEvent(command.getArgument());
+                externalEventRequest.setAddEvent(true);
+                errorCode = send(commandName, () -> testService.externalEvent(userId, externalEventRequest),
+                        scenario.getMode() == LoadScenario.Mode.DEBUG ? this::isNewStateOrEnd : getRunResponse());
+                break;
+            case STOP:
+                errorCode = send(commandName, () -> testService.stop(userId), notification -> isStatus(notification, Status.STOP));
+                break;
+        }
+        if (errorCode == ErrorCode.UNKNOWN_USER) {
+            report.recordError(commandName, errorCode.name());
+        }
+    }
+
+    /**
+     * Sends a command and waits for its notification, recording the latency or the failure.
+     * States the user saw before sending do not answer the command, so a late state of the previous command is not taken for it.
+     * An {@link ErrorCode#UNKNOWN_USER} answer is left for the caller to record.
+     *
+     * @return the error code the server answered with, null if the command succeeded
+     */
+    private ErrorCode send(String commandName, Supplier<BooleanResponse> request, Predicate<Object> isMatching) {
+        sentStateVersion = lastStateVersion;
+        Expectation commandExpectation = new Expectation(isMatching);
+        expectation = commandExpectation;
+        long sendTime = System.nanoTime();
+        try {
+            BooleanResponse response = request.get();
+            if (!response.isSuccess()) {
+                if (response.getErrorCode() != ErrorCode.UNKNOWN_USER) {
+                    report.recordError(commandName, String.valueOf(response.getErrorCode()));
+                }
+                return response.getErrorCode() == null ? ErrorCode.GENERAL_ERROR : response.getErrorCode();
+            }
+            if (!commandExpectation.arrived.await(scenario.getResponseTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                report.recordTimeout(commandName);
+                return ErrorCode.GENERAL_ERROR;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ErrorCode.GENERAL_ERROR;
+        } catch (AssertionError | Exception e) {
+            // rest assured rethrows parsing failures undeclared
+            report.recordError(commandName, e.getClass().getSimpleName());
+            return ErrorCode.GENERAL_ERROR;
+        } finally {
+            expectation = null;
+        }
+        report.recordLatency(commandName, commandExpectation.arrivalTime - sendTime);
+        return null;
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private RunRequest createRunRequest() {
+        RunRequest runRequest = new RunRequest(sourceCode);
+        runRequest.setWaitForExternalEvents(scenario.isWaitForExternalEvents());
+        runRequest.setHeadless(scenario.isHeadless());
+        return runRequest;
+    }
+
+    private DebugRequest createDebugRequest() {
+        DebugRequest debugRequest = new DebugRequest(sourceCode);
+        debugRequest.setWaitForExternalEvents(scenario.isWaitForExternalEvents());
+        return debugRequest;
+    }
+
+    /**
+     * A run that waits for external events reports running and then waiting after each event, so waiting is its response.
+     */
+    private Predicate<Object> getRunResponse() {
+        return scenario.isWaitForExternalEvents() ?
+                notification -> isStatus(notification, Status.WAITING_FOR_EXTERNAL_EVENT) || isEnd(notification) :
+                LoadUser::isProgramStatus;
+    }
+
+    /**
+     * @return true for a state newer than the last one seen before the command was sent, or for the end of the program
+     */
+    private boolean isNewStateOrEnd(Object notification) {
+        return (notification instanceof BPDebuggerState && ((BPDebuggerState) notification).getVersion() > sentStateVersion) || isEnd(notification);
+    }
+
+    private static boolean isEnd(Object notification) {
+        return notification instanceof ProgramStatus && END_STATUSES.contains(((ProgramStatus) notification).getStatus());
+    }
+
+    private static boolean isProgramStatus(Object notification) {
+        return notification instanceof ProgramStatus && ((ProgramStatus) notification).getStatus() != Status.QUEUED;
+    }
+
+    private static boolean isStatus(Object notification, Status status) {
+        return notification instanceof ProgramStatus && ((ProgramStatus) notification).getStatus() == status;
+    }
+}
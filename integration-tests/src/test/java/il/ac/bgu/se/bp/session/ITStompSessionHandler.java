@@ -8,6 +8,7 @@ import il.ac.bgu.se.bp.socket.state.BPDebuggerState;
 import il.ac.bgu.se.bp.socket.state.EventInfo;
 import il.ac.bgu.se.bp.socket.status.ProgramStatus;
 import il.ac.bgu.se.bp.utils.observer.BPEvent;
+import il.ac.bgu.se.bp.utils.visitor.PublisherVisitor;
 import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaders;
 import org.springframework.messaging.simp.stomp.StompSession;
@@ -25,13 +26,13 @@ public class ITStompSessionHandler implements StompSessionHandler {
     private static final String USER = "/user";
     private static final String USER_ID = "user-name";
     private static final String SUBSCRIPTION_URI = "/bpjs/subscribe";
-    private final ITSessionManagerImpl usersSessionHandler;
+    private final PublisherVisitor usersSessionHandler;
 
-    private String serverUserId;
+    private volatile String serverUserId;
     private String testUserId;
-    private boolean isConnected;
+    private volatile boolean isConnected;
 
-    public ITStompSessionHandler(ITSessionManagerImpl usersSessionHandler) {
+    public ITStompSessionHandler(PublisherVisitor usersSessionHandler) {
         this.usersSessionHandler = usersSessionHandler;
     }
 
@@ -6,8 +6,12 @@ import il.ac.bgu.se.bp.rest.response.BooleanResponse;
 import il.ac.bgu.se.bp.rest.response.DebugResponse;
 import il.ac.bgu.se.bp.rest.response.EventsHistoryResponse;
 import il.ac.bgu.se.bp.rest.response.SyncSnapshot;
+import il.ac.bgu.se.bp.rest.response.VariableExpansionResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.Principal;
 
 public class ControllerTestHelper implements TestService {
@@ -50,6 +54,11 @@ public class ControllerTestHelper implements TestService {
         return bPjsIDERestController.toggleWaitForExternal(userId, toggleWaitForExternalRequest);
     }
 
+    @Override
+    public BooleanResponse verify(String userId, VerifyRequest verifyRequest) {
+        return bPjsIDERestController.verify(userId, verifyRequest);
+    }
+
     @Override
     public BooleanResponse stop(String userId) {
         return bPjsIDERestController.stop(userId);
@@ -90,6 +99,16 @@ public class ControllerTestHelper implements TestService {
         return bPjsIDERestController.setSyncSnapshot(userId, setSyncSnapshotRequest);
     }
 
+    @Override
+    public BooleanResponse pinSyncSnapshot(String userId, PinSyncSnapshotRequest pinSyncSnapshotRequest) {
+        return bPjsIDERestController.pinSyncSnapshot(userId, pinSyncSnapshotRequest);
+    }
+
+    @Override
+    public BooleanResponse resyncState(String userId) {
+        return bPjsIDERestController.resyncState(userId);
+    }
+
     @Override
     public SyncSnapshot exportSyncSnapshot(String userId) {
         return bPjsIDERestController.exportSyncSnapshot(userId);
@@ -100,8 +119,23 @@ public class ControllerTestHelper implements TestService {
         return bPjsIDERestController.importSyncSnapshot(userId, importSyncSnapshotRequest);
     }
 
+    @Override
+    public void exportSyncSnapshotArchive(String userId, boolean isDeflate, HttpServletResponse response) throws IOException {
+        bPjsIDERestController.exportSyncSnapshotArchive(userId, isDeflate, response);
+    }
+
+    @Override
+    public BooleanResponse importSyncSnapshotArchive(String userId, ImportSyncSnapshotRequest importSyncSnapshotRequest, InputStream inputStream) {
+        return bPjsIDERestController.importSyncSnapshotArchive(userId, importSyncSnapshotRequest, inputStream);
+    }
+
     @Override
     public EventsHistoryResponse getEventsHistory(String userId, int from, int to) {
         return bPjsIDERestController.getEventsHistory(userId, from, to);
     }
+
+    @Override
+    public VariableExpansionResponse expandVariable(String userId, long handle, int from, int count) {
+        return bPjsIDERestController.expandVariable(userId, handle, from, count);
+    }
 }
@@ -5,9 +5,11 @@ import il.ac.bgu.se.bp.rest.response.BooleanResponse;
 import il.ac.bgu.se.bp.rest.response.DebugResponse;
 import il.ac.bgu.se.bp.rest.response.EventsHistoryResponse;
 import il.ac.bgu.se.bp.rest.response.SyncSnapshot;
+import il.ac.bgu.se.bp.rest.response.VariableExpansionResponse;
 import il.ac.bgu.se.bp.rest.utils.Endpoints;
 import il.ac.bgu.se.bp.session.ITSessionManagerImpl;
 import il.ac.bgu.se.bp.session.ITStompSessionHandler;
+import il.ac.bgu.se.bp.utils.visitor.PublisherVisitor;
 import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
 import io.restassured.http.Header;
@@ -17,6 +19,11 @@ import org.springframework.web.socket.client.WebSocketClient;
 import org.springframework.web.socket.client.standard.StandardWebSocketClient;
 import org.springframework.web.socket.messaging.WebSocketStompClient;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.websocket.ContainerProvider;
+import javax.websocket.WebSocketContainer;
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.Principal;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -26,17 +33,30 @@ import static il.ac.bgu.se.bp.rest.utils.Endpoints.*;
 public class RestServiceTestHelper implements TestService {
 
     private static final String BASE_URI = "localhost:8080";
-    private static final String BASE_REST_URI = "http://" + BASE_URI + Endpoints.BASE_URI;
-    private static final String SOCKET_URI = "ws://" + BASE_URI + "/ws";
     private static final String USER_ID = "userId";
+    private static final int CONNECT_RETRIES = 10;
 
-    private final ITSessionManagerImpl usersSessionHandler;
+    private final PublisherVisitor usersSessionHandler;
+    private final String baseRestUri;
+    private final String socketUri;
+    private final int maxMessageBytes;
 
     private static final ConcurrentHashMap<String, String> userTestIdsToServerIds = new ConcurrentHashMap<>();
     private static final ConcurrentHashMap<String, ITStompSessionHandler> userSessionsByTestIds = new ConcurrentHashMap<>();
 
     public RestServiceTestHelper(ITSessionManagerImpl sessionHandler) {
+        this(sessionHandler, BASE_URI, 0);
+    }
+
+    /**
+     * @param baseUri         host:port of the server
+     * @param maxMessageBytes the largest notification a socket can receive, 0 for the client defaults
+     */
+    public RestServiceTestHelper(PublisherVisitor sessionHandler, String baseUri, int maxMessageBytes) {
         this.usersSessionHandler = sessionHandler;
+        this.baseRestUri = "http://" + baseUri + Endpoints.BASE_URI;
+        this.socketUri = "ws://" + baseUri + Endpoints.BASE_WEB_SOCKET_URI;
+        this.maxMessageBytes = maxMessageBytes;
     }
 
     private String getSocketUserId(String userTestId) {
@@ -45,22 +65,33 @@ public class RestServiceTestHelper implements TestService {
 
     @Override
     public void subscribeUser(String sessionId, Principal principal) {
-        WebSocketClient client = new StandardWebSocketClient();
+        WebSocketClient client = new StandardWebSocketClient(createWebSocketContainer());
         WebSocketStompClient stompClient = new WebSocketStompClient(client);
         stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        if (maxMessageBytes > 0) {
+            stompClient.setInboundMessageSizeLimit(maxMessageBytes);
+        }
 
         ITStompSessionHandler sessionHandler = new ITStompSessionHandler(usersSessionHandler);
         sessionHandler.setTestUserId(principal.getName());
-        stompClient.connect(SOCKET_URI, sessionHandler);
+        stompClient.connect(socketUri, sessionHandler);
 
-        waitUntilPredicateSatisfied(sessionHandler::isConnected, 500, 3);
+        waitUntilPredicateSatisfied(sessionHandler::isConnected, 500, CONNECT_RETRIES);
         userTestIdsToServerIds.put(principal.getName(), sessionHandler.getServerUserId());
         userSessionsByTestIds.put(principal.getName(), sessionHandler);
     }
 
+    private WebSocketContainer createWebSocketContainer() {
+        WebSocketContainer webSocketContainer = ContainerProvider.getWebSocketContainer();
+        if (maxMessageBytes > 0) {
+            webSocketContainer.setDefaultMaxTextMessageBufferSize(maxMessageBytes);
+        }
+        return webSocketContainer;
+    }
+
     @Override
     public BooleanResponse run(String userId, RunRequest runRequest) {
-        return performPostRequest(userId, RUN, runRequest, BooleanResponse.class);
+        return performPostRequest(userId, RUN, runRequest, DebugResponse.class);
     }
 
     @Override
@@ -88,6 +119,11 @@ public class RestServiceTestHelper implements TestService {
         return performPutRequest(userId, WAIT_EXTERNAL, toggleWaitForExternalRequest, BooleanResponse.class);
     }
 
+    @Override
+    public BooleanResponse verify(String userId, VerifyRequest verifyRequest) {
+        return performPostRequest(userId, VERIFY, verifyRequest, BooleanResponse.class);
+    }
+
     @Override
     public BooleanResponse stop(String userId) {
         return performGetRequest(userId, STOP, BooleanResponse.class);
@@ -128,6 +164,16 @@ public class RestServiceTestHelper implements TestService {
         return performPutRequest(userId, SYNC_SNAPSHOT, setSyncSnapshotRequest, BooleanResponse.class);
     }
 
+    @Override
+    public BooleanResponse pinSyncSnapshot(String userId, PinSyncSnapshotRequest pinSyncSnapshotRequest) {
+        return performPutRequest(userId, PIN_SYNC_SNAPSHOT, pinSyncSnapshotRequest, BooleanResponse.class);
+    }
+
+    @Override
+    public BooleanResponse resyncState(String userId) {
+        return performPostRequest(userId, STATE_RESYNC, "{}", BooleanResponse.class);
+    }
+
     @Override
     public SyncSnapshot exportSyncSnapshot(String userId) {
         return performGetRequest(userId, SYNC_SNAPSHOT, SyncSnapshot.class);
@@ -138,28 +184,46 @@ public class RestServiceTestHelper implements TestService {
         return null;
     }
 
+    @Override
+    public void exportSyncSnapshotArchive(String userId, boolean isDeflate, HttpServletResponse response) throws IOException {
+        Response restResponse = RestAssured.with().header(new Header(USER_ID, getSocketUserId(userId)))
+                .queryParam("deflate", isDeflate).when().get(baseRestUri + SYNC_SNAPSHOT_ARCHIVE);
+        restResponse.then().statusCode(200);
+        response.getOutputStream().write(restResponse.asByteArray());
+    }
+
+    @Override
+    public BooleanResponse importSyncSnapshotArchive(String userId, ImportSyncSnapshotRequest importSyncSnapshotRequest, InputStream inputStream) {
+        return null;
+    }
+
     @Override
     public EventsHistoryResponse getEventsHistory(String userId, int from, int to) {
         return performGetRequest(userId, EVENTS, EventsHistoryResponse.class);
     }
 
+    @Override
+    public VariableExpansionResponse expandVariable(String userId, long handle, int from, int count) {
+        return performGetRequest(userId, VARIABLES, VariableExpansionResponse.class);
+    }
+
     private <T> T performPostRequest(String userId, String URL, Object body, Class<T> clazz) {
         Response response = RestAssured.with().header(new Header(USER_ID, getSocketUserId(userId))).body(body)
-                .contentType(ContentType.JSON).when().post(BASE_REST_URI + URL);
+                .contentType(ContentType.JSON).when().post(baseRestUri + URL);
         response.then().statusCode(200);
         return response.getBody().as(clazz);
     }
 
     private <T> T performPutRequest(String userId, String URL, Object body, Class<T> clazz) {
         Response response = RestAssured.with().header(new Header(USER_ID, getSocketUserId(userId))).body(body)
-                .contentType(ContentType.JSON).when().put(BASE_REST_URI + URL);
+                .contentType(ContentType.JSON).when().put(baseRestUri + URL);
         response.then().statusCode(200);
         return response.getBody().as(clazz);
     }
 
     private <T> T performGetRequest(String userId, String URL, Class<T> clazz) {
         Response response = RestAssured.with().header(new Header(USER_ID, getSocketUserId(userId)))
-                .contentType(ContentType.JSON).when().get(BASE_REST_URI + URL);
+                .contentType(ContentType.JSON).when().get(baseRestUri + URL);
         response.then().statusCode(200);
         return response.getBody().as(clazz);
     }
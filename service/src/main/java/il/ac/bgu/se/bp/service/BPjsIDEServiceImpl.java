@@ -1,24 +1,45 @@
 package il.ac.bgu.se.bp.service;
 
 import il.ac.bgu.se.bp.debugger.BPJsDebugger;
+import il.ac.bgu.se.bp.debugger.ConsolePolicy;
 import il.ac.bgu.se.bp.debugger.DebuggerLevel;
+import il.ac.bgu.se.bp.debugger.ProgramVerifier;
+import il.ac.bgu.se.bp.debugger.VerificationPolicy;
+import il.ac.bgu.se.bp.debugger.engine.SnapshotArchive;
+import il.ac.bgu.se.bp.debugger.engine.SnapshotManifest;
+import il.ac.bgu.se.bp.debugger.engine.SnapshotRetentionPolicy;
+import il.ac.bgu.se.bp.debugger.engine.SnapshotSizeExceededException;
 import il.ac.bgu.se.bp.debugger.manage.DebuggerFactory;
+import il.ac.bgu.se.bp.debugger.manage.VerifierFactory;
 import il.ac.bgu.se.bp.error.ErrorCode;
 import il.ac.bgu.se.bp.rest.request.*;
 import il.ac.bgu.se.bp.rest.response.BooleanResponse;
 import il.ac.bgu.se.bp.rest.response.DebugResponse;
 import il.ac.bgu.se.bp.rest.response.EventsHistoryResponse;
 import il.ac.bgu.se.bp.rest.response.SyncSnapshot;
+import il.ac.bgu.se.bp.rest.response.VariableExpansionResponse;
 import il.ac.bgu.se.bp.service.code.SourceCodeHelper;
+import il.ac.bgu.se.bp.service.manage.Admission;
+import il.ac.bgu.se.bp.service.manage.AdmissionController;
 import il.ac.bgu.se.bp.service.manage.PrototypeContextFactory;
 import il.ac.bgu.se.bp.service.manage.SessionHandler;
+import il.ac.bgu.se.bp.socket.console.ConsoleMessage;
+import il.ac.bgu.se.bp.socket.console.ConsoleVerbosity;
+import il.ac.bgu.se.bp.socket.console.LogType;
+import il.ac.bgu.se.bp.socket.status.ProgramStatus;
+import il.ac.bgu.se.bp.socket.status.Status;
+import il.ac.bgu.se.bp.utils.RhinoInternals;
 import il.ac.bgu.se.bp.utils.logger.Logger;
 import org.mozilla.javascript.ContextFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.thymeleaf.util.StringUtils;
 
 import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
@@ -42,8 +63,45 @@ public class BPjsIDEServiceImpl implements BPjsIDEService {
     @Autowired
     private PrototypeContextFactory prototypeContextFactory;
 
+    @Autowired
+    private AdmissionController admissionController;
+
+    @Autowired
+    private VerifierFactory verifierFactory;
+
+    @Value("${bpjs.snapshot.maxImportBytes:67108864}")
+    private long snapshotMaxImportBytes;
+
+    @Value("${bpjs.console.maxBatchLines:50}")
+    private int consoleMaxBatchLines;
+
+    @Value("${bpjs.console.flushIntervalMillis:100}")
+    private long consoleFlushIntervalMillis;
+
+    @Value("${bpjs.console.maxLinesPerSecond:1000}")
+    private int consoleMaxLinesPerSecond;
+
+    @Value("${bpjs.console.verbosity:VERBOSE}")
+    private ConsoleVerbosity consoleVerbosity;
+
+    @Value("${bpjs.verify.maxWorkers:4}")
+    private int verifyMaxWorkers;
+
+    @Value("${bpjs.verify.maxStates:100000}")
+    private long verifyMaxStates;
+
+    @Value("${bpjs.verify.maxDepth:0}")
+    private int verifyMaxDepth;
+
+    @Value("${bpjs.verify.maxSeconds:300}")
+    private long verifyMaxSeconds;
+
+    @Value("${bpjs.verify.progressIntervalMillis:1000}")
+    private long verifyProgressIntervalMillis;
+
     @PostConstruct
     public void setUp() {
+        RhinoInternals.verify();
         ContextFactory.initGlobal(prototypeContextFactory);
     }
 
@@ -63,14 +121,21 @@ public class BPjsIDEServiceImpl implements BPjsIDEService {
             return createErrorResponse(ErrorCode.UNKNOWN_USER);
         }
         logger.info("received run request for user: {0}", userId);
-        String filename = sourceCodeHelper.createCodeFile(runRequest.getSourceCode());
-        if (StringUtils.isEmpty(filename)) {
+        Admission admission = admit(userId, sessionHandler.getBPjsRunnerByUser(userId));
+        if (!admission.isAdmitted()) {
+            return createErrorResponse(admission.getErrorCode());
+        }
+
+        String sourceName = sourceCodeHelper.addSourceCode(runRequest.getSourceCode());
+        if (StringUtils.isEmpty(sourceName)) {
+            admission.release();
             return createErrorResponse(ErrorCode.INVALID_SOURCE_CODE);
         }
 
-        BPJsDebugger<BooleanResponse> bpProgramDebugger = debuggerFactory.getBPJsDebugger(userId, filename, DebuggerLevel.LIGHT);
-        bpProgramDebugger.subscribe(sessionHandler);
-        sessionHandler.addNewRunExecution(userId, bpProgramDebugger, filename);
+        DebuggerLevel debuggerLevel = runRequest.isHeadless() ? DebuggerLevel.THROUGHPUT : DebuggerLevel.LIGHT;
+        BPJsDebugger<BooleanResponse> bpProgramDebugger = createDebugger(admission, userId, sourceName, debuggerLevel, runRequest);
+        bpProgramDebugger.setSyncSnapshotRetentionPolicy(createRetentionPolicy(runRequest));
+        sessionHandler.addNewRunExecution(userId, bpProgramDebugger, sourceName);
         sessionHandler.updateLastOperationTime(userId);
 
         return bpProgramDebugger.startSync(new HashMap<>(), true, true, runRequest.isWaitForExternalEvents());
@@ -86,25 +151,73 @@ public class BPjsIDEServiceImpl implements BPjsIDEService {
             return new DebugResponse(createErrorResponse(ErrorCode.UNKNOWN_USER));
         }
 
-        String filename = sourceCodeHelper.createCodeFile(debugRequest.getSourceCode());
-        if (StringUtils.isEmpty(filename)) {
+        Admission admission = admit(userId, sessionHandler.getBPjsDebuggerByUser(userId));
+        if (!admission.isAdmitted()) {
+            return new DebugResponse(createErrorResponse(admission.getErrorCode()));
+        }
+
+        String sourceName = sourceCodeHelper.addSourceCode(debugRequest.getSourceCode());
+        if (StringUtils.isEmpty(sourceName)) {
+            admission.release();
             return new DebugResponse(createErrorResponse(ErrorCode.INVALID_SOURCE_CODE));
         }
 
         logger.info("received debug request for user: {0}", userId);
-        return handleNewDebugRequest(debugRequest, userId, filename);
+        return handleNewDebugRequest(debugRequest, userId, sourceName, admission);
+    }
+
+    @Override
+    public BooleanResponse verify(VerifyRequest verifyRequest, String userId) {
+        if (verifyRequest == null || StringUtils.isEmpty(verifyRequest.getSourceCode())) {
+            return createErrorResponse(ErrorCode.INVALID_REQUEST);
+        }
+
+        if (!sessionHandler.validateUserId(userId)) {
+            return createErrorResponse(ErrorCode.UNKNOWN_USER);
+        }
+
+        logger.info("received verify request for user: {0}", userId);
+        ProgramVerifier replacedVerifier = sessionHandler.getVerifierByUser(userId);
+        if (replacedVerifier != null) {
+            replacedVerifier.unsubscribe(sessionHandler);
+            replacedVerifier.stop();
+        }
+        Admission admission = admit(userId, null);
+        if (!admission.isAdmitted()) {
+            return createErrorResponse(admission.getErrorCode());
+        }
+
+        VerificationPolicy verificationPolicy = createVerificationPolicy(verifyRequest);
+        ProgramVerifier programVerifier;
+        try {
+            programVerifier = verifierFactory.getProgramVerifier(userId, verifyRequest.getSourceCode(), verificationPolicy);
+        } catch (RuntimeException e) {
+            admission.release();
+            throw e;
+        }
+        admission.attach(programVerifier);
+        String verifierExecutorId = programVerifier.getVerifierExecutorId();
+        prototypeContextFactory.createBudget(verifierExecutorId, 0, verificationPolicy.getMaxSeconds(), reason -> onBudgetExceeded(userId, programVerifier, reason));
+        programVerifier.getTermination().thenRun(() -> prototypeContextFactory.removeThread(verifierExecutorId));
+        programVerifier.subscribe(sessionHandler);
+        sessionHandler.addNewVerification(userId, programVerifier);
+        return programVerifier.verify();
     }
 
-    private DebugResponse handleNewDebugRequest(DebugRequest debugRequest, String userId, String filename) {
-        BPJsDebugger<BooleanResponse> bpProgramDebugger = debuggerFactory.getBPJsDebugger(userId, filename, DebuggerLevel.NORMAL);
-        bpProgramDebugger.subscribe(sessionHandler);
+    private DebugResponse handleNewDebugRequest(DebugRequest debugRequest, String userId, String sourceName, Admission admission) {
+        BPJsDebugger<BooleanResponse> bpProgramDebugger = createDebugger(admission, userId, sourceName, DebuggerLevel.NORMAL, debugRequest);
+        bpProgramDebugger.setSyncSnapshotRetentionPolicy(createRetentionPolicy(debugRequest));
 
-        sessionHandler.addNewDebugExecution(userId, bpProgramDebugger, filename);
+        sessionHandler.addNewDebugExecution(userId, bpProgramDebugger, sourceName);
+        sessionHandler.setStateDeltas(userId, debugRequest.isStateDeltas());
         sessionHandler.updateLastOperationTime(userId);
 
         Map<Integer, Boolean> breakpointsMap = debugRequest.getBreakpoints()
                 .stream()
                 .collect(Collectors.toMap(Function.identity(), b -> Boolean.TRUE));
+        if (debugRequest.getEventTrace() != null && !debugRequest.getEventTrace().isEmpty()) {
+            bpProgramDebugger.replayEventTrace(debugRequest.getEventTrace());
+        }
 
         return bpProgramDebugger.startSync(breakpointsMap, debugRequest.isSkipSyncStateToggle(), debugRequest.isSkipBreakpointsToggle(), debugRequest.isWaitForExternalEvents());
     }
@@ -171,6 +284,12 @@ public class BPjsIDEServiceImpl implements BPjsIDEService {
 
     @Override
     public BooleanResponse stop(String userId) {
+        ProgramVerifier programVerifier = sessionHandler.getVerifierByUser(userId);
+        if (programVerifier != null) {
+            sessionHandler.updateLastOperationTime(userId);
+            return programVerifier.stop();
+        }
+
         BPJsDebugger<BooleanResponse> bpJsDebugger = sessionHandler.getBPjsDebuggerOrRunnerByUser(userId);
         if (bpJsDebugger == null) {
             return createErrorResponse(ErrorCode.UNKNOWN_USER);
@@ -256,6 +375,18 @@ public class BPjsIDEServiceImpl implements BPjsIDEService {
         return new EventsHistoryResponse(bpJsDebugger.getEventsHistory(from, to));
     }
 
+    @Override
+    public VariableExpansionResponse expandVariable(String userId, long handle, int from, int count) {
+        BPJsDebugger<BooleanResponse> bpJsDebugger = sessionHandler.getBPjsDebuggerByUser(userId);
+        if (bpJsDebugger == null) {
+            return new VariableExpansionResponse();
+        }
+
+        sessionHandler.updateLastOperationTime(userId);
+        VariableExpansionResponse variableExpansionResponse = bpJsDebugger.expandVariable(handle, from, count);
+        return variableExpansionResponse == null ? new VariableExpansionResponse() : variableExpansionResponse;
+    }
+
     @Override
     public BooleanResponse setSyncSnapshot(String userId, SetSyncSnapshotRequest setSyncSnapshotRequest) {
         if (setSyncSnapshotRequest == null) {
@@ -272,6 +403,33 @@ public class BPjsIDEServiceImpl implements BPjsIDEService {
         return bpJsDebugger.setSyncSnapshot(snapShotTime);
     }
 
+    @Override
+    public BooleanResponse pinSyncSnapshot(String userId, PinSyncSnapshotRequest pinSyncSnapshotRequest) {
+        if (pinSyncSnapshotRequest == null) {
+            return createErrorResponse(ErrorCode.INVALID_REQUEST);
+        }
+
+        BPJsDebugger<BooleanResponse> bpJsDebugger = sessionHandler.getBPjsDebuggerByUser(userId);
+        if (bpJsDebugger == null) {
+            return createErrorResponse(ErrorCode.UNKNOWN_USER);
+        }
+
+        sessionHandler.updateLastOperationTime(userId);
+        return bpJsDebugger.pinSyncSnapshot(pinSyncSnapshotRequest.getSnapShotTime(), pinSyncSnapshotRequest.isPin());
+    }
+
+    @Override
+    public BooleanResponse resyncState(String userId) {
+        BPJsDebugger<BooleanResponse> bpJsDebugger = sessionHandler.getBPjsDebuggerOrRunnerByUser(userId);
+        if (bpJsDebugger == null) {
+            return createErrorResponse(ErrorCode.UNKNOWN_USER);
+        }
+
+        sessionHandler.updateLastOperationTime(userId);
+        sessionHandler.resyncState(userId);
+        return new BooleanResponse(true);
+    }
+
     @Override
     public SyncSnapshot exportSyncSnapshot(String userId) {
         BPJsDebugger<BooleanResponse> bpJsDebugger = sessionHandler.getBPjsDebuggerOrRunnerByUser(userId);
@@ -282,6 +440,21 @@ public class BPjsIDEServiceImpl implements BPjsIDEService {
         return new SyncSnapshot(sessionHandler.getUsersSourceCode(userId), bpJsDebugger.getSyncSnapshot());
     }
 
+    @Override
+    public BooleanResponse exportSyncSnapshot(String userId, boolean isDeflate, OutputStream outputStream) throws IOException {
+        BPJsDebugger<BooleanResponse> bpJsDebugger = sessionHandler.getBPjsDebuggerOrRunnerByUser(userId);
+        if (bpJsDebugger == null) {
+            return createErrorResponse(ErrorCode.UNKNOWN_USER);
+        }
+        if (!bpJsDebugger.isSetup()) {
+            return createErrorResponse(ErrorCode.SETUP_REQUIRED);
+        }
+
+        SnapshotManifest manifest = new SnapshotManifest(sessionHandler.getUsersSourceCode(userId), System.currentTimeMillis());
+        SnapshotArchive.write(outputStream, manifest, isDeflate, bpJsDebugger::writeSyncSnapshot);
+        return new BooleanResponse(true);
+    }
+
     @Override
     public BooleanResponse importSyncSnapshot(String userId, ImportSyncSnapshotRequest importSyncSnapshotRequest) {
         if (!validateRequest(importSyncSnapshotRequest)) {
@@ -292,39 +465,140 @@ public class BPjsIDEServiceImpl implements BPjsIDEService {
             return createErrorResponse(ErrorCode.UNKNOWN_USER);
         }
 
-        String filename = sourceCodeHelper.createCodeFile(importSyncSnapshotRequest.getSyncSnapshot().getSourceCode());
-        if (StringUtils.isEmpty(filename)) {
+        SyncSnapshot syncSnapshot = importSyncSnapshotRequest.getSyncSnapshot();
+        return importSyncSnapshot(userId, importSyncSnapshotRequest, syncSnapshot.getSourceCode(), bpProgramDebugger -> bpProgramDebugger.setSyncSnapshot(syncSnapshot));
+    }
+
+    @Override
+    public BooleanResponse importSyncSnapshot(String userId, ImportSyncSnapshotRequest importSyncSnapshotRequest, InputStream inputStream) {
+        if (importSyncSnapshotRequest == null || inputStream == null) {
+            return createErrorResponse(ErrorCode.INVALID_REQUEST);
+        }
+
+        if (!sessionHandler.validateUserId(userId)) {
+            return createErrorResponse(ErrorCode.UNKNOWN_USER);
+        }
+
+        try (SnapshotArchive snapshotArchive = SnapshotArchive.read(inputStream, snapshotMaxImportBytes)) {
+            String sourceCode = snapshotArchive.getManifest().getSourceCode();
+            if (StringUtils.isEmpty(sourceCode)) {
+                return createErrorResponse(ErrorCode.INVALID_REQUEST);
+            }
+            return importSyncSnapshot(userId, importSyncSnapshotRequest, sourceCode,
+                    bpProgramDebugger -> bpProgramDebugger.setSyncSnapshot(snapshotArchive.getPayload()));
+        } catch (SnapshotSizeExceededException e) {
+            logger.warning("sync snapshot import of user {0} stopped: {1}", userId, e.getMessage());
+            return createErrorResponse(ErrorCode.SYNC_SNAPSHOT_TOO_LARGE);
+        } catch (IOException e) {
+            logger.error("failed reading sync snapshot archive of user {0}, error: {1}", userId, e.getMessage());
+            return createErrorResponse(ErrorCode.IMPORT_SYNC_SNAPSHOT_FAILURE);
+        }
+    }
+
+    private BooleanResponse importSyncSnapshot(String userId, ImportSyncSnapshotRequest importSyncSnapshotRequest, String sourceCode,
+                                               Function<BPJsDebugger<BooleanResponse>, BooleanResponse> snapshotImporter) {
+        boolean isDebug = importSyncSnapshotRequest.isDebug();
+        Admission admission = admit(userId, isDebug ? sessionHandler.getBPjsDebuggerByUser(userId) : sessionHandler.getBPjsRunnerByUser(userId));
+        if (!admission.isAdmitted()) {
+            return createErrorResponse(admission.getErrorCode());
+        }
+
+        String sourceName = sourceCodeHelper.addSourceCode(sourceCode);
+        if (StringUtils.isEmpty(sourceName)) {
+            admission.release();
             return new DebugResponse(createErrorResponse(ErrorCode.INVALID_SOURCE_CODE));
         }
 
         logger.info("received import sync snapshot request for user: {0}", userId);
-        BPJsDebugger<BooleanResponse> bpProgramDebugger = debuggerFactory.getBPJsDebugger(userId, filename, DebuggerLevel.NORMAL);
-        bpProgramDebugger.subscribe(sessionHandler);
+        BPJsDebugger<BooleanResponse> bpProgramDebugger = createDebugger(admission, userId, sourceName, DebuggerLevel.NORMAL, new RunRequest());
 
-        boolean isDebug = importSyncSnapshotRequest.isDebug();
         boolean isSkipSyncPoint = isDebug && importSyncSnapshotRequest.isSkipSyncStateToggle();
         boolean isSkipBreakpoints = isDebug && importSyncSnapshotRequest.isSkipBreakpointsToggle();
         boolean isWaitForExternalEvents = importSyncSnapshotRequest.isWaitForExternalEvents();
         Map<Integer, Boolean> breakpointsMap = isDebug ? importSyncSnapshotRequest.getBreakpoints()
                 .stream().collect(Collectors.toMap(Function.identity(), b -> Boolean.TRUE)) : new HashMap<>();
         if (isDebug) {
-            sessionHandler.addNewDebugExecution(userId, bpProgramDebugger, filename);
+            sessionHandler.addNewDebugExecution(userId, bpProgramDebugger, sourceName);
         }
         else {
-            sessionHandler.addNewRunExecution(userId, bpProgramDebugger, filename);
+            sessionHandler.addNewRunExecution(userId, bpProgramDebugger, sourceName);
         }
         sessionHandler.updateLastOperationTime(userId);
         BooleanResponse setupResponse = bpProgramDebugger.setup(breakpointsMap, isSkipBreakpoints, isSkipSyncPoint, isWaitForExternalEvents);
         if (!setupResponse.isSuccess()) {
             return setupResponse;
         }
-        return bpProgramDebugger.setSyncSnapshot(importSyncSnapshotRequest.getSyncSnapshot());
+        return snapshotImporter.apply(bpProgramDebugger);
     }
 
     private BooleanResponse createErrorResponse(ErrorCode errorCode) {
         return new BooleanResponse(false, errorCode);
     }
 
+    private SnapshotRetentionPolicy createRetentionPolicy(RunRequest runRequest) {
+        return admissionController.limitRetentionPolicy(
+                new SnapshotRetentionPolicy(runRequest.getHistoryKeepLast(), runRequest.getHistoryKeepEvery(), runRequest.getHistoryMaxBytes()));
+    }
+
+    private ConsolePolicy createConsolePolicy(RunRequest runRequest) {
+        ConsoleVerbosity verbosity = runRequest.getConsoleVerbosity() == null ? consoleVerbosity : runRequest.getConsoleVerbosity();
+        return new ConsolePolicy(consoleMaxBatchLines, consoleFlushIntervalMillis, consoleMaxLinesPerSecond, verbosity);
+    }
+
+    /**
+     * @return the policy of the request, whose limits can only lower the server limits
+     */
+    private VerificationPolicy createVerificationPolicy(VerifyRequest verifyRequest) {
+        return new VerificationPolicy((int) limit(verifyMaxWorkers, verifyRequest.getWorkers()),
+                limit(verifyMaxStates, verifyRequest.getMaxStates()), (int) limit(verifyMaxDepth, verifyRequest.getMaxDepth()),
+                limit(verifyMaxSeconds, verifyRequest.getMaxSeconds()), verifyProgressIntervalMillis);
+    }
+
+    private static long limit(long serverLimit, long requestedLimit) {
+        if (requestedLimit <= 0) {
+            return serverLimit;
+        }
+        return serverLimit <= 0 ? requestedLimit : Math.min(serverLimit, requestedLimit);
+    }
+
+    private Admission admit(String userId, BPJsDebugger<BooleanResponse> replacedProgram) {
+        return admissionController.admit(userId, replacedProgram,
+                queuePosition -> sessionHandler.visit(userId, new ProgramStatus(Status.QUEUED, queuePosition)));
+    }
+
+    private BPJsDebugger<BooleanResponse> createDebugger(Admission admission, String userId, String sourceName, DebuggerLevel debuggerLevel, RunRequest runRequest) {
+        BPJsDebugger<BooleanResponse> bpProgramDebugger;
+        try {
+            bpProgramDebugger = debuggerFactory.getBPJsDebugger(userId, sourceCodeHelper.getSourceCode(sourceName), debuggerLevel);
+        } catch (RuntimeException e) {
+            admission.release();
+            sourceCodeHelper.removeSourceCode(sourceName);
+            throw e;
+        }
+        admission.attach(bpProgramDebugger);
+        bpProgramDebugger.setConsolePolicy(createConsolePolicy(runRequest));
+        String debuggerExecutorId = bpProgramDebugger.getDebuggerExecutorId();
+        prototypeContextFactory.createBudget(debuggerExecutorId, runRequest.getMaxInstructions(), runRequest.getMaxRunningSeconds(),
+                reason -> onBudgetExceeded(userId, bpProgramDebugger, reason));
+        bpProgramDebugger.getTermination().thenRun(() -> prototypeContextFactory.removeThread(debuggerExecutorId));
+        return bpProgramDebugger;
+    }
+
+    private void onBudgetExceeded(String userId, BPJsDebugger<BooleanResponse> bpProgramDebugger, String reason) {
+        logger.warning("stopping the program of user {0}: {1}", userId, reason);
+        sessionHandler.visit(userId, new ConsoleMessage(ErrorCode.BUDGET_EXCEEDED + ": " + reason, LogType.error));
+        sessionHandler.visit(userId, new ProgramStatus(Status.BUDGET_EXCEEDED));
+        if (bpProgramDebugger.isSetup()) {
+            bpProgramDebugger.stop();
+        }
+    }
+
+    private void onBudgetExceeded(String userId, ProgramVerifier programVerifier, String reason) {
+        logger.warning("stopping the verification of user {0}: {1}", userId, reason);
+        sessionHandler.visit(userId, new ConsoleMessage(ErrorCode.BUDGET_EXCEEDED + ": " + reason, LogType.error));
+        programVerifier.onBudgetExceeded(reason);
+    }
+
     private boolean validateRequest(RunRequest runRequest) {
         return runRequest != null && !StringUtils.isEmpty(runRequest.getSourceCode());
     }
@@ -1,7 +1,18 @@
 package il.ac.bgu.se.bp.service.code;
 
 public interface SourceCodeHelper {
-    String createCodeFile(String sourceCode);
-    void removeCodeFile(String filename);
-    String readCodeFile(String filename);
+
+    /**
+     * Stores the source code, or takes another reference to it if the same source is already stored.
+     *
+     * @return the name of the stored source, null if it could not be stored
+     */
+    String addSourceCode(String sourceCode);
+
+    /**
+     * Releases a reference taken by {@link #addSourceCode(String)}, the source is dropped with its last reference.
+     */
+    void removeSourceCode(String sourceName);
+
+    String getSourceCode(String sourceName);
 }
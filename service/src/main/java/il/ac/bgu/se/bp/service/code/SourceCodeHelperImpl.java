@@ -1,77 +1,133 @@
 package il.ac.bgu.se.bp.service.code;
 
+import il.ac.bgu.se.bp.execution.program.ProgramSource;
 import il.ac.bgu.se.bp.utils.logger.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
 import javax.annotation.PostConstruct;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * Keeps the source code of the running programs in memory, by content: sessions with the same source share one entry,
+ * which is dropped when the last of them releases it.
+ * Sources are also written to disk only when the bpjs.sources.directory property is set.
+ */
 @Service
 public class SourceCodeHelperImpl implements SourceCodeHelper {
 
     private static final Logger logger = new Logger(SourceCodeHelperImpl.class);
-    private static final String PROGRAMS_DIRECTORY = "programs/";
-    private static final String FILENAME_PREFIX = PROGRAMS_DIRECTORY + "programFile_";
-    private static final String FILENAME_SUFFIX = ".js";
-    private static final AtomicInteger filenameCounter = new AtomicInteger(0);
+
+    private final Map<String, StoredSource> sourcesByName = new HashMap<>();
 
     @Autowired
     private FileHelper fileHelper;
 
+    @Value("${bpjs.sources.directory:}")
+    private String sourcesDirectory;
+
     @PostConstruct
     public void onInit() {
+        if (!isWritingToDisk()) {
+            return;
+        }
         try {
-            fileHelper.removeDirectory(getBasePath() + PROGRAMS_DIRECTORY);
+            fileHelper.removeDirectory(sourcesDirectory);
         } catch (Exception e) {
-            logger.error("onInit failed removing programs folder, error: {0}", e.getMessage());
+            logger.error("onInit failed removing sources directory, error: {0}", e.getMessage());
         }
         try {
-            fileHelper.createDirectory(getBasePath() + PROGRAMS_DIRECTORY);
+            fileHelper.createDirectory(sourcesDirectory);
         } catch (Exception e) {
-            logger.error("onInit failed creating programs folder, error: {0}", e.getMessage());
+            logger.error("onInit failed creating sources directory, error: {0}", e.getMessage());
         }
     }
 
     @Override
-    public String createCodeFile(String sourceCode) {
-        String filename = generateFilename();
-        try {
-            String filepath = getBasePath() + filename;
-            fileHelper.createFile(filepath);
-            fileHelper.writeTextToFile(sourceCode, filepath);
-            return filename;
-        } catch (Exception e) {
-            logger.error("failed creating or writing to file with name: {0}, error: {1}", e, filename, e.getMessage());
+    public synchronized String addSourceCode(String sourceCode) {
+        if (sourceCode == null) {
             return null;
         }
+        String sourceName = ProgramSource.of(sourceCode).getSourceName();
+        StoredSource storedSource = sourcesByName.get(sourceName);
+        if (storedSource == null) {
+            storedSource = new StoredSource(sourceCode);
+            sourcesByName.put(sourceName, storedSource);
+            writeToDisk(sourceName, sourceCode);
+        }
+        else if (!storedSource.sourceCode.equals(sourceCode)) {
+            logger.error("source name {0} is already taken by a different source", sourceName);
+            return null;
+        }
+        storedSource.references++;
+        return sourceName;
+    }
+
+    @Override
+    public synchronized void removeSourceCode(String sourceName) {
+        StoredSource storedSource = sourceName == null ? null : sourcesByName.get(sourceName);
+        if (storedSource == null) {
+            return;
+        }
+        if (--storedSource.references == 0) {
+            sourcesByName.remove(sourceName);
+            removeFromDisk(sourceName);
+        }
     }
 
     @Override
-    public void removeCodeFile(String filename) {
+    public synchronized String getSourceCode(String sourceName) {
+        StoredSource storedSource = sourceName == null ? null : sourcesByName.get(sourceName);
+        return storedSource == null ? null : storedSource.sourceCode;
+    }
+
+    public synchronized int getStoredSources() {
+        return sourcesByName.size();
+    }
+
+    private void writeToDisk(String sourceName, String sourceCode) {
+        if (!isWritingToDisk()) {
+            return;
+        }
+        String filepath = getFilepath(sourceName);
         try {
-            fileHelper.removeFile(getBasePath() + filename);
+            fileHelper.createFile(filepath);
+            fileHelper.writeTextToFile(sourceCode, filepath);
         } catch (Exception e) {
-            logger.error("failed removing file: {0}, error: {1}", e, filename, e.getMessage());
+            logger.error("failed creating or writing to file with name: {0}, error: {1}", e, filepath, e.getMessage());
         }
     }
 
-    @Override
-    public String readCodeFile(String filename) {
+    private void removeFromDisk(String sourceName) {
+        if (!isWritingToDisk()) {
+            return;
+        }
+        String filepath = getFilepath(sourceName);
         try {
-            return fileHelper.readFile(getBasePath() + filename);
+            fileHelper.removeFile(filepath);
         } catch (Exception e) {
-            logger.error("failed reading file: {0}, error: {1}", e, filename, e.getMessage());
-            return null;
+            logger.error("failed removing file: {0}, error: {1}", e, filepath, e.getMessage());
         }
     }
 
-    private String generateFilename() {
-        return FILENAME_PREFIX + filenameCounter.incrementAndGet() + FILENAME_SUFFIX;
+    private boolean isWritingToDisk() {
+        return !StringUtils.isEmpty(sourcesDirectory);
     }
 
-    private String getBasePath() {
-        ClassLoader classLoader = getClass().getClassLoader();
-        return classLoader.getResource(".").getFile();
+    private String getFilepath(String sourceName) {
+        return new File(sourcesDirectory, sourceName).getPath();
+    }
+
+    private static class StoredSource {
+        private final String sourceCode;
+        private int references = 0;
+
+        private StoredSource(String sourceCode) {
+            this.sourceCode = sourceCode;
+        }
     }
 }
@@ -0,0 +1,114 @@
+package il.ac.bgu.se.bp.service.manage;
+
+import il.ac.bgu.se.bp.debugger.BPJsDebugger;
+import il.ac.bgu.se.bp.debugger.ProgramVerifier;
+import il.ac.bgu.se.bp.error.ErrorCode;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The answer of the {@link AdmissionController} to a run, debug or verify request.
+ * An admitted request holds a session slot until {@link #release()} is called, or until the program attached to it terminates.
+ */
+public class Admission {
+    private final String userId;
+    private final ErrorCode errorCode;
+    private final AdmissionController admissionController;
+    private final AtomicBoolean isReleased = new AtomicBoolean(false);
+    private volatile BPJsDebugger<?> program;
+    private volatile ProgramVerifier verifier;
+
+    private Admission(String userId, ErrorCode errorCode, AdmissionController admissionController) {
+        this.userId = userId;
+        this.errorCode = errorCode;
+        this.admissionController = admissionController;
+    }
+
+    static Admission admitted(String userId, AdmissionController admissionController) {
+        return new Admission(userId, null, admissionController);
+    }
+
+    static Admission rejected(String userId, ErrorCode errorCode) {
+        return new Admission(userId, errorCode, null);
+    }
+
+    public boolean isAdmitted() {
+        return errorCode == null;
+    }
+
+    /**
+     * @return the reason the request was rejected, null if it was admitted
+     */
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    BPJsDebugger<?> getProgram() {
+        return program;
+    }
+
+    ProgramVerifier getVerifier() {
+        return verifier;
+    }
+
+    /**
+     * @return the CPU time used by the program or verification attached to the admission
+     */
+    long getCpuTimeNanos() {
+        BPJsDebugger<?> currentProgram = program;
+        ProgramVerifier currentVerifier = verifier;
+        if (currentVerifier != null) {
+            return currentVerifier.getCpuTimeNanos();
+        }
+        return currentProgram == null ? 0 : currentProgram.getCpuTimeNanos();
+    }
+
+    /**
+     * Stops the program or verification attached to the admission, as its user went over the CPU time quota.
+     */
+    void stopOverCpuQuota(String reason) {
+        BPJsDebugger<?> currentProgram = program;
+        ProgramVerifier currentVerifier = verifier;
+        if (currentVerifier != null) {
+            currentVerifier.onBudgetExceeded(reason);
+        }
+        else if (currentProgram != null && currentProgram.isSetup() && !currentProgram.isStopRequested()) {
+            currentProgram.stop();
+        }
+    }
+
+    /**
+     * Charges the program to the admission, which is released once the program terminates.
+     */
+    public void attach(BPJsDebugger<?> program) {
+        this.program = program;
+        program.getTermination().thenRun(this::release);
+    }
+
+    /**
+     * Charges the verification to the admission, which is released once the verification is done.
+     */
+    public void attach(ProgramVerifier verifier) {
+        this.verifier = verifier;
+        verifier.getTermination().thenRun(this::release);
+    }
+
+    public void release() {
+        if (isAdmitted() && isReleased.compareAndSet(false, true)) {
+            admissionController.release(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Admission{" +
+                "userId='" + userId + '\'' +
+                ", errorCode=" + errorCode +
+                ", isReleased=" + isReleased +
+                '}';
+    }
+}
@@ -0,0 +1,312 @@
+package il.ac.bgu.se.bp.service.manage;
+
+import il.ac.bgu.se.bp.debugger.BPJsDebugger;
+import il.ac.bgu.se.bp.debugger.ProgramVerifier;
+import il.ac.bgu.se.bp.debugger.engine.SnapshotRetentionPolicy;
+import il.ac.bgu.se.bp.error.ErrorCode;
+import il.ac.bgu.se.bp.execution.runtime.DebuggerRuntime;
+import il.ac.bgu.se.bp.rest.response.BooleanResponse;
+import il.ac.bgu.se.bp.socket.console.ConsoleMessage;
+import il.ac.bgu.se.bp.socket.console.LogType;
+import il.ac.bgu.se.bp.utils.logger.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Decides which run, debug and verify requests may start a program, a running verification counts as a program.
+ * At most {@code maxSessions} programs run at once, and at most {@code maxProgramsPerUser} of them belong to the same user.
+ * A request that finds all sessions taken waits in a FIFO queue of at most {@code maxQueuedRequests} requests for up to
+ * {@code maxQueueWaitMillis}, and is told its position whenever it changes. It is rejected with {@link ErrorCode#SERVER_BUSY}
+ * if the queue is full or the wait times out.
+ * The programs of a user whose programs used more than {@code maxCpuSecondsPerUser} of CPU time within the current window of
+ * {@code cpuQuotaWindowSeconds} are stopped, and its new requests are rejected until the window ends. The CPU time of the
+ * programs that finished in the window is charged to the user on release, so stopping and restarting does not reset it.
+ * The sync snapshot history of each program is limited to its share of {@code maxSnapshotBytesPerUser}.
+ * A value of 0 disables these two caps.
+ * The CPU time is measured per thread, which the JVM does not do for virtual threads, so there the CPU cap is disabled.
+ */
+@Component
+public class AdmissionController {
+    private static final Logger logger = new Logger(AdmissionController.class);
+
+    @Value("${bpjs.admission.maxSessions:64}")
+    private int maxSessions;
+
+    @Value("${bpjs.admission.maxQueuedRequests:32}")
+    private int maxQueuedRequests;
+
+    @Value("${bpjs.admission.maxQueueWaitMillis:30000}")
+    private long maxQueueWaitMillis;
+
+    @Value("${bpjs.admission.maxProgramsPerUser:2}")
+    private int maxProgramsPerUser;
+
+    @Value("${bpjs.admission.maxCpuSecondsPerUser:900}")
+    private long maxCpuSecondsPerUser;
+
+    @Value("${bpjs.admission.cpuQuotaWindowSeconds:3600}")
+    private long cpuQuotaWindowSeconds;
+
+    @Value("${bpjs.admission.maxSnapshotBytesPerUser:0}")
+    private long maxSnapshotBytesPerUser;
+
+    @Autowired
+    private SessionHandler<BPJsDebugger<BooleanResponse>> sessionHandler;
+
+    private final LinkedList<Waiter> queue = new LinkedList<>();
+    private final Map<String, List<Admission>> admissionsByUser = new HashMap<>();
+    private final Map<String, CpuUsage> finishedCpuUsageByUser = new HashMap<>();
+    private int admittedSessions = 0;
+    private long rejectedRequests = 0;
+
+    public AdmissionController() {
+    }
+
+    AdmissionController(int maxSessions, int maxQueuedRequests, long maxQueueWaitMillis, int maxProgramsPerUser,
+                        long maxCpuSecondsPerUser, long maxSnapshotBytesPerUser) {
+        this(maxSessions, maxQueuedRequests, maxQueueWaitMillis, maxProgramsPerUser, maxCpuSecondsPerUser, 3600, maxSnapshotBytesPerUser);
+    }
+
+    AdmissionController(int maxSessions, int maxQueuedRequests, long maxQueueWaitMillis, int maxProgramsPerUser,
+                        long maxCpuSecondsPerUser, long cpuQuotaWindowSeconds, long maxSnapshotBytesPerUser) {
+        this.maxSessions = maxSessions;
+        this.maxQueuedRequests = maxQueuedRequests;
+        this.maxQueueWaitMillis = maxQueueWaitMillis;
+        this.maxProgramsPerUser = maxProgramsPerUser;
+        this.maxCpuSecondsPerUser = maxCpuSecondsPerUser;
+        this.cpuQuotaWindowSeconds = cpuQuotaWindowSeconds;
+        this.maxSnapshotBytesPerUser = maxSnapshotBytesPerUser;
+    }
+
+    /**
+     * Admits a request of the user, waiting in the queue if all sessions are taken.
+     *
+     * @param replacedProgram the program the new one replaces, which does not count toward the user's programs
+     * @param onQueuePositionChanged called with the 1 based position of the request while it waits
+     */
+    public Admission admit(String userId, BPJsDebugger<?> replacedProgram, IntConsumer onQueuePositionChanged) {
+        Waiter waiter;
+        synchronized (this) {
+            if (countUserPrograms(userId, replacedProgram) >= maxProgramsPerUser) {
+                rejectedRequests++;
+                logger.warning("user {0} reached the limit of {1} programs", userId, maxProgramsPerUser);
+                return Admission.rejected(userId, ErrorCode.USER_QUOTA_EXCEEDED);
+            }
+            if (maxCpuSecondsPerUser > 0 && getFinishedCpuTimeNanos(userId) > TimeUnit.SECONDS.toNanos(maxCpuSecondsPerUser)) {
+                rejectedRequests++;
+                logger.warning("user {0} used its CPU time quota of {1} seconds", userId, maxCpuSecondsPerUser);
+                return Admission.rejected(userId, ErrorCode.USER_QUOTA_EXCEEDED);
+            }
+            if (queue.isEmpty() && admittedSessions < maxSessions) {
+                return admitNow(userId);
+            }
+            if (queue.size() >= maxQueuedRequests) {
+                rejectedRequests++;
+                logger.warning("rejecting request of user {0}, {1} sessions are running and {2} requests are queued", userId, admittedSessions, queue.size());
+                return Admission.rejected(userId, ErrorCode.SERVER_BUSY);
+            }
+            waiter = new Waiter(userId, onQueuePositionChanged);
+            queue.addLast(waiter);
+        }
+        notifyQueuePositions();
+        return awaitAdmission(waiter);
+    }
+
+    @PostConstruct
+    void limitToRuntime() {
+        DebuggerRuntime runtime = DebuggerRuntime.getInstance();
+        if (maxCpuSecondsPerUser > 0 && !runtime.isCpuTimeMeasured()) {
+            logger.warning("the debugger runtime does not measure CPU time, bpjs.admission.maxCpuSecondsPerUser is disabled");
+            maxCpuSecondsPerUser = 0;
+        }
+    }
+
+    private Admission awaitAdmission(Waiter waiter) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxQueueWaitMillis);
+        synchronized (this) {
+            try {
+                long remaining;
+                while (waiter.admission == null && (remaining = deadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (waiter.admission != null) {
+                return waiter.admission;
+            }
+            queue.remove(waiter);
+            rejectedRequests++;
+        }
+        logger.warning("request of user {0} timed out in the admission queue", waiter.userId);
+        notifyQueuePositions();
+        return Admission.rejected(waiter.userId, ErrorCode.SERVER_BUSY);
+    }
+
+    void release(Admission admission) {
+        synchronized (this) {
+            List<Admission> userAdmissions = admissionsByUser.get(admission.getUserId());
+            if (userAdmissions == null || !userAdmissions.remove(admission)) {
+                return;
+            }
+            if (userAdmissions.isEmpty()) {
+                admissionsByUser.remove(admission.getUserId());
+            }
+            if (maxCpuSecondsPerUser > 0) {
+                getCpuUsage(admission.getUserId()).charge(admission.getCpuTimeNanos());
+            }
+            admittedSessions--;
+            while (admittedSessions < maxSessions && !queue.isEmpty()) {
+                Waiter waiter = queue.removeFirst();
+                waiter.admission = admitNow(waiter.userId);
+            }
+            notifyAll();
+        }
+        notifyQueuePositions();
+    }
+
+    private Admission admitNow(String userId) {
+        Admission admission = Admission.admitted(userId, this);
+        admissionsByUser.computeIfAbsent(userId, id -> new LinkedList<>()).add(admission);
+        admittedSessions++;
+        return admission;
+    }
+
+    private int countUserPrograms(String userId, BPJsDebugger<?> replacedProgram) {
+        int userPrograms = (int) queue.stream().filter(waiter -> waiter.userId.equals(userId)).count();
+        for (Admission admission : admissionsByUser.getOrDefault(userId, Collections.emptyList())) {
+            BPJsDebugger<?> program = admission.getProgram();
+            ProgramVerifier verifier = admission.getVerifier();
+            if (verifier != null) {
+                userPrograms += verifier.isStopRequested() ? 0 : 1;
+            }
+            else if (program == null || (program != replacedProgram && !program.isStopRequested())) {
+                userPrograms++;
+            }
+        }
+        return userPrograms;
+    }
+
+    private void notifyQueuePositions() {
+        Map<Waiter, Integer> changedPositions = new LinkedHashMap<>();
+        synchronized (this) {
+            int position = 1;
+            for (Waiter waiter : queue) {
+                if (waiter.notifiedPosition != position) {
+                    waiter.notifiedPosition = position;
+                    changedPositions.put(waiter, position);
+                }
+                position++;
+            }
+        }
+        changedPositions.forEach((waiter, position) -> waiter.onQueuePositionChanged.accept(position));
+    }
+
+    /**
+     * @return the policy, with its byte limit lowered to the share of a single program in the snapshot memory of a user
+     */
+    public SnapshotRetentionPolicy limitRetentionPolicy(SnapshotRetentionPolicy retentionPolicy) {
+        if (maxSnapshotBytesPerUser <= 0) {
+            return retentionPolicy;
+        }
+        long maxProgramBytes = Math.max(1, maxSnapshotBytesPerUser / Math.max(1, maxProgramsPerUser));
+        long maxBytes = retentionPolicy.getMaxBytes() > 0 ? Math.min(retentionPolicy.getMaxBytes(), maxProgramBytes) : maxProgramBytes;
+        return new SnapshotRetentionPolicy(retentionPolicy.getKeepLast(), retentionPolicy.getKeepEvery(), maxBytes);
+    }
+
+    @Scheduled(fixedRate = 1000)
+    public void stopProgramsOverCpuQuota() {
+        if (maxCpuSecondsPerUser <= 0) {
+            return;
+        }
+        Map<String, List<Admission>> admissionsSnapshot = new HashMap<>();
+        Map<String, Long> finishedCpuTimesNanos = new HashMap<>();
+        synchronized (this) {
+            finishedCpuUsageByUser.values().removeIf(CpuUsage::isWindowOver);
+            admissionsByUser.forEach((userId, admissions) -> {
+                admissionsSnapshot.put(userId, new ArrayList<>(admissions));
+                finishedCpuTimesNanos.put(userId, getFinishedCpuTimeNanos(userId));
+            });
+        }
+        long maxCpuTimeNanos = TimeUnit.SECONDS.toNanos(maxCpuSecondsPerUser);
+        admissionsSnapshot.forEach((userId, admissions) -> {
+            long cpuTimeNanos = finishedCpuTimesNanos.get(userId) + admissions.stream().mapToLong(Admission::getCpuTimeNanos).sum();
+            if (cpuTimeNanos <= maxCpuTimeNanos) {
+                return;
+            }
+            logger.warning("user {0} used {1} ms of CPU time, stopping its programs", userId, TimeUnit.NANOSECONDS.toMillis(cpuTimeNanos));
+            String reason = "CPU time quota of " + maxCpuSecondsPerUser + " seconds exceeded";
+            sessionHandler.visit(userId, new ConsoleMessage(reason + ", stopping the program", LogType.error));
+            admissions.forEach(admission -> admission.stopOverCpuQuota(reason));
+        });
+    }
+
+    /**
+     * @return the CPU time of the user's programs that finished in the current window
+     */
+    private long getFinishedCpuTimeNanos(String userId) {
+        CpuUsage cpuUsage = finishedCpuUsageByUser.get(userId);
+        return cpuUsage == null || cpuUsage.isWindowOver() ? 0 : cpuUsage.cpuTimeNanos;
+    }
+
+    private CpuUsage getCpuUsage(String userId) {
+        CpuUsage cpuUsage = finishedCpuUsageByUser.get(userId);
+        if (cpuUsage == null || cpuUsage.isWindowOver()) {
+            cpuUsage = new CpuUsage(System.nanoTime() + TimeUnit.SECONDS.toNanos(cpuQuotaWindowSeconds));
+            finishedCpuUsageByUser.put(userId, cpuUsage);
+        }
+        return cpuUsage;
+    }
+
+    public synchronized int getAdmittedSessions() {
+        return admittedSessions;
+    }
+
+    public synchronized int getQueuedRequests() {
+        return queue.size();
+    }
+
+    public synchronized long getRejectedRequests() {
+        return rejectedRequests;
+    }
+
+    /**
+     * The CPU time charged to a user until the end of its quota window.
+     */
+    private static class CpuUsage {
+        private final long windowEndNanos;
+        private long cpuTimeNanos = 0;
+
+        private CpuUsage(long windowEndNanos) {
+            this.windowEndNanos = windowEndNanos;
+        }
+
+        private void charge(long cpuTimeNanos) {
+            this.cpuTimeNanos += cpuTimeNanos;
+        }
+
+        private boolean isWindowOver() {
+            return System.nanoTime() - windowEndNanos >= 0;
+        }
+    }
+
+    private static class Waiter {
+        private final String userId;
+        private final IntConsumer onQueuePositionChanged;
+        private Admission admission;
+        private int notifiedPosition = 0;
+
+        private Waiter(String userId, IntConsumer onQueuePositionChanged) {
+            this.userId = userId;
+            this.onQueuePositionChanged = onQueuePositionChanged;
+        }
+    }
+}
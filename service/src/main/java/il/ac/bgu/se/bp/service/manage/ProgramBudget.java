@@ -0,0 +1,90 @@
+package il.ac.bgu.se.bp.service.manage;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The JS instructions and running time a single program may use, fed by {@link PrototypeContextFactory} every few thousand instructions.
+ * Running time is the wall-clock time the program spends executing JS code: a gap of more than {@link #PAUSE_GAP_NANOS} between
+ * two observations means the program was paused (e.g. on a breakpoint or waiting for an event), and is not counted.
+ * A limit of 0 disables it.
+ */
+public class ProgramBudget {
+    static final long PAUSE_GAP_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long maxInstructions;
+    private final long maxRunningNanos;
+    private final Consumer<String> onExceeded;
+
+    private long instructions = 0;
+    private long runningNanos = 0;
+    private long lastObservationTime = 0;
+    private String exceededReason = null;
+
+    /**
+     * @param onExceeded called once, with the reason, when the program goes over the budget
+     */
+    public ProgramBudget(long maxInstructions, long maxRunningSeconds, Consumer<String> onExceeded) {
+        this.maxInstructions = Math.max(maxInstructions, 0);
+        this.maxRunningNanos = TimeUnit.SECONDS.toNanos(Math.max(maxRunningSeconds, 0));
+        this.onExceeded = onExceeded;
+    }
+
+    /**
+     * @throws ProgramBudgetExceededError if the program went over the budget, to abort the running script
+     */
+    public void observe(int instructionCount, long currentTime) {
+        boolean isFirstExceeded;
+        String reason;
+        synchronized (this) {
+            isFirstExceeded = exceededReason == null && update(instructionCount, currentTime);
+            reason = exceededReason;
+        }
+        if (isFirstExceeded) {
+            onExceeded.accept(reason);
+        }
+        if (reason != null) {
+            throw new ProgramBudgetExceededError(reason);
+        }
+    }
+
+    private boolean update(int instructionCount, long currentTime) {
+        instructions += instructionCount;
+        long gap = currentTime - lastObservationTime;
+        if (lastObservationTime != 0 && gap < PAUSE_GAP_NANOS) {
+            runningNanos += gap;
+        }
+        lastObservationTime = currentTime;
+
+        if (maxInstructions > 0 && instructions > maxInstructions) {
+            exceededReason = "instruction budget of " + maxInstructions + " instructions exceeded";
+        }
+        else if (maxRunningNanos > 0 && runningNanos > maxRunningNanos) {
+            exceededReason = "running time budget of " + TimeUnit.NANOSECONDS.toSeconds(maxRunningNanos) + " seconds exceeded";
+        }
+        return exceededReason != null;
+    }
+
+    public synchronized long getInstructions() {
+        return instructions;
+    }
+
+    public synchronized long getRunningMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(runningNanos);
+    }
+
+    public synchronized boolean isExceeded() {
+        return exceededReason != null;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ProgramBudget{" +
+                "maxInstructions=" + maxInstructions +
+                ", maxRunningNanos=" + maxRunningNanos +
+                ", instructions=" + instructions +
+                ", runningNanos=" + runningNanos +
+                ", exceededReason='" + exceededReason + '\'' +
+                '}';
+    }
+}
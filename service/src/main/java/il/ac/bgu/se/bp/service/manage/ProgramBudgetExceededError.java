@@ -0,0 +1,13 @@
+package il.ac.bgu.se.bp.service.manage;
+
+/**
+ * Thrown from the instruction observer to abort a script whose program went over its {@link ProgramBudget}.
+ * It is an {@link Error} so that JS try/catch blocks cannot swallow it.
+ */
+public class ProgramBudgetExceededError extends Error {
+    private static final long serialVersionUID = 3326415306683287411L;
+
+    public ProgramBudgetExceededError(String message) {
+        super(message);
+    }
+}
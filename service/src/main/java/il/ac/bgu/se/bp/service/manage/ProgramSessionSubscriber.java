@@ -0,0 +1,92 @@
+package il.ac.bgu.se.bp.service.manage;
+
+import il.ac.bgu.se.bp.socket.console.ConsoleMessage;
+import il.ac.bgu.se.bp.socket.progress.ProgramProgress;
+import il.ac.bgu.se.bp.socket.snapshots.SyncSnapshotsEvicted;
+import il.ac.bgu.se.bp.socket.state.BPDebuggerState;
+import il.ac.bgu.se.bp.socket.status.ProgramStatus;
+import il.ac.bgu.se.bp.utils.observer.BPEvent;
+import il.ac.bgu.se.bp.utils.observer.Publisher;
+import il.ac.bgu.se.bp.utils.observer.Subscriber;
+import il.ac.bgu.se.bp.utils.visitor.PublisherVisitor;
+
+/**
+ * Delivers the events of a single program to the {@link SessionHandlerImpl}.
+ * The debugger states of the program are versioned, and turned into deltas once enabled, by a {@link StateDeltaTracker}
+ * of its own, so a run and a debug session of the same user never share one.
+ * A resync is published to the program like any of its events, so the full state is sent in order with its deltas.
+ */
+class ProgramSessionSubscriber implements Subscriber<BPEvent>, PublisherVisitor {
+    private final SessionHandlerImpl sessionHandler;
+    private volatile StateDeltaTracker stateDeltaTracker = new StateDeltaTracker(false);
+
+    ProgramSessionSubscriber(SessionHandlerImpl sessionHandler) {
+        this.sessionHandler = sessionHandler;
+    }
+
+    void setStateDeltas(boolean stateDeltas) {
+        stateDeltaTracker = new StateDeltaTracker(stateDeltas);
+    }
+
+    /**
+     * Queues a resend of the last state of the program after the events it already published.
+     */
+    void requestResync(Publisher<BPEvent> program, String userId) {
+        program.notifySubscribers(new StateResyncEvent(userId, this));
+    }
+
+    @Override
+    public void update(BPEvent event) {
+        if (event instanceof StateResyncEvent) {
+            if (event.getEvent() == this) {
+                sessionHandler.resendState(event.getDebuggerId(), stateDeltaTracker);
+            }
+            return;
+        }
+        event.accept(this);
+    }
+
+    @Override
+    public void visit(String userId, BPDebuggerState debuggerState) {
+        sessionHandler.sendState(userId, debuggerState, stateDeltaTracker);
+    }
+
+    @Override
+    public void visit(String userId, ConsoleMessage consoleMessage) {
+        sessionHandler.visit(userId, consoleMessage);
+    }
+
+    @Override
+    public void visit(String userId, ProgramStatus programStatus) {
+        sessionHandler.visit(userId, programStatus);
+    }
+
+    @Override
+    public void visit(String userId, ProgramProgress programProgress) {
+        sessionHandler.visit(userId, programProgress);
+    }
+
+    @Override
+    public void visit(String userId, SyncSnapshotsEvicted syncSnapshotsEvicted) {
+        sessionHandler.visit(userId, syncSnapshotsEvicted);
+    }
+
+    /**
+     * Handled by the subscriber that published it, the other subscribers of the program ignore it.
+     */
+    private static class StateResyncEvent extends BPEvent<ProgramSessionSubscriber> {
+
+        private StateResyncEvent(String userId, ProgramSessionSubscriber subscriber) {
+            super(userId, subscriber);
+        }
+
+        @Override
+        public void accept(PublisherVisitor visitor) {
+        }
+
+        @Override
+        public String getEventType() {
+            return "StateResyncEvent";
+        }
+    }
+}
@@ -1,27 +1,115 @@
 package il.ac.bgu.se.bp.service.manage;
 
+import il.ac.bgu.se.bp.execution.runtime.InstructionObserver;
+import il.ac.bgu.se.bp.execution.runtime.SessionContextFactory;
+import il.ac.bgu.se.bp.utils.logger.Logger;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ContextFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+/**
+ * The global Rhino context factory of the server. Contexts are kept per program thread, and every
+ * {@link #INSTRUCTION_OBSERVER_THRESHOLD} instructions the {@link ProgramBudget} of the program is charged,
+ * whether the context was made by this factory or by the {@link SessionContextFactory} of the program.
+ * The default budget comes from the bpjs.budget.* properties, a run request may only lower it.
+ */
 @Component
-public class PrototypeContextFactory extends ContextFactory {
+public class PrototypeContextFactory extends ContextFactory implements InstructionObserver {
+    private static final Logger logger = new Logger(PrototypeContextFactory.class);
+    static final int INSTRUCTION_OBSERVER_THRESHOLD = 10_000;
 
     private final static ConcurrentMap<String, Context> contextByThreadId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ProgramBudget> budgetByThreadId = new ConcurrentHashMap<>();
+
+    @Value("${bpjs.budget.maxInstructions:0}")
+    private long maxInstructions;
+
+    @Value("${bpjs.budget.maxRunningSeconds:600}")
+    private long maxRunningSeconds;
 
     public PrototypeContextFactory() {
     }
 
     public Context enterContext() {
-        final String threadId = Thread.currentThread().getName();
+        final String threadId = getCurrentThreadId();
         contextByThreadId.putIfAbsent(threadId, Context.enter());
         return this.enterContext(contextByThreadId.get(threadId));
     }
 
+    /**
+     * Starts charging the JS code run by the threads of {@code threadId} to a new budget.
+     *
+     * @param requestedMaxInstructions the limit asked for by the user, 0 for the default
+     * @param requestedMaxRunningSeconds the limit asked for by the user, 0 for the default
+     */
+    public ProgramBudget createBudget(String threadId, long requestedMaxInstructions, long requestedMaxRunningSeconds, Consumer<String> onExceeded) {
+        ProgramBudget budget = new ProgramBudget(limit(maxInstructions, requestedMaxInstructions),
+                limit(maxRunningSeconds, requestedMaxRunningSeconds), onExceeded);
+        budgetByThreadId.put(threadId, budget);
+        return budget;
+    }
+
+    /**
+     * @return the JS instructions executed so far by each program that has a budget
+     */
+    public Map<String, Long> getInstructionCounts() {
+        return budgetByThreadId.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().getInstructions()));
+    }
+
     public void removeThread(String threadId) {
         contextByThreadId.remove(threadId);
+        ProgramBudget budget = budgetByThreadId.remove(threadId);
+        if (budget != null) {
+            logger.info("program {0} finished, budget: {1}", threadId, budget);
+        }
+    }
+
+    @Override
+    protected Context makeContext() {
+        Context cx = super.makeContext();
+        cx.setInstructionObserverThreshold(INSTRUCTION_OBSERVER_THRESHOLD);
+        return cx;
+    }
+
+    @Override
+    protected void observeInstructionCount(Context cx, int instructionCount) {
+        onInstructionsExecuted(instructionCount);
+    }
+
+    @Override
+    public int getInstructionObserverThreshold() {
+        return INSTRUCTION_OBSERVER_THRESHOLD;
+    }
+
+    @Override
+    public void onInstructionsExecuted(int instructionCount) {
+        ProgramBudget budget = budgetByThreadId.get(getCurrentThreadId());
+        if (budget != null) {
+            budget.observe(instructionCount, System.nanoTime());
+        }
+    }
+
+    private static long limit(long serverLimit, long requestedLimit) {
+        if (requestedLimit <= 0) {
+            return serverLimit;
+        }
+        return serverLimit <= 0 ? requestedLimit : Math.min(serverLimit, requestedLimit);
+    }
+
+    /**
+     * @return the name of the current thread without its "#n" suffix, so all the threads of a program share it
+     */
+    private static String getCurrentThreadId() {
+        String threadName = Thread.currentThread().getName();
+        int suffixIndex = threadName.lastIndexOf('#');
+        return suffixIndex < 0 ? threadName : threadName.substring(0, suffixIndex);
     }
 }
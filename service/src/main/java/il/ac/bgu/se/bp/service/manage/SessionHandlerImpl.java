@@ -1,11 +1,15 @@
 package il.ac.bgu.se.bp.service.manage;
 
 import il.ac.bgu.se.bp.debugger.BPJsDebugger;
+import il.ac.bgu.se.bp.debugger.ProgramVerifier;
 import il.ac.bgu.se.bp.rest.response.BooleanResponse;
 import il.ac.bgu.se.bp.service.code.SourceCodeHelper;
 import il.ac.bgu.se.bp.service.notification.NotificationHandler;
 import il.ac.bgu.se.bp.socket.console.ConsoleMessage;
+import il.ac.bgu.se.bp.socket.progress.ProgramProgress;
+import il.ac.bgu.se.bp.socket.snapshots.SyncSnapshotsEvicted;
 import il.ac.bgu.se.bp.socket.state.BPDebuggerState;
+import il.ac.bgu.se.bp.socket.state.BPDebuggerStateDelta;
 import il.ac.bgu.se.bp.socket.status.ProgramStatus;
 import il.ac.bgu.se.bp.socket.status.Status;
 import il.ac.bgu.se.bp.utils.logger.Logger;
@@ -18,8 +22,10 @@ import org.springframework.stereotype.Component;
 import org.thymeleaf.util.StringUtils;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 @Component
 @EnableScheduling
@@ -33,11 +39,17 @@ public class SessionHandlerImpl implements SessionHandler<BPJsDebugger<BooleanRe
     private static final Map<String, UserProgramSession<BPJsDebugger<BooleanResponse>>> bpDebugProgramsByUsers = new ConcurrentHashMap<>();
     private static final Map<String, UserProgramSession<BPJsDebugger<BooleanResponse>>> bpRunProgramsByUsers = new ConcurrentHashMap<>();
     private static final Map<String, UserSession> unknownSessions = new ConcurrentHashMap<>();
+    private static final Map<BPJsDebugger<BooleanResponse>, ProgramSessionSubscriber> subscribersByPrograms = new ConcurrentHashMap<>();
+    private static final Map<String, ProgramVerifier> verifiersByUsers = new ConcurrentHashMap<>();
 
     @Autowired
     @Qualifier("stateNotificationHandlerImpl")
     private NotificationHandler stateNotificationHandler;
 
+    @Autowired
+    @Qualifier("stateDeltaNotificationHandlerImpl")
+    private NotificationHandler stateDeltaNotificationHandler;
+
     @Autowired
     @Qualifier("consoleNotificationHandlerImpl")
     private NotificationHandler consoleNotificationHandler;
@@ -46,6 +58,14 @@ public class SessionHandlerImpl implements SessionHandler<BPJsDebugger<BooleanRe
     @Qualifier("programStatusNotificationHandlerImpl")
     private NotificationHandler programStatusNotificationHandler;
 
+    @Autowired
+    @Qualifier("programProgressNotificationHandlerImpl")
+    private NotificationHandler programProgressNotificationHandler;
+
+    @Autowired
+    @Qualifier("syncSnapshotsNotificationHandlerImpl")
+    private NotificationHandler syncSnapshotsNotificationHandler;
+
     @Autowired
     private SourceCodeHelper sourceCodeHelper;
 
@@ -68,6 +88,16 @@ public class SessionHandlerImpl implements SessionHandler<BPJsDebugger<BooleanRe
         addDebugExecutionTo(userId, bpProgramDebugger, filename, bpDebugProgramsByUsers);
     }
 
+    @Override
+    public void addNewVerification(String userId, ProgramVerifier programVerifier) {
+        ProgramVerifier replacedVerifier = verifiersByUsers.put(userId, programVerifier);
+        if (replacedVerifier != null && replacedVerifier != programVerifier) {
+            stopUnreachableVerifier(replacedVerifier);
+        }
+        programVerifier.getTermination().thenRun(() -> verifiersByUsers.remove(userId, programVerifier));
+        updateLastOperationTime(userId);
+    }
+
     private void addDebugExecutionTo(String userId, BPJsDebugger<BooleanResponse> bpProgramDebugger, String filename, Map<String, UserProgramSession<BPJsDebugger<BooleanResponse>>> bpDebuggersByUsers) {
         UserSession existingUserSession = unknownSessions.get(userId);
         if (existingUserSession == null) {
@@ -75,10 +105,68 @@ public class SessionHandlerImpl implements SessionHandler<BPJsDebugger<BooleanRe
         }
 
         existingUserSession.setThreadId(bpProgramDebugger.getDebuggerExecutorId());
-        bpDebuggersByUsers.put(userId, existingUserSession.withProgram(bpProgramDebugger).withFilename(filename));
+        subscribeToProgram(bpProgramDebugger);
+        UserProgramSession<BPJsDebugger<BooleanResponse>> replacedSession =
+                bpDebuggersByUsers.put(userId, existingUserSession.withProgram(bpProgramDebugger).withFilename(filename));
+        if (replacedSession != null && replacedSession.getProgram() != bpProgramDebugger) {
+            stopUnreachableProgram(replacedSession.getProgram());
+            sourceCodeHelper.removeSourceCode(replacedSession.getFilename());
+        }
         updateLastOperationTime(userId);
     }
 
+    private void subscribeToProgram(BPJsDebugger<BooleanResponse> program) {
+        ProgramSessionSubscriber programSessionSubscriber = new ProgramSessionSubscriber(this);
+        ProgramSessionSubscriber replacedSubscriber = subscribersByPrograms.put(program, programSessionSubscriber);
+        if (replacedSubscriber != null) {
+            program.unsubscribe(replacedSubscriber);
+        }
+        program.subscribe(programSessionSubscriber);
+    }
+
+    private void unsubscribeFromProgram(BPJsDebugger<BooleanResponse> program) {
+        ProgramSessionSubscriber programSessionSubscriber = subscribersByPrograms.remove(program);
+        if (programSessionSubscriber != null) {
+            program.unsubscribe(programSessionSubscriber);
+        }
+    }
+
+    @Override
+    public void setStateDeltas(String userId, boolean stateDeltas) {
+        UserProgramSession<BPJsDebugger<BooleanResponse>> userProgramSession = bpDebugProgramsByUsers.get(userId);
+        ProgramSessionSubscriber programSessionSubscriber = userProgramSession == null ? null : subscribersByPrograms.get(userProgramSession.getProgram());
+        if (programSessionSubscriber != null) {
+            programSessionSubscriber.setStateDeltas(stateDeltas);
+        }
+    }
+
+    /**
+     * The resync is queued on the event pipeline of the user's program, the debugged one if any, so the full state
+     * reaches the user after the deltas already published and before the following ones.
+     */
+    @Override
+    public boolean resyncState(String userId) {
+        UserProgramSession<BPJsDebugger<BooleanResponse>> userProgramSession = bpDebugProgramsByUsers.get(userId);
+        if (userProgramSession == null) {
+            userProgramSession = bpRunProgramsByUsers.get(userId);
+        }
+        ProgramSessionSubscriber programSessionSubscriber = userProgramSession == null ? null : subscribersByPrograms.get(userProgramSession.getProgram());
+        if (programSessionSubscriber == null) {
+            return false;
+        }
+        programSessionSubscriber.requestResync(userProgramSession.getProgram(), userId);
+        return true;
+    }
+
+    void resendState(String userId, StateDeltaTracker stateDeltaTracker) {
+        BPDebuggerState lastState = stateDeltaTracker.resync();
+        if (lastState == null) {
+            return;
+        }
+        logger.info("resending debugger state version {0} to user: {1}", lastState.getVersion(), userId);
+        visit(userId, lastState);
+    }
+
     @Override
     public BPJsDebugger<BooleanResponse> getBPjsRunnerByUser(String userId) {
         return getBPJsDebuggerFrom(userId, bpRunProgramsByUsers);
@@ -91,13 +179,43 @@ public class SessionHandlerImpl implements SessionHandler<BPJsDebugger<BooleanRe
 
     @Override
     public BPJsDebugger<BooleanResponse> getBPjsDebuggerOrRunnerByUser(String userId) {
-        UserProgramSession<BPJsDebugger<BooleanResponse>> userSession = getUserDebuggerSession(userId);
-        return userSession != null ? userSession.getProgram() : null;
+        return getRunningProgram(getUserDebuggerSession(userId));
+    }
+
+    /**
+     * @return the verification of the user, or null if there is none or it is being stopped
+     */
+    @Override
+    public ProgramVerifier getVerifierByUser(String userId) {
+        ProgramVerifier programVerifier = verifiersByUsers.get(userId);
+        return programVerifier == null || programVerifier.isStopRequested() ? null : programVerifier;
+    }
+
+    @Override
+    public List<BPJsDebugger<BooleanResponse>> getRunPrograms() {
+        return getProgramsFrom(bpRunProgramsByUsers);
+    }
+
+    @Override
+    public List<BPJsDebugger<BooleanResponse>> getDebugPrograms() {
+        return getProgramsFrom(bpDebugProgramsByUsers);
+    }
+
+    private List<BPJsDebugger<BooleanResponse>> getProgramsFrom(Map<String, UserProgramSession<BPJsDebugger<BooleanResponse>>> bpDebuggersByUsers) {
+        return bpDebuggersByUsers.values().stream()
+                .map(UserProgramSession::getProgram)
+                .collect(Collectors.toList());
     }
 
     private BPJsDebugger<BooleanResponse> getBPJsDebuggerFrom(String userId, Map<String, UserProgramSession<BPJsDebugger<BooleanResponse>>> bpDebuggersByUsers) {
-        UserProgramSession<BPJsDebugger<BooleanResponse>> userSession = bpDebuggersByUsers.get(userId);
-        if (userSession == null) {
+        return getRunningProgram(bpDebuggersByUsers.get(userId));
+    }
+
+    /**
+     * @return the program of the session, or null if there is none or it is being stopped
+     */
+    private BPJsDebugger<BooleanResponse> getRunningProgram(UserProgramSession<BPJsDebugger<BooleanResponse>> userSession) {
+        if (userSession == null || userSession.getProgram().isStopRequested()) {
             return null;
         }
 
@@ -113,7 +231,7 @@ public class SessionHandlerImpl implements SessionHandler<BPJsDebugger<BooleanRe
     @Override
     public String getUsersSourceCode(String userId) {
         UserProgramSession<BPJsDebugger<BooleanResponse>> userSession = getUserDebuggerSession(userId);
-        return userSession != null ? sourceCodeHelper.readCodeFile(userSession.getFilename()) : null;
+        return userSession != null ? sourceCodeHelper.getSourceCode(userSession.getFilename()) : null;
     }
 
     private UserSession getUserSession(String userId) {
@@ -149,6 +267,10 @@ public class SessionHandlerImpl implements SessionHandler<BPJsDebugger<BooleanRe
         logger.info("removing user: {0}", userId);
         unknownSessions.remove(userId);
         removeUserPrograms(userId);
+        ProgramVerifier programVerifier = verifiersByUsers.remove(userId);
+        if (programVerifier != null) {
+            stopUnreachableVerifier(programVerifier);
+        }
     }
 
     @Scheduled(fixedRate = BP_JS_PROGRAM_TTL)
@@ -175,6 +297,19 @@ public class SessionHandlerImpl implements SessionHandler<BPJsDebugger<BooleanRe
         stateNotificationHandler.sendNotification(userId, debuggerState);
     }
 
+    /**
+     * Sends a delta when the tracker of the program produced one, otherwise the full state as any visited state.
+     */
+    void sendState(String userId, BPDebuggerState debuggerState, StateDeltaTracker stateDeltaTracker) {
+        BPDebuggerStateDelta debuggerStateDelta = stateDeltaTracker.update(debuggerState);
+        if (debuggerStateDelta == null) {
+            visit(userId, debuggerState);
+        }
+        else if (validateUserId(userId)) {
+            stateDeltaNotificationHandler.sendNotification(userId, debuggerStateDelta);
+        }
+    }
+
     @Override
     public void visit(String userId, ConsoleMessage consoleMessage) {
         if (!validateUserId(userId)) {
@@ -190,8 +325,25 @@ public class SessionHandlerImpl implements SessionHandler<BPJsDebugger<BooleanRe
         }
         programStatusNotificationHandler.sendNotification(userId, programStatus);
         if (Status.STOP.equals(programStatus.getStatus())) {
-            removeUserPrograms(userId);
+            removeStoppedProgramFrom(userId, bpDebugProgramsByUsers);
+            removeStoppedProgramFrom(userId, bpRunProgramsByUsers);
+        }
+    }
+
+    @Override
+    public void visit(String userId, ProgramProgress programProgress) {
+        if (!validateUserId(userId)) {
+            return;
         }
+        programProgressNotificationHandler.sendNotification(userId, programProgress);
+    }
+
+    @Override
+    public void visit(String userId, SyncSnapshotsEvicted syncSnapshotsEvicted) {
+        if (!validateUserId(userId)) {
+            return;
+        }
+        syncSnapshotsNotificationHandler.sendNotification(userId, syncSnapshotsEvicted);
     }
 
     @Override
@@ -199,20 +351,58 @@ public class SessionHandlerImpl implements SessionHandler<BPJsDebugger<BooleanRe
         event.accept(this);
     }
 
+    /**
+     * A STOP status arrives once the stopped program finished tearing down, by then the user may have started a new one,
+     * and the user's other program, a run next to a debug session, keeps running. So only a session whose program was
+     * asked to stop and has terminated is removed.
+     */
+    private void removeStoppedProgramFrom(String userId, Map<String, UserProgramSession<BPJsDebugger<BooleanResponse>>> programByUserId) {
+        UserProgramSession<BPJsDebugger<BooleanResponse>> userProgramSession = programByUserId.get(userId);
+        if (userProgramSession == null) {
+            return;
+        }
+        BPJsDebugger<BooleanResponse> program = userProgramSession.getProgram();
+        if (program.isStopRequested() && program.getTermination().isDone() && programByUserId.remove(userId, userProgramSession)) {
+            logger.info("removing stopped program {0} of user: {1}", program.getDebuggerExecutorId(), userId);
+            unsubscribeFromProgram(program);
+            releaseUserProgramSession(userProgramSession);
+        }
+    }
+
+    /**
+     * Stops a program the user can no longer reach, without telling the user, so that it frees its session.
+     */
+    private void stopUnreachableProgram(BPJsDebugger<BooleanResponse> program) {
+        unsubscribeFromProgram(program);
+        if (program.isSetup() && !program.isStopRequested()) {
+            program.stop();
+        }
+    }
+
+    private void stopUnreachableVerifier(ProgramVerifier programVerifier) {
+        programVerifier.unsubscribe(this);
+        programVerifier.stop();
+    }
+
     private void removeUserPrograms(String userId) {
         logger.info("removing programs associated with user: {0}", userId);
         removeUserProgramFrom(userId, bpDebugProgramsByUsers);
         removeUserProgramFrom(userId, bpRunProgramsByUsers);
     }
 
-    private void removeUserProgramFrom(String userId, Map<String, ? extends UserProgramSession> programByUserId) {
-        UserProgramSession userProgramSession = programByUserId.remove(userId);
+    private void removeUserProgramFrom(String userId, Map<String, UserProgramSession<BPJsDebugger<BooleanResponse>>> programByUserId) {
+        UserProgramSession<BPJsDebugger<BooleanResponse>> userProgramSession = programByUserId.remove(userId);
         if (userProgramSession != null) {
-            prototypeContextFactory.removeThread(userProgramSession.getThreadId());
-            sourceCodeHelper.removeCodeFile(userProgramSession.getFilename());
+            stopUnreachableProgram(userProgramSession.getProgram());
+            releaseUserProgramSession(userProgramSession);
         }
     }
 
+    private void releaseUserProgramSession(UserProgramSession<BPJsDebugger<BooleanResponse>> userProgramSession) {
+        prototypeContextFactory.removeThread(userProgramSession.getThreadId());
+        sourceCodeHelper.removeSourceCode(userProgramSession.getFilename());
+    }
+
     private LocalDateTime getCurrentLocalDateTime() {
         return LocalDateTime.now();
     }
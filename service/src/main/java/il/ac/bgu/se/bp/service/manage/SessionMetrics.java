@@ -0,0 +1,119 @@
+package il.ac.bgu.se.bp.service.manage;
+
+import il.ac.bgu.se.bp.debugger.BPJsDebugger;
+import il.ac.bgu.se.bp.debugger.RunnerState;
+import il.ac.bgu.se.bp.execution.program.CompiledProgramCache;
+import il.ac.bgu.se.bp.execution.runtime.DebuggerRuntime;
+import il.ac.bgu.se.bp.rest.response.BooleanResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Gauges of the sessions and of the {@link DebuggerRuntime} they run on, read whenever the metrics are collected.
+ * The timings of the debuggers themselves are recorded by {@link il.ac.bgu.se.bp.execution.runtime.DebuggerMetrics}.
+ * The snapshot history and the JS instructions are reported as the total and the largest of a session rather than per
+ * user or program, so the series do not grow with the number of users.
+ */
+@Component
+public class SessionMetrics implements MeterBinder {
+
+    @Autowired
+    private SessionHandler<BPJsDebugger<BooleanResponse>> sessionHandler;
+
+    @Autowired
+    private AdmissionController admissionController;
+
+    @Autowired
+    private PrototypeContextFactory prototypeContextFactory;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (RunnerState.State state : RunnerState.State.values()) {
+            bindSessionsGauge(registry, "run", state, sessionHandler::getRunPrograms);
+            bindSessionsGauge(registry, "debug", state, sessionHandler::getDebugPrograms);
+        }
+        Gauge.builder("bpjs.sessions.admitted", admissionController, AdmissionController::getAdmittedSessions)
+                .description("sessions holding an admission slot")
+                .register(registry);
+        Gauge.builder("bpjs.sessions.queued", admissionController, AdmissionController::getQueuedRequests)
+                .description("requests waiting for an admission slot")
+                .register(registry);
+
+        Gauge.builder("bpjs.snapshots.history.total", this, metrics -> metrics.getSyncSnapshotsCounts().sum())
+                .description("sync snapshots kept in the histories of all the sessions")
+                .register(registry);
+        Gauge.builder("bpjs.snapshots.history.max", this, metrics -> metrics.getSyncSnapshotsCounts().max().orElse(0))
+                .description("sync snapshots kept in the largest history of a session")
+                .register(registry);
+        Gauge.builder("bpjs.programs.instructions.total", this, metrics -> metrics.getInstructionCounts().sum())
+                .description("JS instructions executed so far by the running programs")
+                .register(registry);
+        Gauge.builder("bpjs.programs.instructions.max", this, metrics -> metrics.getInstructionCounts().max().orElse(0))
+                .description("JS instructions executed so far by the running program that executed the most")
+                .register(registry);
+
+        DebuggerRuntime runtime = DebuggerRuntime.getInstance();
+        Gauge.builder("bpjs.notifications.queued", runtime, DebuggerRuntime::getQueuedEvents)
+                .description("events queued to be sent to the users")
+                .register(registry);
+        FunctionCounter.builder("bpjs.notifications.dropped.states", runtime, DebuggerRuntime::getDroppedStates)
+                .description("debugger states dropped because a newer state was published before they were sent")
+                .register(registry);
+        bindRuntimeGauge(registry, "bpjs.executor.threads", "live platform threads of the debugger runtime, 0 on virtual threads", DebuggerRuntime::getCarrierThreads);
+        bindRuntimeGauge(registry, "bpjs.executor.lanes.open", "session executors", DebuggerRuntime::getOpenLanes);
+        bindRuntimeGauge(registry, "bpjs.executor.lanes.busy", "session executors running a task", DebuggerRuntime::getBusyLanes);
+        bindRuntimeGauge(registry, "bpjs.executor.lanes.waiting", "session executors waiting for a platform thread", DebuggerRuntime::getWaitingLanes);
+        bindRuntimeGauge(registry, "bpjs.executor.tasks.queued", "tasks waiting in the session executors", DebuggerRuntime::getQueuedTasks);
+        bindRuntimeGauge(registry, "bpjs.executor.sessions.paused", "sessions paused on a breakpoint, each keeping its threads", DebuggerRuntime::getPausedSessions);
+
+        CompiledProgramCache programCache = CompiledProgramCache.getInstance();
+        Gauge.builder("bpjs.programs.compiled.size", programCache, CompiledProgramCache::getSize)
+                .description("compiled program sources kept in the cache")
+                .register(registry);
+        FunctionCounter.builder("bpjs.programs.compiled.hits", programCache, CompiledProgramCache::getHits)
+                .description("program sources found compiled in the cache")
+                .register(registry);
+        FunctionCounter.builder("bpjs.programs.compiled.misses", programCache, CompiledProgramCache::getMisses)
+                .description("program sources compiled because they were not in the cache")
+                .register(registry);
+        FunctionCounter.builder("bpjs.programs.compiled.evictions", programCache, CompiledProgramCache::getEvictions)
+                .description("compiled program sources evicted from the cache")
+                .register(registry);
+    }
+
+    private void bindSessionsGauge(MeterRegistry registry, String mode, RunnerState.State state, Supplier<List<BPJsDebugger<BooleanResponse>>> programs) {
+        Gauge.builder("bpjs.sessions", this, metrics -> programs.get().stream()
+                        .filter(program -> program.getDebuggerState().getDebuggerState() == state)
+                        .count())
+                .description("sessions by mode and runner state")
+                .tag("mode", mode)
+                .tag("state", state.name())
+                .register(registry);
+    }
+
+    private void bindRuntimeGauge(MeterRegistry registry, String name, String description, ToDoubleFunction<DebuggerRuntime> value) {
+        Gauge.builder(name, DebuggerRuntime.getInstance(), value)
+                .description(description)
+                .register(registry);
+    }
+
+    private LongStream getInstructionCounts() {
+        return prototypeContextFactory.getInstructionCounts().values().stream().mapToLong(Long::longValue);
+    }
+
+    private IntStream getSyncSnapshotsCounts() {
+        return Stream.concat(sessionHandler.getDebugPrograms().stream(), sessionHandler.getRunPrograms().stream())
+                .mapToInt(BPJsDebugger::getSyncSnapshotsCount);
+    }
+}
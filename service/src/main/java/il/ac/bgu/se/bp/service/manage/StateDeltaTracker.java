@@ -0,0 +1,147 @@
+package il.ac.bgu.se.bp.service.manage;
+
+import il.ac.bgu.se.bp.socket.state.*;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Versions the debugger states sent to a single user and, once enabled, turns each state into a delta
+ * against the previous one. A full state is produced first, after a resync and whenever the breakpoints
+ * array changes its length.
+ */
+public class StateDeltaTracker {
+    private final boolean isDeltasEnabled;
+
+    private BPDebuggerState lastState;
+    private long version = 0;
+    private boolean isResyncRequired = true;
+
+    public StateDeltaTracker(boolean isDeltasEnabled) {
+        this.isDeltasEnabled = isDeltasEnabled;
+    }
+
+    /**
+     * Stamps the state with the next version.
+     *
+     * @return the delta to send, or null if the full state should be sent
+     */
+    public synchronized BPDebuggerStateDelta update(BPDebuggerState state) {
+        BPDebuggerState previousState = lastState;
+        state.setVersion(++version);
+        lastState = state;
+
+        if (!isDeltasEnabled || isResyncRequired || previousState == null || !isSameBreakpointsLength(previousState, state)) {
+            isResyncRequired = false;
+            return null;
+        }
+        return diff(previousState, state);
+    }
+
+    /**
+     * @return the last state to resend in full, or null if no state was sent yet
+     */
+    public synchronized BPDebuggerState resync() {
+        isResyncRequired = lastState == null;
+        return lastState;
+    }
+
+    private BPDebuggerStateDelta diff(BPDebuggerState previousState, BPDebuggerState state) {
+        BPDebuggerStateDelta delta = new BPDebuggerStateDelta(state.getVersion(), previousState.getVersion());
+        diffBThreads(previousState.getbThreadInfoList(), state.getbThreadInfoList(), delta);
+        diffEventsHistory(previousState.getEventsHistory(), state.getEventsHistory(), delta);
+        diffGlobalEnv(previousState.getGlobalEnv(), state.getGlobalEnv(), delta);
+
+        Boolean[] previousBreakpoints = previousState.getBreakpoints();
+        Boolean[] breakpoints = state.getBreakpoints();
+        for (int i = 0; breakpoints != null && i < breakpoints.length; i++) {
+            if (!Objects.equals(previousBreakpoints[i], breakpoints[i])) {
+                delta.getChangedBreakpoints().put(i, breakpoints[i]);
+            }
+        }
+
+        if (!isSameEventsStatus(previousState.getEventsStatus(), state.getEventsStatus())) {
+            delta.setEventsStatus(state.getEventsStatus());
+        }
+        if (!Objects.equals(previousState.getDebuggerConfigs(), state.getDebuggerConfigs())) {
+            delta.setDebuggerConfigs(state.getDebuggerConfigs());
+        }
+        delta.setCurrentRunningBT(state.getCurrentRunningBT());
+        delta.setCurrentLineNumber(state.getCurrentLineNumber());
+        return delta;
+    }
+
+    private void diffBThreads(List<BThreadInfo> previousBThreads, List<BThreadInfo> bThreads, BPDebuggerStateDelta delta) {
+        Map<String, BThreadInfo> previousBThreadsByName = toMap(previousBThreads, BThreadInfo::getName);
+        Set<String> bThreadNames = new HashSet<>();
+        for (BThreadInfo bThread : emptyIfNull(bThreads)) {
+            bThreadNames.add(bThread.getName());
+            if (!isSameBThread(previousBThreadsByName.get(bThread.getName()), bThread)) {
+                delta.getChangedBThreads().add(bThread);
+            }
+        }
+        previousBThreadsByName.keySet().stream()
+                .filter(name -> !bThreadNames.contains(name))
+                .forEach(delta.getRemovedBThreads()::add);
+    }
+
+    private void diffEventsHistory(SortedMap<Long, EventInfo> previousEventsHistory, SortedMap<Long, EventInfo> eventsHistory, BPDebuggerStateDelta delta) {
+        Map<Long, EventInfo> previous = previousEventsHistory == null ? Collections.emptyMap() : previousEventsHistory;
+        Map<Long, EventInfo> current = eventsHistory == null ? Collections.emptyMap() : eventsHistory;
+        current.forEach((key, event) -> {
+            if (!Objects.equals(previous.get(key), event)) {
+                delta.getAddedEventsHistory().put(key, event);
+            }
+        });
+        previous.keySet().stream()
+                .filter(key -> !current.containsKey(key))
+                .forEach(delta.getRemovedEventsHistory()::add);
+    }
+
+    private void diffGlobalEnv(Map<String, String> previousGlobalEnv, Map<String, String> globalEnv, BPDebuggerStateDelta delta) {
+        Map<String, String> previous = previousGlobalEnv == null ? Collections.emptyMap() : previousGlobalEnv;
+        Map<String, String> current = globalEnv == null ? Collections.emptyMap() : globalEnv;
+        current.forEach((name, value) -> {
+            if (!previous.containsKey(name) || !Objects.equals(previous.get(name), value)) {
+                delta.getChangedGlobalEnv().put(name, value);
+            }
+        });
+        previous.keySet().stream()
+                .filter(name -> !current.containsKey(name))
+                .forEach(delta.getRemovedGlobalEnv()::add);
+    }
+
+    private boolean isSameBThread(BThreadInfo previousBThread, BThreadInfo bThread) {
+        return previousBThread != null &&
+                Objects.equals(previousBThread.getEnv(), bThread.getEnv()) &&
+                Objects.equals(previousBThread.getWait(), bThread.getWait()) &&
+                Objects.equals(previousBThread.getBlocked(), bThread.getBlocked()) &&
+                Objects.equals(previousBThread.getRequested(), bThread.getRequested());
+    }
+
+    private boolean isSameEventsStatus(EventsStatus previousEventsStatus, EventsStatus eventsStatus) {
+        if (previousEventsStatus == null || eventsStatus == null) {
+            return previousEventsStatus == eventsStatus;
+        }
+        return Objects.equals(previousEventsStatus.getWait(), eventsStatus.getWait()) &&
+                Objects.equals(previousEventsStatus.getBlocked(), eventsStatus.getBlocked()) &&
+                Objects.equals(previousEventsStatus.getRequested(), eventsStatus.getRequested()) &&
+                Objects.equals(previousEventsStatus.getExternalEvents(), eventsStatus.getExternalEvents()) &&
+                Objects.equals(previousEventsStatus.getCurrentEvent(), eventsStatus.getCurrentEvent());
+    }
+
+    private boolean isSameBreakpointsLength(BPDebuggerState previousState, BPDebuggerState state) {
+        Boolean[] previousBreakpoints = previousState.getBreakpoints();
+        Boolean[] breakpoints = state.getBreakpoints();
+        return previousBreakpoints == null ? breakpoints == null : breakpoints != null && previousBreakpoints.length == breakpoints.length;
+    }
+
+    private static <T> Map<String, T> toMap(List<T> values, Function<T, String> keyMapper) {
+        return emptyIfNull(values).stream().collect(Collectors.toMap(keyMapper, Function.identity(), (first, second) -> second, LinkedHashMap::new));
+    }
+
+    private static <T> List<T> emptyIfNull(List<T> values) {
+        return values == null ? Collections.emptyList() : values;
+    }
+}
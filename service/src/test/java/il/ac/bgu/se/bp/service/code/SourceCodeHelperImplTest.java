@@ -0,0 +1,28 @@
+package il.ac.bgu.se.bp.service.code;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SourceCodeHelperImplTest {
+
+    private final SourceCodeHelperImpl sourceCodeHelper = new SourceCodeHelperImpl();
+
+    @Test
+    public void testSourceCodeHelper_identicalSourcesShareAnEntry() {
+        String first = sourceCodeHelper.addSourceCode("bp.log.info('hello');");
+        String second = sourceCodeHelper.addSourceCode("bp.log.info('hello');");
+        String other = sourceCodeHelper.addSourceCode("bp.log.info('bye');");
+
+        assertEquals(first, second);
+        assertNotEquals(first, other);
+        assertEquals(2, sourceCodeHelper.getStoredSources());
+
+        sourceCodeHelper.removeSourceCode(first);
+        assertEquals("bp.log.info('hello');", sourceCodeHelper.getSourceCode(second));
+
+        sourceCodeHelper.removeSourceCode(second);
+        assertNull(sourceCodeHelper.getSourceCode(first));
+        assertEquals(1, sourceCodeHelper.getStoredSources());
+    }
+}
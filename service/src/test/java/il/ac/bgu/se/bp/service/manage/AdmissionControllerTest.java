@@ -0,0 +1,83 @@
+package il.ac.bgu.se.bp.service.manage;
+
+import il.ac.bgu.se.bp.debugger.BPJsDebugger;
+import il.ac.bgu.se.bp.debugger.engine.SnapshotRetentionPolicy;
+import il.ac.bgu.se.bp.error.ErrorCode;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AdmissionControllerTest {
+
+    @Test
+    public void testAdmissionController_queuedRequestIsAdmittedOnRelease() throws Exception {
+        AdmissionController admissionController = new AdmissionController(1, 1, 10_000, 2, 0, 0);
+        Admission first = admissionController.admit("alex", null, position -> {});
+        assertTrue(first.isAdmitted());
+
+        List<Integer> positions = new CopyOnWriteArrayList<>();
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            Future<Admission> queued = executorService.submit(() -> admissionController.admit("ron", null, positions::add));
+            while (admissionController.getQueuedRequests() == 0) {
+                Thread.sleep(10);
+            }
+
+            Admission rejected = admissionController.admit("tal", null, position -> {});
+            assertEquals(ErrorCode.SERVER_BUSY, rejected.getErrorCode());
+
+            first.release();
+            Admission second = queued.get(5, TimeUnit.SECONDS);
+            assertTrue(second.isAdmitted());
+            assertEquals(1, positions.size());
+            assertEquals(1, positions.get(0).intValue());
+            assertEquals(1, admissionController.getAdmittedSessions());
+            assertEquals(1, admissionController.getRejectedRequests());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAdmissionController_userQuota() {
+        AdmissionController admissionController = new AdmissionController(10, 0, 0, 1, 0, 0);
+        BPJsDebugger<?> program = mock(BPJsDebugger.class);
+        when(program.getTermination()).thenReturn(new CompletableFuture<>());
+
+        Admission admission = admissionController.admit("alex", null, position -> {});
+        admission.attach(program);
+        assertEquals(ErrorCode.USER_QUOTA_EXCEEDED, admissionController.admit("alex", null, position -> {}).getErrorCode());
+        assertTrue(admissionController.admit("alex", program, position -> {}).isAdmitted());
+        assertTrue(admissionController.admit("ron", null, position -> {}).isAdmitted());
+    }
+
+    @Test
+    public void testAdmissionController_cpuTimeOfFinishedProgramsIsCharged() {
+        AdmissionController admissionController = new AdmissionController(10, 0, 0, 2, 1, 3600, 0);
+        BPJsDebugger<?> program = mock(BPJsDebugger.class);
+        CompletableFuture<Void> termination = new CompletableFuture<>();
+        when(program.getTermination()).thenReturn(termination);
+        when(program.getCpuTimeNanos()).thenReturn(TimeUnit.SECONDS.toNanos(2));
+
+        Admission admission = admissionController.admit("alex", null, position -> {});
+        admission.attach(program);
+        termination.complete(null);
+
+        assertEquals(0, admissionController.getAdmittedSessions());
+        assertEquals(ErrorCode.USER_QUOTA_EXCEEDED, admissionController.admit("alex", null, position -> {}).getErrorCode());
+        assertTrue(admissionController.admit("ron", null, position -> {}).isAdmitted());
+    }
+
+    @Test
+    public void testAdmissionController_limitRetentionPolicy() {
+        AdmissionController admissionController = new AdmissionController(10, 0, 0, 2, 0, 1000);
+        assertEquals(500, admissionController.limitRetentionPolicy(SnapshotRetentionPolicy.unbounded()).getMaxBytes());
+        assertEquals(100, admissionController.limitRetentionPolicy(new SnapshotRetentionPolicy(5, 0, 100)).getMaxBytes());
+        assertEquals(5, admissionController.limitRetentionPolicy(new SnapshotRetentionPolicy(5, 0, 100)).getKeepLast());
+    }
+}
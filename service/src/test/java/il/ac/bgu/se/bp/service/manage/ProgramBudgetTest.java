@@ -0,0 +1,50 @@
+package il.ac.bgu.se.bp.service.manage;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ProgramBudgetTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testProgramBudget_instructionLimit() {
+        List<String> reasons = new CopyOnWriteArrayList<>();
+        ProgramBudget budget = new ProgramBudget(15_000, 0, reasons::add);
+
+        budget.observe(10_000, 1);
+        assertFalse(budget.isExceeded());
+        assertExceeded(budget, 2);
+        assertExceeded(budget, 3);
+
+        assertEquals(1, reasons.size());
+        assertEquals(20_000, budget.getInstructions());
+    }
+
+    @Test
+    public void testProgramBudget_pausesAreNotCounted() {
+        ProgramBudget budget = new ProgramBudget(0, 1, reason -> {});
+
+        budget.observe(10_000, SECOND);
+        budget.observe(10_000, SECOND + SECOND / 2);
+        budget.observe(10_000, 10 * SECOND);
+        budget.observe(10_000, 10 * SECOND + SECOND / 4);
+        assertEquals(750, budget.getRunningMillis());
+        assertFalse(budget.isExceeded());
+
+        assertExceeded(budget, 10 * SECOND + SECOND / 2 + SECOND / 4);
+    }
+
+    private void assertExceeded(ProgramBudget budget, long currentTime) {
+        try {
+            budget.observe(10_000, currentTime);
+            fail("budget should have been exceeded");
+        } catch (ProgramBudgetExceededError e) {
+            assertTrue(budget.isExceeded());
+        }
+    }
+}
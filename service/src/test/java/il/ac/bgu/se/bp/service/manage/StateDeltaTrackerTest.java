@@ -0,0 +1,89 @@
+package il.ac.bgu.se.bp.service.manage;
+
+import il.ac.bgu.se.bp.socket.state.*;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class StateDeltaTrackerTest {
+
+    @Test
+    public void testStateDeltaTracker_deltaAfterFirstFullState() {
+        StateDeltaTracker stateDeltaTracker = new StateDeltaTracker(true);
+        assertNull(stateDeltaTracker.update(createState("x", "1", "a", false)));
+
+        BPDebuggerState state = createState("x", "2", "b", true);
+        state.getbThreadInfoList().add(new BThreadInfo("bt2", new HashMap<>()));
+        BPDebuggerStateDelta delta = stateDeltaTracker.update(state);
+
+        assertNotNull(delta);
+        assertEquals(1, delta.getBaseVersion());
+        assertEquals(2, delta.getVersion());
+        assertEquals(2, state.getVersion());
+        assertEquals(Arrays.asList("bt1", "bt2"), names(delta.getChangedBThreads()));
+        assertEquals(Collections.singletonMap("x", "2"), delta.getChangedGlobalEnv());
+        assertEquals(Collections.singletonMap(1, true), delta.getChangedBreakpoints());
+        assertEquals(new EventInfo("b"), delta.getAddedEventsHistory().get(2L));
+        assertTrue(delta.getRemovedEventsHistory().isEmpty());
+        assertNull(delta.getEventsStatus());
+    }
+
+    @Test
+    public void testStateDeltaTracker_unchangedPartsAreOmitted() {
+        StateDeltaTracker stateDeltaTracker = new StateDeltaTracker(true);
+        stateDeltaTracker.update(createState("x", "1", "a", false));
+        BPDebuggerState state = createState("y", "1", "a", false);
+        state.getGlobalEnv().remove("x");
+        BPDebuggerStateDelta delta = stateDeltaTracker.update(state);
+
+        assertTrue(delta.getChangedBThreads().isEmpty());
+        assertTrue(delta.getChangedBreakpoints().isEmpty());
+        assertEquals(Collections.singletonList("x"), delta.getRemovedGlobalEnv());
+        assertEquals(Collections.singletonMap("y", "1"), delta.getChangedGlobalEnv());
+    }
+
+    @Test
+    public void testStateDeltaTracker_resyncSendsFullState() {
+        StateDeltaTracker stateDeltaTracker = new StateDeltaTracker(true);
+        assertNull(stateDeltaTracker.resync());
+
+        BPDebuggerState state = createState("x", "1", "a", false);
+        assertNull(stateDeltaTracker.update(state));
+        assertSame(state, stateDeltaTracker.resync());
+        assertNotNull(stateDeltaTracker.update(createState("x", "2", "a", false)));
+    }
+
+    @Test
+    public void testStateDeltaTracker_disabledSendsFullStates() {
+        StateDeltaTracker stateDeltaTracker = new StateDeltaTracker(false);
+        BPDebuggerState first = createState("x", "1", "a", false);
+        BPDebuggerState second = createState("x", "2", "b", false);
+
+        assertNull(stateDeltaTracker.update(first));
+        assertNull(stateDeltaTracker.update(second));
+        assertEquals(1, first.getVersion());
+        assertEquals(2, second.getVersion());
+    }
+
+    private BPDebuggerState createState(String variable, String bThreadValue, String lastEvent, boolean breakpoint) {
+        Map<Integer, BThreadScope> env = new HashMap<>();
+        env.put(0, new BThreadScope("main", "1", Collections.singletonMap("i", bThreadValue)));
+        List<BThreadInfo> bThreads = new ArrayList<>(Collections.singletonList(new BThreadInfo("bt1", env)));
+
+        SortedMap<Long, EventInfo> eventsHistory = new TreeMap<>(Collections.reverseOrder());
+        eventsHistory.put(1L, new EventInfo("a"));
+        eventsHistory.put(2L, new EventInfo(lastEvent));
+
+        Map<String, String> globalEnv = new LinkedHashMap<>();
+        globalEnv.put(variable, bThreadValue);
+        return new BPDebuggerState(bThreads, new EventsStatus(), eventsHistory, null, null, null, new Boolean[]{false, breakpoint}, globalEnv);
+    }
+
+    private List<String> names(List<BThreadInfo> bThreads) {
+        List<String> names = new ArrayList<>();
+        bThreads.forEach(bThread -> names.add(bThread.getName()));
+        return names;
+    }
+}